@@ -0,0 +1,86 @@
+package app;
+
+import entity.Task;
+import manager.CsvTaskParser;
+import manager.FileBackedTaskManager;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// Это замер скорости загрузки снимка CSV на миллионе строк: разбор в одном потоке,
+// параллельный разбор кусками и полная загрузка менеджера с пересчётом эпиков
+public class LoadBenchmark {
+    private static final int ROWS = 1_000_000; // Количество строк в снимке
+    private static final int SUBTASKS_PER_EPIC = 50; // Подзадач на эпик
+    private static final int RUNS = 5; // Количество замеров
+
+    public static void main(String[] args) throws IOException {
+        File file = File.createTempFile("loadBenchmark", ".csv");
+        file.deleteOnExit();
+        writeSnapshot(file, ROWS);
+        System.out.println(String.format("Снимок: %d строк, %.1f МБ, потоков в пуле: %d",
+                ROWS, file.length() / 1024.0 / 1024.0, ForkJoinPool.commonPool().getParallelism()));
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int firstLine = CsvTaskParser.nextLineStart(buffer, 0, buffer.limit());
+            for (int run = 1; run <= RUNS; run++) {
+                long start = System.nanoTime();
+                List<Task> sequential = new ArrayList<>();
+                new CsvTaskParser(buffer.duplicate()).parse(firstLine, buffer.limit(), sequential::add);
+                long sequentialMillis = (System.nanoTime() - start) / 1_000_000;
+
+                start = System.nanoTime();
+                List<Task> parallel = CsvTaskParser.parseParallel(buffer, firstLine, buffer.limit(),
+                        ForkJoinPool.commonPool());
+                long parallelMillis = (System.nanoTime() - start) / 1_000_000;
+
+                start = System.nanoTime();
+                FileBackedTaskManager manager = FileBackedTaskManager.loadFromFile(file);
+                long loadMillis = (System.nanoTime() - start) / 1_000_000;
+
+                System.out.println(String.format("Замер %d: разбор в одном потоке %d мс, параллельный разбор %d мс, "
+                                + "загрузка менеджера %d мс (%d задач)", run, sequentialMillis, parallelMillis,
+                        loadMillis, sequential.size() == parallel.size() ? manager.getAllSubtask().size()
+                                + manager.getAllEpics().size() + manager.getAllTasks().size() : -1));
+            }
+        }
+    }
+
+    // Метод записывает снимок CSV: эпики с подзадачами и обычные задачи, у каждой третьей задачи есть время
+    static void writeSnapshot(File file, int rows) throws IOException {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        int epicCount = rows / (SUBTASKS_PER_EPIC + 1) / 2;
+        int taskCount = rows - epicCount * (SUBTASKS_PER_EPIC + 1);
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("id,type,name,description,status,duration,startTime,epicId\n");
+            int id = 0;
+            for (int i = 0; i < taskCount; i++) {
+                id++;
+                String time = id % 3 == 0 ? "30," + base.plusHours(id) : ",";
+                writer.write(id + ",TASK_TYPE,Задача " + id + ",NEW,Описание задачи " + id + "," + time + ",\n");
+            }
+            for (int e = 0; e < epicCount; e++) {
+                int epicId = ++id;
+                writer.write(epicId + ",EPIC_TYPE,Эпик " + epicId + ",NEW,Описание эпика,,,\n");
+                for (int s = 0; s < SUBTASKS_PER_EPIC; s++) {
+                    id++;
+                    String status = s % 3 == 0 ? "DONE" : s % 3 == 1 ? "IN_PROGRESS" : "NEW";
+                    String time = id % 3 == 0 ? "30," + base.plusHours(id) : ",";
+                    writer.write(id + ",SUBTASK_TYPE,Подзадача " + id + "," + status + ",Описание подзадачи,"
+                            + time + "," + epicId + "\n");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package app;
+
+import entity.Status;
+import entity.Task;
+import manager.IntObjectMap;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.function.Supplier;
+
+// Это сравнение хранилища задач на HashMap<Integer, Task> и на IntObjectMap<Task>: занимаемая память
+// на запись (без самих задач) и скорость вставки, чтения по ID и удаления. Задачи добавляются с растущими ID,
+// как в менеджере, а читаются и удаляются в случайном порядке, как при обращениях из интерфейса.
+// JMH в проекте нет, поэтому замер ручной: каждая операция повторяется несколько раз и берётся лучший результат
+public class MapBenchmark {
+    private static final int SIZE = 2_000_000; // Количество записей
+    private static final int RUNS = 5; // Количество замеров каждой операции
+
+    public static void main(String[] args) {
+        Task[] tasks = new Task[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            tasks[i] = new Task("Task" + i, "Desc", Status.NEW);
+            tasks[i].setId(i + 1);
+        }
+        int[] order = new int[SIZE]; // ID в случайном порядке
+        for (int i = 0; i < SIZE; i++) {
+            order[i] = i + 1;
+        }
+        Random random = new Random(1);
+        for (int i = SIZE - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+
+        long hashMapBytes = footprint(() -> fillHashMap(tasks));
+        long intMapBytes = footprint(() -> fillIntMap(tasks));
+        System.out.println(String.format("Память на запись: HashMap %.1f байт, IntObjectMap %.1f байт",
+                (double) hashMapBytes / SIZE, (double) intMapBytes / SIZE));
+
+        long[] hashMapNanos = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+        long[] intMapNanos = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+        long checksum = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            HashMap<Integer, Task> hashMap = fillHashMap(tasks);
+            hashMapNanos[0] = Math.min(hashMapNanos[0], System.nanoTime() - start);
+            start = System.nanoTime();
+            for (int id : order) {
+                checksum += hashMap.get(id).getId();
+            }
+            hashMapNanos[1] = Math.min(hashMapNanos[1], System.nanoTime() - start);
+            start = System.nanoTime();
+            for (int i = 0; i < SIZE; i += 2) {
+                hashMap.remove(order[i]);
+            }
+            hashMapNanos[2] = Math.min(hashMapNanos[2], System.nanoTime() - start);
+
+            start = System.nanoTime();
+            IntObjectMap<Task> intMap = fillIntMap(tasks);
+            intMapNanos[0] = Math.min(intMapNanos[0], System.nanoTime() - start);
+            start = System.nanoTime();
+            for (int id : order) {
+                checksum += intMap.get(id).getId();
+            }
+            intMapNanos[1] = Math.min(intMapNanos[1], System.nanoTime() - start);
+            start = System.nanoTime();
+            for (int i = 0; i < SIZE; i += 2) {
+                intMap.remove(order[i]);
+            }
+            intMapNanos[2] = Math.min(intMapNanos[2], System.nanoTime() - start);
+        }
+
+        String[] operations = {"вставка", "чтение", "удаление половины"};
+        for (int i = 0; i < operations.length; i++) {
+            int count = i == 2 ? SIZE / 2 : SIZE;
+            System.out.println(String.format("%-18s HashMap %6.1f млн оп/с, IntObjectMap %6.1f млн оп/с",
+                    operations[i], count / (hashMapNanos[i] / 1e9) / 1e6, count / (intMapNanos[i] / 1e9) / 1e6));
+        }
+        System.out.println("Контрольная сумма: " + checksum); // Чтобы чтения не были выброшены оптимизатором
+    }
+
+    private static HashMap<Integer, Task> fillHashMap(Task[] tasks) {
+        HashMap<Integer, Task> map = new HashMap<>();
+        for (Task task : tasks) {
+            map.put(task.getId(), task);
+        }
+        return map;
+    }
+
+    private static IntObjectMap<Task> fillIntMap(Task[] tasks) {
+        IntObjectMap<Task> map = new IntObjectMap<>();
+        for (Task task : tasks) {
+            map.put(task.getId(), task);
+        }
+        return map;
+    }
+
+    // Метод возвращает прирост занятой кучи после построения структуры (задачи созданы заранее и не учитываются)
+    private static long footprint(Supplier<Object> builder) {
+        long before = usedMemory();
+        Object structure = builder.get();
+        long after = usedMemory();
+        if (structure.hashCode() == 42) { // Держим ссылку на структуру до замера
+            System.out.print("");
+        }
+        return after - before;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,78 @@
+package app;
+
+import entity.Epic;
+import entity.Status;
+import entity.Subtask;
+import entity.Task;
+import manager.InMemoryTaskManager;
+import manager.TaskManager;
+import manager.TaskQuery;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// Это замер запросов TaskQuery на большой доске: последовательное и параллельное выполнение одного запроса.
+// Первый запрос перебирает всю доску (порядок по времени начала без окна индексом не покрыт, а условие
+// where() дорогое), второй читает первые 100 задач по ID — его обход останавливается на limit,
+// и параллельность ему не нужна. JMH в проекте нет, поэтому берётся лучший из нескольких замеров
+public class QueryBenchmark {
+    private static final int EPICS = 2_000; // Количество эпиков
+    private static final int SUBTASKS_PER_EPIC = 100; // Подзадач в каждом эпике
+    private static final int TASKS = 300_000; // Количество обычных задач
+    private static final int RUNS = 5; // Количество замеров каждого запроса
+
+    public static void main(String[] args) {
+        TaskManager manager = new InMemoryTaskManager();
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        Status[] statuses = Status.values();
+        long slot = 0;
+        for (int i = 0; i < TASKS; i++) {
+            manager.addTask(new Task("Задача " + i, "Описание задачи " + i, statuses[i % statuses.length],
+                    Duration.ofMinutes(1), base.plusMinutes(2 * slot++)));
+        }
+        for (int e = 0; e < EPICS; e++) {
+            Epic epic = new Epic("Эпик " + e, "Описание эпика " + e);
+            manager.addEpic(epic);
+            for (int s = 0; s < SUBTASKS_PER_EPIC; s++) {
+                manager.addSubtask(new Subtask("Подзадача " + s, "Описание подзадачи " + s,
+                        statuses[s % statuses.length], epic.getId(), Duration.ofMinutes(1),
+                        base.plusMinutes(2 * slot++)));
+            }
+        }
+        System.out.println("Задач на доске: " + (TASKS + EPICS + EPICS * SUBTASKS_PER_EPIC)
+                + ", потоков в общем пуле: " + ForkJoinPool.commonPool().getParallelism());
+
+        TaskQuery scan = TaskQuery.all().withoutStatus(Status.DONE)
+                .where(task -> task.getDescription().hashCode() % 5 != 0).orderByStartTime();
+        measure(manager, "Перебор всей доски", scan);
+        measure(manager, "Первые 100 по ID", TaskQuery.all().withoutStatus(Status.DONE).limit(100));
+        measure(manager, "Подзадачи 10 эпиков", TaskQuery.all()
+                .subtasksOf(TASKS + 1, TASKS + 102, TASKS + 203, TASKS + 304, TASKS + 405, TASKS + 506,
+                        TASKS + 607, TASKS + 708, TASKS + 809, TASKS + 910)
+                .withoutStatus(Status.DONE).orderByStartTime().limit(100));
+    }
+
+    private static void measure(TaskManager manager, String name, TaskQuery query) {
+        long sequentialNanos = Long.MAX_VALUE;
+        long parallelNanos = Long.MAX_VALUE;
+        int size = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            List<Task> sequential = manager.findTasks(query);
+            sequentialNanos = Math.min(sequentialNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            List<Task> parallel = manager.findTasks(query.parallel());
+            parallelNanos = Math.min(parallelNanos, System.nanoTime() - start);
+            if (!sequential.equals(parallel)) {
+                throw new IllegalStateException("Результаты запроса «" + name + "» не совпали");
+            }
+            size = sequential.size();
+        }
+        System.out.println(String.format("%-22s результат %7d, последовательно %8.2f мс, параллельно %8.2f мс "
+                        + "(ускорение %.1f)", name, size, sequentialNanos / 1e6, parallelNanos / 1e6,
+                (double) sequentialNanos / parallelNanos));
+    }
+}
@@ -0,0 +1,68 @@
+package app;
+
+import entity.Epic;
+import entity.Status;
+import entity.Subtask;
+import manager.ConcurrentTaskManager;
+import manager.ShardedTaskManager;
+import manager.TaskManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+// Это замер записи из многих потоков: каждый поток добавляет подзадачи в свои эпики (эпики потоков не пересекаются).
+// Сравниваются ConcurrentTaskManager (полосы блокировок по эпикам, индексы запросов в своих полосах)
+// и ShardedTaskManager (индексы в сегментах) на 1, 2, 4, ... потоках до числа ядер. Подзадачи без времени,
+// чтобы замерять хранилища и индексы, а не общий индекс отрезков. Берётся лучший из нескольких замеров
+public class ShardBenchmark {
+    private static final int SUBTASKS = 400_000; // Подзадач на замер, делятся между потоками
+    private static final int EPICS_PER_THREAD = 8;
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("Ядер: " + cores);
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            long concurrent = measure(ConcurrentTaskManager::new, threads);
+            long sharded = measure(ShardedTaskManager::new, threads);
+            System.out.println(String.format("Потоков %3d: ConcurrentTaskManager %6.0f тыс. подзадач/с, "
+                            + "ShardedTaskManager %6.0f тыс. подзадач/с", threads,
+                    SUBTASKS / (concurrent / 1e9) / 1000, SUBTASKS / (sharded / 1e9) / 1000));
+        }
+    }
+
+    private static long measure(Supplier<TaskManager> factory, int threads) throws Exception {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            TaskManager manager = factory.get();
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int thread = 0; thread < threads; thread++) {
+                results.add(executor.submit(() -> {
+                    int[] epicIds = new int[EPICS_PER_THREAD];
+                    for (int i = 0; i < EPICS_PER_THREAD; i++) {
+                        Epic epic = new Epic("Эпик " + i, "Описание");
+                        manager.addEpic(epic);
+                        epicIds[i] = epic.getId();
+                    }
+                    for (int i = 0; i < SUBTASKS / threads; i++) {
+                        manager.addSubtask(new Subtask("Подзадача " + i, "Описание", Status.NEW,
+                                epicIds[i % EPICS_PER_THREAD]));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            best = Math.min(best, System.nanoTime() - start);
+            executor.shutdown();
+        }
+        return best;
+    }
+}
@@ -0,0 +1,69 @@
+package app;
+
+import manager.BinaryTaskFormat;
+import manager.CompressedTaskFormat;
+import manager.FileBackedTaskManager;
+import manager.SnapshotFormat;
+
+import java.io.File;
+import java.io.IOException;
+
+// Это замер форматов снимка: размер файла и степень сжатия относительно CSV,
+// скорость записи снимка и скорость полной загрузки менеджера из него
+public class SnapshotBenchmark {
+    private static final int ROWS = 500_000; // Количество задач на доске
+    private static final int RUNS = 3; // Количество замеров каждого формата
+
+    public static void main(String[] args) throws IOException {
+        File source = File.createTempFile("snapshotBenchmark", ".csv");
+        source.deleteOnExit();
+        LoadBenchmark.writeSnapshot(source, ROWS);
+        FileBackedTaskManager manager = FileBackedTaskManager.loadFromFile(source);
+        int count = manager.getAllTasks().size() + manager.getAllEpics().size() + manager.getAllSubtask().size();
+        System.out.println("Задач на доске: " + count);
+
+        long csvSize = 0;
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            File target = File.createTempFile("snapshotBenchmark", "." + format.name().toLowerCase());
+            target.deleteOnExit();
+            long saveNanos = Long.MAX_VALUE;
+            long loadNanos = Long.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) { // Берём лучший замер, чтобы меньше зависеть от прогрева
+                long start = System.nanoTime();
+                write(manager, format, target);
+                saveNanos = Math.min(saveNanos, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(target);
+                loadNanos = Math.min(loadNanos, System.nanoTime() - start);
+                if (loaded.getAllSubtask().size() != manager.getAllSubtask().size()) {
+                    throw new IllegalStateException("Снимок " + format + " загрузился не полностью");
+                }
+            }
+            long size = target.length();
+            if (format == SnapshotFormat.CSV) {
+                csvSize = size;
+            }
+            double megabytes = size / 1024.0 / 1024.0;
+            System.out.println(String.format("%-10s размер %7.1f МБ (%.2f от CSV), запись %5d мс (%6.1f МБ/с), "
+                            + "загрузка %5d мс (%6.1f МБ/с, %.0f тыс. задач/с)", format, megabytes,
+                    (double) size / csvSize, saveNanos / 1_000_000, megabytes / (saveNanos / 1e9),
+                    loadNanos / 1_000_000, megabytes / (loadNanos / 1e9), count / (loadNanos / 1e9) / 1000));
+        }
+    }
+
+    private static void write(FileBackedTaskManager manager, SnapshotFormat format, File target) {
+        switch (format) {
+            case BINARY:
+                BinaryTaskFormat.write(target.toPath(), manager.getAllTasks(), manager.getAllEpics(),
+                        manager.getAllSubtask());
+                break;
+            case COMPRESSED:
+                CompressedTaskFormat.write(target.toPath(), manager.getAllTasks(), manager.getAllEpics(),
+                        manager.getAllSubtask());
+                break;
+            default:
+                manager.exportCsv(target);
+        }
+    }
+}
@@ -1,41 +1,162 @@
 package entity;
 
+import manager.IntLinkedSet;
+import manager.IntObjectMap;
 import manager.TaskType;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.TreeMap;
 
 // Это класс для эпиков — задач, которые состоят из подзадач (Subtask)
 public class Epic extends Task {
 
-    private ArrayList<Integer> subtaskIdList; // Список ID подзадач, входящих в этот эпик
+    // ID подзадач эпика в порядке добавления: добавление, удаление и проверка наличия — O(1), без упаковки в Integer
+    private IntLinkedSet subtaskIdList;
 
     private LocalDateTime endTime; // Новое поле: время завершения эпика, рассчитывается на основе подзадач
 
+    // Агрегаты подзадач, по которым статус эпика выводится за O(1), а время и продолжительность — за O(log k):
+    // счётчики по статусам, сумма продолжительностей и упорядоченные мультимножества времён начала и окончания.
+    // Для каждой подзадачи запоминается учтённое состояние, чтобы при изменении подзадачи убрать прежний вклад
+    private final IntObjectMap<Contribution> counted = new IntObjectMap<>();
+    private final int[] statusCounts = new int[Status.values().length];
+    private final TreeMap<LocalDateTime, Integer> startTimes = new TreeMap<>(); // Время начала → количество подзадач
+    private final TreeMap<LocalDateTime, Integer> endTimes = new TreeMap<>(); // Время окончания → количество подзадач
+    private Duration durationSum = Duration.ZERO;
+
+    // Вклад подзадачи в агрегаты эпика
+    private static class Contribution {
+        private final Status status;
+        private final Duration duration;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+
+        private Contribution(Subtask subtask) {
+            this.status = subtask.getStatus();
+            this.duration = subtask.getDuration();
+            this.startTime = subtask.getStartTime();
+            this.endTime = subtask.getEndTime();
+        }
+    }
 
     // Конструктор для создания нового эпика
     public Epic(String name, String description) {
         super(name, description, Status.NEW); // Вызываем конструктор суперкласса Task
-        this.subtaskIdList = new ArrayList<>(); // Создаём пустой список подзадач
+        this.subtaskIdList = new IntLinkedSet(); // Создаём пустой список подзадач
         this.typeTask = TaskType.EPIC_TYPE; // Устанавливаем тип как EPIC
     }
 
 
-    public ArrayList<Integer> getSubtaskIdList() { // Геттер для получения списка ID подзадач
+    public IntLinkedSet getSubtaskIdList() { // Геттер для получения списка ID подзадач
         return subtaskIdList;
     }
 
 
     public void addSubtask(int subtaskId) { // Метод для добавления ID подзадачи в эпик
-        subtaskIdList.add(subtaskId);
+        subtaskIdList.addInt(subtaskId);
     }
 
 
     public void deleteSubtask(int subtaskId) { // Метод для удаления ID подзадачи из эпика
-        subtaskIdList.remove((Integer) subtaskId); // Удаляем ID подзадачи из списка (приводим к Integer,
-        // так как remove работает с объектами)
+        subtaskIdList.removeInt(subtaskId); // Удаляем ID подзадачи из списка
+        uncount(counted.remove(subtaskId)); // Убираем вклад подзадачи из агрегатов
+    }
+
+
+    // Метод отвязывает от эпика все подзадачи разом и возвращает их ID в порядке добавления.
+    // Список и агрегаты обнуляются целиком, без поштучного удаления (используется при удалении эпика)
+    public int[] detachSubtasks() {
+        int[] subtaskIds = subtaskIdList.toIntArray();
+        subtaskIdList.clear();
+        resetCounts();
+        return subtaskIds;
+    }
+
+
+    // Метод учитывает подзадачу в агрегатах эпика (если подзадача уже учтена — заменяет её прежний вклад)
+    public void countSubtask(Subtask subtask) {
+        Contribution contribution = new Contribution(subtask);
+        uncount(counted.put(subtask.getId(), contribution));
+        statusCounts[contribution.status.ordinal()]++;
+        if (contribution.duration != null) {
+            durationSum = durationSum.plus(contribution.duration);
+        }
+        if (contribution.startTime != null) {
+            startTimes.merge(contribution.startTime, 1, Integer::sum);
+        }
+        if (contribution.endTime != null) {
+            endTimes.merge(contribution.endTime, 1, Integer::sum);
+        }
+    }
+
+    // Метод обновляет вклад подзадачи, если она уже учтена в агрегатах
+    public void changeSubtask(Subtask subtask) {
+        if (counted.containsKey(subtask.getId())) {
+            countSubtask(subtask);
+        }
+    }
+
+    private void uncount(Contribution contribution) {
+        if (contribution == null) {
+            return;
+        }
+        statusCounts[contribution.status.ordinal()]--;
+        if (contribution.duration != null) {
+            durationSum = durationSum.minus(contribution.duration);
+        }
+        if (contribution.startTime != null) {
+            startTimes.computeIfPresent(contribution.startTime, (time, count) -> count == 1 ? null : count - 1);
+        }
+        if (contribution.endTime != null) {
+            endTimes.computeIfPresent(contribution.endTime, (time, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    // Метод обнуляет агрегаты, например перед пересчётом всех подзадач с нуля
+    public void resetCounts() {
+        counted.clear();
+        Arrays.fill(statusCounts, 0);
+        startTimes.clear();
+        endTimes.clear();
+        durationSum = Duration.ZERO;
+    }
+
+    // Учтены ли в агрегатах все подзадачи эпика
+    public boolean hasCounts() {
+        return counted.size() == subtaskIdList.size();
+    }
+
+    // Количество учтённых подзадач с заданным статусом
+    public int getSubtaskCount(Status status) {
+        return statusCounts[status.ordinal()];
+    }
+
+    // Статус эпика по счётчикам: без подзадач или только с новыми — NEW, все завершены — DONE, иначе IN_PROGRESS
+    public Status statusFromCounts() {
+        int total = counted.size();
+        if (total == 0) {
+            return Status.NEW;
+        }
+        if (statusCounts[Status.DONE.ordinal()] == total) {
+            return Status.DONE;
+        }
+        return statusCounts[Status.IN_PROGRESS.ordinal()] > 0 ? Status.IN_PROGRESS : Status.NEW;
+    }
+
+    // Метод устанавливает время и продолжительность эпика по агрегатам — с тем же результатом,
+    // что и updateTimeAndDuration(), но без обхода подзадач
+    public void applyTimeFromCounts() {
+        if (counted.isEmpty()) {
+            setDuration(null);
+            setStartTime(null);
+            this.endTime = null;
+            return;
+        }
+        setDuration(durationSum);
+        setStartTime(startTimes.isEmpty() ? null : startTimes.firstKey());
+        this.endTime = endTimes.isEmpty() ? null : endTimes.lastKey();
     }
 
     public TaskType getType() {
@@ -44,7 +165,7 @@ public class Epic extends Task {
 
 
     // Метод для расчёта времени и продолжительности эпика на основе подзадач
-    public void updateTimeAndDuration(HashMap<Integer, Subtask> subtasks) {
+    public void updateTimeAndDuration(IntObjectMap<Subtask> subtasks) {
         if (subtaskIdList.isEmpty()) { // Если подзадач нет
             setDuration(null); // Если нет подзадач, продолжительность null
             setStartTime(null); // Если нет подзадач, время начала null
@@ -57,8 +178,8 @@ public class Epic extends Task {
         LocalDateTime latestEnd = null; // Самое позднее время завершения среди подзадач
 
         // Проходим по всем ID подзадач
-        for (int subtaskId : subtaskIdList) {
-            Subtask subtask = subtasks.get(subtaskId); // Получаем подзадачу по её ID из HashMap
+        for (int subtaskId : subtaskIdList.toIntArray()) {
+            Subtask subtask = subtasks.get(subtaskId); // Получаем подзадачу по её ID из хранилища
             if (subtask != null) { // Если подзадача существует
                 Duration subDuration = subtask.getDuration(); // Получаем продолжительность подзадачи
                 LocalDateTime subStart = subtask.getStartTime(); // Получаем время начала подзадачи
@@ -82,6 +203,11 @@ public class Epic extends Task {
         this.endTime = latestEnd; // Устанавливаем самое позднее время завершения
     }
 
+    // Сеттер для времени завершения: используется, когда эпик читается из хранилища, где время уже рассчитано
+    public void setEndTime(LocalDateTime endTime) {
+        this.endTime = endTime;
+    }
+
     @Override  // Геттер для времени окончания эпика
     public LocalDateTime getEndTime() {
         return endTime; // Возвращаем рассчитанное время завершения
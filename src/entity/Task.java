@@ -17,6 +17,7 @@ public class Task {
     protected TaskType typeTask; // Тип задачи (TASK, EPIC, SUBTASK), защищённый, чтобы подклассы могли его менять
     private Duration duration; // Новое поле: продолжительность задачи в минутах
     private LocalDateTime startTime; // Новое поле: время начала задачи
+    private long version; // Версия задачи: менеджер увеличивает её при каждом обновлении
 
     // Конструктор для создания задачи с указанием времени и продолжительности
     public Task(String name, String description, Status status, Duration duration, LocalDateTime startTime) {
@@ -66,6 +67,16 @@ public class Task {
         this.id = id;
     }
 
+    // Геттер для версии задачи: её передают в compareAndUpdate, чтобы не затереть чужое обновление
+    public long getVersion() {
+        return version;
+    }
+
+    // Сеттер для версии задачи: вызывается менеджером при обновлении и при чтении из хранилища
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     // Геттер для статуса задачи
     public Status getStatus() {
         return status;
@@ -4,4 +4,8 @@ public class ManagerSaveException extends RuntimeException {
     public ManagerSaveException(final String message) {
         super(message);
     }
+
+    public ManagerSaveException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -0,0 +1,363 @@
+package manager;
+
+import entity.Epic;
+import entity.Status;
+import entity.Subtask;
+import entity.Task;
+import exception.ManagerSaveException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+// Это двоичный формат снимка для FileBackedTaskManager. Файл начинается с магического заголовка и версии,
+// за ними идут записи: тип и статус — байтами, ID — varint, строки — длина varint и байты UTF-8,
+// время начала — минуты от эпохи, продолжительность — минуты
+public class BinaryTaskFormat {
+    public static final byte[] MAGIC = {'K', 'N', 'B', 'N'}; // Магический заголовок двоичного снимка
+    public static final byte VERSION = 1; // Версия формата
+
+    private static final int BUFFER_SIZE = 64 * 1024; // Размер буфера для чтения и записи через канал
+
+    // Флаги необязательных полей записи
+    private static final int HAS_DURATION = 1;
+    private static final int HAS_START_TIME = 2;
+    private static final int HAS_SUB_MINUTE = 4; // У времени начала есть секунды или наносекунды
+
+    private static final int MAX_VARLONG = 10; // Наибольший размер varint
+    private static final int MAX_RECORD_HEAD = 2 + MAX_VARLONG; // Тип, ID и статус
+    private static final int MAX_RECORD_TAIL = 1 + 4 * MAX_VARLONG; // Флаги, продолжительность, время, ID эпика
+
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private BinaryTaskFormat() {
+    }
+
+    // Метод проверяет, начинается ли содержимое с магического заголовка двоичного снимка
+    public static boolean isBinary(ByteBuffer header) {
+        if (header.remaining() < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header.get(header.position() + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Метод записывает снимок в файл через канал
+    public static void write(Path target, Collection<Task> taskList, Collection<Epic> epicList,
+                             Collection<Subtask> subtaskList) {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Encoder encoder = new Encoder(channel);
+            encoder.writeHeader();
+            for (Task task : taskList) {
+                encoder.writeTask(task);
+            }
+            for (Epic epic : epicList) {
+                encoder.writeTask(epic);
+            }
+            for (Subtask subtask : subtaskList) {
+                encoder.writeTask(subtask);
+            }
+            encoder.flush();
+            channel.force(false); // Дожидаемся сброса снимка на диск
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи двоичного снимка", e);
+        }
+    }
+
+    // Метод читает снимок из файла через канал и передаёт задачи по одной в порядке записи
+    public static void read(Path source, Consumer<Task> consumer) {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buffer.flip();
+            Decoder decoder = new Decoder(buffer, channel);
+            decoder.readHeader();
+            Task task = decoder.readTask();
+            while (task != null) {
+                consumer.accept(task);
+                task = decoder.readTask();
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения двоичного снимка", e);
+        }
+    }
+
+
+    // Метод читает снимок из буфера, уже содержащего весь файл (например, отображённого в память)
+    public static void read(ByteBuffer content, Consumer<Task> consumer) {
+        try {
+            Decoder decoder = new Decoder(content.duplicate(), null);
+            decoder.readHeader();
+            Task task = decoder.readTask();
+            while (task != null) {
+                consumer.accept(task);
+                task = decoder.readTask();
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения двоичного снимка", e);
+        }
+    }
+
+
+    // Кодировщик записей в буфер с выгрузкой в канал при заполнении
+    static class Encoder {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Encoder(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void writeHeader() throws IOException {
+            buffer.put(MAGIC);
+            buffer.put(VERSION);
+        }
+
+        void writeTask(Task task) throws IOException {
+            byte[] name = bytesOf(task.getName());
+            byte[] description = bytesOf(task.getDescription());
+            // Короткая запись целиком попадает в буфер; для длинной место проверяется перед каждым полем
+            ensure(MAX_RECORD_HEAD + 2 * MAX_VARLONG + lengthOf(name) + lengthOf(description) + MAX_RECORD_TAIL);
+            buffer.put((byte) task.getType().ordinal());
+            writeVarLong(task.getId());
+            buffer.put((byte) task.getStatus().ordinal());
+            writeBytes(name);
+            writeBytes(description);
+            ensure(MAX_RECORD_TAIL);
+
+            LocalDateTime startTime = task.getStartTime();
+            long subMinuteNanos = startTime == null ? 0
+                    : startTime.getSecond() * 1_000_000_000L + startTime.getNano();
+            int flags = (task.getDuration() != null ? HAS_DURATION : 0)
+                    | (startTime != null ? HAS_START_TIME : 0)
+                    | (subMinuteNanos != 0 ? HAS_SUB_MINUTE : 0);
+            buffer.put((byte) flags);
+            if (task.getDuration() != null) {
+                writeVarLong(zigZag(task.getDuration().toMinutes()));
+            }
+            if (startTime != null) {
+                writeVarLong(zigZag(Math.floorDiv(startTime.toEpochSecond(ZoneOffset.UTC), 60)));
+                if (subMinuteNanos != 0) {
+                    writeVarLong(subMinuteNanos);
+                }
+            }
+            if (task instanceof Subtask) {
+                writeVarLong(((Subtask) task).getEpicId());
+            }
+        }
+
+        // Строка: длина varint (0 — null, иначе длина + 1) и байты UTF-8
+        private void writeBytes(byte[] bytes) throws IOException {
+            if (bytes == null) {
+                writeVarLong(0);
+                return;
+            }
+            ensure(MAX_VARLONG);
+            writeVarLong(bytes.length + 1L);
+            if (bytes.length > buffer.remaining()) { // Длинная строка не помещается в буфер — пишем напрямую
+                flush();
+                ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+                while (wrapped.hasRemaining()) {
+                    channel.write(wrapped);
+                }
+            } else {
+                buffer.put(bytes);
+            }
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        // Метод освобождает место в буфере, если в нём меньше нужного количества байт
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < Math.min(bytes, BUFFER_SIZE)) {
+                flush();
+            }
+        }
+
+        // Количество байт, ещё не выгруженных в канал
+        int buffered() {
+            return buffer.position();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private static int lengthOf(byte[] bytes) {
+            return bytes == null ? 0 : bytes.length;
+        }
+
+        private static byte[] bytesOf(String value) {
+            return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+
+    // Декодировщик записей из буфера. Если задан канал, буфер подчитывается из него по мере необходимости
+    static class Decoder {
+        private ByteBuffer buffer;
+        private final ReadableByteChannel channel; // null — буфер уже содержит всё содержимое
+
+        Decoder(ByteBuffer buffer, ReadableByteChannel channel) {
+            this.buffer = buffer;
+            this.channel = channel;
+        }
+
+        void readHeader() throws IOException {
+            if (!ensure(MAGIC.length + 1)) {
+                throw new ManagerSaveException("Двоичный снимок слишком короткий");
+            }
+            for (byte expected : MAGIC) {
+                if (buffer.get() != expected) {
+                    throw new ManagerSaveException("Файл не является двоичным снимком");
+                }
+            }
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new ManagerSaveException("Неподдерживаемая версия двоичного снимка: " + version);
+            }
+        }
+
+        // Метод читает следующую запись или возвращает null в конце файла
+        Task readTask() throws IOException {
+            if (!ensure(1)) {
+                return null;
+            }
+            TaskType type = TYPES[buffer.get()];
+            int id = (int) readVarLong();
+            Status status = STATUSES[readByte()];
+            String name = readString();
+            String description = readString();
+            int flags = readByte();
+            Duration duration = (flags & HAS_DURATION) != 0 ? Duration.ofMinutes(unZigZag(readVarLong())) : null;
+            LocalDateTime startTime = null;
+            if ((flags & HAS_START_TIME) != 0) {
+                long epochMinute = unZigZag(readVarLong());
+                long subMinuteNanos = (flags & HAS_SUB_MINUTE) != 0 ? readVarLong() : 0;
+                startTime = LocalDateTime.ofEpochSecond(epochMinute * 60 + subMinuteNanos / 1_000_000_000L,
+                        (int) (subMinuteNanos % 1_000_000_000L), ZoneOffset.UTC);
+            }
+
+            switch (type) {
+                case EPIC_TYPE:
+                    Epic epic = new Epic(name, description);
+                    epic.setId(id);
+                    epic.setStatus(status);
+                    epic.setDuration(duration);
+                    epic.setStartTime(startTime);
+                    return epic;
+                case SUBTASK_TYPE:
+                    Subtask subtask = new Subtask(name, description, status, (int) readVarLong(), duration, startTime);
+                    subtask.setId(id);
+                    return subtask;
+                default:
+                    Task task = new Task(name, description, status, duration, startTime);
+                    task.setId(id);
+                    return task;
+            }
+        }
+
+        private int readByte() throws IOException {
+            require(1);
+            return buffer.get() & 0xFF;
+        }
+
+        private long readVarLong() throws IOException {
+            long result = 0;
+            int shift = 0;
+            while (true) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+                shift += 7;
+            }
+        }
+
+        private String readString() throws IOException {
+            int length = (int) readVarLong();
+            if (length == 0) {
+                return null;
+            }
+            length--;
+            require(length);
+            String value;
+            if (buffer.hasArray()) { // Для буфера в куче декодируем без промежуточного копирования
+                value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                        StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+            } else {
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                value = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return value;
+        }
+
+        private void require(int bytes) throws IOException {
+            if (!ensure(bytes)) {
+                throw new EOFException("Двоичный снимок обрывается посреди записи");
+            }
+        }
+
+        // Метод подчитывает данные из канала, пока в буфере не окажется нужное количество байт.
+        // Возвращает false, если данные закончились раньше
+        private boolean ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return true;
+            }
+            if (channel == null) {
+                return false;
+            }
+            if (buffer.capacity() < bytes) { // Запись длиннее буфера — увеличиваем его
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(bytes, buffer.capacity() * 2));
+                larger.put(buffer);
+                larger.flip();
+                buffer = larger;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            return buffer.remaining() >= bytes;
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
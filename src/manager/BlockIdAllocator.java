@@ -0,0 +1,68 @@
+package manager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Это выдача ID блоками: каждый поток берёт из общего счётчика сразу blockSize ID и дальше раздаёт их сам,
+// без обращения к общим данным. Общий счётчик (граница выданных блоков) трогается один раз на блок,
+// поэтому потоки, которые добавляют задачи параллельно, не спорят за него. Внутри потока ID идут подряд,
+// а ID разных потоков чередуются блоками. Откуда берутся блоки, решает reserveBlock(): здесь — из счётчика
+// в памяти, в LeaseFileIdAllocator — из файла, общего для нескольких процессов
+public class BlockIdAllocator implements IdAllocator {
+    public static final int DEFAULT_BLOCK_SIZE = 64;
+
+    private final int blockSize;
+    private final AtomicInteger highWater = new AtomicInteger(); // Последний ID, отданный в какой-либо блок
+    private final ThreadLocal<Block> blocks = ThreadLocal.withInitial(Block::new);
+
+    // Блок потока: ID из промежутка [next, limit) ещё не выданы
+    private static final class Block {
+        private int start;
+        private int next;
+        private int limit;
+    }
+
+    public BlockIdAllocator() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    public BlockIdAllocator(int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Размер блока должен быть положительным: " + blockSize);
+        }
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public int nextId() {
+        Block block = blocks.get();
+        if (block.next >= block.limit) {
+            int first = reserveBlock(blockSize);
+            block.start = first;
+            block.next = first;
+            block.limit = first + blockSize;
+        }
+        return block.next++;
+    }
+
+    @Override
+    public int mark() {
+        return blocks.get().next;
+    }
+
+    @Override // ID можно вернуть, только если с момента mark() поток не сменил блок
+    public void rewind(int mark) {
+        Block block = blocks.get();
+        if (mark >= block.start && mark <= block.next) {
+            block.next = mark;
+        }
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    // Метод резервирует size ID подряд и возвращает первый из них
+    protected int reserveBlock(int size) {
+        return highWater.getAndAdd(size) + 1;
+    }
+}
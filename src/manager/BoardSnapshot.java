@@ -0,0 +1,332 @@
+package manager;
+
+import entity.Epic;
+import entity.Subtask;
+import entity.Task;
+
+import java.time.LocalDateTime;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+// Это неизменяемое состояние доски на один момент времени. Все таблицы — неизменяемые деревья (PersistentTreeMap),
+// поэтому каждое изменение даёт новый снимок, который делит с предыдущим почти все узлы. Задачи, эпики и подзадачи
+// в снимке — собственные копии менеджера: эпик в снимке уже пересчитан целиком, и читатель никогда не увидит
+// его наполовину обновлённым. Наружу методы чтения отдают копии, поэтому изменение прочитанной задачи
+// не затрагивает ни этот снимок, ни его расписание
+public final class BoardSnapshot {
+    static final BoardSnapshot EMPTY = new BoardSnapshot(PersistentTreeMap.empty(), PersistentTreeMap.empty(),
+            PersistentTreeMap.empty(), PersistentTreeMap.empty(), PersistentTreeMap.empty(),
+            PersistentTreeMap.empty(), PersistentTreeMap.empty(), 0, 0);
+
+    private final PersistentTreeMap<Integer, Task> tasks;
+    private final PersistentTreeMap<Integer, Epic> epics;
+    private final PersistentTreeMap<Integer, Subtask> subtasks;
+    private final PersistentTreeMap<Slot, Task> schedule; // Задачи и подзадачи со временем начала
+    private final PersistentTreeMap<Slot, Task> intervals; // Только задачи с началом и продолжительностью
+    private final PersistentTreeMap<Integer, Slot> slots; // ID → ключ, под которым задача лежит в расписании
+    private final PersistentTreeMap<Long, Subtask> members; // (ID эпика, ID подзадачи) → подзадача
+    private final int idCounter;
+    private final long version;
+
+    // Ключ расписания: время начала, при равенстве — ID
+    private record Slot(LocalDateTime start, int id) implements Comparable<Slot> {
+        @Override
+        public int compareTo(Slot other) {
+            int result = start.compareTo(other.start);
+            return result != 0 ? result : Integer.compare(id, other.id);
+        }
+    }
+
+    private BoardSnapshot(PersistentTreeMap<Integer, Task> tasks, PersistentTreeMap<Integer, Epic> epics,
+                          PersistentTreeMap<Integer, Subtask> subtasks, PersistentTreeMap<Slot, Task> schedule,
+                          PersistentTreeMap<Slot, Task> intervals, PersistentTreeMap<Integer, Slot> slots,
+                          PersistentTreeMap<Long, Subtask> members, int idCounter, long version) {
+        this.tasks = tasks;
+        this.epics = epics;
+        this.subtasks = subtasks;
+        this.schedule = schedule;
+        this.intervals = intervals;
+        this.slots = slots;
+        this.members = members;
+        this.idCounter = idCounter;
+        this.version = version;
+    }
+
+
+    // Методы чтения: снимок не меняется, поэтому их можно вызывать из любых потоков без блокировок
+    public long getVersion() { // Номер версии: растёт с каждым опубликованным изменением
+        return version;
+    }
+
+    public Task getTask(int id) {
+        return copyOf(tasks.get(id));
+    }
+
+    public Epic getEpic(int id) {
+        return copyOf(epics.get(id));
+    }
+
+    public Subtask getSubtask(int id) {
+        return copyOf(subtasks.get(id));
+    }
+
+    public ArrayList<Task> getAllTasks() {
+        return new ArrayList<>(copies(tasks.values()));
+    }
+
+    public ArrayList<Epic> getAllEpics() {
+        return new ArrayList<>(copies(epics.values()));
+    }
+
+    public ArrayList<Subtask> getAllSubtask() {
+        return new ArrayList<>(copies(subtasks.values()));
+    }
+
+    // Подзадачи эпика по возрастанию ID — это и порядок их добавления
+    public ArrayList<Subtask> getSubtasksForEpic(int epicId) {
+        if (!epics.containsKey(epicId)) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(copies(members.between(memberKey(epicId, 0), memberKey(epicId + 1, 0))));
+    }
+
+    public List<Task> getPrioritizedTasks() {
+        return new ArrayList<>(copies(schedule.values()));
+    }
+
+    // Задачи и подзадачи, которые начинаются в промежутке [from, to): представление этого снимка,
+    // копии задач создаются при обходе
+    public Collection<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return List.of();
+        }
+        return copies(schedule.between(new Slot(from, Integer.MIN_VALUE), new Slot(to, Integer.MIN_VALUE)));
+    }
+
+    // Постраничное чтение снимка: страница читается с ключа курсора и стоит O(log n + limit)
+    public List<Task> pageTasksAfter(int afterId, int limit) {
+        return Pages.first(copies(tasks.between(afterId + 1, null)), limit);
+    }
+
+    public List<Epic> pageEpicsAfter(int afterId, int limit) {
+        return Pages.first(copies(epics.between(afterId + 1, null)), limit);
+    }
+
+    public List<Subtask> pageSubtasksAfter(int afterId, int limit) {
+        return Pages.first(copies(subtasks.between(afterId + 1, null)), limit);
+    }
+
+    public List<Task> pagePrioritizedAfter(LocalDateTime afterStart, int afterId, int limit) {
+        Slot from = afterStart == null ? null : new Slot(afterStart, afterId + 1);
+        return Pages.first(copies(schedule.between(from, null)), limit);
+    }
+
+    public int size() { // Количество задач, эпиков и подзадач
+        return tasks.size() + epics.size() + subtasks.size();
+    }
+
+
+    // Методы для менеджера: каждый возвращает новый снимок, текущий не меняется
+    int getIdCounter() {
+        return idCounter;
+    }
+
+    BoardSnapshot withIdCounter(int idCounter) {
+        return new BoardSnapshot(tasks, epics, subtasks, schedule, intervals, slots, members, idCounter, version);
+    }
+
+    // Снимок для публикации: с новым номером версии
+    BoardSnapshot nextVersion() {
+        return new BoardSnapshot(tasks, epics, subtasks, schedule, intervals, slots, members, idCounter, version + 1);
+    }
+
+    // Метод проверяет, пересекается ли задача с задачами снимка (кроме задачи с тем же ID). Промежутки
+    // в снимке не пересекаются, поэтому достаточно идти от последнего промежутка, начавшегося до конца задачи,
+    // назад до первого промежутка ненулевой длины, который заканчивается не позже её начала
+    boolean overlaps(Task task) {
+        if (task.getStartTime() == null || task.getDuration() == null) {
+            return false;
+        }
+        LocalDateTime start = task.getStartTime();
+        boolean[] found = new boolean[1];
+        intervals.forEachBefore(new Slot(task.getEndTime(), Integer.MIN_VALUE), other -> {
+            if (other.getId() != task.getId() && other.isOverlapping(task)) {
+                found[0] = true;
+                return false;
+            }
+            // Промежутки нулевой длины не упорядочены по окончанию, их пропускаем
+            return other.getDuration().isZero() || other.getEndTime().isAfter(start);
+        });
+        return found[0];
+    }
+
+    BoardSnapshot putTask(Task task) {
+        Task copy = copyOf(task);
+        BoardSnapshot updated = unschedule(task.getId());
+        return updated.with(updated.tasks.put(copy.getId(), copy), updated.epics, updated.subtasks,
+                updated.members).schedule(copy);
+    }
+
+    BoardSnapshot removeTask(int id) {
+        if (!tasks.containsKey(id)) {
+            return this;
+        }
+        BoardSnapshot updated = unschedule(id);
+        return updated.with(updated.tasks.remove(id), epics, subtasks, members);
+    }
+
+    // Метод кладёт в снимок копию эпика с его текущими статусом, временем и списком подзадач.
+    // Список копируется целиком (это копия массива), зато копия — обычный эпик, равный рабочему
+    BoardSnapshot putEpic(Epic epic) {
+        Epic copy = copyOf(epic);
+        return with(tasks, epics.put(copy.getId(), copy), subtasks, members);
+    }
+
+    // Метод удаляет эпик вместе с его подзадачами
+    BoardSnapshot removeEpic(int id) {
+        BoardSnapshot updated = this;
+        for (Subtask subtask : members.between(memberKey(id, 0), memberKey(id + 1, 0))) {
+            updated = updated.removeSubtask(subtask.getId());
+        }
+        return updated.with(updated.tasks, updated.epics.remove(id), updated.subtasks, updated.members);
+    }
+
+    // Метод кладёт в снимок копию подзадачи. Подзадача без эпика хранится, но не попадает в расписание
+    BoardSnapshot putSubtask(Subtask subtask) {
+        Subtask copy = copyOf(subtask);
+        BoardSnapshot updated = removeSubtask(subtask.getId());
+        PersistentTreeMap<Long, Subtask> updatedMembers = updated.members;
+        boolean attached = epics.containsKey(copy.getEpicId());
+        if (attached) {
+            updatedMembers = updatedMembers.put(memberKey(copy.getEpicId(), copy.getId()), copy);
+        }
+        updated = updated.with(updated.tasks, updated.epics, updated.subtasks.put(copy.getId(), copy), updatedMembers);
+        return attached ? updated.schedule(copy) : updated;
+    }
+
+    BoardSnapshot removeSubtask(int id) {
+        Subtask previous = subtasks.get(id);
+        if (previous == null) {
+            return this;
+        }
+        BoardSnapshot updated = unschedule(id);
+        return updated.with(updated.tasks, updated.epics, updated.subtasks.remove(id),
+                updated.members.remove(memberKey(previous.getEpicId(), id)));
+    }
+
+    BoardSnapshot clearTasks() {
+        BoardSnapshot updated = this;
+        for (Task task : tasks.values()) {
+            updated = updated.unschedule(task.getId());
+        }
+        return updated.with(PersistentTreeMap.empty(), epics, subtasks, members);
+    }
+
+    // Метод удаляет все эпики и подзадачи. Расписание собирается заново из обычных задач
+    BoardSnapshot clearEpics() {
+        BoardSnapshot updated = new BoardSnapshot(tasks, PersistentTreeMap.empty(), PersistentTreeMap.empty(),
+                PersistentTreeMap.empty(), PersistentTreeMap.empty(), PersistentTreeMap.empty(), PersistentTreeMap.empty(),
+                idCounter, version);
+        for (Task task : tasks.values()) {
+            updated = updated.schedule(task);
+        }
+        return updated;
+    }
+
+    // Метод заново считает статус, время и продолжительность рабочего эпика по подзадачам снимка
+    void recount(Epic epic) {
+        epic.resetCounts();
+        epic.getSubtaskIdList().forEachInt(subtaskId -> {
+            Subtask subtask = subtasks.get(subtaskId);
+            if (subtask != null) {
+                epic.countSubtask(subtask);
+            }
+        });
+    }
+
+    private BoardSnapshot schedule(Task task) {
+        if (task.getStartTime() == null) {
+            return this;
+        }
+        Slot slot = new Slot(task.getStartTime(), task.getId());
+        PersistentTreeMap<Slot, Task> updatedIntervals = task.getDuration() == null ? intervals : intervals.put(slot, task);
+        return new BoardSnapshot(tasks, epics, subtasks, schedule.put(slot, task), updatedIntervals,
+                slots.put(task.getId(), slot), members, idCounter, version);
+    }
+
+    // Задача убирается из расписания по ключу, записанному при добавлении, а не по её текущему времени начала
+    private BoardSnapshot unschedule(int id) {
+        Slot slot = slots.get(id);
+        if (slot == null) {
+            return this;
+        }
+        return new BoardSnapshot(tasks, epics, subtasks, schedule.remove(slot), intervals.remove(slot),
+                slots.remove(id), members, idCounter, version);
+    }
+
+    // Метод копирует задачу, эпик (с его статусом, временем и списком подзадач) или подзадачу
+    @SuppressWarnings("unchecked")
+    private static <T extends Task> T copyOf(T task) {
+        if (task == null) {
+            return null;
+        }
+        Task copy;
+        if (task instanceof Epic epic) {
+            Epic epicCopy = new Epic(epic.getName(), epic.getDescription());
+            epicCopy.setStatus(epic.getStatus());
+            epicCopy.setDuration(epic.getDuration());
+            epicCopy.setStartTime(epic.getStartTime());
+            epicCopy.setEndTime(epic.getEndTime());
+            epicCopy.getSubtaskIdList().addAll(epic.getSubtaskIdList());
+            copy = epicCopy;
+        } else if (task instanceof Subtask subtask) {
+            copy = new Subtask(subtask.getName(), subtask.getDescription(), subtask.getStatus(),
+                    subtask.getEpicId(), subtask.getDuration(), subtask.getStartTime());
+        } else {
+            copy = new Task(task.getName(), task.getDescription(), task.getStatus(), task.getDuration(),
+                    task.getStartTime());
+        }
+        copy.setId(task.getId());
+        copy.setVersion(task.getVersion());
+        return (T) copy;
+    }
+
+    // Представление коллекции снимка, которое при обходе отдаёт копии задач
+    private static <T extends Task> Collection<T> copies(Collection<T> stored) {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<T> iterator() {
+                Iterator<T> iterator = stored.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public T next() {
+                        return copyOf(iterator.next());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return stored.size();
+            }
+        };
+    }
+
+    private BoardSnapshot with(PersistentTreeMap<Integer, Task> tasks, PersistentTreeMap<Integer, Epic> epics,
+                               PersistentTreeMap<Integer, Subtask> subtasks, PersistentTreeMap<Long, Subtask> members) {
+        return new BoardSnapshot(tasks, epics, subtasks, schedule, intervals, slots, members, idCounter, version);
+    }
+
+    // Ключ принадлежности: подзадачи одного эпика идут подряд по возрастанию ID
+    private static long memberKey(int epicId, int subtaskId) {
+        return ((long) epicId << 32) | (subtaskId & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,49 @@
+package manager;
+
+import java.time.Duration;
+
+// Это класс с порогами, при достижении которых журнал FileBackedTaskManager сворачивается в новый снимок
+public class CompactionPolicy {
+    private final long maxJournalBytes; // Максимальный размер журнала в байтах
+    private final long maxRecordCount; // Максимальное количество записей в журнале
+    private final Duration maxInterval; // Максимальное время между снимками
+    private final Duration checkInterval; // Как часто фоновый поток проверяет пороги
+
+    public CompactionPolicy(long maxJournalBytes, long maxRecordCount, Duration maxInterval, Duration checkInterval) {
+        this.maxJournalBytes = maxJournalBytes;
+        this.maxRecordCount = maxRecordCount;
+        this.maxInterval = maxInterval;
+        this.checkInterval = checkInterval;
+    }
+
+    // Пороги по умолчанию: 64 МБ журнала, миллион записей или час с последнего снимка
+    public static CompactionPolicy defaultPolicy() {
+        return new CompactionPolicy(64L * 1024 * 1024, 1_000_000, Duration.ofHours(1), Duration.ofSeconds(5));
+    }
+
+    // Метод проверяет, пора ли записать новый снимок и обрезать журнал
+    public boolean isCompactionNeeded(long journalBytes, long recordCount, Duration sinceLastCompaction) {
+        if (recordCount == 0) {
+            return false; // Пустой журнал сворачивать незачем
+        }
+        return journalBytes >= maxJournalBytes
+                || recordCount >= maxRecordCount
+                || sinceLastCompaction.compareTo(maxInterval) >= 0;
+    }
+
+    public long getMaxJournalBytes() {
+        return maxJournalBytes;
+    }
+
+    public long getMaxRecordCount() {
+        return maxRecordCount;
+    }
+
+    public Duration getMaxInterval() {
+        return maxInterval;
+    }
+
+    public Duration getCheckInterval() {
+        return checkInterval;
+    }
+}
@@ -0,0 +1,274 @@
+package manager;
+
+import entity.Epic;
+import entity.Subtask;
+import entity.Task;
+import exception.ManagerSaveException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Это сжатый формат снимка для FileBackedTaskManager. Записи BinaryTaskFormat собираются в блоки примерно
+// по мегабайту, каждый блок сжимается Deflater отдельно, а в конце файла лежит индекс блоков. Записи не
+// пересекают границу блока, поэтому блоки распаковываются и разбираются независимо, в том числе параллельно.
+// Файл: заголовок и версия, сжатые блоки, индекс (смещение, сжатая и исходная длина блока), хвост
+// (смещение индекса, количество блоков, заголовок)
+public class CompressedTaskFormat {
+    public static final byte[] MAGIC = {'K', 'N', 'B', 'Z'}; // Магический заголовок сжатого снимка
+    public static final byte VERSION = 1; // Версия формата
+
+    static final int BLOCK_SIZE = 1024 * 1024; // Размер несжатого блока, после которого блок закрывается
+    private static final int INDEX_ENTRY_SIZE = Long.BYTES + Integer.BYTES * 2; // Запись индекса о блоке
+    private static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES + MAGIC.length; // Хвост файла
+    private static final int OUTPUT_CHUNK = 64 * 1024; // Порция сжатых данных, выгружаемая в канал за раз
+
+    private CompressedTaskFormat() {
+    }
+
+    // Метод проверяет, начинается ли содержимое с магического заголовка сжатого снимка
+    public static boolean isCompressed(ByteBuffer header) {
+        if (header.remaining() < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header.get(header.position() + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Метод записывает снимок в файл, сжимая его по блокам
+    public static void write(Path target, Collection<Task> taskList, Collection<Epic> epicList,
+                             Collection<Subtask> subtaskList) {
+        write(target, taskList, epicList, subtaskList, BLOCK_SIZE);
+    }
+
+    // Запись с заданным размером блока (маленькие блоки нужны тестам, чтобы получить несколько блоков)
+    static void write(Path target, Collection<? extends Task> taskList, Collection<? extends Task> epicList,
+                      Collection<? extends Task> subtaskList, int blockSize) {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+             BlockWriter blocks = new BlockWriter(channel)) {
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 1).put(MAGIC).put(VERSION);
+            header.flip();
+            writeFully(channel, header);
+
+            BinaryTaskFormat.Encoder encoder = new BinaryTaskFormat.Encoder(blocks);
+            for (Collection<? extends Task> source : List.of(taskList, epicList, subtaskList)) {
+                for (Task task : source) {
+                    encoder.writeTask(task);
+                    if (blocks.pending() + encoder.buffered() >= blockSize) { // Блок закрывается на границе записи
+                        encoder.flush();
+                        blocks.finishBlock();
+                    }
+                }
+            }
+            encoder.flush();
+            blocks.finishBlock();
+            blocks.writeIndex();
+            channel.force(false); // Дожидаемся сброса снимка на диск
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи сжатого снимка", e);
+        }
+    }
+
+    // Метод читает снимок и передаёт задачи по одной в порядке записи. Блоки распаковываются в пуле
+    // пачками по нескольку на поток, поэтому в памяти одновременно находится только небольшая часть снимка
+    public static void read(Path source, ForkJoinPool pool, Consumer<Task> consumer) {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            List<long[]> index = readIndex(channel);
+            int wave = Math.max(1, pool.getParallelism() * 2); // Блоков в одной пачке
+            for (int from = 0; from < index.size(); from += wave) {
+                List<long[]> blocks = index.subList(from, Math.min(index.size(), from + wave));
+                List<List<Task>> decoded;
+                if (blocks.size() == 1 || pool.getParallelism() <= 1) {
+                    decoded = new ArrayList<>(blocks.size());
+                    for (long[] block : blocks) {
+                        decoded.add(readBlock(channel, block));
+                    }
+                } else {
+                    // Позиционное чтение канала не меняет его позицию, поэтому потоки читают блоки независимо
+                    decoded = pool.submit(() -> blocks.parallelStream()
+                            .map(block -> readBlock(channel, block))
+                            .collect(Collectors.toList())).join();
+                }
+                decoded.forEach(blockTasks -> blockTasks.forEach(consumer));
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения сжатого снимка", e);
+        }
+    }
+
+    // Метод проверяет заголовок и хвост файла и читает индекс блоков: {смещение, сжатая длина, исходная длина}
+    private static List<long[]> readIndex(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < MAGIC.length + 1 + TRAILER_SIZE) {
+            throw new ManagerSaveException("Сжатый снимок слишком короткий");
+        }
+        ByteBuffer header = readAt(channel, 0, MAGIC.length + 1);
+        if (!isCompressed(header)) {
+            throw new ManagerSaveException("Файл не является сжатым снимком");
+        }
+        byte version = header.get(MAGIC.length);
+        if (version != VERSION) {
+            throw new ManagerSaveException("Неподдерживаемая версия сжатого снимка: " + version);
+        }
+
+        ByteBuffer trailer = readAt(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+        long indexOffset = trailer.getLong();
+        int blockCount = trailer.getInt();
+        if (!isCompressed(trailer) || indexOffset < 0
+                || indexOffset + (long) blockCount * INDEX_ENTRY_SIZE != size - TRAILER_SIZE) {
+            throw new ManagerSaveException("Сжатый снимок повреждён: нет индекса блоков");
+        }
+
+        ByteBuffer entries = readAt(channel, indexOffset, blockCount * INDEX_ENTRY_SIZE);
+        List<long[]> index = new ArrayList<>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            index.add(new long[]{entries.getLong(), entries.getInt(), entries.getInt()});
+        }
+        return index;
+    }
+
+    // Метод распаковывает один блок и разбирает его записи
+    private static List<Task> readBlock(FileChannel channel, long[] block) {
+        try {
+            ByteBuffer compressed = readAt(channel, block[0], (int) block[1]);
+            byte[] raw = new byte[(int) block[2]];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed.array(), 0, compressed.limit());
+                int length = 0;
+                while (length < raw.length && !inflater.finished()) {
+                    int inflated = inflater.inflate(raw, length, raw.length - length);
+                    if (inflated == 0 && inflater.needsInput()) {
+                        break; // Сжатые данные закончились раньше, чем ожидалось
+                    }
+                    length += inflated;
+                }
+                if (length != raw.length) {
+                    throw new ManagerSaveException("Сжатый снимок повреждён: блок со смещением " + block[0]
+                            + " короче ожидаемого");
+                }
+            } finally {
+                inflater.end();
+            }
+
+            List<Task> blockTasks = new ArrayList<>();
+            BinaryTaskFormat.Decoder decoder = new BinaryTaskFormat.Decoder(ByteBuffer.wrap(raw), null);
+            Task task = decoder.readTask();
+            while (task != null) {
+                blockTasks.add(task);
+                task = decoder.readTask();
+            }
+            return blockTasks;
+        } catch (IOException | DataFormatException e) {
+            throw new ManagerSaveException("Ошибка распаковки блока сжатого снимка", e);
+        }
+    }
+
+    private static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new ManagerSaveException("Сжатый снимок обрывается посреди блока");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+
+    // Канал, который копит несжатые записи текущего блока и при закрытии блока сжимает его в файл
+    private static class BlockWriter implements WritableByteChannel {
+        private final FileChannel channel;
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private final byte[] output = new byte[OUTPUT_CHUNK];
+        private final List<long[]> index = new ArrayList<>(); // {смещение, сжатая длина, исходная длина}
+        private byte[] raw = new byte[BLOCK_SIZE + BLOCK_SIZE / 4];
+        private int rawLength;
+
+        private BlockWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        // Количество несжатых байт в текущем блоке
+        private int pending() {
+            return rawLength;
+        }
+
+        @Override
+        public int write(ByteBuffer source) {
+            int length = source.remaining();
+            if (rawLength + length > raw.length) {
+                byte[] larger = new byte[Math.max(raw.length * 2, rawLength + length)];
+                System.arraycopy(raw, 0, larger, 0, rawLength);
+                raw = larger;
+            }
+            source.get(raw, rawLength, length);
+            rawLength += length;
+            return length;
+        }
+
+        // Метод сжимает накопленный блок и дописывает его в файл порциями
+        private void finishBlock() throws IOException {
+            if (rawLength == 0) {
+                return;
+            }
+            long offset = channel.position();
+            deflater.reset();
+            deflater.setInput(raw, 0, rawLength);
+            deflater.finish();
+            long compressedLength = 0;
+            while (!deflater.finished()) {
+                int length = deflater.deflate(output);
+                writeFully(channel, ByteBuffer.wrap(output, 0, length));
+                compressedLength += length;
+            }
+            index.add(new long[]{offset, compressedLength, rawLength});
+            rawLength = 0;
+        }
+
+        // Метод дописывает индекс блоков и хвост файла
+        private void writeIndex() throws IOException {
+            long indexOffset = channel.position();
+            ByteBuffer entries = ByteBuffer.allocate(index.size() * INDEX_ENTRY_SIZE + TRAILER_SIZE);
+            for (long[] block : index) {
+                entries.putLong(block[0]).putInt((int) block[1]).putInt((int) block[2]);
+            }
+            entries.putLong(indexOffset).putInt(index.size()).put(MAGIC);
+            entries.flip();
+            writeFully(channel, entries);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() {
+            deflater.end(); // Освобождаем память, занятую Deflater вне кучи
+        }
+    }
+}
@@ -0,0 +1,707 @@
+package manager;
+
+import entity.Epic;
+import entity.Subtask;
+import entity.Task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Это менеджер задач в памяти, которым можно пользоваться из многих потоков без внешней блокировки.
+// Хранилища — ConcurrentSkipListMap (упорядочены по ID, что нужно для постраничного чтения), ID выдаются блоками
+// на поток (IdAllocator). Изменения эпика и его подзадач защищены одной из полос блокировок (полоса выбирается
+// по ID эпика), поэтому изменения разных эпиков идут параллельно.
+// Расписание и индекс отрезков общие для всей доски: проверка пересечений и вставка в расписание выполняются
+// атомарно под отдельной блокировкой, которая держится только на это время. Индексы запросов и поиска разбиты
+// на свои полосы по ID задачи: разбор текста и перекладывание в индексах идут уже без общей блокировки,
+// а запросы читают полосы индексов по очереди и сливают результаты.
+//
+// Порядок захвата блокировок: полосы (по возрастанию номера) → блокировка расписания или полоса индексов
+// (вместе они не держатся) → история просмотров.
+// Чтение по ID и getAll* не блокируются и видят хранилища в слабо согласованном состоянии.
+public class ConcurrentTaskManager implements TaskManager {
+    private static final int STRIPES = 64;
+    private static final int INDEX_STRIPES = 16; // Запрос читает все полосы индексов, поэтому их меньше
+    private static final long ANY_VERSION = -1; // Обновление без проверки версии
+
+    private final IdAllocator ids; // Выдача ID: у каждого потока свой блок, поэтому потоки не спорят за счётчик
+    private final ConcurrentSkipListMap<Integer, Task> tasks = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Integer, Epic> epics = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Integer, Subtask> subtasks = new ConcurrentSkipListMap<>();
+    private final HistoryManager historyManager = Managers.getDefaultHistory(); // Доступ — под его монитором
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES]; // Полоса задачи — по её ID, подзадачи — по ID эпика
+    private final ReentrantReadWriteLock scheduleLock = new ReentrantReadWriteLock(); // Защищает два индекса ниже
+    private final ScheduleIndex prioritizedTasks = new ScheduleIndex();
+    private final IntervalIndex intervals = new IntervalIndex();
+    private final IndexStripe[] indexStripes = new IndexStripe[INDEX_STRIPES]; // Полоса задачи — по её ID
+
+    private volatile BatchState batch; // Открытый пакет (null — пакет не открыт)
+
+    // Индексы запросов и поиска для задач, эпиков и подзадач одной полосы
+    private static final class IndexStripe {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final QueryIndex queryIndex = new QueryIndex();
+        private final TextIndex textIndex = new TextIndex();
+    }
+
+    public ConcurrentTaskManager() {
+        this(new BlockIdAllocator());
+    }
+
+    // Конструктор с заданной выдачей ID — например, LeaseFileIdAllocator, чтобы ID не пересекались
+    // с ID других процессов, которые пользуются тем же файлом аренды
+    public ConcurrentTaskManager(IdAllocator ids) {
+        this.ids = ids;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        for (int i = 0; i < INDEX_STRIPES; i++) {
+            indexStripes[i] = new IndexStripe();
+        }
+    }
+
+
+    // Методы для работы с задачами Task. ID выдаётся до проверки пересечений, чтобы задача сразу попала
+    // в свою полосу; если задача отклонена, этот ID больше не используется
+    @Override
+    public Task addTask(Task task) {
+        int id = ids.nextId();
+        ReentrantLock stripe = stripe(id);
+        stripe.lock();
+        try {
+            withSchedule(() -> {
+                if (intervals.overlaps(task)) {
+                    throw new IllegalArgumentException("Задачи пересекаются по времени");
+                }
+                task.setId(id);
+                tasks.put(id, task);
+                schedule(task);
+            });
+            index(task);
+        } finally {
+            stripe.unlock();
+        }
+        return task;
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        ReentrantLock stripe = stripe(id);
+        stripe.lock();
+        try {
+            Task task = tasks.remove(id);
+            if (task != null) {
+                withSchedule(() -> unschedule(task));
+                unindex(id);
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public Task getTask(int id) {
+        Task task = tasks.get(id);
+        if (task != null) {
+            addToHistory(task);
+        }
+        return task;
+    }
+
+    @Override
+    public ArrayList<Task> getAllTasks() {
+        return new ArrayList<>(tasks.values());
+    }
+
+    @Override
+    public void clearTasks() {
+        lockAll();
+        try {
+            withSchedule(() -> tasks.values().forEach(this::unschedule));
+            tasks.keySet().forEach(this::unindex);
+            tasks.clear();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        ReentrantLock stripe = stripe(task.getId());
+        stripe.lock();
+        try {
+            if (tasks.containsKey(task.getId())) {
+                withSchedule(() -> {
+                    if (intervals.overlaps(task)) {
+                        throw new IllegalArgumentException("Обновленная задача пересекается по времени с другой задачей");
+                    }
+                    Task previous = tasks.get(task.getId());
+                    unschedule(previous);
+                    task.setVersion(previous.getVersion() + 1);
+                    tasks.put(task.getId(), task);
+                    schedule(task);
+                });
+                index(task);
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+
+    // Методы для работы с эпиками
+    @Override
+    public void addEpic(Epic epic) {
+        int id = ids.nextId();
+        ReentrantLock stripe = stripe(id);
+        stripe.lock();
+        try {
+            epic.setId(id);
+            epics.put(id, epic);
+            index(epic);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        ReentrantLock stripe = stripe(id);
+        stripe.lock();
+        try {
+            Epic epic = epics.remove(id);
+            if (epic != null) {
+                List<Subtask> removed = new ArrayList<>();
+                for (int subtaskId : epic.detachSubtasks()) {
+                    Subtask subtask = subtasks.remove(subtaskId);
+                    if (subtask != null) {
+                        removed.add(subtask);
+                    }
+                }
+                withSchedule(() -> removed.forEach(this::unschedule));
+                unindex(id);
+                removed.forEach(subtask -> unindex(subtask.getId()));
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        Epic epic = epics.get(id);
+        if (epic != null) {
+            addToHistory(epic);
+        }
+        return epic;
+    }
+
+    @Override
+    public ArrayList<Epic> getAllEpics() {
+        return new ArrayList<>(epics.values());
+    }
+
+    @Override
+    public void clearEpics() {
+        lockAll();
+        try {
+            withSchedule(() -> subtasks.values().forEach(this::unschedule));
+            epics.keySet().forEach(this::unindex);
+            subtasks.keySet().forEach(this::unindex);
+            epics.clear();
+            subtasks.clear();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        ReentrantLock stripe = stripe(epic.getId());
+        stripe.lock();
+        try {
+            if (epics.containsKey(epic.getId())) {
+                epic.setVersion(epics.get(epic.getId()).getVersion() + 1);
+                epics.put(epic.getId(), epic);
+                index(epic);
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+
+    // Методы для работы с подзадачами: все они захватывают полосу эпика подзадачи
+    @Override
+    public void addSubtask(Subtask subtask) {
+        ReentrantLock stripe = stripe(subtask.getEpicId());
+        stripe.lock();
+        try {
+            Epic epic = epics.get(subtask.getEpicId());
+            withSchedule(() -> {
+                if (intervals.overlaps(subtask)) {
+                    throw new IllegalArgumentException("Подзадача пересекается по времени с другой задачей");
+                }
+                int id = ids.nextId();
+                subtask.setId(id);
+                subtasks.put(id, subtask);
+                if (epic != null) {
+                    schedule(subtask); // Проверка и вставка в расписание — под одной блокировкой
+                }
+            });
+            if (epic != null) {
+                index(subtask);
+                epic.addSubtask(subtask.getId());
+                epic.countSubtask(subtask);
+                recalculateEpic(epic);
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        while (true) {
+            Subtask subtask = subtasks.get(id);
+            if (subtask == null) {
+                return;
+            }
+            int epicId = subtask.getEpicId();
+            ReentrantLock stripe = stripe(epicId);
+            stripe.lock();
+            try {
+                // Пока полоса захватывалась, подзадачу могли заменить или перенести в другой эпик — тогда повторяем
+                if (subtasks.get(id) != subtask || subtask.getEpicId() != epicId) {
+                    continue;
+                }
+                subtasks.remove(id);
+                Epic epic = epics.get(epicId);
+                if (epic != null) {
+                    epic.deleteSubtask(id);
+                    recalculateEpic(epic);
+                }
+                withSchedule(() -> unschedule(subtask));
+                unindex(id);
+                return;
+            } finally {
+                stripe.unlock();
+            }
+        }
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        Subtask subtask = subtasks.get(id);
+        if (subtask != null) {
+            addToHistory(subtask);
+        }
+        return subtask;
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtasksForEpic(int epicId) {
+        ReentrantLock stripe = stripe(epicId);
+        stripe.lock(); // Список подзадач эпика меняется только под полосой эпика
+        try {
+            Epic epic = epics.get(epicId);
+            if (epic == null) {
+                return new ArrayList<>();
+            }
+            ArrayList<Subtask> result = new ArrayList<>(epic.getSubtaskIdList().size());
+            epic.getSubtaskIdList().forEachInt(subtaskId -> {
+                Subtask subtask = subtasks.get(subtaskId);
+                if (subtask != null) {
+                    result.add(subtask);
+                }
+            });
+            return result;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override // Статусы подзадач могли изменить снаружи, поэтому агрегаты эпика заполняются заново
+    public void updateEpicStatus(Epic epic) {
+        ReentrantLock stripe = stripe(epic.getId());
+        stripe.lock();
+        try {
+            recountEpic(epic);
+            recalculateEpic(epic);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        replaceSubtask(subtask, ANY_VERSION);
+    }
+
+    @Override
+    public ArrayList<Subtask> getAllSubtask() {
+        return new ArrayList<>(subtasks.values());
+    }
+
+    // Постраничное чтение без блокировок: хранилища упорядочены по ID, страница читается с ключа курсора
+    @Override
+    public List<Task> pageTasksAfter(int afterId, int limit) {
+        return Pages.first(tasks.tailMap(afterId, false).values(), limit);
+    }
+
+    @Override
+    public List<Epic> pageEpicsAfter(int afterId, int limit) {
+        return Pages.first(epics.tailMap(afterId, false).values(), limit);
+    }
+
+    @Override
+    public List<Subtask> pageSubtasksAfter(int afterId, int limit) {
+        return Pages.first(subtasks.tailMap(afterId, false).values(), limit);
+    }
+
+    @Override
+    public List<Task> pagePrioritizedAfter(LocalDateTime afterStart, int afterId, int limit) {
+        scheduleLock.readLock().lock();
+        try {
+            return Pages.first(prioritizedTasks.after(afterStart, afterId), limit);
+        } finally {
+            scheduleLock.readLock().unlock();
+        }
+    }
+
+    // Оптимистичное обновление: полоса держится только на время сравнения версии и записи, а не на всё время,
+    // пока вызывающий код читает и меняет задачу. Полоса та же, что у обычного обновления, поэтому
+    // обновления одной задачи не могут пройти проверку одновременно
+    @Override
+    public boolean compareAndUpdate(Task task, long expectedVersion) {
+        if (task instanceof Subtask subtask) { // Полоса подзадачи — по эпику хранимой подзадачи
+            return replaceSubtask(subtask, expectedVersion);
+        }
+        ReentrantLock stripe = stripe(task.getId());
+        stripe.lock();
+        try {
+            Task stored = task instanceof Epic ? epics.get(task.getId()) : tasks.get(task.getId());
+            if (stored == null || stored.getVersion() != expectedVersion) {
+                return false;
+            }
+            if (task instanceof Epic epic) {
+                updateEpic(epic);
+            } else {
+                updateTask(task);
+            }
+            return true;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+
+    // Чтение индексов: копия берётся под блокировкой чтения, поэтому читатели не мешают друг другу
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        scheduleLock.readLock().lock();
+        try {
+            return new ArrayList<>(prioritizedTasks.all());
+        } finally {
+            scheduleLock.readLock().unlock();
+        }
+    }
+
+    @Override // В отличие от однопоточного менеджера возвращается копия: представление нельзя читать без блокировки
+    public Collection<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        scheduleLock.readLock().lock();
+        try {
+            return new ArrayList<>(prioritizedTasks.between(from, to));
+        } finally {
+            scheduleLock.readLock().unlock();
+        }
+    }
+
+    @Override // Каждая полоса индексов выполняет запрос (с тем же limit), упорядоченные результаты сливаются
+    public List<Task> findTasks(TaskQuery query) {
+        if (query.hasEpicFilter()) { // Список подзадач каждого эпика читается под его полосой
+            return QueryPipeline.select(query, QueryPipeline.fromEpics(query, this::getSubtasksForEpic));
+        }
+        List<List<Task>> parts = new ArrayList<>(INDEX_STRIPES);
+        for (IndexStripe stripe : indexStripes) {
+            stripe.lock.readLock().lock();
+            try {
+                parts.add(stripe.queryIndex.find(query));
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+        }
+        return QueryPipeline.merge(query, parts);
+    }
+
+    @Override // Каждая полоса отдаёт свои limit лучших задач; выше — подходящие под большее число OR-групп
+    public List<Task> searchTasks(String query, int limit) {
+        List<int[]> hits = new ArrayList<>(); // {ID, количество совпавших групп}
+        for (IndexStripe stripe : indexStripes) {
+            stripe.lock.readLock().lock();
+            try {
+                for (int id : stripe.textIndex.search(query, limit)) {
+                    hits.add(new int[]{id, stripe.textIndex.matchedGroups(query, id)});
+                }
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+        }
+        hits.sort((a, b) -> a[1] != b[1] ? Integer.compare(b[1], a[1]) : Integer.compare(a[0], b[0]));
+        int count = Math.min(hits.size(), Math.max(limit, 0));
+        List<Task> result = new ArrayList<>(count);
+        for (int[] hit : hits.subList(0, count)) {
+            int id = hit[0];
+            Task task = tasks.get(id);
+            if (task == null) {
+                task = epics.get(id);
+            }
+            if (task == null) {
+                task = subtasks.get(id);
+            }
+            if (task != null) { // Задачу могли удалить после поиска
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+
+    // Пакетные изменения: поток, открывший пакет, захватывает все полосы, поэтому изменения других потоков
+    // ждут закрытия пакета. Эпики пересчитываются сразу (это O(log k) на изменение), а откат восстанавливает
+    // хранилища и пересобирает агрегаты и индексы с нуля
+    @Override
+    public void beginBatch() {
+        if (isInBatch()) {
+            throw new IllegalStateException("Пакет изменений уже открыт");
+        }
+        lockAll();
+        batch = new BatchState(this);
+    }
+
+    @Override
+    public void commitBatch() {
+        requireBatch();
+        batch = null;
+        unlockAll();
+    }
+
+    @Override
+    public void rollbackBatch() {
+        BatchState finished = requireBatch();
+        try {
+            tasks.clear();
+            tasks.putAll(finished.tasks);
+            epics.clear();
+            epics.putAll(finished.epics);
+            subtasks.clear();
+            subtasks.putAll(finished.subtasks);
+            ids.rewind(finished.idMark); // ID, выданные внутри пакета, возвращаются потоку пакета
+            for (Epic epic : epics.values()) {
+                epic.getSubtaskIdList().clear();
+                epic.getSubtaskIdList().addAll(finished.epicSubtaskIds.get(epic.getId()));
+                recountEpic(epic);
+                recalculateEpic(epic);
+            }
+            withSchedule(() -> {
+                prioritizedTasks.clear();
+                intervals.clear();
+                tasks.values().forEach(this::schedule);
+                subtasks.values().forEach(this::schedule);
+            });
+            for (IndexStripe stripe : indexStripes) {
+                stripe.lock.writeLock().lock();
+                try {
+                    stripe.queryIndex.clear();
+                    stripe.textIndex.clear();
+                } finally {
+                    stripe.lock.writeLock().unlock();
+                }
+            }
+            tasks.values().forEach(this::index);
+            subtasks.values().forEach(this::index);
+            epics.values().forEach(this::index);
+        } finally {
+            batch = null;
+            unlockAll();
+        }
+    }
+
+    @Override // Пакет открыт именно в этом потоке
+    public boolean isInBatch() {
+        BatchState current = batch;
+        return current != null && current.owner == Thread.currentThread();
+    }
+
+    private BatchState requireBatch() {
+        if (!isInBatch()) {
+            throw new IllegalStateException("Пакет изменений не открыт");
+        }
+        return batch;
+    }
+
+
+    // Метод пересчитывает статус, время и продолжительность эпика по агрегатам. Вызывается под полосой эпика
+    private void recalculateEpic(Epic epic) {
+        if (!epic.hasCounts()) {
+            recountEpic(epic);
+        }
+        epic.setStatus(epic.statusFromCounts());
+        epic.applyTimeFromCounts();
+        index(epic);
+    }
+
+    // Метод заполняет агрегаты эпика заново по его подзадачам
+    private void recountEpic(Epic epic) {
+        epic.resetCounts();
+        epic.getSubtaskIdList().forEachInt(subtaskId -> {
+            Subtask subtask = subtasks.get(subtaskId);
+            if (subtask != null) {
+                epic.countSubtask(subtask);
+            }
+        });
+    }
+
+    // Метод заменяет подзадачу под полосой эпика хранимой подзадачи (а не эпика из переданного объекта)
+    // и возвращает false, если подзадачи нет или её версия не равна ожидаемой. Пока полоса захватывалась,
+    // подзадачу могли заменить или удалить — тогда захват повторяется
+    private boolean replaceSubtask(Subtask subtask, long expectedVersion) {
+        int id = subtask.getId();
+        while (true) {
+            Subtask previous = subtasks.get(id);
+            if (previous == null) {
+                return false;
+            }
+            int epicId = previous.getEpicId();
+            ReentrantLock stripe = stripe(epicId);
+            stripe.lock();
+            try {
+                if (subtasks.get(id) != previous || previous.getEpicId() != epicId) {
+                    continue;
+                }
+                if (expectedVersion != ANY_VERSION && previous.getVersion() != expectedVersion) {
+                    return false;
+                }
+                Epic epic = epics.get(epicId);
+                if (subtask.getEpicId() != epicId || (epic != null && !epic.getSubtaskIdList().containsInt(id))) {
+                    throw new IllegalArgumentException("Подзадачу нельзя перенести в другой эпик");
+                }
+                withSchedule(() -> {
+                    if (intervals.overlaps(subtask)) {
+                        throw new IllegalArgumentException("Обновленная подзадача пересекается по времени с другой задачей");
+                    }
+                    unschedule(previous);
+                    subtask.setVersion(previous.getVersion() + 1);
+                    subtasks.put(id, subtask);
+                    schedule(subtask);
+                });
+                index(subtask);
+                if (epic != null) {
+                    epic.changeSubtask(subtask);
+                    recalculateEpic(epic);
+                }
+                return true;
+            } finally {
+                stripe.unlock();
+            }
+        }
+    }
+
+    // Методы ниже меняют расписание и индекс отрезков и вызываются только под блокировкой записи расписания
+    private void schedule(Task task) {
+        prioritizedTasks.add(task);
+        intervals.add(task);
+    }
+
+    private void unschedule(Task task) {
+        prioritizedTasks.remove(task.getId());
+        intervals.remove(task.getId());
+    }
+
+    // Методы ниже меняют индексы запросов и поиска под блокировкой полосы индексов. Изменения одной задачи
+    // идут под её полосой блокировок, поэтому в индексах не перепутаются
+    private void index(Task task) {
+        IndexStripe stripe = indexStripe(task.getId());
+        stripe.lock.writeLock().lock();
+        try {
+            stripe.queryIndex.put(task);
+            stripe.textIndex.put(task);
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    private void unindex(int id) {
+        IndexStripe stripe = indexStripe(id);
+        stripe.lock.writeLock().lock();
+        try {
+            stripe.queryIndex.remove(id);
+            stripe.textIndex.remove(id);
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    // Метод выполняет действие с расписанием под блокировкой записи
+    private void withSchedule(Runnable action) {
+        scheduleLock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            scheduleLock.writeLock().unlock();
+        }
+    }
+
+    private void addToHistory(Task task) {
+        synchronized (historyManager) {
+            historyManager.add(task);
+        }
+    }
+
+    private ReentrantLock stripe(int id) {
+        return stripes[Math.floorMod(id, STRIPES)];
+    }
+
+    private IndexStripe indexStripe(int id) {
+        return indexStripes[Math.floorMod(id, INDEX_STRIPES)];
+    }
+
+    private void lockAll() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = STRIPES - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    // Состояние менеджера на момент начала пакета
+    private static class BatchState {
+        private final Thread owner = Thread.currentThread();
+        private final Map<Integer, Task> tasks;
+        private final Map<Integer, Epic> epics;
+        private final Map<Integer, Subtask> subtasks;
+        private final int idMark;
+        private final Map<Integer, IntLinkedSet> epicSubtaskIds = new HashMap<>(); // Копии списков подзадач эпиков
+
+        private BatchState(ConcurrentTaskManager manager) {
+            tasks = new HashMap<>(manager.tasks);
+            epics = new HashMap<>(manager.epics);
+            subtasks = new HashMap<>(manager.subtasks);
+            idMark = manager.ids.mark();
+            for (Epic epic : manager.epics.values()) {
+                epicSubtaskIds.put(epic.getId(), new IntLinkedSet(epic.getSubtaskIdList()));
+            }
+        }
+    }
+}
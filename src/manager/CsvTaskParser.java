@@ -0,0 +1,310 @@
+package manager;
+
+import entity.Epic;
+import entity.Status;
+import entity.Subtask;
+import entity.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// Это разборщик снимка CSV прямо из байтового буфера (например, отображённого в память файла).
+// Строки файла не превращаются в String целиком: числа, тип, статус и время разбираются из байтов,
+// а строками становятся только название и описание задачи
+public class CsvTaskParser {
+    private static final Status[] STATUSES = Status.values();
+    private static final byte[][] STATUS_NAMES = new byte[STATUSES.length][];
+
+    static {
+        for (int i = 0; i < STATUSES.length; i++) {
+            STATUS_NAMES[i] = STATUSES[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static final int MIN_CHUNK_SIZE = 1024 * 1024; // Меньшие куски не окупают параллельный разбор
+
+    private final ByteBuffer buffer; // Содержимое файла
+    private int position; // Текущая позиция разбора
+    private byte[] scratch = new byte[256]; // Буфер для значений в кавычках и копирования из буфера вне кучи
+
+    public CsvTaskParser(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    // Метод возвращает позицию начала строки, следующей за строкой с позицией from (или limit, если строк больше нет)
+    public static int nextLineStart(ByteBuffer buffer, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+
+    // Метод делит диапазон [from, to) на куски по границам строк, разбирает их параллельно в пуле ForkJoinPool
+    // и возвращает задачи в порядке следования в файле
+    public static List<Task> parseParallel(ByteBuffer buffer, int from, int to, ForkJoinPool pool) {
+        int parallelism = pool.getParallelism();
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (to - from) / (parallelism * 4) + 1);
+        List<int[]> chunks = new ArrayList<>(); // Границы кусков [начало, конец)
+        int start = from;
+        while (start < to) {
+            int end = start + chunkSize >= to ? to : nextLineStart(buffer, start + chunkSize, to);
+            chunks.add(new int[]{start, end});
+            start = end;
+        }
+        if (chunks.size() <= 1 || parallelism <= 1) { // Параллелить нечего — разбираем в текущем потоке
+            List<Task> result = new ArrayList<>();
+            new CsvTaskParser(buffer).parse(from, to, result::add);
+            return result;
+        }
+
+        List<List<Task>> parsedChunks = pool.submit(() -> chunks.parallelStream()
+                .map(chunk -> {
+                    List<Task> chunkTasks = new ArrayList<>();
+                    // У каждого потока свой разборщик и своя копия буфера с независимой позицией
+                    new CsvTaskParser(buffer.duplicate()).parse(chunk[0], chunk[1], chunkTasks::add);
+                    return chunkTasks;
+                })
+                .collect(Collectors.toList())).join();
+
+        List<Task> result = new ArrayList<>(parsedChunks.stream().mapToInt(List::size).sum());
+        parsedChunks.forEach(result::addAll);
+        return result;
+    }
+
+    // Метод разбирает файл снимка любого размера (без строки заголовка) окнами, отображёнными в память.
+    // Окно обрезается по последней целой строке, и следующее окно начинается с неё. Если в окне нет
+    // ни одного перевода строки, оно отображается заново вдвое большим
+    public static void parseWindows(FileChannel channel, int window, ForkJoinPool pool, Consumer<Task> consumer)
+            throws IOException {
+        long size = channel.size();
+        long position = 0;
+        int length = window;
+        while (position < size) {
+            int mapped = (int) Math.min(length, size - position);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, mapped);
+            int end = mapped;
+            if (position + mapped < size) { // Окно не доходит до конца файла
+                end = 0;
+                for (int i = mapped - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        end = i + 1;
+                        break;
+                    }
+                }
+                if (end == 0) {
+                    if (length == Integer.MAX_VALUE) {
+                        throw new IOException("Строка снимка не помещается в окно отображения");
+                    }
+                    length = (int) Math.min(2L * length, Integer.MAX_VALUE);
+                    continue;
+                }
+            }
+            int start = position == 0 ? nextLineStart(buffer, 0, end) : 0; // Пропускаем заголовок
+            parseParallel(buffer, start, end, pool).forEach(consumer);
+            position += end;
+            length = window;
+        }
+    }
+
+    // Метод разбирает все строки в диапазоне [from, to) и передаёт задачи по одной.
+    // Диапазон должен начинаться с начала строки
+    public void parse(int from, int to, Consumer<Task> consumer) {
+        position = from;
+        while (position < to) {
+            int lineEnd = nextLineStart(buffer, position, to);
+            int contentEnd = lineEnd;
+            while (contentEnd > position
+                    && (buffer.get(contentEnd - 1) == '\n' || buffer.get(contentEnd - 1) == '\r')) {
+                contentEnd--; // Отбрасываем перевод строки
+            }
+            if (contentEnd > position) {
+                Task task = parseLine(contentEnd);
+                if (task != null) {
+                    consumer.accept(task);
+                }
+            }
+            position = lineEnd;
+        }
+    }
+
+    // Метод разбирает одну строку: id,type,name,status,description,duration,startTime,epicId
+    private Task parseLine(int end) {
+        int idStart = position;
+        int id = (int) parseLong(idStart, fieldEnd(end));
+        int typeStart = position;
+        fieldEnd(end);
+        byte typeFirst = buffer.get(typeStart); // Типы различаются по первой букве: TASK, EPIC, SUBTASK
+        String name = parseString(end);
+        Status status = parseStatus(end);
+        String description = parseString(end);
+        int durationStart = position;
+        int durationEnd = fieldEnd(end);
+        Duration duration = durationEnd == durationStart ? null
+                : Duration.ofMinutes(parseLong(durationStart, durationEnd));
+        int startTimeStart = position;
+        int startTimeEnd = fieldEnd(end);
+        LocalDateTime startTime = startTimeEnd == startTimeStart ? null : parseDateTime(startTimeStart, startTimeEnd);
+
+        switch (typeFirst) {
+            case 'E':
+                Epic epic = new Epic(name, description);
+                epic.setId(id);
+                epic.setStatus(status);
+                epic.setDuration(duration);
+                epic.setStartTime(startTime);
+                return epic;
+            case 'S':
+                int epicStart = position;
+                int epicEnd = fieldEnd(end);
+                if (epicEnd == epicStart) {
+                    System.out.println("Ошибка: у сабтаска нет epicId -> " + id);
+                    return null;
+                }
+                Subtask subtask = new Subtask(name, description, status, (int) parseLong(epicStart, epicEnd),
+                        duration, startTime);
+                subtask.setId(id);
+                return subtask;
+            case 'T':
+                Task task = new Task(name, description, status, duration, startTime);
+                task.setId(id);
+                return task;
+            default:
+                throw new IllegalArgumentException("Неизвестный тип задачи в строке с ID " + id);
+        }
+    }
+
+    // Метод находит конец текущего поля без кавычек и переводит позицию за запятую.
+    // Возвращает позицию конца поля; начало поля — позиция до вызова
+    private int fieldEnd(int end) {
+        int i = position;
+        while (i < end && buffer.get(i) != ',') {
+            i++;
+        }
+        position = i < end ? i + 1 : end;
+        return i;
+    }
+
+    // Метод разбирает строковое поле, которое может быть заключено в кавычки
+    private String parseString(int end) {
+        if (position < end && buffer.get(position) == '"') {
+            int length = 0;
+            int i = position + 1;
+            while (i < end) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    if (i + 1 < end && buffer.get(i + 1) == '"') {
+                        i++; // Удвоенная кавычка внутри значения
+                    } else {
+                        i++;
+                        break;
+                    }
+                }
+                if (length == scratch.length) {
+                    byte[] larger = new byte[scratch.length * 2];
+                    System.arraycopy(scratch, 0, larger, 0, length);
+                    scratch = larger;
+                }
+                scratch[length++] = b;
+                i++;
+            }
+            position = i < end ? i + 1 : end; // Пропускаем запятую после закрывающей кавычки
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        int start = position;
+        int stop = fieldEnd(end);
+        return decode(start, stop);
+    }
+
+    private String decode(int start, int stop) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + start, stop - start, StandardCharsets.UTF_8);
+        }
+        int length = stop - start;
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = buffer.get(start + i);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    // Метод сравнивает байты поля с названиями статусов, не создавая строку
+    private Status parseStatus(int end) {
+        int start = position;
+        int stop = fieldEnd(end);
+        for (int s = 0; s < STATUS_NAMES.length; s++) {
+            byte[] statusName = STATUS_NAMES[s];
+            if (statusName.length == stop - start) {
+                boolean same = true;
+                for (int i = 0; i < statusName.length && same; i++) {
+                    same = buffer.get(start + i) == statusName[i];
+                }
+                if (same) {
+                    return STATUSES[s];
+                }
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный статус: " + decode(start, stop));
+    }
+
+    private long parseLong(int start, int stop) {
+        boolean negative = buffer.get(start) == '-';
+        long value = 0;
+        for (int i = negative ? start + 1 : start; i < stop; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Некорректное число: " + decode(start, stop));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    // Метод разбирает время в формате LocalDateTime.toString(): uuuu-MM-ddTHH:mm[:ss[.n...]].
+    // Необычные значения (например, годы за пределами 0000-9999) разбираются стандартным методом
+    private LocalDateTime parseDateTime(int start, int stop) {
+        int length = stop - start;
+        if (length < 16 || buffer.get(start + 4) != '-' || buffer.get(start + 10) != 'T') {
+            return LocalDateTime.parse(decode(start, stop));
+        }
+        int year = digits(start, 4);
+        int month = digits(start + 5, 2);
+        int day = digits(start + 8, 2);
+        int hour = digits(start + 11, 2);
+        int minute = digits(start + 14, 2);
+        int second = 0;
+        int nano = 0;
+        if (length >= 19) {
+            second = digits(start + 17, 2);
+            if (length > 20) {
+                int fractionDigits = length - 20;
+                nano = digits(start + 20, fractionDigits);
+                for (int i = fractionDigits; i < 9; i++) {
+                    nano *= 10;
+                }
+            }
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+    }
+
+    private int digits(int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            value = value * 10 + (buffer.get(i) - '0');
+        }
+        return value;
+    }
+}
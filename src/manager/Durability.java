@@ -0,0 +1,8 @@
+package manager;
+
+// Уровни надёжности сохранения изменений в FileBackedTaskManager
+public enum Durability {
+    SYNC, // Каждое изменение записывается и сбрасывается на диск до возврата из метода
+    GROUP_COMMIT, // Изменения копятся и записываются пачкой раз в N мс или M изменений, вызывающий ждёт записи пачки
+    ASYNC // Изменения записываются фоновым потоком без ожидания и без сброса на диск
+}
@@ -5,74 +5,253 @@ import entity.Status;
 import entity.Subtask;
 import entity.Task;
 
+import exception.ManagerSaveException;
+
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongSupplier;
 
 
 // Это класс для управления задачами с сохранением данных в файл
 public class FileBackedTaskManager extends InMemoryTaskManager {
+    private static final int CSV_WINDOW = 1 << 30; // Окно отображения CSV-снимка больше 2 ГБ
     private File file; // Файл, в который будут сохраняться данные
+    private TaskJournal journal; // Журнал изменений (null — каждое изменение перезаписывает файл целиком)
+    private JournalCompactor compactor; // Фоновая свёртка журнала (null, если не запущена)
+    private final Object compactionLock = new Object(); // Не даёт двум свёрткам идти одновременно
+    private volatile long lastCompactionMillis = System.currentTimeMillis(); // Время последнего снимка
+    private Durability durability = Durability.SYNC; // Уровень надёжности записи
+    private GroupCommitWriter writer; // Фоновый поток записи для режимов GROUP_COMMIT и ASYNC
+    private SnapshotFormat snapshotFormat = SnapshotFormat.CSV; // Формат файла снимка
+    private final List<String[]> batchRecords = new ArrayList<>(); // Записи журнала, отложенные до закрытия пакета
 
     public FileBackedTaskManager(File file) { // Конструктор для создания менеджера с указанием файла
         this.file = file;
     }
 
-    // Статический метод для загрузки данных из файла
-    public static FileBackedTaskManager loadFromFile(File file) {
-        FileBackedTaskManager manager = new FileBackedTaskManager(file); // Создаём новый менеджер
-        try {
-            List<String> lines = Files.readAllLines(file.toPath()); // Читаем все строки из файла
-            if (lines.size() <= 1) { // Если только заголовок или файл пустой
-                return manager; // Возвращаем пустой менеджер
+    // Конструктор для менеджера в режиме журнала: файл содержит снимок, а каждое изменение
+    // дописывается одной записью в журнал рядом с ним
+    public FileBackedTaskManager(File file, boolean journaled) {
+        this(file, journaled, Durability.SYNC);
+    }
+
+    // Конструктор с выбором уровня надёжности записи
+    public FileBackedTaskManager(File file, boolean journaled, Durability durability) {
+        this(file, journaled, durability, SnapshotFormat.CSV);
+    }
+
+    // Конструктор с выбором уровня надёжности записи и формата файла снимка. В режиме журнала сразу
+    // записывается пустой снимок, поэтому файл с данными (снимок или журнал) нужно открывать через loadFromFile()
+    public FileBackedTaskManager(File file, boolean journaled, Durability durability, SnapshotFormat snapshotFormat) {
+        this.file = file;
+        this.snapshotFormat = snapshotFormat;
+        if (journaled) {
+            File journalFile = TaskJournal.journalFileFor(file);
+            if (file.length() > 0 || journalFile.length() > 0 || TaskJournal.rotatedFileFor(journalFile).exists()) {
+                throw new IllegalStateException("Файл " + file + " уже содержит данные — загрузите его через loadFromFile()");
             }
+            save(); // Записываем пустой снимок
+            journal = new TaskJournal(TaskJournal.journalFileFor(file));
+            journal.truncate(); // Старый журнал относится к другому состоянию — начинаем заново
+        }
+        startWriter(durability);
+    }
 
-            // Пропускаем заголовок и загружаем задачи
-            lines.stream()
-                    .skip(1) // Пропускаем заголовок
-                    .map(manager::fromString) // Преобразуем строку в задачу
-                    .forEach(task -> { // В зависимости от типа добавляем задачу в соответствующее хранилище
-                        switch (task.getType()) {
-                            case TASK_TYPE:
-                                manager.tasks.put(task.getId(), task);
-                                if (task.getStartTime() != null) {
-                                    manager.prioritizedTasks.add(task);
-                                }
-                                break;
-                            case EPIC_TYPE:
-                                manager.epics.put(task.getId(), (Epic) task);
-                                break;
-                            case SUBTASK_TYPE:
-                                manager.subtasks.put(task.getId(), (Subtask) task);
-                                if (task.getStartTime() != null) {
-                                    manager.prioritizedTasks.add(task);
-                                }
-                                Epic epic = manager.epics.get(((Subtask) task).getEpicId());
-                                if (epic != null) {
-                                    epic.addSubtask(task.getId());
-                                    epic.updateTimeAndDuration(manager.subtasks);
-                                }
-                                break;
-                        }
-                        // Обновляем счётчик ID, если загруженный ID больше текущего
-                        if (task.getId() > manager.idCounter) {
-                            manager.idCounter = task.getId();
-                        }
-                    });
+    // Статический метод для загрузки данных из файла. Если рядом со снимком есть журнал,
+    // он проигрывается поверх снимка, и менеджер продолжает работать в режиме журнала
+    public static FileBackedTaskManager loadFromFile(File file) {
+        return loadFromFile(file, TaskJournal.journalFileFor(file).exists());
+    }
 
-            // Пересчитываем время и статус для всех эпиков после загрузки
+    // Загрузка с явным выбором режима журнала
+    public static FileBackedTaskManager loadFromFile(File file, boolean journaled) {
+        return loadFromFile(file, journaled, Durability.SYNC);
+    }
+
+    // Загрузка с явным выбором режима журнала и уровня надёжности записи
+    public static FileBackedTaskManager loadFromFile(File file, boolean journaled, Durability durability) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file); // Создаём новый менеджер
+        manager.loadSnapshot();
+        if (journaled) {
+            manager.journal = new TaskJournal(TaskJournal.journalFileFor(file));
+            manager.journal.replay(manager::applyJournalRecord); // Проигрываем изменения после снимка
+            // Пересчитываем время и статус эпиков один раз после проигрывания журнала
             manager.epics.values().forEach(epic -> {
-                epic.updateTimeAndDuration(manager.subtasks); // Обновляем время
-                manager.updateEpicStatus(epic); // Обновляем статус
+                epic.updateTimeAndDuration(manager.subtasks);
+                manager.recountEpic(epic); // Журнал мог заменить подзадачи, учтённые в агрегатах
+                manager.refreshEpicStatus(epic);
+            });
+        }
+        manager.startWriter(durability);
+        return manager; // Возвращаем загруженный менеджер
+    }
+
+    // Метод загружает снимок из файла в хранилища менеджера. Формат определяется по магическому заголовку,
+    // и дальнейшие снимки пишутся в том же формате. Файл отображается в память, и записи разбираются
+    // прямо из отображённого буфера без промежуточного списка строк, поэтому пиковое потребление памяти
+    // при загрузке близко к размеру получившихся объектов
+    private void loadSnapshot() {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(Math.max(CompressedTaskFormat.MAGIC.length,
+                    BinaryTaskFormat.MAGIC.length));
+            channel.read(header, 0);
+            header.flip();
+            if (CompressedTaskFormat.isCompressed(header)) {
+                // Сжатый снимок читается через канал: блоки распаковываются параллельно пачками
+                snapshotFormat = SnapshotFormat.COMPRESSED;
+                CompressedTaskFormat.read(file.toPath(), ForkJoinPool.commonPool(), this::addLoadedTask);
+            } else if (size > Integer.MAX_VALUE) { // Больше 2 ГБ за одно отображение не получить
+                if (BinaryTaskFormat.isBinary(header)) { // Двоичный снимок читается через канал
+                    snapshotFormat = SnapshotFormat.BINARY;
+                    BinaryTaskFormat.read(file.toPath(), this::addLoadedTask);
+                } else { // CSV разбирается по окнам
+                    snapshotFormat = SnapshotFormat.CSV;
+                    CsvTaskParser.parseWindows(channel, CSV_WINDOW, ForkJoinPool.commonPool(), this::addLoadedTask);
+                }
+            } else {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                if (BinaryTaskFormat.isBinary(buffer)) {
+                    snapshotFormat = SnapshotFormat.BINARY;
+                    BinaryTaskFormat.read(buffer, this::addLoadedTask);
+                } else {
+                    snapshotFormat = SnapshotFormat.CSV;
+                    int limit = buffer.limit();
+                    int firstLine = CsvTaskParser.nextLineStart(buffer, 0, limit); // Пропускаем заголовок
+                    // Куски файла разбираются параллельно, а в хранилища задачи добавляются в исходном порядке
+                    CsvTaskParser.parseParallel(buffer, firstLine, limit, ForkJoinPool.commonPool())
+                            .forEach(this::addLoadedTask);
+                }
+            }
+
+            // Пересчитываем время и статус для всех эпиков после загрузки — один раз на эпик,
+            // поэтому загрузка линейна по количеству подзадач
+            epics.values().forEach(epic -> {
+                epic.updateTimeAndDuration(subtasks); // Обновляем время
+                refreshEpicStatus(epic); // Обновляем статус (без сохранения в файл)
             });
 
         } catch (IOException e) {
             throw new RuntimeException("Ошибка загрузки из файла", e);
         }
-        return manager; // Возвращаем загруженный менеджер
+    }
+
+    // Метод добавляет загруженную из снимка задачу в соответствующее хранилище
+    private void addLoadedTask(Task task) {
+        if (task == null) {
+            return;
+        }
+        switch (task.getType()) {
+            case TASK_TYPE:
+                tasks.put(task.getId(), task);
+                schedule(task);
+                break;
+            case EPIC_TYPE:
+                epics.put(task.getId(), (Epic) task);
+                break;
+            case SUBTASK_TYPE:
+                subtasks.put(task.getId(), (Subtask) task);
+                schedule(task);
+                Epic epic = epics.get(((Subtask) task).getEpicId());
+                if (epic != null) {
+                    epic.addSubtask(task.getId()); // Время и статус эпика пересчитываются после загрузки всех подзадач
+                }
+                break;
+        }
+        // Обновляем счётчик ID, если загруженный ID больше текущего
+        if (task.getId() > idCounter) {
+            idCounter = task.getId();
+        }
+    }
+
+
+    // Метод применяет одну запись журнала к хранилищам. Статус и время эпиков здесь не пересчитываются —
+    // это делается один раз после проигрывания всего журнала
+    private void applyJournalRecord(TaskJournal.Operation operation, String payload) {
+        switch (operation) {
+            case PUT:
+                Task task = fromString(payload);
+                if (task == null) {
+                    return;
+                }
+                if (task.getId() > idCounter) {
+                    idCounter = task.getId();
+                }
+                switch (task.getType()) {
+                    case TASK_TYPE:
+                        Task oldTask = tasks.put(task.getId(), task);
+                        if (oldTask != null) {
+                            unschedule(oldTask);
+                        }
+                        schedule(task);
+                        break;
+                    case EPIC_TYPE:
+                        Epic oldEpic = epics.get(task.getId());
+                        if (oldEpic != null) { // Эпик уже есть — обновляем поля, сохраняя список подзадач
+                            oldEpic.setName(task.getName());
+                            oldEpic.setDescription(task.getDescription());
+                        } else {
+                            epics.put(task.getId(), (Epic) task);
+                        }
+                        break;
+                    case SUBTASK_TYPE:
+                        Subtask oldSubtask = subtasks.put(task.getId(), (Subtask) task);
+                        if (oldSubtask != null) {
+                            unschedule(oldSubtask);
+                        }
+                        schedule(task);
+                        Epic epic = epics.get(((Subtask) task).getEpicId());
+                        if (oldSubtask == null && epic != null) {
+                            epic.addSubtask(task.getId()); // Новая подзадача — добавляем в эпик
+                        }
+                        break;
+                }
+                break;
+            case DELETE:
+                int id = Integer.parseInt(payload);
+                Task removedTask = tasks.remove(id);
+                if (removedTask != null) {
+                    unschedule(removedTask);
+                    return;
+                }
+                Epic removedEpic = epics.remove(id);
+                if (removedEpic != null) {
+                    unindex(id);
+                    for (int subtaskId : removedEpic.detachSubtasks()) {
+                        Subtask subtask = subtasks.remove(subtaskId);
+                        if (subtask != null) {
+                            unschedule(subtask);
+                        }
+                    }
+                    return;
+                }
+                Subtask removedSubtask = subtasks.remove(id);
+                if (removedSubtask != null) {
+                    Epic epic = epics.get(removedSubtask.getEpicId());
+                    if (epic != null) {
+                        epic.deleteSubtask(id);
+                    }
+                    unschedule(removedSubtask);
+                }
+                break;
+            case CLEAR_TASKS:
+                super.clearTasks();
+                break;
+            case CLEAR_EPICS:
+                super.clearEpics();
+                break;
+        }
     }
 
 
@@ -88,18 +267,56 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         return String.format("%d,%s,%s,%s,%s,%s,%s,%s",
                 task.getId(),
                 task.getType(),
-                task.getName(),
+                escapeCsv(task.getName()),
                 task.getStatus(),
-                task.getDescription(),
+                escapeCsv(task.getDescription()),
                 duration, // Добавлено поле
                 startTime, // Добавлено поле
                 epicId // Рефакторинг
         );
     }
 
+    // Метод заключает значение в кавычки, если в нём есть запятая или кавычка, чтобы не сломать разбор строки
+    private static String escapeCsv(String value) {
+        if (value == null || (value.indexOf(',') < 0 && value.indexOf('"') < 0)) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    // Метод разбирает строку CSV, в которой есть значения в кавычках
+    private static String[] splitQuotedCsv(String value) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < value.length() && value.charAt(i + 1) == '"') {
+                    field.append('"'); // Удвоенная кавычка внутри значения
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
     // Метод для создания задачи из строки CSV
     public Task fromString(String value) {
-        String[] params = value.split(",", 8); // Разделяем строку на части (до 8 полей)
+        // Разделяем строку на части (до 8 полей); строки с кавычками разбираем с учётом экранирования
+        String[] params = value.indexOf('"') < 0 ? value.split(",", 8) : splitQuotedCsv(value);
 
         int id = Integer.parseInt(params[0]);
         String type = params[1];
@@ -145,130 +362,385 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
     }
 
 
+    // Метод запускает фоновый поток записи для режимов GROUP_COMMIT и ASYNC
+    private void startWriter(Durability durability) {
+        this.durability = durability;
+        if (durability != Durability.SYNC) {
+            writer = new GroupCommitWriter(durability, this::flushPending);
+        }
+    }
+
+    // Метод вызывается потоком записи: записывает всё накопленное одной операцией
+    // и возвращает номер последнего вошедшего в запись изменения
+    private long flushPending() {
+        if (journal != null) {
+            long covered = writer.getRequested(); // Все изменения с меньшими номерами уже лежат в буфере журнала
+            journal.sync(durability == Durability.GROUP_COMMIT);
+            return covered;
+        }
+        long covered;
+        List<Task> taskList;
+        List<Epic> epicList;
+        List<Subtask> subtaskList;
+        synchronized (this) { // Копируем ссылки под блокировкой, а файл пишем без неё
+            covered = writer.getRequested();
+            taskList = getAllTasks();
+            epicList = getAllEpics();
+            subtaskList = getAllSubtask();
+        }
+        writeSnapshotAtomically(taskList, epicList, subtaskList);
+        return covered;
+    }
+
+    // Метод выполняет изменение под блокировкой менеджера, а ожидание записи на диск — уже без неё,
+    // чтобы изменения из других потоков успели попасть в ту же пачку
+    private void mutate(LongSupplier change) {
+        long ticket;
+        synchronized (this) {
+            ticket = change.getAsLong();
+        }
+        if (writer != null) {
+            writer.awaitDurable(ticket);
+        }
+    }
+
+    // Метод фиксирует изменение: в режиме журнала дописывает одну запись, иначе перезаписывает файл целиком.
+    // Возвращает номер изменения, записи которого нужно дождаться (0 — запись уже выполнена)
+    private long persist(TaskJournal.Operation operation, String payload) {
+        if (isInBatch()) { // Внутри пакета изменение запоминается и сохраняется при commitBatch()
+            if (journal != null) {
+                batchRecords.add(new String[]{operation.name(), payload});
+            }
+            return 0;
+        }
+        if (journal != null) {
+            journal.append(operation, payload);
+        }
+        if (writer != null) {
+            return writer.markDirty(); // Запись выполнит фоновый поток
+        }
+        if (journal != null) {
+            journal.sync(true);
+        } else {
+            save();
+        }
+        return 0;
+    }
+
+    // Запись о добавлении или обновлении задачи
+    private long persistPut(Task task) {
+        return persist(TaskJournal.Operation.PUT, toString(task));
+    }
+
+    public SnapshotFormat getSnapshotFormat() {
+        return snapshotFormat;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    // Метод возвращает последнюю ошибку фонового потока записи (null, если ошибок не было или потока нет)
+    public synchronized ManagerSaveException getLastWriteFailure() {
+        return writer != null ? writer.getLastFailure() : null;
+    }
+
+    // Метод дописывает незаписанные изменения и закрывает журнал
+    public void close() {
+        if (compactor != null) {
+            compactor.close();
+            compactor = null;
+        }
+        if (writer != null) {
+            writer.close(); // Поток записи сохраняет всё накопленное перед остановкой
+            writer = null;
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка закрытия журнала", e);
+            }
+        }
+    }
+
+    public boolean isJournaled() {
+        return journal != null;
+    }
+
     // Сохранение состояния в файл
     private void save() {
-        try (Writer writer = new FileWriter(file)) { // Открываем файл для записи
+        writeSnapshot(file, getAllTasks(), getAllEpics(), getAllSubtask());
+    }
+
+    // Метод записывает снимок переданных задач, эпиков и подзадач в указанный файл в формате менеджера
+    private void writeSnapshot(File target, List<Task> taskList, List<Epic> epicList, List<Subtask> subtaskList) {
+        if (snapshotFormat == SnapshotFormat.BINARY) {
+            BinaryTaskFormat.write(target.toPath(), taskList, epicList, subtaskList);
+        } else if (snapshotFormat == SnapshotFormat.COMPRESSED) {
+            CompressedTaskFormat.write(target.toPath(), taskList, epicList, subtaskList);
+        } else {
+            writeCsv(target, taskList, epicList, subtaskList);
+        }
+    }
+
+    // Метод выгружает текущее состояние в файл CSV независимо от формата снимка
+    public synchronized void exportCsv(File target) {
+        writeCsv(target, getAllTasks(), getAllEpics(), getAllSubtask());
+    }
+
+    // Метод записывает снимок в формате CSV
+    private void writeCsv(File target, List<Task> taskList, List<Epic> epicList, List<Subtask> subtaskList) {
+        try (FileOutputStream output = new FileOutputStream(target);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) { // Открываем файл для записи
             // Заголовок CSV
             writer.write("id,type,name,description,status,duration,startTime,epicId\n");
 
-            // Сохраняем все обычные задачи в файл
-            getAllTasks().stream()
-                    .map(this::toString)// Преобразуем задачу в строку CSV
-                    .forEach(line -> {
-                        try {
-                            writer.write(line + "\n"); // Записываем строку в файл
-                        } catch (IOException e) {
-                            throw new RuntimeException("Ошибка записи задачи в файл", e);
-                        }
-                    });
-
-            // Сохраняем все эпики в файл
-            getAllEpics().stream()
-                    .map(this::toString) // Преобразуем эпик в строку CSV
-                    .forEach(line -> {
-                        try {
-                            writer.write(line + "\n"); // Записываем строку в файл
-                        } catch (IOException e) {
-                            throw new RuntimeException("Ошибка записи эпика в файл", e);
-                        }
-                    });
-
-            // Сохраняем все подзадачи в файл
-            getAllSubtask().stream()
-                    .map(this::toString)// Преобразуем подзадачу в строку CSV
-                    .forEach(line -> {
-                        try {
-                            writer.write(line + "\n"); // Записываем строку в файл
-                        } catch (IOException e) {
-                            throw new RuntimeException("Ошибка записи подзадачи в файл", e);
-                        }
-                    });
+            // Сохраняем все обычные задачи, эпики и подзадачи в файл
+            for (Task task : taskList) {
+                writer.write(toString(task) + "\n");
+            }
+            for (Epic epic : epicList) {
+                writer.write(toString(epic) + "\n");
+            }
+            for (Subtask subtask : subtaskList) {
+                writer.write(toString(subtask) + "\n");
+            }
+            writer.flush();
+            output.getFD().sync(); // Дожидаемся сброса снимка на диск
         } catch (IOException e) {
-            throw new RuntimeException("Ошибка сохранения в файл", e);
+            throw new ManagerSaveException("Ошибка сохранения в файл", e);
+        }
+    }
+
+
+    // Метод записывает снимок во временный файл и атомарно подменяет им основной файл
+    private void writeSnapshotAtomically(List<Task> taskList, List<Epic> epicList, List<Subtask> subtaskList) {
+        File tempFile = new File(file.getPath() + ".tmp");
+        writeSnapshot(tempFile, taskList, epicList, subtaskList);
+        try {
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка замены снимка", e);
+        }
+    }
+
+
+    // Метод сворачивает журнал: записывает новый снимок и обрезает журнал. Под блокировкой менеджера
+    // выполняется только копирование ссылок и ротация журнала, а сериализация идёт без блокировки,
+    // поэтому запись новых изменений не останавливается на время записи снимка
+    public void compact() {
+        if (journal == null) {
+            return; // Без журнала файл и так всегда содержит полный снимок
+        }
+        synchronized (compactionLock) {
+            List<Task> taskList;
+            List<Epic> epicList;
+            List<Subtask> subtaskList;
+            synchronized (this) {
+                if (isInBatch()) {
+                    return; // Незакрытый пакет ещё может откатиться — свёртка дождётся следующей проверки
+                }
+                taskList = getAllTasks();
+                epicList = getAllEpics();
+                subtaskList = getAllSubtask();
+                journal.rotate(); // Новые изменения пойдут в новый журнал
+            }
+            // Задачи могут меняться во время сериализации, но записи нового журнала идемпотентны
+            // и при загрузке проигрываются поверх снимка, поэтому итоговое состояние совпадёт
+            writeSnapshotAtomically(taskList, epicList, subtaskList);
+            journal.discardRotated(); // Записи отложенного журнала уже вошли в снимок
+            lastCompactionMillis = System.currentTimeMillis();
         }
     }
 
+    // Метод запускает фоновую свёртку журнала с указанными порогами
+    public void startCompaction(CompactionPolicy policy) {
+        if (journal == null) {
+            throw new IllegalStateException("Свёртка доступна только в режиме журнала");
+        }
+        if (compactor != null) {
+            compactor.close();
+        }
+        compactor = new JournalCompactor(this, policy);
+        compactor.start();
+    }
+
+    // Метод возвращает последнюю ошибку фоновой свёртки (null, если ошибок не было или свёртка не запущена)
+    public ManagerSaveException getLastCompactionFailure() {
+        JournalCompactor current = compactor;
+        return current != null ? current.getLastFailure() : null;
+    }
+
+    public synchronized long getJournalSizeInBytes() {
+        return journal != null ? journal.getSizeInBytes() : 0;
+    }
+
+    public synchronized long getJournalRecordCount() {
+        return journal != null ? journal.getRecordCount() : 0;
+    }
+
+    public Duration getTimeSinceLastCompaction() {
+        return Duration.ofMillis(System.currentTimeMillis() - lastCompactionMillis);
+    }
+
 
     // Переопределенные методы для добавления, удаления и обновления задач, эпиков и подзадач.
-    // После каждого изменения вызывается метод save() для сохранения состояния в файл.
+    // После каждого изменения вызывается метод persist() для сохранения состояния в файл или журнал.
+    // Изменения выполняются под блокировкой менеджера, потому что свёртка журнала и поток записи
+    // читают хранилища из фоновых потоков.
     @Override
     public Task addTask(Task task) {
-        super.addTask(task);
-        save();
+        mutate(() -> {
+            super.addTask(task);
+            return persistPut(task);
+        });
         return task;
     }
 
     @Override
     public void deleteTask(int id) {
-        super.deleteTask(id);
-        save();
+        mutate(() -> {
+            super.deleteTask(id);
+            return persist(TaskJournal.Operation.DELETE, String.valueOf(id));
+        });
     }
 
     @Override
     public void clearTasks() {
-        super.clearTasks();
-        save();
+        mutate(() -> {
+            super.clearTasks();
+            return persist(TaskJournal.Operation.CLEAR_TASKS, null);
+        });
     }
 
     @Override
     public void updateTask(Task task) {
-        super.updateTask(task);
-        save();
+        mutate(() -> {
+            super.updateTask(task);
+            return tasks.containsKey(task.getId()) ? persistPut(task) : 0;
+        });
     }
 
 
     @Override
     public void addEpic(Epic epic) {
-        super.addEpic(epic);
-        save();
+        mutate(() -> {
+            super.addEpic(epic);
+            return persistPut(epic);
+        });
     }
 
     @Override
     public void deleteEpic(int id) {
-        super.deleteEpic(id);
-        save();
+        mutate(() -> {
+            super.deleteEpic(id);
+            return persist(TaskJournal.Operation.DELETE, String.valueOf(id));
+        });
     }
 
 
     @Override
     public void clearEpics() {
-        super.clearEpics();
-        save();
+        mutate(() -> {
+            super.clearEpics();
+            return persist(TaskJournal.Operation.CLEAR_EPICS, null);
+        });
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        super.updateEpic(epic);
-        save();
+        mutate(() -> {
+            super.updateEpic(epic);
+            return epics.containsKey(epic.getId()) ? persistPut(epic) : 0;
+        });
     }
 
 
     @Override
     public void addSubtask(Subtask subtask) {
-        super.addSubtask(subtask);
-        save();
+        mutate(() -> {
+            super.addSubtask(subtask);
+            return subtasks.containsKey(subtask.getId()) ? persistPut(subtask) : 0;
+        });
     }
 
     @Override
     public void deleteSubtask(int id) {
-        super.deleteSubtask(id);
-        save();
+        mutate(() -> {
+            super.deleteSubtask(id);
+            return persist(TaskJournal.Operation.DELETE, String.valueOf(id));
+        });
     }
 
     @Override
     public void updateEpicStatus(Epic epic) {
-        super.updateEpicStatus(epic);
-        save();
+        mutate(() -> {
+            super.updateEpicStatus(epic);
+            // В журнал статус эпика не пишем — он пересчитывается из подзадач при загрузке
+            return journal == null ? persistPut(epic) : 0;
+        });
     }
 
     @Override
     public void updateSubtask(Subtask subtask) {
-        super.updateSubtask(subtask);
-        save();
+        mutate(() -> {
+            super.updateSubtask(subtask);
+            return subtasks.containsKey(subtask.getId()) ? persistPut(subtask) : 0;
+        });
     }
 
     @Override
     public ArrayList<Subtask> getAllSubtask() {
         return super.getAllSubtask();
     }
+
+    @Override // Проверка версии идёт под той же блокировкой, что и изменения, — обновление сохраняется как обычно
+    public synchronized boolean compareAndUpdate(Task task, long expectedVersion) {
+        return super.compareAndUpdate(task, expectedVersion);
+    }
+
+
+    // Пакетные изменения: все изменения пакета сохраняются одной операцией при commitBatch()
+    @Override
+    public synchronized void beginBatch() {
+        super.beginBatch();
+    }
+
+    @Override
+    public void commitBatch() {
+        mutate(() -> {
+            super.commitBatch();
+            if (journal != null) {
+                for (String[] record : batchRecords) {
+                    journal.append(TaskJournal.Operation.valueOf(record[0]), record[1]);
+                }
+                batchRecords.clear();
+            }
+            if (writer != null) {
+                return writer.markDirty();
+            }
+            if (journal != null) {
+                journal.sync(true);
+            } else {
+                save(); // Снимок перезаписывается один раз на весь пакет
+            }
+            return 0;
+        });
+    }
+
+    @Override
+    public synchronized void rollbackBatch() {
+        super.rollbackBatch();
+        batchRecords.clear(); // Записи пакета в журнал не попадали, поэтому откатывать журнал не нужно
+        if (journal == null && writer != null) {
+            writer.markDirty(); // Поток записи мог сохранить снимок посреди пакета — перезаписываем его
+        }
+    }
+
+    @Override
+    public synchronized boolean isInBatch() {
+        return super.isInBatch();
+    }
 }
@@ -0,0 +1,176 @@
+package manager;
+
+import exception.ManagerSaveException;
+
+import java.io.Closeable;
+import java.util.function.LongSupplier;
+
+// Это фоновый поток записи для FileBackedTaskManager. Изменения только помечают состояние как «грязное»
+// и получают номер, а поток объединяет всплеск изменений в одну запись на диск
+public class GroupCommitWriter implements Closeable {
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 5; // Максимальное ожидание перед записью пачки
+    public static final int DEFAULT_MAX_BATCH_SIZE = 128; // Максимальное количество изменений в пачке
+
+    private final Durability durability; // GROUP_COMMIT или ASYNC
+    private final long maxDelayMillis;
+    private final int maxBatchSize;
+    private final LongSupplier flushAction; // Записывает всё накопленное и возвращает номер последнего записанного изменения
+    private final Thread thread; // Поток записи
+
+    private long requested; // Номер последнего изменения
+    private long durable; // Номер последнего записанного изменения
+    private long firstPendingMillis; // Время первого незаписанного изменения в текущей пачке
+    private boolean closed;
+    private boolean stopped; // Поток записи завершился — ждать его больше нельзя
+    private ManagerSaveException failure; // Ошибка последней записи, передаётся ожидающим
+    private ManagerSaveException lastFailure; // Последняя ошибка записи — не сбрасывается после успешной записи
+
+    public GroupCommitWriter(Durability durability, LongSupplier flushAction) {
+        this(durability, DEFAULT_MAX_DELAY_MILLIS, DEFAULT_MAX_BATCH_SIZE, flushAction);
+    }
+
+    public GroupCommitWriter(Durability durability, long maxDelayMillis, int maxBatchSize, LongSupplier flushAction) {
+        if (durability == Durability.SYNC) {
+            throw new IllegalArgumentException("В режиме SYNC запись выполняется без фонового потока");
+        }
+        this.durability = durability;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.flushAction = flushAction;
+        this.thread = new Thread(this::run, "group-commit-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // Метод помечает состояние как изменённое и возвращает номер изменения
+    public synchronized long markDirty() {
+        if (requested == durable) {
+            firstPendingMillis = System.currentTimeMillis(); // Начинается новая пачка
+        }
+        requested++;
+        notifyAll();
+        return requested;
+    }
+
+    public synchronized long getRequested() {
+        return requested;
+    }
+
+    // Метод блокирует вызывающего, пока изменение с указанным номером не будет записано.
+    // В режиме ASYNC ожидания нет
+    public void awaitDurable(long ticket) {
+        if (durability == Durability.ASYNC || ticket == 0) {
+            return;
+        }
+        synchronized (this) {
+            while (durable < ticket) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (stopped) {
+                    throw new ManagerSaveException("Поток записи остановлен");
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ManagerSaveException("Ожидание записи прервано", e);
+                }
+            }
+        }
+    }
+
+    // Поток записи: при любом завершении ожидающие просыпаются и получают ошибку, а не ждут вечно
+    private void run() {
+        try {
+            writeLoop();
+        } finally {
+            synchronized (this) {
+                stopped = true;
+                notifyAll();
+            }
+        }
+    }
+
+    // Основной цикл потока: ждём, пока пачка наберётся или истечёт задержка, и записываем её целиком
+    private void writeLoop() {
+        while (true) {
+            synchronized (this) {
+                try {
+                    while (requested == durable && !closed) {
+                        wait();
+                    }
+                    if (requested == durable) {
+                        return; // Всё записано и поток закрыт
+                    }
+                    long deadline = firstPendingMillis + maxDelayMillis;
+                    long now = System.currentTimeMillis();
+                    while (!closed && requested - durable < maxBatchSize && now < deadline) {
+                        wait(deadline - now); // Даём накопиться остальным изменениям всплеска
+                        now = System.currentTimeMillis();
+                    }
+                } catch (InterruptedException e) {
+                    closed = true;
+                }
+            }
+            long written;
+            try {
+                written = flushAction.getAsLong();
+            } catch (ManagerSaveException e) {
+                synchronized (this) {
+                    failure = e;
+                    lastFailure = e;
+                    notifyAll();
+                    if (closed) {
+                        return; // При закрытии не повторяем запись бесконечно
+                    }
+                    try {
+                        wait(Math.max(maxDelayMillis, 100)); // Пауза перед повторной попыткой
+                    } catch (InterruptedException interrupted) {
+                        closed = true;
+                    }
+                }
+                continue;
+            } catch (RuntimeException | Error e) { // Непредвиденная ошибка: повтор её не исправит, поток завершается
+                synchronized (this) {
+                    failure = new ManagerSaveException("Поток записи остановлен из-за ошибки: " + e, e);
+                    lastFailure = failure;
+                    notifyAll();
+                }
+                throw e;
+            }
+            synchronized (this) {
+                durable = Math.max(durable, written);
+                failure = null;
+                if (requested != durable) {
+                    firstPendingMillis = System.currentTimeMillis();
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    // Метод возвращает последнюю ошибку фоновой записи (null, если ошибок не было).
+    // В режиме ASYNC никто не ждёт записи, поэтому только так можно узнать о сбое
+    public synchronized ManagerSaveException getLastFailure() {
+        return lastFailure;
+    }
+
+    // Метод записывает всё накопленное и останавливает поток
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package manager;
+
+// Это интерфейс для выдачи ID задач. ID уникальны, но не обязаны идти подряд: реализация может раздавать
+// их блоками, поэтому после отката или завершения процесса в нумерации остаются пропуски
+public interface IdAllocator {
+
+    // Метод возвращает новый ID, который ещё никому не выдавался
+    int nextId();
+
+    // Метод запоминает позицию выдачи ID текущего потока, чтобы потом вернуть неиспользованные ID через rewind()
+    int mark();
+
+    // Метод возвращает текущему потоку ID, выданные ему после mark(). Вызывается, когда задачи с этими ID
+    // были отброшены (например, при откате пакета). Если вернуть ID нельзя, они просто пропускаются
+    void rewind(int mark);
+}
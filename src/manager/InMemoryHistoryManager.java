@@ -3,13 +3,11 @@ package manager;
 import entity.Task;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
 
 // Это класс для управления историей просмотров задач в памяти
 public class InMemoryHistoryManager implements HistoryManager {
-    // Хранилище узлов (Node) с задачами, ключ — ID задачи
-    private final Map<Integer, Node<Task>> nodeMap = new HashMap<>();
+    // Хранилище узлов (Node) с задачами, ключ — ID задачи (без упаковки в Integer)
+    private final IntObjectMap<Node<Task>> nodeMap = new IntObjectMap<>();
     private Node<Task> tail; // Последний узел в списке истории (хвост)
     private Node<Task> head; // Первый узел в списке истории (голова)
 
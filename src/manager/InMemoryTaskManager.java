@@ -7,7 +7,6 @@ import entity.Task;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 // Это класс для управления задачами, который хранит всё в памяти (не в файле)
 public class InMemoryTaskManager implements TaskManager {
@@ -15,24 +14,21 @@ public class InMemoryTaskManager implements TaskManager {
     int idCounter = 0; // Счётчик для генерации уникальных ID задач
 
 
-    // Создадим хэшмапы для хранения всех видов задач
-    protected final HashMap<Integer, Task> tasks = new HashMap<>(); // Хранилище обычных задач (ключ — ID, значение — задача)
-    protected final HashMap<Integer, Epic> epics = new HashMap<>(); // Хранилище эпиков
-    protected final HashMap<Integer, Subtask> subtasks = new HashMap<>(); // Хранилище подзадач
+    // Создадим хэшмапы для хранения всех видов задач. Ключи — примитивные int, без упаковки в Integer
+    protected final OrderedIntObjectMap<Task> tasks = new OrderedIntObjectMap<>(); // Хранилище обычных задач (ключ — ID, значение — задача)
+    protected final OrderedIntObjectMap<Epic> epics = new OrderedIntObjectMap<>(); // Хранилище эпиков
+    protected final OrderedIntObjectMap<Subtask> subtasks = new OrderedIntObjectMap<>(); // Хранилище подзадач
     protected final HistoryManager historyManager = Managers.getDefaultHistory(); // Объект для управления историей просмотров
-    // Новое поле: TreeSet для хранения отсортированных задач и подзадач по startTime
-    protected TreeSet<Task> prioritizedTasks = new TreeSet<>(new Comparator<Task>() {
-        @Override
-        public int compare(Task o1, Task o2) {
-            LocalDateTime start1 = o1.getStartTime(); // Время начала первой задачи
-            LocalDateTime start2 = o2.getStartTime(); // Время начала второй задачи
-            // Сравниваем по startTime, если оба значения не null
-            if (start1 == null && start2 == null) return 0; // Оба null, считаем равными (хотя они не попадут в TreeSet)
-            if (start1 == null) return 1; // Задача без времени начала считается "позже"
-            if (start2 == null) return -1; // Задача с временем начала "раньше"
-            return start1.compareTo(start2); // Сравнение по времени начала
-        }
-    });
+    // Расписание задач и подзадач по ключу (startTime, ID): задачи с одинаковым временем начала не теряются
+    protected final ScheduleIndex prioritizedTasks = new ScheduleIndex();
+    // Индекс отрезков времени задач и подзадач для проверки пересечений за O(log n)
+    protected final IntervalIndex intervals = new IntervalIndex();
+    // Вторичный индекс по типу, статусу и времени начала для запросов findTasks()
+    protected final QueryIndex queryIndex = new QueryIndex();
+    // Инвертированный индекс по словам названий и описаний для поиска searchTasks()
+    protected final TextIndex textIndex = new TextIndex();
+
+    private BatchState batch; // Состояние на момент начала пакета (null — пакет не открыт)
 
     // Метод для генерации нового уникального ID
     private int createId() {
@@ -47,22 +43,14 @@ public class InMemoryTaskManager implements TaskManager {
     public Task addTask(Task task) { // Метод для добавления обычной задачи
 
         // Проверяем пересечения с существующими задачами и подзадачами
-        if (task.getStartTime() != null && task.getDuration() != null) {
-            boolean hasOverlap = prioritizedTasks.stream()
-                    .anyMatch(existingTask -> task.isOverlapping(existingTask)); // Проверяем все задачи в prioritizedTasks
-            if (hasOverlap) {
-                throw new IllegalArgumentException("Задачи пересекаются по времени");
-            }
+        if (intervals.overlaps(task)) {
+            throw new IllegalArgumentException("Задачи пересекаются по времени");
         }
 
         int id = createId(); // Генерируем новый ID
         task.setId(id); // Устанавливаем ID задаче
         tasks.put(id, task); // сохраняем задачу в хешмап
-
-        // Добавляем задачу в prioritizedTasks, только если у нее есть startTime
-        if (task.getStartTime() != null) { // Если у задачи есть время начала
-            prioritizedTasks.add(task); // Добавляем её в отсортированный список
-        }
+        schedule(task); // Добавляем задачу в отсортированный список и индекс отрезков
         return task; // Возвращаем добавленную задачу
     }
 
@@ -70,8 +58,8 @@ public class InMemoryTaskManager implements TaskManager {
     @Override // Метод для удаления задачи по ID
     public void deleteTask(int id) { // удаляем задачу
         Task task = tasks.remove(id); // Удаляем задачу из хранилища и получаем её
-        if (task != null && task.getStartTime() != null) {
-            prioritizedTasks.remove(task); // Если у задачи было время начала, удаляем из отсортированного списка
+        if (task != null) {
+            unschedule(task); // Удаляем задачу из отсортированного списка и индекса отрезков
         }
     }
 
@@ -88,14 +76,14 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override // Метод для получения всех обычных задач
     public ArrayList<Task> getAllTasks() {
-        return new ArrayList<>(tasks.values()); // Возвращаем список всех задач
+        return new ArrayList<>(tasks.ascendingValues()); // Возвращаем список всех задач
     }
 
 
     @Override // Метод для очистки всех обычных задач
     public void clearTasks() {
+        tasks.values().forEach(this::unschedule); // Убираем задачи из отсортированного списка и индекса отрезков
         tasks.clear(); // Очищаем хранилище задач
-        prioritizedTasks.clear(); // Очищаем отсортированный список
     }
 
 
@@ -103,30 +91,16 @@ public class InMemoryTaskManager implements TaskManager {
     public void updateTask(Task task) {
         if (tasks.containsKey(task.getId())) { // Если задача с таким ID существует
 
-            // Удаляем старую версию задачи из prioritizedTasks, если она там была
-            Task oldTask = tasks.get(task.getId()); // Получаем старую версию задачи
-            if (oldTask.getStartTime() != null) {
-                prioritizedTasks.remove(oldTask); // Удаляем старую задачу из отсортированного списка
+            // Проверяем пересечения с другими задачами, исключая саму себя (индекс пропускает отрезок с тем же ID)
+            if (intervals.overlaps(task)) {
+                throw new IllegalArgumentException("Обновленная задача пересекается по времени с другой задачей");
             }
 
-            // Проверяем пересечения с другими задачами, исключая саму себя
-            if (task.getStartTime() != null && task.getDuration() != null) {
-                boolean hasOverlap = prioritizedTasks.stream()
-                        .filter(o -> o.getId() != task.getId()) // Исключаем саму задачу из проверки
-                        .anyMatch(excistingTask -> task.isOverlapping(excistingTask));
-                if (hasOverlap) {
-                    prioritizedTasks.add(oldTask); // Восстанавливаем старую задачу, если есть пересечение
-                    throw new IllegalArgumentException("Обновленная задача пересекается по времени с другой задачей");
-                }
-            }
-
-            // Обновляем задачу в хранилище
-            tasks.put(task.getId(), task);
-
-            // Добавляем обновленную задачу в prioritizedTasks, если есть startTime
-            if (task.getStartTime() != null) {
-                prioritizedTasks.add(task); // Добавляем обновлённую задачу в отсортированный список
-            }
+            Task previous = tasks.get(task.getId());
+            unschedule(previous); // Удаляем старую версию задачи из отсортированного списка
+            task.setVersion(previous.getVersion() + 1); // Каждое обновление увеличивает версию
+            tasks.put(task.getId(), task); // Обновляем задачу в хранилище
+            schedule(task); // Добавляем обновлённую задачу в отсортированный список
         }
     }
 
@@ -138,6 +112,7 @@ public class InMemoryTaskManager implements TaskManager {
         int id = createId(); // Генерируем новый ID
         epic.setId(id); // Устанавливаем ID эпику
         epics.put(id, epic); // Добавляем эпик в хранилище эпиков
+        index(epic); // Эпик попадает в индексы запросов и поиска со статусом NEW
         // !!! Эпики не добавляем в prioritizedTasks, так как их startTime рассчитывается из подзадач
     }
 
@@ -146,14 +121,17 @@ public class InMemoryTaskManager implements TaskManager {
     public void deleteEpic(int id) {
         Epic epic = epics.remove(id); // Удаляем эпик и получаем его
         if (epic != null) {
-            // Удаляем все связанные подзадачи
-            epic.getSubtaskIdList().stream()
-                    .forEach(subtaskId -> {
-                        Subtask subtask = subtasks.remove(subtaskId);  // Удаляем подзадачу
-                        if (subtask != null && subtask.getStartTime() != null) {
-                            prioritizedTasks.remove(subtask);  // Удаляем подзадачу из отсортированного списка
-                        }
-                    });
+            unindex(id);
+            if (batch != null) { // При откате список подзадач эпика восстановится, а агрегаты нужно пересчитать
+                batch.touchedEpics.add(id);
+            }
+            // Удаляем все связанные подзадачи: эпик отдаёт их ID разом, без поштучного удаления из своего списка
+            for (int subtaskId : epic.detachSubtasks()) {
+                Subtask subtask = subtasks.remove(subtaskId);  // Удаляем подзадачу
+                if (subtask != null) {
+                    unschedule(subtask);  // Удаляем подзадачу из отсортированного списка
+                }
+            }
         }
     }
 
@@ -169,22 +147,28 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override // Метод для получения всех эпиков
     public ArrayList<Epic> getAllEpics() {
-        return new ArrayList<>(epics.values());// Возвращаем список всех эпиков
+        return new ArrayList<>(epics.ascendingValues()); // Возвращаем список всех эпиков
     }
 
 
     @Override // Метод для очистки всех эпиков и подзадач
     public void clearEpics() {
+        subtasks.values().forEach(this::unschedule); // Удаляем все подзадачи из отсортированного списка
+        epics.values().forEach(epic -> unindex(epic.getId())); // И эпики из индексов запросов и поиска
+        if (batch != null) { // При откате эпики вернутся, и их нужно будет пересчитать
+            epics.values().forEach(epic -> batch.touchedEpics.add(epic.getId()));
+        }
         epics.clear(); // Очищаем хранилище эпиков
         subtasks.clear(); // Очищаем хранилище подзадач
-        prioritizedTasks.removeIf(task -> task.getType() == TaskType.SUBTASK_TYPE); // Удаляем все подзадачи из отсортированного списка
     }
 
 
     @Override // Метод для обновления эпика
     public void updateEpic(Epic epic) {
         if (epics.containsKey(epic.getId())) { // Если эпик с таким ID существует
+            epic.setVersion(epics.get(epic.getId()).getVersion() + 1);
             epics.put(epic.getId(), epic); // Обновляем эпик в хранилище
+            index(epic);
             // !!! Эпики не влияют на prioritizedTasks напрямую
         }
     }
@@ -195,12 +179,8 @@ public class InMemoryTaskManager implements TaskManager {
     @Override // Метод для добавления подзадачи
     public void addSubtask(Subtask subtask) {
         // Проверяем пересечения с существующими задачами и подзадачами
-        if (subtask.getStartTime() != null && subtask.getDuration() != null) {
-            boolean hasOverlap = prioritizedTasks.stream()
-                    .anyMatch(existingTask -> subtask.isOverlapping(existingTask));
-            if (hasOverlap) {
-                throw new IllegalArgumentException("Подзадача пересекается по времени с другой задачей");
-            }
+        if (intervals.overlaps(subtask)) {
+            throw new IllegalArgumentException("Подзадача пересекается по времени с другой задачей");
         }
 
         int id = createId(); // Генерируем новый ID
@@ -209,14 +189,9 @@ public class InMemoryTaskManager implements TaskManager {
         Epic epic = epics.get(subtask.getEpicId()); // Получаем эпик, к которому привязана подзадача
         if (epic != null) { // Если эпик существует
             epic.addSubtask(id); // Добавляем ID подзадачи в эпик
-            updateEpicStatus(epic); // Обновляем статус эпика
-            epic.updateTimeAndDuration(subtasks); // Обновляем время и продолжительность эпика
-
-            // Добавляем подзадачу в prioritizedTasks, если у нее есть startTime
-            if (subtask.getStartTime() != null) {
-                prioritizedTasks.add(subtask); // Добавляем подзадачу в отсортированный список
-            }
-
+            epic.countSubtask(subtask); // Учитываем статус и время подзадачи в агрегатах эпика
+            recalculateEpic(epic); // Обновляем статус, время и продолжительность эпика
+            schedule(subtask); // Добавляем подзадачу в отсортированный список
         }
     }
 
@@ -228,13 +203,9 @@ public class InMemoryTaskManager implements TaskManager {
             Epic epic = epics.get(subtask.getEpicId()); // Получаем связанный эпик
             if (epic != null) {
                 epic.deleteSubtask(id); // Удаляем ID подзадачи из эпика
-                updateEpicStatus(epic); // Обновляем статус эпика
-                epic.updateTimeAndDuration(subtasks); // Обновляем время и продолжительность эпика после удаления подзадачи
-            }
-            // Удаляем подзадачу из prioritizedTasks, если она там была
-            if (subtask.getStartTime() != null) {
-                prioritizedTasks.remove(subtask); // Удаляем подзадачу из отсортированного списка
+                recalculateEpic(epic); // Обновляем статус, время и продолжительность эпика после удаления подзадачи
             }
+            unschedule(subtask); // Удаляем подзадачу из отсортированного списка
         }
     }
 
@@ -249,48 +220,91 @@ public class InMemoryTaskManager implements TaskManager {
     }
 
 
-    // Переписан метод getSubtasksForEpic с использованием Stream API
     @Override  // Метод для получения всех подзадач эпика
     public ArrayList<Subtask> getSubtasksForEpic(int epicId) {
         Epic epic = epics.get(epicId); // Получаем эпик по ID
         if (epic == null) {
             return new ArrayList<>(); // Возвращаем пустой список, если эпика нет
         }
-        // Преобразуем список ID подзадач в поток, получаем подзадачи из HashMap и собираем в список
-        return epic.getSubtaskIdList().stream()
-                .map(subtasks::get)// Получаем подзадачу по ID
-                .filter(Objects::nonNull) // Фильтруем null, если подзадача была удалена
-                .collect(Collectors.toCollection(ArrayList::new)); // Собираем в ArrayList
+        // Проходим по ID подзадач без упаковки и собираем подзадачи из хранилища в список
+        ArrayList<Subtask> result = new ArrayList<>(epic.getSubtaskIdList().size());
+        epic.getSubtaskIdList().forEachInt(subtaskId -> {
+            Subtask subtask = subtasks.get(subtaskId);
+            if (subtask != null) { // Пропускаем подзадачу, если она была удалена
+                result.add(subtask);
+            }
+        });
+        return result;
+    }
+
+
+    // Метод пересчитывает статус, время и продолжительность эпика. Внутри пакета эпик только запоминается,
+    // а пересчитывается один раз при commitBatch()
+    protected void recalculateEpic(Epic epic) {
+        if (batch != null) {
+            batch.touchedEpics.add(epic.getId());
+            return;
+        }
+        refreshEpicStatus(epic);
+        epic.applyTimeFromCounts(); // Агрегаты заполнены при пересчёте статуса, время берётся из них за O(log k)
+        index(epic); // Эпик перекладывается в индексе запросов, если изменилось время начала
     }
 
 
-    // Переписан метод updateEpicStatus с использованием Stream API
-    @Override  // Метод для обновления статуса эпика на основе подзадач
+    @Override  // Метод для обновления статуса эпика на основе подзадач. Статусы подзадач могли изменить
+    // снаружи без updateSubtask(), поэтому счётчики эпика заполняются заново
     public void updateEpicStatus(Epic epic) {
-        List<Integer> subtaskIdList = epic.getSubtaskIdList(); // Получаем список ID подзадач
-        if (subtaskIdList.isEmpty()) { // Если подзадач нет
-            epic.setStatus(Status.NEW); // Статус эпика — NEW
-            return;  // Выходим из метода
+        recountEpic(epic);
+        refreshEpicStatus(epic);
+    }
+
+
+    // Внутренний пересчёт статуса эпика. Методы добавления, обновления и удаления подзадач вызывают его напрямую,
+    // чтобы переопределения updateEpicStatus в наследниках (например, сохранение в файл) не срабатывали повторно.
+    // Статус выводится из счётчиков подзадач по статусам за O(1); если в агрегатах учтены не все подзадачи
+    // (например, эпик только что загружен из файла), они заполняются один раз за O(k)
+    protected void refreshEpicStatus(Epic epic) {
+        if (!epic.hasCounts()) {
+            recountEpic(epic);
         }
+        epic.setStatus(epic.statusFromCounts());
+        index(epic); // Эпик перекладывается в индексе запросов, если изменился статус
+    }
+
+    // Метод заполняет агрегаты эпика заново по его подзадачам
+    protected void recountEpic(Epic epic) {
+        epic.resetCounts();
+        epic.getSubtaskIdList().forEachInt(subtaskId -> {
+            Subtask subtask = subtasks.get(subtaskId);
+            if (subtask != null) {
+                epic.countSubtask(subtask);
+            }
+        });
+    }
 
-        // Проверяем статусы подзадач с помощью Stream API
-        // Проверяем, все ли подзадачи завершены (DONE)
-        boolean allDone = subtaskIdList.stream()
-                .map(subtasks::get)// Получаем подзадачу по ID
-                .allMatch(subtask -> subtask.getStatus() == Status.DONE);
-
-        // Проверяем, есть ли подзадачи в процессе выполнения (IN_PROGRESS)
-        boolean anyInProgress = subtaskIdList.stream()
-                .map(subtasks::get)// Получаем подзадачу по ID
-                .anyMatch(subtask -> subtask.getStatus() == Status.IN_PROGRESS);
-
-        // Устанавливаем статус эпика в зависимости от подзадач
-        if (allDone) {
-            epic.setStatus(Status.DONE);
-        } else if (anyInProgress) {
-            epic.setStatus(Status.IN_PROGRESS);
-        } else {
-            epic.setStatus(Status.NEW);
+    // Метод проверяет, что статус, время и продолжительность каждого эпика совпадают с пересчитанными
+    // с нуля по подзадачам. Нужен тестам, чтобы поймать рассинхронизацию агрегатов
+    void checkEpicCounts() {
+        if (isInBatch()) {
+            return; // Внутри пакета эпики пересчитываются только при закрытии пакета
+        }
+        for (Epic epic : epics.values()) {
+            Epic recounted = new Epic(epic.getName(), epic.getDescription());
+            recounted.getSubtaskIdList().addAll(epic.getSubtaskIdList());
+            recountEpic(recounted);
+            for (Status status : Status.values()) {
+                if (recounted.getSubtaskCount(status) != epic.getSubtaskCount(status)) {
+                    throw new IllegalStateException("Счётчик " + status + " эпика " + epic.getId() + " равен "
+                            + epic.getSubtaskCount(status) + ", а должен быть " + recounted.getSubtaskCount(status));
+                }
+            }
+            recounted.updateTimeAndDuration(subtasks);
+            if (recounted.statusFromCounts() != epic.getStatus()
+                    || !Objects.equals(recounted.getDuration(), epic.getDuration())
+                    || !Objects.equals(recounted.getStartTime(), epic.getStartTime())
+                    || !Objects.equals(recounted.getEndTime(), epic.getEndTime())) {
+                throw new IllegalStateException("Эпик " + epic + " не совпадает с пересчитанным " + recounted);
+            }
         }
     }
 
@@ -298,49 +312,227 @@ public class InMemoryTaskManager implements TaskManager {
     @Override // Метод для обновления подзадачи
     public void updateSubtask(Subtask subtask) {
         if (subtasks.containsKey(subtask.getId())) { // Если подзадача с таким ID существует
-            //Удаляем старую версию подзадачи из prioritizedTasks
-            Subtask oldSubtask = subtasks.get(subtask.getId()); // Получаем старую версию подзадачи
-            if (oldSubtask.getStartTime() != null) {
-                prioritizedTasks.remove(oldSubtask); // Удаляем старую подзадачу из отсортированного списка
-            }
-
-
             // Проверяем пересечения с другими задачами, исключая саму себя
-            if (subtask.getStartTime() != null && subtask.getDuration() != null) {
-                boolean hasOverlap = prioritizedTasks.stream()
-                        .filter(t -> t.getId() != subtask.getId())
-                        .anyMatch(existingTask -> subtask.isOverlapping(existingTask));
-                if (hasOverlap) {
-                    prioritizedTasks.add(oldSubtask); // Восстанавливаем старую подзадачу
-                    throw new IllegalArgumentException("Обновленная подзадача пересекается по времени с другой задачей");
-                }
+            if (intervals.overlaps(subtask)) {
+                throw new IllegalArgumentException("Обновленная подзадача пересекается по времени с другой задачей");
             }
 
-            // Обновляем подзадачу
+            Subtask previous = subtasks.get(subtask.getId());
+            unschedule(previous); // Удаляем старую версию подзадачи из отсортированного списка
+            subtask.setVersion(previous.getVersion() + 1);
             subtasks.put(subtask.getId(), subtask); // Обновляем подзадачу в хранилище
             Epic epic = epics.get(subtask.getEpicId()); // Получаем связанный эпик
             if (epic != null) {
-                updateEpicStatus(epic); // Обновляем статус эпика
-                epic.updateTimeAndDuration(subtasks); // Обновляем время и продолжительность эпика после обновления подзадачи
+                epic.changeSubtask(subtask); // Заменяем вклад подзадачи в агрегатах эпика
+                recalculateEpic(epic); // Обновляем статус, время и продолжительность эпика после обновления подзадачи
             }
+            schedule(subtask); // Добавляем обновлённую подзадачу в отсортированный список
+        }
+    }
 
-            // Добавляем обновленную подзадачу в prioritizedTasks, если есть startTime
-            if (subtask.getStartTime() != null) {
-                prioritizedTasks.add(subtask); // Добавляем обновлённую подзадачу в отсортированный список
-            }
 
+    @Override // Проверка версии и обновление идут подряд, поэтому между ними никто не вклинится
+    public boolean compareAndUpdate(Task task, long expectedVersion) {
+        Task stored = stored(task);
+        if (stored == null || stored.getVersion() != expectedVersion) {
+            return false; // Задачу удалили или обновили после того, как её прочитал вызывающий код
+        }
+        switch (task.getType()) {
+            case EPIC_TYPE -> updateEpic((Epic) task);
+            case SUBTASK_TYPE -> updateSubtask((Subtask) task);
+            default -> updateTask(task);
         }
+        return true;
+    }
+
+    // Метод возвращает хранимую версию задачи того же типа и с тем же ID (или null, если её нет)
+    protected Task stored(Task task) {
+        return switch (task.getType()) {
+            case EPIC_TYPE -> epics.get(task.getId());
+            case SUBTASK_TYPE -> subtasks.get(task.getId());
+            default -> tasks.get(task.getId());
+        };
+    }
+
+
+    // Метод добавляет задачу или подзадачу в отсортированный список (если есть время начала), в индекс отрезков
+    // и в индексы запросов и поиска
+    protected void schedule(Task task) {
+        prioritizedTasks.add(task);
+        intervals.add(task);
+        index(task);
+    }
+
+    // Метод удаляет задачу или подзадачу из отсортированного списка, индекса отрезков и индексов запросов и поиска
+    protected void unschedule(Task task) {
+        prioritizedTasks.remove(task.getId()); // Удаление по ID находит задачу, даже если её время изменили снаружи
+        intervals.remove(task.getId());
+        unindex(task.getId());
+    }
+
+    // Метод добавляет задачу, эпик или подзадачу в индексы запросов и поиска (или перекладывает, если она изменилась)
+    protected void index(Task task) {
+        queryIndex.put(task);
+        textIndex.put(task);
+    }
+
+    // Метод удаляет задачу, эпик или подзадачу из индексов запросов и поиска
+    protected void unindex(int id) {
+        queryIndex.remove(id);
+        textIndex.remove(id);
     }
 
 
     @Override// Возвращает список задач и подзадач, отсортированных по startTime
     public List<Task> getPrioritizedTasks() {
-        return new ArrayList<>(prioritizedTasks); // Возвращаем копию отсортированного списка со сложностью O(n)
+        return new ArrayList<>(prioritizedTasks.all()); // Возвращаем копию отсортированного списка со сложностью O(n)
+    }
+
+    @Override // Возвращает задачи и подзадачи, которые начинаются в промежутке [from, to), без копирования
+    public Collection<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return prioritizedTasks.between(from, to);
+    }
+
+    // Постраничное чтение: ID обходятся по битовой карте хранилища, расписание — от ключа курсора
+    @Override
+    public List<Task> pageTasksAfter(int afterId, int limit) {
+        return tasks.valuesAfter(afterId, limit);
+    }
+
+    @Override
+    public List<Epic> pageEpicsAfter(int afterId, int limit) {
+        return epics.valuesAfter(afterId, limit);
+    }
+
+    @Override
+    public List<Subtask> pageSubtasksAfter(int afterId, int limit) {
+        return subtasks.valuesAfter(afterId, limit);
+    }
+
+    @Override
+    public List<Task> pagePrioritizedAfter(LocalDateTime afterStart, int afterId, int limit) {
+        return Pages.first(prioritizedTasks.after(afterStart, afterId), limit);
     }
 
     @Override // Метод для получения всех подзадач
     public ArrayList<Subtask> getAllSubtask() {
-        return new ArrayList<>(subtasks.values());
+        return new ArrayList<>(subtasks.ascendingValues());
+    }
+
+    @Override // Выборка по индексу запросов: читаются только подходящие корзины (тип, статус)
+    public List<Task> findTasks(TaskQuery query) {
+        if (query.hasEpicFilter()) { // Подзадачи эпиков читаются по спискам подзадач, а не перебором корзин
+            return QueryPipeline.select(query, QueryPipeline.fromEpics(query, this::getSubtasksForEpic));
+        }
+        return queryIndex.find(query);
+    }
+
+    @Override // Поиск по инвертированному индексу: читаются только списки слов из запроса
+    public List<Task> searchTasks(String query, int limit) {
+        int[] ids = textIndex.search(query, limit);
+        List<Task> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Task task = tasks.get(id);
+            if (task == null) {
+                task = epics.get(id);
+            }
+            if (task == null) {
+                task = subtasks.get(id);
+            }
+            result.add(task);
+        }
+        return result;
     }
 
-}
\ No newline at end of file
+
+    // МЕТОДЫ ДЛЯ ПАКЕТНЫХ ИЗМЕНЕНИЙ:
+
+    @Override // Метод открывает пакет: запоминает хранилища и списки подзадач эпиков для отката
+    public void beginBatch() {
+        if (batch != null) {
+            throw new IllegalStateException("Пакет изменений уже открыт");
+        }
+        batch = new BatchState(this);
+    }
+
+    @Override // Метод закрывает пакет и один раз пересчитывает каждый затронутый эпик
+    public void commitBatch() {
+        BatchState finished = requireBatch();
+        batch = null;
+        for (int epicId : finished.touchedEpics) {
+            Epic epic = epics.get(epicId);
+            if (epic != null) {
+                recalculateEpic(epic);
+            }
+        }
+    }
+
+    @Override // Метод возвращает хранилища, счётчик ID и эпики в состояние до начала пакета
+    public void rollbackBatch() {
+        BatchState finished = requireBatch();
+        batch = null;
+        tasks.clear();
+        tasks.putAll(finished.tasks);
+        epics.clear();
+        epics.putAll(finished.epics);
+        subtasks.clear();
+        subtasks.putAll(finished.subtasks);
+        prioritizedTasks.clear();
+        intervals.clear();
+        queryIndex.clear();
+        textIndex.clear();
+        finished.prioritizedTasks.forEach(this::schedule);
+        tasks.values().forEach(this::index); // В расписании нет задач без времени начала, а в индексах они есть
+        subtasks.values().forEach(this::index);
+        epics.values().forEach(this::index);
+        idCounter = finished.idCounter;
+        for (int epicId : finished.epicSubtaskIds.keys()) {
+            Epic epic = epics.get(epicId);
+            epic.getSubtaskIdList().clear();
+            epic.getSubtaskIdList().addAll(finished.epicSubtaskIds.get(epicId));
+            if (finished.touchedEpics.contains(epic.getId())) {
+                epic.resetCounts(); // Агрегаты заполнятся заново при пересчёте ниже
+            }
+        }
+        for (int epicId : finished.touchedEpics) {
+            Epic epic = epics.get(epicId);
+            if (epic != null) {
+                recalculateEpic(epic); // Статус и время эпика выводятся из восстановленных подзадач
+            }
+        }
+    }
+
+    @Override
+    public boolean isInBatch() {
+        return batch != null;
+    }
+
+    private BatchState requireBatch() {
+        if (batch == null) {
+            throw new IllegalStateException("Пакет изменений не открыт");
+        }
+        return batch;
+    }
+
+    // Состояние менеджера на момент начала пакета и эпики, которые нужно пересчитать при его закрытии
+    private static class BatchState {
+        private final IntObjectMap<Task> tasks;
+        private final IntObjectMap<Epic> epics;
+        private final IntObjectMap<Subtask> subtasks;
+        private final List<Task> prioritizedTasks;
+        private final int idCounter;
+        private final IntObjectMap<IntLinkedSet> epicSubtaskIds = new IntObjectMap<>(); // Копии списков подзадач эпиков
+        private final Set<Integer> touchedEpics = new HashSet<>(); // Эпики, пересчёт которых отложен
+
+        private BatchState(InMemoryTaskManager manager) {
+            tasks = new IntObjectMap<>(manager.tasks);
+            epics = new IntObjectMap<>(manager.epics);
+            subtasks = new IntObjectMap<>(manager.subtasks);
+            prioritizedTasks = new ArrayList<>(manager.prioritizedTasks.all());
+            idCounter = manager.idCounter;
+            for (Epic epic : manager.epics.values()) {
+                epicSubtaskIds.put(epic.getId(), new IntLinkedSet(epic.getSubtaskIdList()));
+            }
+        }
+    }
+}
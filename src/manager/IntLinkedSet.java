@@ -0,0 +1,318 @@
+package manager;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+// Это множество int, которое помнит порядок добавления. Значения лежат в массиве в порядке добавления,
+// а отдельная хеш-таблица хранит позицию каждого значения, поэтому добавление, удаление и проверка
+// наличия работают за O(1). Удалённое значение оставляет в массиве дыру; когда дыр становится больше,
+// чем значений, массив уплотняется. Для совместимости множество реализует List<Integer> — доступ по индексу
+// сначала уплотняет массив, поэтому обходить множество лучше через forEachInt() или итератор
+public class IntLinkedSet extends AbstractList<Integer> {
+    private static final int HOLE = Integer.MIN_VALUE; // Отметка удалённого значения (само значение запрещено)
+    private static final int MIN_INDEX_CAPACITY = 8;
+
+    private int[] elements; // Значения в порядке добавления, с дырами на месте удалённых
+    private int end; // Сколько ячеек массива занято значениями и дырами
+    private int size;
+    private int[] indexKeys; // Хеш-таблица значение → позиция в elements (линейное пробирование)
+    private int[] indexPositions; // Позиция + 1; 0 — ячейка таблицы свободна
+    private int indexMask;
+
+    public IntLinkedSet() {
+        elements = new int[4];
+        allocateIndex(MIN_INDEX_CAPACITY);
+    }
+
+    public IntLinkedSet(IntLinkedSet other) {
+        this();
+        addAll(other);
+    }
+
+    // Метод добавляет значение в конец и возвращает false, если оно уже есть в множестве
+    public boolean addInt(int value) {
+        if (value == HOLE) {
+            throw new IllegalArgumentException("Значение " + HOLE + " не поддерживается");
+        }
+        if (positionOf(value) >= 0) {
+            return false;
+        }
+        if (end == elements.length) {
+            if (end - size > size) {
+                compact(); // Дыр больше, чем значений, — место освобождается уплотнением
+            } else {
+                elements = Arrays.copyOf(elements, elements.length * 2);
+            }
+        }
+        elements[end] = value;
+        indexPut(value, end);
+        end++;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    // Метод удаляет значение и возвращает true, если оно было в множестве
+    public boolean removeInt(int value) {
+        int position = indexRemove(value);
+        if (position < 0) {
+            return false;
+        }
+        elements[position] = HOLE;
+        size--;
+        modCount++;
+        if (size == 0) {
+            end = 0;
+        } else if (position == end - 1) {
+            while (elements[end - 1] == HOLE) {
+                end--; // Дыры в конце массива просто отбрасываем
+            }
+        }
+        return true;
+    }
+
+    public boolean containsInt(int value) {
+        return positionOf(value) >= 0;
+    }
+
+    // Метод обходит значения в порядке добавления
+    public void forEachInt(IntConsumer action) {
+        for (int i = 0; i < end; i++) {
+            if (elements[i] != HOLE) {
+                action.accept(elements[i]);
+            }
+        }
+    }
+
+    // Копия значений в порядке добавления
+    public int[] toIntArray() {
+        int[] result = new int[size];
+        int count = 0;
+        for (int i = 0; i < end; i++) {
+            if (elements[i] != HOLE) {
+                result[count++] = elements[i];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Integer get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Индекс " + index + ", размер " + size);
+        }
+        if (end != size) {
+            compact();
+        }
+        return elements[index];
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        return addInt(value);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Integer> values) {
+        if (values instanceof IntLinkedSet) {
+            boolean changed = false;
+            IntLinkedSet other = (IntLinkedSet) values;
+            for (int i = 0; i < other.end; i++) {
+                if (other.elements[i] != HOLE) {
+                    changed |= addInt(other.elements[i]);
+                }
+            }
+            return changed;
+        }
+        return super.addAll(values);
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        return value instanceof Integer && removeInt((Integer) value);
+    }
+
+    @Override
+    public Integer remove(int index) {
+        int value = get(index);
+        removeInt(value);
+        return value;
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof Integer && containsInt((Integer) value);
+    }
+
+    @Override
+    public int indexOf(Object value) {
+        if (!(value instanceof Integer)) {
+            return -1;
+        }
+        int position = positionOf((Integer) value);
+        if (position < 0) {
+            return -1;
+        }
+        if (end != size) {
+            compact();
+            position = positionOf((Integer) value);
+        }
+        return position;
+    }
+
+    @Override
+    public int lastIndexOf(Object value) {
+        return indexOf(value); // Значения в множестве не повторяются
+    }
+
+    @Override
+    public void clear() {
+        end = 0;
+        size = 0;
+        allocateIndex(MIN_INDEX_CAPACITY);
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Итератор пропускает дыры и не требует уплотнения
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<>() {
+            private int position = skipHoles(0);
+            private int last = HOLE; // Последнее возвращённое значение (для remove())
+
+            @Override
+            public boolean hasNext() {
+                return position < end;
+            }
+
+            @Override
+            public Integer next() {
+                if (position >= end) {
+                    throw new NoSuchElementException();
+                }
+                last = elements[position];
+                position = skipHoles(position + 1);
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == HOLE) {
+                    throw new IllegalStateException();
+                }
+                removeInt(last); // Удаление оставляет дыру, позиции остальных значений не сдвигаются
+                last = HOLE;
+            }
+        };
+    }
+
+    private int skipHoles(int position) {
+        while (position < end && elements[position] == HOLE) {
+            position++;
+        }
+        return position;
+    }
+
+    // Метод сдвигает значения к началу массива, убирая дыры, и обновляет их позиции в хеш-таблице
+    private void compact() {
+        int target = 0;
+        for (int i = 0; i < end; i++) {
+            if (elements[i] != HOLE) {
+                elements[target] = elements[i];
+                indexPut(elements[i], target);
+                target++;
+            }
+        }
+        end = target;
+    }
+
+
+    // Хеш-таблица позиций
+    private int positionOf(int value) {
+        int slot = hash(value) & indexMask;
+        while (indexPositions[slot] != 0) {
+            if (indexKeys[slot] == value) {
+                return indexPositions[slot] - 1;
+            }
+            slot = (slot + 1) & indexMask;
+        }
+        return -1;
+    }
+
+    private void indexPut(int value, int position) {
+        int slot = hash(value) & indexMask;
+        while (indexPositions[slot] != 0) {
+            if (indexKeys[slot] == value) {
+                indexPositions[slot] = position + 1;
+                return;
+            }
+            slot = (slot + 1) & indexMask;
+        }
+        indexKeys[slot] = value;
+        indexPositions[slot] = position + 1;
+        if (size + 1 > indexKeys.length / 2) { // Значение ещё не учтено в size — учитываем его заранее
+            rehash(indexKeys.length * 2);
+        }
+    }
+
+    // Метод удаляет значение из хеш-таблицы и возвращает его позицию (или -1), сдвигая следующие записи цепочки
+    private int indexRemove(int value) {
+        int slot = hash(value) & indexMask;
+        while (indexPositions[slot] != 0 && indexKeys[slot] != value) {
+            slot = (slot + 1) & indexMask;
+        }
+        if (indexPositions[slot] == 0) {
+            return -1;
+        }
+        int position = indexPositions[slot] - 1;
+        int gap = slot;
+        int next = (gap + 1) & indexMask;
+        while (indexPositions[next] != 0) {
+            int home = hash(indexKeys[next]) & indexMask;
+            if (((next - home) & indexMask) >= ((next - gap) & indexMask)) {
+                indexKeys[gap] = indexKeys[next];
+                indexPositions[gap] = indexPositions[next];
+                gap = next;
+            }
+            next = (next + 1) & indexMask;
+        }
+        indexPositions[gap] = 0;
+        return position;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = indexKeys;
+        int[] oldPositions = indexPositions;
+        allocateIndex(capacity);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldPositions[slot] != 0) {
+                int target = hash(oldKeys[slot]) & indexMask;
+                while (indexPositions[target] != 0) {
+                    target = (target + 1) & indexMask;
+                }
+                indexKeys[target] = oldKeys[slot];
+                indexPositions[target] = oldPositions[slot];
+            }
+        }
+    }
+
+    private void allocateIndex(int capacity) {
+        indexKeys = new int[capacity];
+        indexPositions = new int[capacity];
+        indexMask = capacity - 1;
+    }
+
+    private static int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,156 @@
+package manager;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+// Это список int без упаковки: значения лежат в массиве int[]. Для совместимости он реализует List<Integer>
+// (упаковка происходит только при обращении через этот интерфейс), а методы getInt(), addInt(), indexOfInt()
+// и removeInt() работают с примитивами напрямую
+public class IntList extends AbstractList<Integer> implements RandomAccess {
+    private int[] elements;
+    private int size;
+
+    public IntList() {
+        this(8);
+    }
+
+    public IntList(int capacity) {
+        elements = new int[Math.max(capacity, 1)];
+    }
+
+    public IntList(IntList other) {
+        elements = Arrays.copyOf(other.elements, Math.max(other.size, 1));
+        size = other.size;
+    }
+
+    public int getInt(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Индекс " + index + ", размер " + size);
+        }
+        return elements[index];
+    }
+
+    public void addInt(int value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, elements.length * 2);
+        }
+        elements[size++] = value;
+        modCount++;
+    }
+
+    public int indexOfInt(int value) {
+        for (int i = 0; i < size; i++) {
+            if (elements[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean containsInt(int value) {
+        return indexOfInt(value) >= 0;
+    }
+
+    // Метод удаляет первое вхождение значения и возвращает true, если оно было в списке
+    public boolean removeInt(int value) {
+        int index = indexOfInt(value);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    // Копия значений в массиве
+    public int[] toIntArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    @Override
+    public Integer get(int index) {
+        return getInt(index);
+    }
+
+    @Override
+    public Integer set(int index, Integer value) {
+        int previous = getInt(index);
+        elements[index] = value;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Integer value) {
+        if (index > size || index < 0) {
+            throw new IndexOutOfBoundsException("Индекс " + index + ", размер " + size);
+        }
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, elements.length * 2);
+        }
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        addInt(value);
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Integer> values) {
+        if (values instanceof IntList) {
+            IntList other = (IntList) values;
+            if (size + other.size > elements.length) {
+                elements = Arrays.copyOf(elements, Math.max(elements.length * 2, size + other.size));
+            }
+            System.arraycopy(other.elements, 0, elements, size, other.size);
+            size += other.size;
+            modCount++;
+            return other.size > 0;
+        }
+        return super.addAll(values);
+    }
+
+    @Override
+    public Integer remove(int index) {
+        int previous = getInt(index);
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        return value instanceof Integer && removeInt((Integer) value);
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof Integer && containsInt((Integer) value);
+    }
+
+    @Override
+    public int indexOf(Object value) {
+        return value instanceof Integer ? indexOfInt((Integer) value) : -1;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        modCount++;
+    }
+}
@@ -0,0 +1,221 @@
+package manager;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Это хеш-таблица с ключами int без упаковки в Integer: ключи и значения лежат в двух массивах,
+// коллизии разрешаются линейным пробированием, размер таблицы — степень двойки. По сравнению с HashMap
+// здесь нет объекта Integer и узла HashMap.Node на каждую запись. Порядок обхода не совпадает с порядком ID
+public class IntObjectMap<V> {
+    private static final int MIN_CAPACITY = 8;
+    private static final float LOAD_FACTOR = 0.5f; // При линейном пробировании таблица держится заполненной наполовину
+
+    private int[] keys;
+    private Object[] values; // null — ячейка свободна
+    private int size;
+    private int mask; // Размер таблицы минус один
+    private int resizeAt; // При таком количестве записей таблица удваивается
+
+    public IntObjectMap() {
+        this(MIN_CAPACITY);
+    }
+
+    // Конструктор с ожидаемым количеством записей
+    public IntObjectMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    // Конструктор копирования: массивы копируются целиком, без повторной вставки
+    public IntObjectMap(IntObjectMap<? extends V> other) {
+        keys = other.keys.clone();
+        values = other.values.clone();
+        size = other.size;
+        mask = other.mask;
+        resizeAt = other.resizeAt;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = find(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    // Метод сохраняет значение и возвращает прежнее значение по ключу (или null). Значение null не допускается
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Значение не может быть null");
+        }
+        int slot = hash(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size >= resizeAt) {
+            resize(keys.length * 2);
+        }
+        return null;
+    }
+
+    // Метод удаляет запись и возвращает её значение (или null). Следующие за ней записи той же цепочки
+    // сдвигаются назад, поэтому отметки об удалении не нужны и поиск не замедляется после удалений
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V previous = (V) values[slot];
+        size--;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (values[next] != null) {
+            int home = hash(keys[next]) & mask;
+            // Запись можно сдвинуть в освободившуюся ячейку, если её исходная ячейка не лежит между ними
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[gap] = null;
+        return previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void putAll(IntObjectMap<? extends V> other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.values[slot] != null) {
+                put(other.keys[slot], (V) other.values[slot]);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    // Значения таблицы в виде представления без копирования (изменять таблицу во время обхода нельзя)
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new Iterator<>() {
+                    private int slot = nextSlot(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return slot < values.length;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public V next() {
+                        if (slot >= values.length) {
+                            throw new NoSuchElementException();
+                        }
+                        V value = (V) values[slot];
+                        slot = nextSlot(slot + 1);
+                        return value;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // Ключи таблицы в порядке обхода
+    public int[] keys() {
+        int[] result = new int[size];
+        int count = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != null) {
+                result[count++] = keys[slot];
+            }
+        }
+        return result;
+    }
+
+    private int nextSlot(int slot) {
+        while (slot < values.length && values[slot] == null) {
+            slot++;
+        }
+        return slot;
+    }
+
+    private int find(int key) {
+        int slot = hash(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldValues[slot] != null) {
+                int target = hash(oldKeys[slot]) & mask;
+                while (values[target] != null) {
+                    target = (target + 1) & mask;
+                }
+                keys[target] = oldKeys[slot];
+                values[target] = oldValues[slot];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * LOAD_FACTOR <= expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    // Ключи перемешиваются умножением на константу Фибоначчи: иначе последовательные ID образуют один
+    // сплошной кластер, и удаление со сдвигом записей проходит его целиком
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,196 @@
+package manager;
+
+import entity.Task;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+
+// Это индекс отрезков времени задач и подзадач для проверки пересечений за O(log n).
+// Отрезки лежат в АВЛ-дереве по ключу (время начала, ID), а каждый узел хранит наибольшее время
+// завершения в своём поддереве — по нему отбрасываются поддеревья, которые не могут пересечь отрезок.
+// Границы отрезка запоминаются при добавлении, поэтому задачу можно удалить по ID, даже если её поля
+// уже изменили снаружи
+public class IntervalIndex {
+    private final HashMap<Integer, Node> nodes = new HashMap<>(); // Узлы по ID задачи
+    private Node root;
+
+    // Узел дерева: отрезок [start, end) задачи и наибольшее время завершения в поддереве
+    private static class Node {
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final int id;
+        private LocalDateTime maxEnd;
+        private int height = 1;
+        private Node left;
+        private Node right;
+
+        private Node(LocalDateTime start, LocalDateTime end, int id) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.maxEnd = end;
+        }
+    }
+
+    // Метод добавляет отрезок задачи. Задачи без времени начала или продолжительности не пересекаются
+    // ни с чем, поэтому в индекс не попадают. Если задача с таким ID уже есть, её отрезок заменяется
+    public void add(Task task) {
+        remove(task.getId());
+        if (task.getStartTime() == null || task.getDuration() == null) {
+            return;
+        }
+        Node node = new Node(task.getStartTime(), task.getEndTime(), task.getId());
+        nodes.put(node.id, node);
+        root = insert(root, node);
+    }
+
+    // Метод удаляет отрезок задачи по ID
+    public void remove(int id) {
+        Node node = nodes.remove(id);
+        if (node != null) {
+            root = delete(root, node.start, node.id);
+        }
+    }
+
+    // Метод проверяет, пересекается ли задача по времени с каким-либо отрезком, кроме отрезка самой задачи
+    public boolean overlaps(Task task) {
+        if (task.getStartTime() == null || task.getDuration() == null) {
+            return false;
+        }
+        return overlaps(root, task.getStartTime(), task.getEndTime(), task.getId());
+    }
+
+    public void clear() {
+        nodes.clear();
+        root = null;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+
+    // Поиск любого отрезка, пересекающего [start, end). Поддерево пропускается, если все отрезки в нём
+    // заканчиваются не позже start; правое поддерево — если текущий отрезок начинается не раньше end.
+    // Сохранённые отрезки не пересекаются между собой, поэтому поиск проходит O(log n) узлов
+    private static boolean overlaps(Node node, LocalDateTime start, LocalDateTime end, int excludedId) {
+        while (node != null && node.maxEnd.isAfter(start)) {
+            if (overlaps(node.left, start, end, excludedId)) {
+                return true;
+            }
+            if (!node.start.isBefore(end)) {
+                return false; // Дальше отрезки начинаются не раньше конца проверяемого
+            }
+            if (node.id != excludedId && start.isBefore(node.end) && node.start.isBefore(end)) {
+                return true;
+            }
+            node = node.right;
+        }
+        return false;
+    }
+
+    private static int compare(LocalDateTime start1, int id1, LocalDateTime start2, int id2) {
+        int result = start1.compareTo(start2);
+        return result != 0 ? result : Integer.compare(id1, id2);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.start, added.id, node.start, node.id) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return balance(node);
+    }
+
+    private static Node delete(Node node, LocalDateTime start, int id) {
+        if (node == null) {
+            return null;
+        }
+        int result = compare(start, id, node.start, node.id);
+        if (result < 0) {
+            node.left = delete(node.left, start, id);
+        } else if (result > 0) {
+            node.right = delete(node.right, start, id);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            Node successor = node.right; // Узел заменяется наименьшим узлом правого поддерева
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteMin(node.right);
+            successor.left = node.left;
+            return balance(successor);
+        }
+        return balance(node);
+    }
+
+    private static Node deleteMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteMin(node.left);
+        return balance(node);
+    }
+
+    // Метод восстанавливает баланс узла поворотами и пересчитывает высоту и наибольшее время завершения
+    private static Node balance(Node node) {
+        update(node);
+        int factor = height(node.left) - height(node.right);
+        if (factor > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (factor < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static void update(Node node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        LocalDateTime maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.right.maxEnd;
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+}
@@ -0,0 +1,60 @@
+package manager;
+
+import exception.ManagerSaveException;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Это фоновый поток, который периодически сворачивает журнал FileBackedTaskManager в новый снимок
+public class JournalCompactor implements Closeable {
+    private final FileBackedTaskManager manager; // Менеджер, журнал которого обслуживаем
+    private final CompactionPolicy policy; // Пороги для запуска свёртки
+    private final ScheduledExecutorService executor; // Планировщик с одним потоком-демоном
+    private volatile ManagerSaveException lastFailure; // Последняя ошибка свёртки (null — ошибок не было)
+
+    public JournalCompactor(FileBackedTaskManager manager, CompactionPolicy policy) {
+        this.manager = manager;
+        this.policy = policy;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-compactor");
+            thread.setDaemon(true); // Поток не должен мешать завершению приложения
+            return thread;
+        });
+    }
+
+    // Метод запускает периодическую проверку порогов
+    public void start() {
+        long period = policy.getCheckInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::compactIfNeeded, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // Метод проверяет пороги и при необходимости записывает новый снимок
+    void compactIfNeeded() {
+        try {
+            if (policy.isCompactionNeeded(manager.getJournalSizeInBytes(), manager.getJournalRecordCount(),
+                    manager.getTimeSinceLastCompaction())) {
+                manager.compact();
+            }
+        } catch (ManagerSaveException e) {
+            // Ошибка не должна останавливать планировщик — запоминаем её и попробуем снова при следующей проверке
+            lastFailure = e;
+        }
+    }
+
+    // Метод возвращает последнюю ошибку фоновой свёртки — сам поток её никому не передаёт
+    public ManagerSaveException getLastFailure() {
+        return lastFailure;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES); // Даём завершиться текущей свёртке
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package manager;
+
+import exception.ManagerSaveException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntUnaryOperator;
+
+// Это выдача ID блоками, где граница выданных блоков хранится в файле аренды. Блок резервируется под блокировкой
+// файла: граница читается, сдвигается на размер блока и записывается обратно. Поэтому несколько процессов
+// (или узлов с общим каталогом), которые пользуются одним файлом, получают непересекающиеся ID, а при запуске
+// счётчик не нужно восстанавливать перебором задач — граница уже лежит в файле.
+// Блокировка файла действует между процессами; потоки одного процесса дополнительно ждут друг друга
+// на мониторе, общем для всех выдач с этим файлом
+public class LeaseFileIdAllocator extends BlockIdAllocator {
+    public static final int DEFAULT_LEASE_SIZE = 1024; // Блоки крупнее: резерв стоит записи на диск
+    private static final ConcurrentHashMap<Path, Object> MONITORS = new ConcurrentHashMap<>();
+
+    private final Path lease;
+    private final Object monitor;
+
+    public LeaseFileIdAllocator(File leaseFile) {
+        this(leaseFile, DEFAULT_LEASE_SIZE);
+    }
+
+    public LeaseFileIdAllocator(File leaseFile, int blockSize) {
+        super(blockSize);
+        this.lease = leaseFile.toPath().toAbsolutePath().normalize();
+        this.monitor = MONITORS.computeIfAbsent(lease, path -> new Object());
+    }
+
+    // Метод возвращает границу выданных блоков из файла (0 — файла ещё нет)
+    public int getHighWater() {
+        return update(highWater -> highWater);
+    }
+
+    @Override
+    protected int reserveBlock(int size) {
+        int[] first = new int[1];
+        update(highWater -> {
+            first[0] = highWater + 1;
+            return Math.addExact(highWater, size);
+        });
+        return first[0];
+    }
+
+    // Метод меняет границу в файле под блокировкой и возвращает новое значение
+    private int update(IntUnaryOperator change) {
+        synchronized (monitor) {
+            try (FileChannel channel = FileChannel.open(lease, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock(); // Блокировка между процессами, снимается до закрытия канала
+                try {
+                    ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+                    int highWater = 0;
+                    if (channel.size() >= Integer.BYTES) {
+                        channel.read(buffer, 0);
+                        highWater = buffer.flip().getInt();
+                    }
+                    int updated = change.applyAsInt(highWater);
+                    if (updated != highWater) {
+                        channel.write(buffer.clear().putInt(updated).flip(), 0);
+                        channel.force(false); // Граница должна оказаться на диске раньше, чем ID из блока
+                    }
+                    return updated;
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                throw new ManagerSaveException("Не удалось зарезервировать ID в файле " + lease, e);
+            }
+        }
+    }
+}
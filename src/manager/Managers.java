@@ -19,4 +19,50 @@ public class Managers {
     public static TaskManager getFileBackedTaskManager(File file) {
         return new FileBackedTaskManager(file);
     }
-}
\ No newline at end of file
+
+    // Метод для создания менеджера задач, который дописывает изменения в журнал вместо перезаписи файла
+    public static FileBackedTaskManager getJournaledTaskManager(File file) {
+        return new FileBackedTaskManager(file, true);
+    }
+
+    // Метод для создания менеджера задач с сохранением в файл и выбранным уровнем надёжности записи
+    public static FileBackedTaskManager getFileBackedTaskManager(File file, Durability durability) {
+        return new FileBackedTaskManager(file, false, durability);
+    }
+
+    // Метод для создания менеджера задач с журналом изменений и выбранным уровнем надёжности записи
+    public static FileBackedTaskManager getJournaledTaskManager(File file, Durability durability) {
+        return new FileBackedTaskManager(file, true, durability);
+    }
+
+    // Метод для создания менеджера задач, который хранит каждый эпик в отдельном сегменте каталога
+    public static SegmentedTaskManager getSegmentedTaskManager(File directory) {
+        return new SegmentedTaskManager(directory);
+    }
+
+    // Метод для создания менеджера задач, который хранит доску в файле страниц и не держит её целиком в памяти
+    public static PagedTaskManager getPagedTaskManager(File file) {
+        return new PagedTaskManager(file);
+    }
+
+    // Метод для создания менеджера задач в памяти, которым можно пользоваться из многих потоков
+    public static ConcurrentTaskManager getConcurrentTaskManager() {
+        return new ConcurrentTaskManager();
+    }
+
+    // Метод для создания многопоточного менеджера, который берёт блоки ID из файла аренды. Менеджеры разных
+    // процессов с одним файлом аренды выдают непересекающиеся ID
+    public static ConcurrentTaskManager getConcurrentTaskManager(File leaseFile) {
+        return new ConcurrentTaskManager(new LeaseFileIdAllocator(leaseFile));
+    }
+
+    // Метод для создания менеджера задач в памяти, который читается по неизменяемым снимкам без блокировок
+    public static MvccTaskManager getMvccTaskManager() {
+        return new MvccTaskManager();
+    }
+
+    // Метод для создания многопоточного менеджера, разделённого на сегменты со своими блокировками
+    public static ShardedTaskManager getShardedTaskManager() {
+        return new ShardedTaskManager();
+    }
+}
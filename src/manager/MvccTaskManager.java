@@ -0,0 +1,496 @@
+package manager;
+
+import entity.Epic;
+import entity.Subtask;
+import entity.Task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Это менеджер задач в памяти с чтением по снимкам (MVCC). Всё состояние доски — неизменяемый снимок BoardSnapshot
+// из общих между версиями деревьев. Писатель (в каждый момент один, под writeLock) строит из текущего снимка новый
+// и публикует его одной записью в volatile-поле, поэтому читатели не берут блокировок, не мешают писателю и друг другу
+// и всегда видят доску целиком на один момент времени: эпик в снимке пересчитан вместе со своими подзадачами.
+// Снимок можно получить методом snapshot() и читать сколько угодно долго — последующие изменения его не затронут.
+//
+// В снимок кладутся копии задач и подзадач, поэтому менять объекты, полученные из менеджера, бесполезно —
+// изменения применяются только через update*. Эпик, переданный в addEpic, менеджер продолжает вести как рабочий:
+// в нём обновляются список подзадач, статус и время, а в снимок попадает его копия
+public class MvccTaskManager implements TaskManager {
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final HistoryManager historyManager = Managers.getDefaultHistory(); // Доступ — под его монитором
+    private final IntObjectMap<Epic> workingEpics = new IntObjectMap<>(); // Рабочие эпики, только под writeLock
+
+    private volatile BoardSnapshot root = BoardSnapshot.EMPTY; // Опубликованный снимок
+    private BoardSnapshot draft; // Снимок открытого пакета, виден только его потоку (null — пакет не открыт)
+    private IntObjectMap<Epic> batchEpics; // Рабочие эпики на момент beginBatch()
+
+    // Метод возвращает текущий снимок доски. Вызов ничего не стоит и не блокирует
+    public BoardSnapshot snapshot() {
+        return root;
+    }
+
+
+    // Методы для работы с задачами Task
+    @Override
+    public Task addTask(Task task) {
+        writeLock.lock();
+        try {
+            BoardSnapshot current = current();
+            if (current.overlaps(task)) {
+                throw new IllegalArgumentException("Задачи пересекаются по времени");
+            }
+            int id = current.getIdCounter() + 1;
+            task.setId(id);
+            publish(current.withIdCounter(id).putTask(task));
+            return task;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        writeLock.lock();
+        try {
+            publish(current().removeTask(id));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Task getTask(int id) {
+        Task task = view().getTask(id);
+        if (task != null) {
+            addToHistory(task);
+        }
+        return task;
+    }
+
+    @Override
+    public ArrayList<Task> getAllTasks() {
+        return view().getAllTasks();
+    }
+
+    @Override
+    public void clearTasks() {
+        writeLock.lock();
+        try {
+            publish(current().clearTasks());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        writeLock.lock();
+        try {
+            BoardSnapshot current = current();
+            if (current.getTask(task.getId()) == null) {
+                return;
+            }
+            if (current.overlaps(task)) {
+                throw new IllegalArgumentException("Обновленная задача пересекается по времени с другой задачей");
+            }
+            task.setVersion(current.getTask(task.getId()).getVersion() + 1);
+            publish(current.putTask(task));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+
+    // Методы для работы с эпиками
+    @Override
+    public void addEpic(Epic epic) {
+        writeLock.lock();
+        try {
+            BoardSnapshot current = current();
+            int id = current.getIdCounter() + 1;
+            epic.setId(id);
+            epic.getSubtaskIdList().clear(); // Подзадачи привязываются к эпику только через addSubtask
+            epic.resetCounts();
+            recalculateEpic(epic, current);
+            workingEpics.put(id, epic);
+            publish(current.withIdCounter(id).putEpic(epic));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        writeLock.lock();
+        try {
+            Epic epic = workingEpics.remove(id);
+            if (epic != null) {
+                epic.detachSubtasks();
+                publish(current().removeEpic(id));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        Epic epic = view().getEpic(id);
+        if (epic != null) {
+            addToHistory(epic);
+        }
+        return epic;
+    }
+
+    @Override
+    public ArrayList<Epic> getAllEpics() {
+        return view().getAllEpics();
+    }
+
+    @Override
+    public void clearEpics() {
+        writeLock.lock();
+        try {
+            for (Epic epic : workingEpics.values()) {
+                epic.detachSubtasks();
+            }
+            workingEpics.clear();
+            publish(current().clearEpics());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override // Меняются только название и описание: подзадачи, статус и время эпика ведёт менеджер
+    public void updateEpic(Epic epic) {
+        writeLock.lock();
+        try {
+            Epic working = workingEpics.get(epic.getId());
+            if (working != null) {
+                working.setName(epic.getName());
+                working.setDescription(epic.getDescription());
+                working.setVersion(working.getVersion() + 1);
+                epic.setVersion(working.getVersion());
+                publish(current().putEpic(working));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+
+    // Методы для работы с подзадачами Subtask. Подзадача и пересчитанный эпик попадают в один снимок
+    @Override
+    public void addSubtask(Subtask subtask) {
+        writeLock.lock();
+        try {
+            BoardSnapshot current = current();
+            if (current.overlaps(subtask)) {
+                throw new IllegalArgumentException("Подзадача пересекается по времени с другой задачей");
+            }
+            int id = current.getIdCounter() + 1;
+            subtask.setId(id);
+            BoardSnapshot updated = current.withIdCounter(id).putSubtask(subtask);
+            Epic epic = workingEpics.get(subtask.getEpicId());
+            if (epic != null) {
+                epic.addSubtask(id);
+                epic.countSubtask(subtask);
+                recalculateEpic(epic, updated);
+                updated = updated.putEpic(epic);
+            }
+            publish(updated);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        writeLock.lock();
+        try {
+            BoardSnapshot current = current();
+            Subtask subtask = current.getSubtask(id);
+            if (subtask == null) {
+                return;
+            }
+            BoardSnapshot updated = current.removeSubtask(id);
+            Epic epic = workingEpics.get(subtask.getEpicId());
+            if (epic != null) {
+                epic.deleteSubtask(id);
+                recalculateEpic(epic, updated);
+                updated = updated.putEpic(epic);
+            }
+            publish(updated);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        Subtask subtask = view().getSubtask(id);
+        if (subtask != null) {
+            addToHistory(subtask);
+        }
+        return subtask;
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtasksForEpic(int epicId) {
+        return view().getSubtasksForEpic(epicId);
+    }
+
+    @Override
+    public void updateEpicStatus(Epic epic) {
+        writeLock.lock();
+        try {
+            BoardSnapshot current = current();
+            Epic working = workingEpics.get(epic.getId());
+            if (working == null) {
+                current.recount(epic); // Эпик не из этого менеджера: только пересчитываем его по подзадачам
+                epic.setStatus(epic.statusFromCounts());
+                return;
+            }
+            current.recount(working);
+            recalculateEpic(working, current);
+            if (epic != working) {
+                epic.setStatus(working.getStatus());
+            }
+            publish(current.putEpic(working));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        writeLock.lock();
+        try {
+            BoardSnapshot current = current();
+            if (current.getSubtask(subtask.getId()) == null) {
+                return;
+            }
+            if (current.overlaps(subtask)) {
+                throw new IllegalArgumentException("Подзадача пересекается по времени с другой задачей");
+            }
+            subtask.setVersion(current.getSubtask(subtask.getId()).getVersion() + 1);
+            BoardSnapshot updated = current.putSubtask(subtask);
+            Epic epic = workingEpics.get(subtask.getEpicId());
+            if (epic != null) {
+                epic.changeSubtask(subtask);
+                recalculateEpic(epic, updated);
+                updated = updated.putEpic(epic);
+            }
+            publish(updated);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public ArrayList<Subtask> getAllSubtask() {
+        return view().getAllSubtask();
+    }
+
+    @Override
+    public List<Task> pageTasksAfter(int afterId, int limit) {
+        return view().pageTasksAfter(afterId, limit);
+    }
+
+    @Override
+    public List<Epic> pageEpicsAfter(int afterId, int limit) {
+        return view().pageEpicsAfter(afterId, limit);
+    }
+
+    @Override
+    public List<Subtask> pageSubtasksAfter(int afterId, int limit) {
+        return view().pageSubtasksAfter(afterId, limit);
+    }
+
+    @Override
+    public List<Task> pagePrioritizedAfter(LocalDateTime afterStart, int afterId, int limit) {
+        return view().pagePrioritizedAfter(afterStart, afterId, limit);
+    }
+
+    @Override // Писатель один, поэтому сравнение версии и публикация изменения атомарны
+    public boolean compareAndUpdate(Task task, long expectedVersion) {
+        writeLock.lock();
+        try {
+            BoardSnapshot current = current();
+            Task stored = switch (task.getType()) {
+                case EPIC_TYPE -> current.getEpic(task.getId());
+                case SUBTASK_TYPE -> current.getSubtask(task.getId());
+                default -> current.getTask(task.getId());
+            };
+            if (stored == null || stored.getVersion() != expectedVersion) {
+                return false;
+            }
+            switch (task.getType()) {
+                case EPIC_TYPE -> updateEpic((Epic) task);
+                case SUBTASK_TYPE -> updateSubtask((Subtask) task);
+                default -> updateTask(task);
+            }
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return view().getPrioritizedTasks();
+    }
+
+    @Override // Представление снимка: его можно читать и после новых изменений
+    public Collection<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return view().getPrioritizedTasks(from, to);
+    }
+
+    // Запросы выполняются перебором одного снимка: окно времени читается из расписания, остальное — из хранилищ
+    @Override
+    public List<Task> findTasks(TaskQuery query) {
+        BoardSnapshot snapshot = view();
+        if (query.hasEpicFilter()) {
+            return QueryPipeline.select(query, QueryPipeline.fromEpics(query, snapshot::getSubtasksForEpic));
+        }
+        List<Task> candidates = new ArrayList<>();
+        if (query.hasTimeWindow()
+                && (query.includes(TaskType.TASK_TYPE) || query.includes(TaskType.SUBTASK_TYPE))) {
+            candidates.addAll(snapshot.getPrioritizedTasks(query.getStartFrom(), query.getStartTo()));
+        } else if (!query.hasTimeWindow()) {
+            if (query.includes(TaskType.TASK_TYPE)) {
+                candidates.addAll(snapshot.getAllTasks());
+            }
+            if (query.includes(TaskType.SUBTASK_TYPE)) {
+                candidates.addAll(snapshot.getAllSubtask());
+            }
+        }
+        if (query.includes(TaskType.EPIC_TYPE)) {
+            candidates.addAll(snapshot.getAllEpics());
+        }
+        return QueryPipeline.select(query, List.of(candidates));
+    }
+
+    // Поиск по словам: индекс строится по снимку на время запроса
+    @Override
+    public List<Task> searchTasks(String query, int limit) {
+        BoardSnapshot snapshot = view();
+        TextIndex index = new TextIndex();
+        snapshot.getAllTasks().forEach(index::put);
+        snapshot.getAllEpics().forEach(index::put);
+        snapshot.getAllSubtask().forEach(index::put);
+        List<Task> result = new ArrayList<>();
+        for (int id : index.search(query, limit)) {
+            Task task = snapshot.getTask(id);
+            if (task == null) {
+                task = snapshot.getEpic(id);
+            }
+            if (task == null) {
+                task = snapshot.getSubtask(id);
+            }
+            result.add(task);
+        }
+        return result;
+    }
+
+
+    // Пакетные изменения: поток, открывший пакет, держит writeLock до commitBatch()/rollbackBatch() и копит
+    // изменения в своём снимке. Читатели до фиксации видят снимок до пакета, а фиксация публикует все изменения разом
+    @Override
+    public void beginBatch() {
+        if (isInBatch()) {
+            throw new IllegalStateException("Пакет изменений уже открыт");
+        }
+        writeLock.lock();
+        draft = root;
+        batchEpics = new IntObjectMap<>(workingEpics);
+    }
+
+    @Override
+    public void commitBatch() {
+        requireBatch();
+        try {
+            root = draft.nextVersion();
+        } finally {
+            finishBatch();
+        }
+    }
+
+    @Override // Снимок пакета просто отбрасывается, рабочие эпики пересчитываются по опубликованному снимку
+    public void rollbackBatch() {
+        requireBatch();
+        try {
+            BoardSnapshot published = root;
+            workingEpics.clear();
+            workingEpics.putAll(batchEpics);
+            for (Epic epic : batchEpics.values()) {
+                Epic frozen = published.getEpic(epic.getId());
+                epic.getSubtaskIdList().clear();
+                epic.getSubtaskIdList().addAll(frozen.getSubtaskIdList());
+                epic.setName(frozen.getName());
+                epic.setDescription(frozen.getDescription());
+                epic.setVersion(frozen.getVersion());
+                published.recount(epic);
+                recalculateEpic(epic, published);
+            }
+        } finally {
+            finishBatch();
+        }
+    }
+
+    @Override // Пакет открыт именно в этом потоке
+    public boolean isInBatch() {
+        return writeLock.isHeldByCurrentThread() && draft != null;
+    }
+
+    private void requireBatch() {
+        if (!isInBatch()) {
+            throw new IllegalStateException("Пакет изменений не открыт");
+        }
+    }
+
+    private void finishBatch() {
+        draft = null;
+        batchEpics = null;
+        writeLock.unlock();
+    }
+
+
+    // Снимок, от которого строится изменение: внутри пакета — снимок пакета. Вызывается под writeLock
+    private BoardSnapshot current() {
+        return draft != null ? draft : root;
+    }
+
+    // Метод публикует новый снимок (внутри пакета — только запоминает его до commitBatch())
+    private void publish(BoardSnapshot updated) {
+        if (draft != null) {
+            draft = updated;
+        } else {
+            root = updated.nextVersion();
+        }
+    }
+
+    // Снимок для чтения: поток с открытым пакетом видит свои изменения, остальные — опубликованный снимок
+    private BoardSnapshot view() {
+        return isInBatch() ? draft : root;
+    }
+
+    // Метод пересчитывает статус, время и продолжительность рабочего эпика по агрегатам
+    private void recalculateEpic(Epic epic, BoardSnapshot snapshot) {
+        if (!epic.hasCounts()) {
+            snapshot.recount(epic);
+        }
+        epic.setStatus(epic.statusFromCounts());
+        epic.applyTimeFromCounts();
+    }
+
+    private void addToHistory(Task task) {
+        synchronized (historyManager) {
+            historyManager.add(task);
+        }
+    }
+}
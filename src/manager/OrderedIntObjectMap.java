@@ -0,0 +1,84 @@
+package manager;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Это IntObjectMap, который дополнительно умеет обходить записи по возрастанию ключа. Занятые ключи отмечаются
+// в битовой карте (бит на ключ: для 300 тысяч ID это меньше 40 КБ), поэтому страница из limit записей после
+// заданного ключа стоит O(limit) плюс пропуск пустых 64-битных слов, без сортировки и без копии всей таблицы.
+// Рассчитана на ID задач: отрицательные ключи хранятся, но в постраничный обход не попадают
+public class OrderedIntObjectMap<V> extends IntObjectMap<V> {
+    private final BitSet present = new BitSet();
+
+    @Override
+    public V put(int key, V value) {
+        V previous = super.put(key, value);
+        if (key >= 0) {
+            present.set(key);
+        }
+        return previous;
+    }
+
+    @Override
+    public V remove(int key) {
+        V previous = super.remove(key);
+        if (previous != null && key >= 0) {
+            present.clear(key);
+        }
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        present.clear();
+    }
+
+    // Метод возвращает не более limit значений с ключами больше afterKey по возрастанию ключа
+    public List<V> valuesAfter(int afterKey, int limit) {
+        List<V> result = new ArrayList<>(Math.min(Math.max(limit, 0), size()));
+        int key = present.nextSetBit(Math.max(afterKey, -1) + 1);
+        while (key >= 0 && result.size() < limit) {
+            result.add(get(key));
+            key = key == Integer.MAX_VALUE ? -1 : present.nextSetBit(key + 1);
+        }
+        return result;
+    }
+
+    // Метод возвращает представление значений по возрастанию ключа; обход читает таблицу без копирования
+    public Collection<V> ascendingValues() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new Iterator<>() {
+                    private int key = present.nextSetBit(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return key >= 0;
+                    }
+
+                    @Override
+                    public V next() {
+                        if (key < 0) {
+                            throw new NoSuchElementException();
+                        }
+                        V value = get(key);
+                        key = key == Integer.MAX_VALUE ? -1 : present.nextSetBit(key + 1);
+                        return value;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return present.cardinality();
+            }
+        };
+    }
+}
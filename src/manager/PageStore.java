@@ -0,0 +1,256 @@
+package manager;
+
+import exception.ManagerSaveException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Это файл страниц фиксированного размера с ограниченным пулом страниц в памяти для PagedTaskManager.
+// Страница 0 — заголовок файла: магическое значение, версия, количество страниц, список свободных страниц
+// и поля владельца хранилища начиная со смещения FIRST_USER_OFFSET. Остальные страницы читаются с диска
+// по требованию, а при переполнении пула давно не использованные страницы записываются обратно и вытесняются
+class PageStore implements Closeable {
+    static final int PAGE_SIZE = 4096; // Размер страницы в байтах
+    static final int FIRST_USER_OFFSET = 16; // С этого смещения заголовка начинаются поля владельца хранилища
+
+    private static final int MAGIC = 0x4B4E5047; // "KNPG"
+    private static final int VERSION = 1;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int PAGE_COUNT_OFFSET = 8; // Количество страниц в файле
+    private static final int FREE_LIST_OFFSET = 12; // Первая свободная страница (0 — свободных нет)
+
+    private final FileChannel channel;
+    private final int capacity; // Сколько страниц держать в памяти
+    // Страницы в порядке последнего обращения: первой идёт та, к которой обращались раньше всех
+    private final LinkedHashMap<Integer, Page> pages = new LinkedHashMap<>(16, 0.75f, true);
+    private long epoch = 1; // Номер текущей операции; страницы текущей операции не вытесняются
+    private Map<Integer, byte[]> undo; // Исходное содержимое изменённых страниц (null — откат не нужен)
+    private long pageReads; // Количество чтений страниц с диска
+    private long pageWrites; // Количество записей страниц на диск
+
+    // Страница в памяти
+    static final class Page {
+        final int id;
+        final byte[] bytes = new byte[PAGE_SIZE];
+        final ByteBuffer data = ByteBuffer.wrap(bytes); // Доступ к полям страницы по абсолютным смещениям
+        private boolean dirty; // Страница изменена и ещё не записана на диск
+        private long epoch; // Номер операции, в которой к странице обращались последний раз
+
+        private Page(int id) {
+            this.id = id;
+        }
+    }
+
+    // Конструктор открывает файл страниц. При create = true файл создаётся заново с пустым заголовком
+    PageStore(File file, int capacity, boolean create) {
+        if (capacity < 16) {
+            throw new IllegalArgumentException("В пуле должно быть не меньше 16 страниц");
+        }
+        this.capacity = capacity;
+        try {
+            if (create) {
+                channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+                Page header = page(0);
+                markDirty(header);
+                header.data.putInt(MAGIC_OFFSET, MAGIC);
+                header.data.putInt(VERSION_OFFSET, VERSION);
+                header.data.putInt(PAGE_COUNT_OFFSET, 1);
+            } else {
+                channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                Page header = page(0);
+                if (header.data.getInt(MAGIC_OFFSET) != MAGIC) {
+                    throw new ManagerSaveException("Файл не является файлом страниц: " + file);
+                }
+                if (header.data.getInt(VERSION_OFFSET) != VERSION) {
+                    throw new ManagerSaveException("Неподдерживаемая версия файла страниц: "
+                            + header.data.getInt(VERSION_OFFSET));
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка открытия файла страниц " + file, e);
+        }
+    }
+
+    // Метод возвращает страницу, при необходимости читая её с диска. Ссылку на страницу можно держать
+    // только до вызова nextEpoch(): после этого страница может быть вытеснена из пула
+    Page page(int id) {
+        Page page = pages.get(id);
+        if (page == null) {
+            page = new Page(id);
+            read(page);
+            page.epoch = epoch;
+            pages.put(id, page);
+            evict();
+        }
+        page.epoch = epoch;
+        return page;
+    }
+
+    // Метод нужно вызвать перед изменением страницы: страница будет записана на диск,
+    // а во время пакета её исходное содержимое сохраняется для отката
+    void markDirty(Page page) {
+        if (undo != null && !undo.containsKey(page.id)) {
+            undo.put(page.id, page.bytes.clone());
+        }
+        page.dirty = true;
+    }
+
+    // Метод начинает новую операцию: страницы предыдущих операций снова можно вытеснять
+    void nextEpoch() {
+        epoch++;
+    }
+
+    int getHeaderInt(int offset) {
+        return page(0).data.getInt(offset);
+    }
+
+    void setHeaderInt(int offset, int value) {
+        Page header = page(0);
+        markDirty(header);
+        header.data.putInt(offset, value);
+    }
+
+    // Метод выделяет страницу: берёт её из списка свободных или добавляет в конец файла.
+    // Содержимое выделенной страницы обнулено
+    int allocate() {
+        int id = getHeaderInt(FREE_LIST_OFFSET);
+        if (id != 0) {
+            Page page = page(id);
+            setHeaderInt(FREE_LIST_OFFSET, page.data.getInt(0)); // В свободной странице лежит ссылка на следующую
+            markDirty(page);
+            Arrays.fill(page.bytes, (byte) 0);
+            return id;
+        }
+        id = getHeaderInt(PAGE_COUNT_OFFSET);
+        setHeaderInt(PAGE_COUNT_OFFSET, id + 1);
+        markDirty(page(id));
+        return id;
+    }
+
+    // Метод возвращает страницу в список свободных
+    void free(int id) {
+        Page page = page(id);
+        markDirty(page);
+        Arrays.fill(page.bytes, (byte) 0);
+        page.data.putInt(0, getHeaderInt(FREE_LIST_OFFSET));
+        setHeaderInt(FREE_LIST_OFFSET, id);
+    }
+
+    // Метод записывает все изменённые страницы на диск; при force = true дожидается их сброса на диск
+    void flush(boolean force) {
+        for (Page page : pages.values()) {
+            if (page.dirty) {
+                write(page);
+            }
+        }
+        if (force) {
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка сброса файла страниц на диск", e);
+            }
+        }
+    }
+
+    // Методы для пакетных изменений: с начала пакета запоминается исходное содержимое каждой изменённой страницы
+    void beginUndo() {
+        undo = new LinkedHashMap<>();
+    }
+
+    void commitUndo() {
+        undo = null;
+    }
+
+    // Метод возвращает изменённым в пакете страницам исходное содержимое
+    void rollbackUndo() {
+        Map<Integer, byte[]> images = undo;
+        undo = null;
+        for (Map.Entry<Integer, byte[]> image : images.entrySet()) {
+            nextEpoch(); // Восстановленные страницы можно вытеснять — они будут записаны на диск
+            Page page = page(image.getKey());
+            System.arraycopy(image.getValue(), 0, page.bytes, 0, PAGE_SIZE);
+            page.dirty = true;
+        }
+    }
+
+    int getCachedPageCount() {
+        return pages.size();
+    }
+
+    int getPageCount() {
+        return getHeaderInt(PAGE_COUNT_OFFSET);
+    }
+
+    long getPageReads() {
+        return pageReads;
+    }
+
+    long getPageWrites() {
+        return pageWrites;
+    }
+
+    @Override
+    public void close() {
+        try {
+            flush(true);
+            channel.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка закрытия файла страниц", e);
+        }
+    }
+
+    // Метод вытесняет давно не использованные страницы, пока пул не уложится в заданный размер.
+    // Страницы текущей операции не вытесняются, поэтому пул может ненадолго превысить размер
+    private void evict() {
+        Iterator<Page> iterator = pages.values().iterator();
+        while (pages.size() > capacity && iterator.hasNext()) {
+            Page page = iterator.next();
+            if (page.epoch == epoch || page.id == 0) {
+                continue; // Заголовок нужен почти каждой операции — держим его в памяти
+            }
+            if (page.dirty) {
+                write(page);
+            }
+            iterator.remove();
+        }
+    }
+
+    private void read(Page page) {
+        ByteBuffer buffer = ByteBuffer.wrap(page.bytes);
+        try {
+            long position = (long) page.id * PAGE_SIZE;
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    break; // Страница за концом файла ещё не записывалась — она пустая
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения страницы " + page.id, e);
+        }
+        pageReads++;
+    }
+
+    private void write(Page page) {
+        ByteBuffer buffer = ByteBuffer.wrap(page.bytes);
+        try {
+            long position = (long) page.id * PAGE_SIZE;
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи страницы " + page.id, e);
+        }
+        page.dirty = false;
+        pageWrites++;
+    }
+}
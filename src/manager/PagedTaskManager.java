@@ -0,0 +1,918 @@
+package manager;
+
+import entity.Epic;
+import entity.Status;
+import entity.Subtask;
+import entity.Task;
+import exception.ManagerSaveException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+// Это менеджер задач, который хранит доску в файле страниц и держит в памяти только ограниченный пул страниц,
+// поэтому размер доски не упирается в размер кучи. Задачи, эпики и подзадачи лежат записями в RecordHeap,
+// а B+деревья связывают их между собой:
+// ID → адрес записи (своё дерево для задач, эпиков и подзадач),
+// (время начала, ID) → продолжительность — для getPrioritizedTasks() и проверки пересечений,
+// (ID эпика, ID подзадачи) — состав эпиков.
+// Объекты задач создаются при чтении. Пока вызывающий код держит ссылку на объект, менеджер возвращает
+// и обновляет тот же объект, как InMemoryTaskManager, а неиспользуемые объекты собирает сборщик мусора
+public class PagedTaskManager implements TaskManager, Closeable {
+    public static final int DEFAULT_CACHE_PAGES = 4096; // Размер пула по умолчанию: 16 МБ страниц
+
+    // Поля заголовка файла страниц
+    private static final int ID_COUNTER = PageStore.FIRST_USER_OFFSET; // Счётчик ID
+    private static final int HEAP_INSERT_PAGE = ID_COUNTER + 4; // Страница для новых записей
+    private static final int TASKS_ROOT = HEAP_INSERT_PAGE + 4; // Корни деревьев
+    private static final int EPICS_ROOT = TASKS_ROOT + 4;
+    private static final int SUBTASKS_ROOT = EPICS_ROOT + 4;
+    private static final int START_ROOT = SUBTASKS_ROOT + 4;
+    private static final int MEMBERSHIP_ROOT = START_ROOT + 4;
+
+    private static final long SUBTASK_FLAG = 1L << 31; // Признак подзадачи в ключе индекса по времени начала
+    private static final long NO_DURATION = Long.MIN_VALUE; // Продолжительность не задана
+    private static final long NOT_FOUND = PagedTree.NOT_FOUND;
+
+    private final PageStore store;
+    private final RecordHeap heap;
+    private final PagedTree tasks; // ID задачи → адрес записи
+    private final PagedTree epics; // ID эпика → адрес записи
+    private final PagedTree subtasks; // ID подзадачи → адрес записи
+    private final PagedTree startIndex; // (секунда начала, наносекунды << 32 | признак подзадачи | ID) → продолжительность
+    private final PagedTree membership; // (ID эпика, ID подзадачи) → 0
+    private final HistoryManager historyManager = Managers.getDefaultHistory(); // История просмотров
+    private final Map<Integer, LiveReference> live = new HashMap<>(); // Объекты, на которые ещё есть ссылки
+    private final ReferenceQueue<Task> collected = new ReferenceQueue<>(); // Собранные сборщиком мусора объекты
+    private final RecordSink sink = new RecordSink();
+    private final BinaryTaskFormat.Encoder encoder = new BinaryTaskFormat.Encoder(sink);
+    private Set<Integer> touchedEpics; // Эпики, пересчёт которых отложен до конца пакета (null — пакет не открыт)
+
+    // Конструктор для создания пустой доски в файле с пулом страниц по умолчанию
+    public PagedTaskManager(File file) {
+        this(file, DEFAULT_CACHE_PAGES);
+    }
+
+    // Конструктор для создания пустой доски с заданным количеством страниц в памяти
+    public PagedTaskManager(File file, int cachePages) {
+        this(new PageStore(file, cachePages, true));
+    }
+
+    private PagedTaskManager(PageStore store) {
+        this.store = store;
+        heap = new RecordHeap(store, HEAP_INSERT_PAGE);
+        tasks = new PagedTree(store, TASKS_ROOT);
+        epics = new PagedTree(store, EPICS_ROOT);
+        subtasks = new PagedTree(store, SUBTASKS_ROOT);
+        startIndex = new PagedTree(store, START_ROOT);
+        membership = new PagedTree(store, MEMBERSHIP_ROOT);
+        store.flush(false);
+    }
+
+    // Метод открывает доску из файла страниц
+    public static PagedTaskManager loadFromFile(File file) {
+        return loadFromFile(file, DEFAULT_CACHE_PAGES);
+    }
+
+    public static PagedTaskManager loadFromFile(File file, int cachePages) {
+        return new PagedTaskManager(new PageStore(file, cachePages, false));
+    }
+
+
+    // Методы для работы с задачами Task:
+    @Override
+    public synchronized Task addTask(Task task) {
+        store.nextEpoch();
+        if (overlapsAny(task)) {
+            throw new IllegalArgumentException("Задачи пересекаются по времени");
+        }
+        task.setId(createId());
+        tasks.put(task.getId(), 0, heap.insert(encode(task)));
+        indexStart(task);
+        register(task);
+        persist();
+        return task;
+    }
+
+    @Override
+    public synchronized void deleteTask(int id) {
+        store.nextEpoch();
+        long address = tasks.get(id, 0);
+        if (address == NOT_FOUND) {
+            return;
+        }
+        unindexStart(decode(heap.read(address)));
+        heap.delete(address);
+        tasks.remove(id, 0);
+        forget(id);
+        persist();
+    }
+
+    @Override
+    public synchronized Task getTask(int id) {
+        store.nextEpoch();
+        Task task = load(tasks, id);
+        if (task != null) {
+            historyManager.add(task);
+        }
+        return task;
+    }
+
+    @Override
+    public synchronized ArrayList<Task> getAllTasks() {
+        store.nextEpoch();
+        return loadAll(tasks);
+    }
+
+    @Override
+    public synchronized void clearTasks() {
+        store.nextEpoch();
+        dropRecords(tasks);
+        tasks.clear();
+        persist();
+    }
+
+    @Override
+    public synchronized void updateTask(Task task) {
+        store.nextEpoch();
+        long address = tasks.get(task.getId(), 0);
+        if (address == NOT_FOUND) {
+            return;
+        }
+        if (overlapsAny(task)) {
+            throw new IllegalArgumentException("Обновленная задача пересекается по времени с другой задачей");
+        }
+        Task old = decode(heap.read(address));
+        unindexStart(old);
+        task.setVersion(old.getVersion() + 1);
+        long newAddress = heap.update(address, encode(task));
+        if (newAddress != address) {
+            tasks.put(task.getId(), 0, newAddress);
+        }
+        indexStart(task);
+        register(task);
+        persist();
+    }
+
+
+    // Методы для работы с эпиками Epic:
+    @Override
+    public synchronized void addEpic(Epic epic) {
+        store.nextEpoch();
+        epic.setId(createId());
+        epics.put(epic.getId(), 0, heap.insert(encode(epic)));
+        register(epic);
+        persist();
+    }
+
+    @Override
+    public synchronized void deleteEpic(int id) {
+        store.nextEpoch();
+        long address = epics.get(id, 0);
+        if (address == NOT_FOUND) {
+            return;
+        }
+        for (int subtaskId : memberIds(id)) {
+            removeSubtaskRecord(subtaskId);
+            membership.remove(id, subtaskId);
+        }
+        heap.delete(address);
+        epics.remove(id, 0);
+        forget(id);
+        persist();
+    }
+
+    @Override
+    public synchronized Epic getEpic(int id) {
+        store.nextEpoch();
+        Epic epic = (Epic) load(epics, id);
+        if (epic != null) {
+            historyManager.add(epic);
+        }
+        return epic;
+    }
+
+    @Override
+    public synchronized ArrayList<Epic> getAllEpics() {
+        store.nextEpoch();
+        return loadAll(epics);
+    }
+
+    @Override
+    public synchronized void clearEpics() {
+        store.nextEpoch();
+        dropRecords(subtasks);
+        dropRecords(epics);
+        subtasks.clear();
+        epics.clear();
+        membership.clear();
+        persist();
+    }
+
+    // Название и описание берутся из переданного эпика, а статус, время и состав подзадач рассчитываются
+    // менеджером — они копируются в переданный объект из хранилища
+    @Override
+    public synchronized void updateEpic(Epic epic) {
+        store.nextEpoch();
+        long address = epics.get(epic.getId(), 0);
+        if (address == NOT_FOUND) {
+            return;
+        }
+        Epic old = (Epic) decode(heap.read(address));
+        copyAggregates(old, epic);
+        epic.setVersion(old.getVersion() + 1);
+        epic.getSubtaskIdList().clear();
+        epic.getSubtaskIdList().addAll(memberIds(epic.getId()));
+        long newAddress = heap.update(address, encode(epic));
+        if (newAddress != address) {
+            epics.put(epic.getId(), 0, newAddress);
+        }
+        register(epic);
+        persist();
+    }
+
+
+    // Методы для работы с подзадачами Subtask:
+    @Override
+    public synchronized void addSubtask(Subtask subtask) {
+        store.nextEpoch();
+        if (overlapsAny(subtask)) {
+            throw new IllegalArgumentException("Подзадача пересекается по времени с другой задачей");
+        }
+        subtask.setId(createId());
+        if (epics.get(subtask.getEpicId(), 0) == NOT_FOUND) {
+            persist();
+            return; // Подзадача без эпика не сохраняется
+        }
+        subtasks.put(subtask.getId(), 0, heap.insert(encode(subtask)));
+        indexStart(subtask);
+        membership.put(subtask.getEpicId(), subtask.getId(), 0);
+        register(subtask);
+        Epic liveEpic = (Epic) liveObject(subtask.getEpicId());
+        if (liveEpic != null) {
+            liveEpic.addSubtask(subtask.getId());
+        }
+        recalculateEpic(subtask.getEpicId());
+        persist();
+    }
+
+    @Override
+    public synchronized void deleteSubtask(int id) {
+        store.nextEpoch();
+        long address = subtasks.get(id, 0);
+        if (address == NOT_FOUND) {
+            return;
+        }
+        int epicId = ((Subtask) decode(heap.read(address))).getEpicId();
+        removeSubtaskRecord(id);
+        membership.remove(epicId, id);
+        Epic liveEpic = (Epic) liveObject(epicId);
+        if (liveEpic != null) {
+            liveEpic.deleteSubtask(id);
+        }
+        recalculateEpic(epicId);
+        persist();
+    }
+
+    @Override
+    public synchronized Subtask getSubtask(int id) {
+        store.nextEpoch();
+        Subtask subtask = (Subtask) load(subtasks, id);
+        if (subtask != null) {
+            historyManager.add(subtask);
+        }
+        return subtask;
+    }
+
+    @Override
+    public synchronized ArrayList<Subtask> getSubtasksForEpic(int epicId) {
+        store.nextEpoch();
+        ArrayList<Subtask> result = new ArrayList<>();
+        if (epics.get(epicId, 0) == NOT_FOUND) {
+            return result;
+        }
+        for (int subtaskId : memberIds(epicId)) {
+            Subtask subtask = (Subtask) load(subtasks, subtaskId);
+            if (subtask != null) {
+                result.add(subtask);
+            }
+        }
+        return result;
+    }
+
+    // Статус пересчитывается сразу, даже внутри пакета, и записывается в переданный объект
+    @Override
+    public synchronized void updateEpicStatus(Epic epic) {
+        store.nextEpoch();
+        Epic stored = recalculateNow(epic.getId());
+        if (stored != null) {
+            copyAggregates(stored, epic);
+            persist();
+        }
+    }
+
+    @Override
+    public synchronized void updateSubtask(Subtask subtask) {
+        store.nextEpoch();
+        long address = subtasks.get(subtask.getId(), 0);
+        if (address == NOT_FOUND) {
+            return;
+        }
+        Subtask old = (Subtask) decode(heap.read(address));
+        if (old.getEpicId() != subtask.getEpicId() && epics.get(subtask.getEpicId(), 0) == NOT_FOUND) {
+            return; // Подзадачу нельзя перенести в несуществующий эпик
+        }
+        if (overlapsAny(subtask)) {
+            throw new IllegalArgumentException("Обновленная подзадача пересекается по времени с другой задачей");
+        }
+        unindexStart(old);
+        subtask.setVersion(old.getVersion() + 1);
+        long newAddress = heap.update(address, encode(subtask));
+        if (newAddress != address) {
+            subtasks.put(subtask.getId(), 0, newAddress);
+        }
+        indexStart(subtask);
+        register(subtask);
+        if (old.getEpicId() != subtask.getEpicId()) { // Подзадача перенесена в другой эпик
+            membership.remove(old.getEpicId(), subtask.getId());
+            membership.put(subtask.getEpicId(), subtask.getId(), 0);
+            Epic oldEpic = (Epic) liveObject(old.getEpicId());
+            if (oldEpic != null) {
+                oldEpic.deleteSubtask(subtask.getId());
+            }
+            Epic newEpic = (Epic) liveObject(subtask.getEpicId());
+            if (newEpic != null) {
+                newEpic.addSubtask(subtask.getId());
+            }
+            recalculateEpic(old.getEpicId());
+        }
+        recalculateEpic(subtask.getEpicId());
+        persist();
+    }
+
+    // Постраничное чтение: обход деревьев начинается с ключа курсора и останавливается после limit записей
+    @Override
+    public synchronized List<Task> pageTasksAfter(int afterId, int limit) {
+        store.nextEpoch();
+        return loadPage(tasks, afterId, limit);
+    }
+
+    @Override
+    public synchronized List<Epic> pageEpicsAfter(int afterId, int limit) {
+        store.nextEpoch();
+        return loadPage(epics, afterId, limit);
+    }
+
+    @Override
+    public synchronized List<Subtask> pageSubtasksAfter(int afterId, int limit) {
+        store.nextEpoch();
+        return loadPage(subtasks, afterId, limit);
+    }
+
+    @Override // Ключ курсора собирается так же, как ключ задачи в индексе времени начала
+    public synchronized List<Task> pagePrioritizedAfter(LocalDateTime afterStart, int afterId, int limit) {
+        store.nextEpoch();
+        List<Long> keys = new ArrayList<>();
+        if (limit > 0) {
+            long second = Long.MIN_VALUE;
+            long key = Long.MIN_VALUE;
+            if (afterStart != null) {
+                second = afterStart.toEpochSecond(ZoneOffset.UTC);
+                long kind = subtasks.get(afterId, 0) != NOT_FOUND ? SUBTASK_FLAG : 0;
+                key = ((long) afterStart.getNano() << 32 | kind | afterId) + 1;
+            }
+            startIndex.scan(second, key, (k1, k2, duration) -> {
+                keys.add(k2);
+                return keys.size() < limit;
+            });
+        }
+        return loadScheduled(keys);
+    }
+
+    @Override // Версия хранится в записи задачи, поэтому её можно сравнить, не держа объект в памяти
+    public synchronized boolean compareAndUpdate(Task task, long expectedVersion) {
+        store.nextEpoch();
+        PagedTree tree = switch (task.getType()) {
+            case EPIC_TYPE -> epics;
+            case SUBTASK_TYPE -> subtasks;
+            default -> tasks;
+        };
+        long address = tree.get(task.getId(), 0);
+        if (address == NOT_FOUND || decode(heap.read(address)).getVersion() != expectedVersion) {
+            return false;
+        }
+        switch (task.getType()) {
+            case EPIC_TYPE -> updateEpic((Epic) task);
+            case SUBTASK_TYPE -> updateSubtask((Subtask) task);
+            default -> updateTask(task);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized ArrayList<Subtask> getAllSubtask() {
+        store.nextEpoch();
+        return loadAll(subtasks);
+    }
+
+    // Задачи и подзадачи с временем начала по возрастанию времени (при равном времени — по ID)
+    @Override
+    public synchronized List<Task> getPrioritizedTasks() {
+        store.nextEpoch();
+        List<Long> keys = new ArrayList<>();
+        startIndex.scan(Long.MIN_VALUE, Long.MIN_VALUE, (k1, k2, duration) -> keys.add(k2));
+        return loadScheduled(keys);
+    }
+
+    // Задачи, которые начинаются в промежутке [from, to). Объекты задач создаются при чтении,
+    // поэтому выборка копируется, но читается только нужный участок индекса
+    @Override
+    public synchronized Collection<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        store.nextEpoch();
+        List<Long> keys = new ArrayList<>();
+        if (from.isBefore(to)) {
+            startIndex.scan(from.toEpochSecond(ZoneOffset.UTC), (long) from.getNano() << 32, (second, key, duration) -> {
+                if (!LocalDateTime.ofEpochSecond(second, (int) (key >>> 32), ZoneOffset.UTC).isBefore(to)) {
+                    return false;
+                }
+                keys.add(key);
+                return true;
+            });
+        }
+        return loadScheduled(keys);
+    }
+
+    // Вторичных индексов по типу и статусу в страничном хранилище нет, поэтому запрос проверяется на каждой
+    // задаче нужных типов. Окно времени для задач и подзадач читает только участок индекса времени начала
+    @Override
+    public synchronized List<Task> findTasks(TaskQuery query) {
+        if (query.hasEpicFilter()) {
+            return QueryPipeline.select(query, QueryPipeline.fromEpics(query, this::getSubtasksForEpic));
+        }
+        List<Task> candidates = new ArrayList<>();
+        if (query.hasTimeWindow()
+                && (query.includes(TaskType.TASK_TYPE) || query.includes(TaskType.SUBTASK_TYPE))) {
+            candidates.addAll(getPrioritizedTasks(query.getStartFrom(), query.getStartTo()));
+        } else if (!query.hasTimeWindow()) {
+            if (query.includes(TaskType.TASK_TYPE)) {
+                candidates.addAll(getAllTasks());
+            }
+            if (query.includes(TaskType.SUBTASK_TYPE)) {
+                candidates.addAll(getAllSubtask());
+            }
+        }
+        if (query.includes(TaskType.EPIC_TYPE)) {
+            candidates.addAll(getAllEpics());
+        }
+        return QueryPipeline.select(query, List.of(candidates));
+    }
+
+    // Инвертированного индекса в страничном хранилище нет: индекс строится на время запроса по всем задачам,
+    // поэтому результат совпадает с остальными менеджерами, но запрос читает всю доску
+    @Override
+    public synchronized List<Task> searchTasks(String query, int limit) {
+        IntObjectMap<Task> all = new IntObjectMap<>();
+        TextIndex index = new TextIndex();
+        List<Task> candidates = new ArrayList<>(getAllTasks());
+        candidates.addAll(getAllEpics());
+        candidates.addAll(getAllSubtask());
+        for (Task task : candidates) {
+            all.put(task.getId(), task);
+            index.put(task);
+        }
+        List<Task> result = new ArrayList<>();
+        for (int id : index.search(query, limit)) {
+            result.add(all.get(id));
+        }
+        return result;
+    }
+
+
+    // Методы для пакетных изменений: исходное содержимое изменённых страниц запоминается для отката,
+    // эпики пересчитываются при закрытии пакета, а страницы записываются на диск один раз
+    @Override
+    public synchronized void beginBatch() {
+        if (touchedEpics != null) {
+            throw new IllegalStateException("Пакет изменений уже открыт");
+        }
+        store.beginUndo();
+        touchedEpics = new LinkedHashSet<>();
+    }
+
+    @Override
+    public synchronized void commitBatch() {
+        Set<Integer> finished = requireBatch();
+        touchedEpics = null;
+        store.nextEpoch();
+        for (int epicId : finished) {
+            recalculateEpic(epicId);
+        }
+        store.commitUndo();
+        persist();
+    }
+
+    @Override
+    public synchronized void rollbackBatch() {
+        requireBatch();
+        touchedEpics = null;
+        store.rollbackUndo();
+        heap.resetHints();
+        store.flush(false);
+        // Объекты, на которые ещё есть ссылки, приводим в соответствие с восстановленным состоянием.
+        // Задачи и подзадачи могли заменить или изменить в пакете — их забываем, и следующее чтение
+        // возьмёт восстановленную запись. Эпики обновляются на месте: их агрегаты пересчитываются в этом объекте
+        for (LiveReference reference : new ArrayList<>(live.values())) {
+            Task task = reference.get();
+            if (task == null) {
+                continue;
+            }
+            store.nextEpoch();
+            long address = task instanceof Epic ? epics.get(reference.id, 0) : NOT_FOUND;
+            if (address == NOT_FOUND) {
+                forget(reference.id); // Задача, подзадача или эпик, добавленный в откатанном пакете
+            } else {
+                Epic epic = (Epic) task;
+                Epic old = (Epic) decode(heap.read(address));
+                epic.setName(old.getName());
+                epic.setDescription(old.getDescription());
+                copyAggregates(old, epic);
+                epic.setVersion(old.getVersion());
+                epic.getSubtaskIdList().clear();
+                epic.getSubtaskIdList().addAll(memberIds(reference.id));
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean isInBatch() {
+        return touchedEpics != null;
+    }
+
+    // Количество страниц в пуле — оно ограничено размером пула, а не размером доски
+    public synchronized int getCachedPageCount() {
+        return store.getCachedPageCount();
+    }
+
+    // Количество страниц в файле
+    public synchronized int getPageCount() {
+        return store.getPageCount();
+    }
+
+    // Метод записывает изменённые страницы и закрывает файл
+    @Override
+    public synchronized void close() {
+        store.close();
+    }
+
+
+    private Set<Integer> requireBatch() {
+        if (touchedEpics == null) {
+            throw new IllegalStateException("Пакет изменений не открыт");
+        }
+        return touchedEpics;
+    }
+
+    // После каждого изменения вне пакета изменённые страницы записываются в файл
+    private void persist() {
+        if (touchedEpics == null) {
+            store.flush(false);
+        }
+    }
+
+    private int createId() {
+        int id = store.getHeaderInt(ID_COUNTER) + 1;
+        store.setHeaderInt(ID_COUNTER, id);
+        return id;
+    }
+
+    // Метод возвращает задачу по ID из дерева: объект, на который ещё есть ссылка, или прочитанный из записи
+    private Task load(PagedTree tree, int id) {
+        long address = tree.get(id, 0);
+        if (address == NOT_FOUND) {
+            return null;
+        }
+        Task task = liveObject(id);
+        if (task != null) {
+            return task;
+        }
+        task = decode(heap.read(address));
+        if (task instanceof Epic) {
+            ((Epic) task).getSubtaskIdList().addAll(memberIds(id));
+        }
+        register(task);
+        return task;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Task> ArrayList<T> loadAll(PagedTree tree) {
+        List<Integer> ids = new ArrayList<>();
+        tree.scan(Long.MIN_VALUE, Long.MIN_VALUE, (id, unused, address) -> ids.add((int) id));
+        ArrayList<T> result = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            store.nextEpoch();
+            result.add((T) load(tree, id));
+        }
+        return result;
+    }
+
+    // Метод читает не более limit задач дерева с ID больше afterId
+    @SuppressWarnings("unchecked")
+    private <T extends Task> List<T> loadPage(PagedTree tree, int afterId, int limit) {
+        List<Integer> ids = new ArrayList<>();
+        if (limit > 0) {
+            tree.scan(afterId + 1L, Long.MIN_VALUE, (id, unused, address) -> {
+                ids.add((int) id);
+                return ids.size() < limit;
+            });
+        }
+        List<T> result = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            store.nextEpoch();
+            result.add((T) load(tree, id));
+        }
+        return result;
+    }
+
+    // Метод читает задачи и подзадачи по ключам индекса времени начала
+    private List<Task> loadScheduled(List<Long> keys) {
+        List<Task> result = new ArrayList<>(keys.size());
+        for (long key : keys) {
+            store.nextEpoch();
+            Task task = load((key & SUBTASK_FLAG) != 0 ? subtasks : tasks, idOf(key));
+            if (task != null) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    // Метод удаляет записи всех задач дерева (само дерево очищает вызывающий код)
+    private void dropRecords(PagedTree tree) {
+        List<long[]> entries = new ArrayList<>();
+        tree.scan(Long.MIN_VALUE, Long.MIN_VALUE, (id, unused, address) -> entries.add(new long[]{id, address}));
+        for (long[] entry : entries) {
+            store.nextEpoch();
+            unindexStart(decode(heap.read(entry[1])));
+            heap.delete(entry[1]);
+            forget((int) entry[0]);
+        }
+    }
+
+    // Метод удаляет запись подзадачи, её ключ в индексе времени и в дереве подзадач
+    private void removeSubtaskRecord(int subtaskId) {
+        long address = subtasks.get(subtaskId, 0);
+        if (address == NOT_FOUND) {
+            return;
+        }
+        unindexStart(decode(heap.read(address)));
+        heap.delete(address);
+        subtasks.remove(subtaskId, 0);
+        forget(subtaskId);
+    }
+
+    // ID подзадач эпика в порядке добавления (ID растут, поэтому порядок ключей совпадает с порядком добавления)
+    private List<Integer> memberIds(int epicId) {
+        List<Integer> ids = new ArrayList<>();
+        membership.scan(epicId, Long.MIN_VALUE, (owner, subtaskId, unused) -> {
+            if (owner != epicId) {
+                return false;
+            }
+            ids.add((int) subtaskId);
+            return true;
+        });
+        return ids;
+    }
+
+    // Метод пересчитывает эпик; внутри пакета эпик только запоминается
+    private void recalculateEpic(int epicId) {
+        if (touchedEpics != null) {
+            touchedEpics.add(epicId);
+            return;
+        }
+        recalculateNow(epicId);
+    }
+
+    // Метод рассчитывает статус, время и продолжительность эпика по подзадачам, сохраняет их
+    // и возвращает прочитанный эпик (null, если эпика нет)
+    private Epic recalculateNow(int epicId) {
+        long address = epics.get(epicId, 0);
+        if (address == NOT_FOUND) {
+            return null;
+        }
+        Epic epic = (Epic) decode(heap.read(address));
+        IntObjectMap<Subtask> members = new IntObjectMap<>();
+        for (int subtaskId : memberIds(epicId)) {
+            store.nextEpoch(); // Страницы уже прочитанных подзадач можно вытеснять
+            epic.addSubtask(subtaskId);
+            members.put(subtaskId, (Subtask) decode(heap.read(subtasks.get(subtaskId, 0))));
+        }
+        epic.updateTimeAndDuration(members);
+        epic.setStatus(statusOf(members.values()));
+
+        long newAddress = heap.update(address, encode(epic));
+        if (newAddress != address) {
+            epics.put(epicId, 0, newAddress);
+        }
+        Epic liveEpic = (Epic) liveObject(epicId);
+        if (liveEpic != null) {
+            copyAggregates(epic, liveEpic);
+        }
+        return epic;
+    }
+
+    // Статус эпика по статусам подзадач — по тем же правилам, что и в InMemoryTaskManager
+    private static Status statusOf(Collection<Subtask> members) {
+        if (members.isEmpty()) {
+            return Status.NEW;
+        }
+        boolean allDone = members.stream().allMatch(subtask -> subtask.getStatus() == Status.DONE);
+        boolean anyInProgress = members.stream().anyMatch(subtask -> subtask.getStatus() == Status.IN_PROGRESS);
+        if (allDone) {
+            return Status.DONE;
+        }
+        return anyInProgress ? Status.IN_PROGRESS : Status.NEW;
+    }
+
+    private static void copyAggregates(Epic from, Epic to) {
+        to.setStatus(from.getStatus());
+        to.setDuration(from.getDuration());
+        to.setStartTime(from.getStartTime());
+        to.setEndTime(from.getEndTime());
+    }
+
+
+    // Проверка пересечений по индексу времени начала. Сохранённые задачи не пересекаются между собой,
+    // поэтому достаточно проверить задачи, которые начинаются внутри отрезка, и одну задачу с ненулевой
+    // продолжительностью, которая начинается раньше всех остальных перед ним
+    private boolean overlapsAny(Task task) {
+        if (task.getStartTime() == null || task.getDuration() == null) {
+            return false;
+        }
+        LocalDateTime start = task.getStartTime();
+        LocalDateTime end = task.getEndTime();
+        long startSecond = start.toEpochSecond(ZoneOffset.UTC);
+        long startNanos = (long) start.getNano() << 32;
+        boolean[] found = {false};
+
+        startIndex.scan(startSecond, startNanos, (second, key, duration) -> {
+            LocalDateTime otherStart = LocalDateTime.ofEpochSecond(second, (int) (key >>> 32), ZoneOffset.UTC);
+            if (!otherStart.isBefore(end)) {
+                return false; // Дальше задачи начинаются после конца отрезка
+            }
+            if (idOf(key) != task.getId() && duration != NO_DURATION
+                    && start.isBefore(otherStart.plusNanos(duration))) {
+                found[0] = true;
+                return false;
+            }
+            return true;
+        });
+        if (found[0]) {
+            return true;
+        }
+
+        startIndex.scanDescending(startSecond, startNanos, (second, key, duration) -> {
+            if (idOf(key) == task.getId() || duration == NO_DURATION || duration <= 0) {
+                return true; // Такая задача не может накрывать начало отрезка
+            }
+            LocalDateTime otherStart = LocalDateTime.ofEpochSecond(second, (int) (key >>> 32), ZoneOffset.UTC);
+            found[0] = start.isBefore(otherStart.plusNanos(duration));
+            return false;
+        });
+        return found[0];
+    }
+
+    private void indexStart(Task task) {
+        if (task.getStartTime() != null) {
+            startIndex.put(task.getStartTime().toEpochSecond(ZoneOffset.UTC), startKey(task),
+                    task.getDuration() == null ? NO_DURATION : task.getDuration().toNanos());
+        }
+    }
+
+    private void unindexStart(Task task) {
+        if (task.getStartTime() != null) {
+            startIndex.remove(task.getStartTime().toEpochSecond(ZoneOffset.UTC), startKey(task));
+        }
+    }
+
+    private static long startKey(Task task) {
+        return ((long) task.getStartTime().getNano() << 32) | (task instanceof Subtask ? SUBTASK_FLAG : 0)
+                | task.getId();
+    }
+
+    private static int idOf(long startKey) {
+        return (int) (startKey & (SUBTASK_FLAG - 1));
+    }
+
+
+    // Запись задачи — запись BinaryTaskFormat; у эпика за ней следует рассчитанное время завершения,
+    // а в конце любой записи — версия задачи
+    private byte[] encode(Task task) {
+        try {
+            encoder.writeTask(task);
+            encoder.flush();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка кодирования задачи " + task.getId(), e);
+        }
+        if (task instanceof Epic) {
+            LocalDateTime endTime = task.getEndTime();
+            ByteBuffer suffix = ByteBuffer.allocate(13);
+            if (endTime == null) {
+                suffix.put((byte) 0);
+            } else {
+                suffix.put((byte) 1).putLong(endTime.toEpochSecond(ZoneOffset.UTC)).putInt(endTime.getNano());
+            }
+            suffix.flip();
+            sink.write(suffix);
+        }
+        sink.write(ByteBuffer.allocate(8).putLong(0, task.getVersion()));
+        return sink.take();
+    }
+
+    private Task decode(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        Task task;
+        try {
+            task = new BinaryTaskFormat.Decoder(buffer, null).readTask();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Повреждённая запись задачи", e);
+        }
+        if (task instanceof Epic && buffer.get() == 1) {
+            ((Epic) task).setEndTime(LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC));
+        }
+        if (buffer.remaining() >= 8) { // В записях из файлов до появления версий её нет — такие задачи версии 0
+            task.setVersion(buffer.getLong());
+        }
+        return task;
+    }
+
+
+    private Task liveObject(int id) {
+        LiveReference reference = live.get(id);
+        return reference == null ? null : reference.get();
+    }
+
+    private void register(Task task) {
+        Reference<? extends Task> reference = collected.poll();
+        while (reference != null) { // Убираем записи об объектах, которые уже собрал сборщик мусора
+            LiveReference dead = (LiveReference) reference;
+            live.remove(dead.id, dead);
+            reference = collected.poll();
+        }
+        live.put(task.getId(), new LiveReference(task, collected));
+    }
+
+    private void forget(int id) {
+        live.remove(id);
+    }
+
+    // Слабая ссылка на объект задачи, который ещё может использовать вызывающий код
+    private static class LiveReference extends WeakReference<Task> {
+        private final int id;
+
+        private LiveReference(Task task, ReferenceQueue<Task> queue) {
+            super(task, queue);
+            this.id = task.getId();
+        }
+    }
+
+    // Приёмник байтов кодировщика: собирает одну запись
+    private static class RecordSink implements WritableByteChannel {
+        private byte[] bytes = new byte[256];
+        private int length;
+
+        @Override
+        public int write(ByteBuffer source) {
+            int count = source.remaining();
+            if (length + count > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + count));
+            }
+            source.get(bytes, length, count);
+            length += count;
+            return count;
+        }
+
+        // Метод возвращает собранную запись и очищает приёмник
+        private byte[] take() {
+            byte[] record = Arrays.copyOf(bytes, length);
+            length = 0;
+            return record;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
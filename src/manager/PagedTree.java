@@ -0,0 +1,302 @@
+package manager;
+
+import java.nio.ByteBuffer;
+
+// Это B+дерево на страницах PageStore. Ключ — пара чисел (k1, k2), которые сравниваются по порядку,
+// значение — число. Листья связаны в двусвязный список, поэтому диапазоны читаются в обе стороны
+// без возврата к корню. При удалении узлы не сливаются: опустевшие листья остаются в списке
+// и переиспользуются следующими вставками в тот же диапазон ключей.
+// Ссылки на страницы не переживают вызов метода, а посетитель обхода не должен менять само дерево
+class PagedTree {
+    static final long NOT_FOUND = Long.MIN_VALUE; // Значение get() для отсутствующего ключа
+
+    private static final byte LEAF = 1;
+    private static final byte INTERNAL = 2;
+    private static final int TYPE = 0; // Тип узла
+    private static final int COUNT = 4; // Количество записей (во внутреннем узле — разделителей)
+    private static final int NEXT = 8; // Лист: следующий лист; внутренний узел: самый левый потомок
+    private static final int PREV = 12; // Лист: предыдущий лист
+    private static final int ENTRIES = 16; // Начало записей
+    private static final int ENTRY_SIZE = 24; // k1, k2 и значение (во внутреннем узле — правый потомок)
+    static final int CAPACITY = (PageStore.PAGE_SIZE - ENTRIES) / ENTRY_SIZE; // Записей в узле
+
+    private final PageStore store;
+    private final int rootOffset; // Смещение поля заголовка с номером корневой страницы
+
+    // Посетитель записей при обходе; возвращает false, чтобы остановить обход
+    interface Visitor {
+        boolean visit(long k1, long k2, long value);
+    }
+
+    PagedTree(PageStore store, int rootOffset) {
+        this.store = store;
+        this.rootOffset = rootOffset;
+        if (store.getHeaderInt(rootOffset) == 0) { // Новое дерево — создаём пустой корневой лист
+            store.setHeaderInt(rootOffset, newNode(LEAF));
+        }
+    }
+
+    // Метод возвращает значение по ключу или NOT_FOUND
+    long get(long k1, long k2) {
+        PageStore.Page leaf = findLeaf(k1, k2);
+        int count = leaf.data.getInt(COUNT);
+        int index = lowerBound(leaf, count, k1, k2);
+        if (index < count && compareAt(leaf, index, k1, k2) == 0) {
+            return valueAt(leaf, index);
+        }
+        return NOT_FOUND;
+    }
+
+    // Метод добавляет запись или заменяет значение существующей
+    void put(long k1, long k2, long value) {
+        int root = store.getHeaderInt(rootOffset);
+        long[] split = insert(root, k1, k2, value);
+        if (split != null) { // Корень разделился — дерево растёт на уровень вверх
+            int newRoot = newNode(INTERNAL);
+            PageStore.Page page = store.page(newRoot);
+            page.data.putInt(NEXT, root);
+            setEntry(page, 0, split[0], split[1], split[2]);
+            page.data.putInt(COUNT, 1);
+            store.setHeaderInt(rootOffset, newRoot);
+        }
+    }
+
+    // Метод удаляет запись и возвращает true, если она была
+    boolean remove(long k1, long k2) {
+        PageStore.Page leaf = findLeaf(k1, k2);
+        int count = leaf.data.getInt(COUNT);
+        int index = lowerBound(leaf, count, k1, k2);
+        if (index == count || compareAt(leaf, index, k1, k2) != 0) {
+            return false;
+        }
+        store.markDirty(leaf);
+        System.arraycopy(leaf.bytes, offset(index + 1), leaf.bytes, offset(index), (count - index - 1) * ENTRY_SIZE);
+        leaf.data.putInt(COUNT, count - 1);
+        return true;
+    }
+
+    // Метод обходит записи с ключом не меньше (k1, k2) по возрастанию
+    void scan(long k1, long k2, Visitor visitor) {
+        PageStore.Page leaf = findLeaf(k1, k2);
+        int index = lowerBound(leaf, leaf.data.getInt(COUNT), k1, k2);
+        while (true) {
+            int count = leaf.data.getInt(COUNT);
+            for (; index < count; index++) {
+                if (!visitor.visit(keyAt(leaf, index, 0), keyAt(leaf, index, 8), valueAt(leaf, index))) {
+                    return;
+                }
+            }
+            int next = leaf.data.getInt(NEXT);
+            if (next == 0) {
+                return;
+            }
+            store.nextEpoch(); // Прочитанные листья больше не нужны — их можно вытеснять
+            leaf = store.page(next);
+            index = 0;
+        }
+    }
+
+    // Метод обходит записи с ключом меньше (k1, k2) по убыванию
+    void scanDescending(long k1, long k2, Visitor visitor) {
+        PageStore.Page leaf = findLeaf(k1, k2);
+        int index = lowerBound(leaf, leaf.data.getInt(COUNT), k1, k2) - 1;
+        while (true) {
+            for (; index >= 0; index--) {
+                if (!visitor.visit(keyAt(leaf, index, 0), keyAt(leaf, index, 8), valueAt(leaf, index))) {
+                    return;
+                }
+            }
+            int prev = leaf.data.getInt(PREV);
+            if (prev == 0) {
+                return;
+            }
+            store.nextEpoch();
+            leaf = store.page(prev);
+            index = leaf.data.getInt(COUNT) - 1;
+        }
+    }
+
+    // Метод удаляет все записи и возвращает страницы дерева в список свободных
+    void clear() {
+        freeSubtree(store.getHeaderInt(rootOffset));
+        store.setHeaderInt(rootOffset, newNode(LEAF));
+    }
+
+
+    // Метод спускается от корня к листу, в котором должен лежать ключ
+    private PageStore.Page findLeaf(long k1, long k2) {
+        PageStore.Page page = store.page(store.getHeaderInt(rootOffset));
+        while (page.data.get(TYPE) == INTERNAL) {
+            page = store.page(childAt(page, upperBound(page, page.data.getInt(COUNT), k1, k2)));
+        }
+        return page;
+    }
+
+    // Метод вставляет запись в поддерево. Если узел разделился, возвращает {k1, k2, правый узел}
+    // для вставки разделителя в родителя, иначе null
+    private long[] insert(int pageId, long k1, long k2, long value) {
+        PageStore.Page page = store.page(pageId);
+        int count = page.data.getInt(COUNT);
+        if (page.data.get(TYPE) == LEAF) {
+            int index = lowerBound(page, count, k1, k2);
+            store.markDirty(page);
+            if (index < count && compareAt(page, index, k1, k2) == 0) {
+                page.data.putLong(offset(index) + 16, value); // Ключ уже есть — заменяем значение
+                return null;
+            }
+            if (count < CAPACITY) {
+                System.arraycopy(page.bytes, offset(index), page.bytes, offset(index + 1), (count - index) * ENTRY_SIZE);
+                setEntry(page, index, k1, k2, value);
+                page.data.putInt(COUNT, count + 1);
+                return null;
+            }
+            return splitLeaf(page, index, k1, k2, value);
+        }
+
+        int childIndex = upperBound(page, count, k1, k2);
+        long[] split = insert(childAt(page, childIndex), k1, k2, value);
+        if (split == null) {
+            return null;
+        }
+        store.markDirty(page);
+        if (count < CAPACITY) { // Разделитель помещается в узел: он встаёт перед записью с номером childIndex
+            System.arraycopy(page.bytes, offset(childIndex), page.bytes, offset(childIndex + 1),
+                    (count - childIndex) * ENTRY_SIZE);
+            setEntry(page, childIndex, split[0], split[1], split[2]);
+            page.data.putInt(COUNT, count + 1);
+            return null;
+        }
+        return splitInternal(page, childIndex, split);
+    }
+
+    // Метод делит переполненный лист пополам и вставляет запись в нужную половину
+    private long[] splitLeaf(PageStore.Page left, int index, long k1, long k2, long value) {
+        int total = CAPACITY + 1;
+        byte[] entries = new byte[total * ENTRY_SIZE]; // Все записи вместе с новой, по порядку
+        System.arraycopy(left.bytes, ENTRIES, entries, 0, index * ENTRY_SIZE);
+        System.arraycopy(left.bytes, offset(index), entries, (index + 1) * ENTRY_SIZE, (CAPACITY - index) * ENTRY_SIZE);
+        ByteBuffer.wrap(entries).putLong(index * ENTRY_SIZE, k1)
+                .putLong(index * ENTRY_SIZE + 8, k2).putLong(index * ENTRY_SIZE + 16, value);
+
+        int rightId = newNode(LEAF);
+        PageStore.Page right = store.page(rightId);
+        int middle = total / 2;
+        System.arraycopy(entries, 0, left.bytes, ENTRIES, middle * ENTRY_SIZE);
+        left.data.putInt(COUNT, middle);
+        System.arraycopy(entries, middle * ENTRY_SIZE, right.bytes, ENTRIES, (total - middle) * ENTRY_SIZE);
+        right.data.putInt(COUNT, total - middle);
+
+        int next = left.data.getInt(NEXT);
+        right.data.putInt(NEXT, next);
+        right.data.putInt(PREV, left.id);
+        left.data.putInt(NEXT, rightId);
+        if (next != 0) {
+            PageStore.Page nextPage = store.page(next);
+            store.markDirty(nextPage);
+            nextPage.data.putInt(PREV, rightId);
+        }
+        return new long[]{keyAt(right, 0, 0), keyAt(right, 0, 8), rightId};
+    }
+
+    // Метод делит переполненный внутренний узел: средний разделитель уходит в родителя
+    private long[] splitInternal(PageStore.Page left, int index, long[] split) {
+        int total = CAPACITY + 1;
+        byte[] entries = new byte[total * ENTRY_SIZE];
+        System.arraycopy(left.bytes, ENTRIES, entries, 0, index * ENTRY_SIZE);
+        System.arraycopy(left.bytes, offset(index), entries, (index + 1) * ENTRY_SIZE, (CAPACITY - index) * ENTRY_SIZE);
+        ByteBuffer.wrap(entries).putLong(index * ENTRY_SIZE, split[0])
+                .putLong(index * ENTRY_SIZE + 8, split[1]).putLong(index * ENTRY_SIZE + 16, split[2]);
+
+        int rightId = newNode(INTERNAL);
+        PageStore.Page right = store.page(rightId);
+        int middle = total / 2;
+        ByteBuffer middleEntry = ByteBuffer.wrap(entries, middle * ENTRY_SIZE, ENTRY_SIZE).slice();
+        long[] up = {middleEntry.getLong(0), middleEntry.getLong(8), rightId};
+
+        System.arraycopy(entries, 0, left.bytes, ENTRIES, middle * ENTRY_SIZE);
+        left.data.putInt(COUNT, middle);
+        right.data.putInt(NEXT, (int) middleEntry.getLong(16)); // Правый потомок среднего разделителя — самый левый
+        System.arraycopy(entries, (middle + 1) * ENTRY_SIZE, right.bytes, ENTRIES, (total - middle - 1) * ENTRY_SIZE);
+        right.data.putInt(COUNT, total - middle - 1);
+        return up;
+    }
+
+    private void freeSubtree(int pageId) {
+        PageStore.Page page = store.page(pageId);
+        if (page.data.get(TYPE) == INTERNAL) {
+            int count = page.data.getInt(COUNT);
+            int[] children = new int[count + 1];
+            for (int i = 0; i <= count; i++) {
+                children[i] = childAt(page, i);
+            }
+            for (int child : children) {
+                store.nextEpoch();
+                freeSubtree(child);
+            }
+        }
+        store.free(pageId);
+    }
+
+    private int newNode(byte type) {
+        int id = store.allocate();
+        PageStore.Page page = store.page(id);
+        page.data.put(TYPE, type);
+        return id;
+    }
+
+    // Первая запись с ключом не меньше заданного
+    private static int lowerBound(PageStore.Page page, int count, long k1, long k2) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareAt(page, middle, k1, k2) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Первый разделитель больше заданного ключа — он же номер потомка, в котором лежит ключ
+    private static int upperBound(PageStore.Page page, int count, long k1, long k2) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareAt(page, middle, k1, k2) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int compareAt(PageStore.Page page, int index, long k1, long k2) {
+        int result = Long.compare(keyAt(page, index, 0), k1);
+        return result != 0 ? result : Long.compare(keyAt(page, index, 8), k2);
+    }
+
+    private static long keyAt(PageStore.Page page, int index, int part) {
+        return page.data.getLong(offset(index) + part);
+    }
+
+    private static long valueAt(PageStore.Page page, int index) {
+        return page.data.getLong(offset(index) + 16);
+    }
+
+    // Потомок внутреннего узла: 0 — самый левый, i — правый потомок разделителя i - 1
+    private static int childAt(PageStore.Page page, int index) {
+        return index == 0 ? page.data.getInt(NEXT) : (int) valueAt(page, index - 1);
+    }
+
+    private static void setEntry(PageStore.Page page, int index, long k1, long k2, long value) {
+        page.data.putLong(offset(index), k1).putLong(offset(index) + 8, k2).putLong(offset(index) + 16, value);
+    }
+
+    private static int offset(int index) {
+        return ENTRIES + index * ENTRY_SIZE;
+    }
+}
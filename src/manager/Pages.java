@@ -0,0 +1,61 @@
+package manager;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Это вспомогательные методы для постраничного чтения: первые элементы представления и ленивый поток,
+// который подгружает следующую страницу, только когда обход дошёл до конца предыдущей
+final class Pages {
+    static final int STREAM_PAGE_SIZE = 256; // Размер страницы, которой потоки читают менеджер
+
+    private Pages() {
+    }
+
+    // Метод копирует не более limit первых элементов представления
+    static <T> List<T> first(Iterable<? extends T> source, int limit) {
+        List<T> result = new ArrayList<>();
+        Iterator<? extends T> iterator = source.iterator();
+        while (result.size() < limit && iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    // Метод возвращает поток, который читает элементы страницами. nextPage получает последний прочитанный
+    // элемент (null — для первой страницы) и возвращает следующую страницу; пустая страница завершает поток
+    static <T> Stream<T> stream(Function<T, List<T>> nextPage) {
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            private List<T> page = List.of();
+            private int position;
+            private T last;
+            private boolean finished;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (position == page.size()) {
+                    if (finished) {
+                        return false;
+                    }
+                    page = nextPage.apply(last);
+                    position = 0;
+                    if (page.isEmpty()) {
+                        finished = true;
+                        return false;
+                    }
+                }
+                last = page.get(position++);
+                action.accept(last);
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+}
@@ -0,0 +1,253 @@
+package manager;
+
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+// Это неизменяемая упорядоченная таблица (декартово дерево). Изменение не трогает текущую таблицу,
+// а возвращает новую: копируются только O(log n) узлов на пути от корня, остальные узлы общие
+// у старой и новой версии. Поэтому старую версию можно читать из других потоков без блокировок,
+// пока новая строится. Приоритет узла выводится из хеша ключа, так что форма дерева не зависит
+// от порядка вставки и в среднем глубина дерева O(log n)
+public final class PersistentTreeMap<K extends Comparable<K>, V> {
+    private static final PersistentTreeMap<?, ?> EMPTY = new PersistentTreeMap<>(null);
+
+    private final Node<K, V> root;
+
+    private static final class Node<K, V> {
+        private final K key;
+        private final V value;
+        private final int priority;
+        private final Node<K, V> left;
+        private final Node<K, V> right;
+        private final int size;
+
+        private Node(K key, V value, int priority, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + size(left) + size(right);
+        }
+
+        private Node<K, V> with(Node<K, V> left, Node<K, V> right) {
+            return new Node<>(key, value, priority, left, right);
+        }
+    }
+
+    private PersistentTreeMap(Node<K, V> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<K>, V> PersistentTreeMap<K, V> empty() {
+        return (PersistentTreeMap<K, V>) EMPTY;
+    }
+
+    public V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int result = key.compareTo(node.key);
+            if (result == 0) {
+                return node.value;
+            }
+            node = result < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    // Новая версия таблицы, в которой по ключу лежит value (значение null не допускается)
+    public PersistentTreeMap<K, V> put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Значение не может быть null");
+        }
+        return new PersistentTreeMap<>(put(root, key, value, priority(key)));
+    }
+
+    // Новая версия таблицы без ключа (или эта же таблица, если ключа нет)
+    public PersistentTreeMap<K, V> remove(K key) {
+        Node<K, V> updated = remove(root, key);
+        return updated == root ? this : new PersistentTreeMap<>(updated);
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    // Значения по возрастанию ключей в виде представления этой версии
+    public Collection<V> values() {
+        return between(null, null);
+    }
+
+    // Значения с ключами из промежутка [from, to) по возрастанию ключей; null — граница не задана
+    public Collection<V> between(K from, K to) {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new Ascending(from, to);
+            }
+
+            @Override
+            public int size() {
+                if (from == null && to == null) {
+                    return PersistentTreeMap.this.size();
+                }
+                int below = to == null ? PersistentTreeMap.this.size() : countBelow(to);
+                return below - (from == null ? 0 : countBelow(from));
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return !iterator().hasNext();
+            }
+        };
+    }
+
+    // Метод обходит значения с ключами меньше key по убыванию ключей, пока visitor возвращает true
+    public void forEachBefore(K key, Predicate<V> visitor) {
+        Deque<Node<K, V>> path = new ArrayDeque<>();
+        Node<K, V> node = root;
+        while (node != null) {
+            if (node.key.compareTo(key) < 0) {
+                path.push(node);
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        while (!path.isEmpty()) {
+            Node<K, V> current = path.pop();
+            if (!visitor.test(current.value)) {
+                return;
+            }
+            for (Node<K, V> next = current.left; next != null; next = next.right) {
+                path.push(next);
+            }
+        }
+    }
+
+    // Количество ключей меньше key
+    private int countBelow(K key) {
+        int count = 0;
+        Node<K, V> node = root;
+        while (node != null) {
+            if (node.key.compareTo(key) < 0) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    private static <K extends Comparable<K>, V> Node<K, V> put(Node<K, V> node, K key, V value, int priority) {
+        if (node == null) {
+            return new Node<>(key, value, priority, null, null);
+        }
+        int result = key.compareTo(node.key);
+        if (result == 0) {
+            return new Node<>(key, value, node.priority, node.left, node.right);
+        }
+        if (result < 0) {
+            Node<K, V> left = put(node.left, key, value, priority);
+            if (left.priority > node.priority) { // Поворот вправо: новый узел поднимается выше
+                return left.with(left.left, node.with(left.right, node.right));
+            }
+            return node.with(left, node.right);
+        }
+        Node<K, V> right = put(node.right, key, value, priority);
+        if (right.priority > node.priority) { // Поворот влево
+            return right.with(node.with(node.left, right.left), right.right);
+        }
+        return node.with(node.left, right);
+    }
+
+    private static <K extends Comparable<K>, V> Node<K, V> remove(Node<K, V> node, K key) {
+        if (node == null) {
+            return null;
+        }
+        int result = key.compareTo(node.key);
+        if (result == 0) {
+            return merge(node.left, node.right);
+        }
+        if (result < 0) {
+            Node<K, V> left = remove(node.left, key);
+            return left == node.left ? node : node.with(left, node.right);
+        }
+        Node<K, V> right = remove(node.right, key);
+        return right == node.right ? node : node.with(node.left, right);
+    }
+
+    // Слияние двух деревьев, все ключи левого меньше ключей правого
+    private static <K, V> Node<K, V> merge(Node<K, V> left, Node<K, V> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            return left.with(left.left, merge(left.right, right));
+        }
+        return right.with(merge(left, right.left), right.right);
+    }
+
+    private static int size(Node<?, ?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int priority(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 15);
+    }
+
+    // Обход по возрастанию ключей в промежутке [from, to) со стеком пути вместо ссылок на родителя
+    private final class Ascending implements Iterator<V> {
+        private final Deque<Node<K, V>> path = new ArrayDeque<>();
+        private final K to;
+
+        private Ascending(K from, K to) {
+            this.to = to;
+            Node<K, V> node = root;
+            while (node != null) {
+                if (from == null || node.key.compareTo(from) >= 0) {
+                    path.push(node);
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !path.isEmpty() && (to == null || path.peek().key.compareTo(to) < 0);
+        }
+
+        @Override
+        public V next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> current = path.pop();
+            for (Node<K, V> next = current.right; next != null; next = next.left) {
+                path.push(next);
+            }
+            return current.value;
+        }
+    }
+}
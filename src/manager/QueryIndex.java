@@ -0,0 +1,101 @@
+package manager;
+
+import entity.Status;
+import entity.Task;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+// Это вторичный индекс задач для запросов TaskQuery. Задачи разложены по корзинам (тип, статус);
+// в каждой корзине есть таблица ID → задача и расписание по времени начала. Запрос выбирает только
+// подходящие корзины (их не больше 9), поэтому ответ строится за время, пропорциональное размеру результата,
+// а не всей доски. Корзина задачи запоминается при добавлении, поэтому задачу можно переложить или удалить
+// по ID, даже если её статус или время уже изменили снаружи
+public class QueryIndex {
+    private static final int STATUS_COUNT = Status.values().length;
+
+    private final Bucket[] buckets = new Bucket[TaskType.values().length * STATUS_COUNT];
+    private final IntObjectMap<Bucket> bucketById = new IntObjectMap<>(); // Корзина, в которой лежит задача
+
+    // Задачи одного типа с одним статусом
+    private static final class Bucket {
+        private final OrderedIntObjectMap<Task> byId = new OrderedIntObjectMap<>();
+        private final ScheduleIndex byStart = new ScheduleIndex(); // Только задачи с временем начала
+    }
+
+    // Метод добавляет задачу в индекс или перекладывает её, если у задачи изменились тип, статус или время начала
+    public void put(Task task) {
+        Bucket target = bucket(task.getType(), task.getStatus());
+        Bucket current = bucketById.get(task.getId());
+        if (current == target && current.byId.get(task.getId()) == task
+                && Objects.equals(current.byStart.startTimeOf(task.getId()), task.getStartTime())) {
+            return; // Задача уже лежит там, где нужно
+        }
+        if (current != null) {
+            current.byId.remove(task.getId());
+            current.byStart.remove(task.getId());
+        }
+        target.byId.put(task.getId(), task);
+        target.byStart.add(task);
+        bucketById.put(task.getId(), target);
+    }
+
+    // Метод удаляет задачу по ID и возвращает true, если она была в индексе
+    public boolean remove(int id) {
+        Bucket current = bucketById.remove(id);
+        if (current == null) {
+            return false;
+        }
+        current.byId.remove(id);
+        current.byStart.remove(id);
+        return true;
+    }
+
+    public int size() {
+        return bucketById.size();
+    }
+
+    public void clear() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = null;
+        }
+        bucketById.clear();
+    }
+
+    // Метод выбирает задачи по запросу. Результат упорядочен так, как описано в TaskQuery.resultOrder().
+    // С окном времени корзины читаются по расписанию, без окна в порядке ID — по возрастанию ID: такие источники
+    // уже упорядочены и сливаются лениво до limit. Порядок по времени начала без окна требует сортировки
+    public List<Task> find(TaskQuery query) {
+        List<Collection<Task>> sources = new ArrayList<>();
+        for (TaskType type : TaskType.values()) {
+            if (!query.includes(type)) {
+                continue;
+            }
+            for (Status status : Status.values()) {
+                Bucket bucket = buckets[type.ordinal() * STATUS_COUNT + status.ordinal()];
+                if (bucket == null || !query.includes(status)) {
+                    continue;
+                }
+                if (query.hasTimeWindow()) {
+                    sources.add(bucket.byStart.between(query.getStartFrom(), query.getStartTo()));
+                } else {
+                    sources.add(bucket.byId.ascendingValues());
+                }
+            }
+        }
+        if (query.hasTimeWindow() || !query.isOrderedByStartTime()) {
+            return QueryPipeline.merge(query, sources);
+        }
+        return QueryPipeline.select(query, sources);
+    }
+
+    private Bucket bucket(TaskType type, Status status) {
+        int index = type.ordinal() * STATUS_COUNT + status.ordinal();
+        if (buckets[index] == null) {
+            buckets[index] = new Bucket();
+        }
+        return buckets[index];
+    }
+}
@@ -0,0 +1,136 @@
+package manager;
+
+import entity.Task;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+// Это выполнение запросов TaskQuery над источниками менеджера (корзинами индекса, списками подзадач эпиков,
+// хранилищами). Источники, которые уже идут в порядке результата, сливаются лениво: обход останавливается,
+// как только набрано limit задач. Источники без нужного порядка фильтруются целиком, а из подходящих задач
+// держатся только limit лучших. Если запрос параллельный, а перебирать нужно много задач, фильтр и сортировка
+// выполняются параллельным потоком в пуле запроса
+final class QueryPipeline {
+    static final int PARALLEL_THRESHOLD = 16_384; // С меньшим перебором разбиение на части не окупается
+
+    private QueryPipeline() {
+    }
+
+    // Метод сливает источники, каждый из которых упорядочен так же, как TaskQuery.resultOrder()
+    static List<Task> merge(TaskQuery query, List<? extends Collection<? extends Task>> sources) {
+        if (query.isParallel() && query.getLimit() == TaskQuery.NO_LIMIT && total(sources) >= PARALLEL_THRESHOLD) {
+            return select(query, sources); // Без limit ленивое слияние ничего не экономит — читать придётся всё
+        }
+        Comparator<Task> order = query.resultOrder();
+        PriorityQueue<Cursor> heads = new PriorityQueue<>((a, b) -> order.compare(a.head, b.head));
+        for (Collection<? extends Task> source : sources) {
+            Cursor cursor = new Cursor(source.iterator());
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        List<Task> result = new ArrayList<>();
+        while (result.size() < query.getLimit() && !heads.isEmpty()) {
+            Cursor cursor = heads.poll();
+            if (query.matches(cursor.head)) {
+                result.add(cursor.head);
+            }
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        return result;
+    }
+
+    // Метод выбирает задачи из источников без нужного порядка и упорядочивает результат
+    static List<Task> select(TaskQuery query, List<? extends Collection<? extends Task>> sources) {
+        Comparator<Task> order = query.resultOrder();
+        int limit = query.getLimit();
+        if (query.isParallel() && total(sources) >= PARALLEL_THRESHOLD) {
+            List<Task> candidates = new ArrayList<>(total(sources));
+            for (Collection<? extends Task> source : sources) {
+                candidates.addAll(source);
+            }
+            // Параллельный поток выполняется в пуле, из которого он запущен
+            return query.getPool().submit(() -> candidates.parallelStream()
+                    .filter(query::matches)
+                    .sorted(order)
+                    .limit(limit)
+                    .collect(Collectors.toCollection(ArrayList::new))).join();
+        }
+        if (limit >= total(sources)) { // Ограничение ничего не отсекает — достаточно отфильтровать и отсортировать
+            List<Task> result = new ArrayList<>();
+            for (Collection<? extends Task> source : sources) {
+                for (Task task : source) {
+                    if (query.matches(task)) {
+                        result.add(task);
+                    }
+                }
+            }
+            result.sort(order);
+            return result;
+        }
+        if (limit == 0) {
+            return new ArrayList<>();
+        }
+        // Куча из не более limit лучших задач: на вершине — худшая из них, её и вытесняем
+        PriorityQueue<Task> best = new PriorityQueue<>(order.reversed());
+        for (Collection<? extends Task> source : sources) {
+            for (Task task : source) {
+                if (!query.matches(task)) {
+                    continue;
+                }
+                if (best.size() < limit) {
+                    best.add(task);
+                } else if (order.compare(task, best.peek()) < 0) {
+                    best.poll();
+                    best.add(task);
+                }
+            }
+        }
+        List<Task> result = new ArrayList<>(best);
+        result.sort(order);
+        return result;
+    }
+
+    // Метод возвращает списки подзадач эпиков из запроса subtasksOf() как источники для select()
+    static List<List<? extends Task>> fromEpics(TaskQuery query, IntFunction<? extends List<? extends Task>> subtasksOf) {
+        List<List<? extends Task>> sources = new ArrayList<>();
+        for (int epicId : query.getEpicIds()) {
+            sources.add(subtasksOf.apply(epicId));
+        }
+        return sources;
+    }
+
+    private static int total(List<? extends Collection<? extends Task>> sources) {
+        long total = 0;
+        for (Collection<? extends Task> source : sources) {
+            total += source.size();
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    // Текущая задача одного источника при слиянии
+    private static final class Cursor {
+        private final Iterator<? extends Task> iterator;
+        private Task head;
+
+        private Cursor(Iterator<? extends Task> iterator) {
+            this.iterator = iterator;
+        }
+
+        private boolean advance() {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            head = iterator.next();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package manager;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+
+// Это хранилище записей переменной длины на страницах PageStore. Страница записей устроена как
+// страница со слотами: в начале — каталог слотов (смещение и длина записи), а сами записи растут
+// от конца страницы к началу. Адрес записи — номер страницы и номер слота; он не меняется, пока
+// запись помещается на свою страницу. Длинные записи выносятся в цепочку страниц переполнения
+class RecordHeap {
+    private static final byte HEAP_PAGE = 3;
+    private static final int TYPE = 0;
+    private static final int SLOT_COUNT = 4; // Количество слотов в каталоге
+    private static final int DATA_START = 8; // Начало области записей
+    private static final int GARBAGE = 12; // Байты удалённых записей, которые освободит уплотнение страницы
+    private static final int SLOTS = 16; // Начало каталога слотов
+    private static final int SLOT_SIZE = 4; // Смещение и длина записи по два байта (смещение 0 — слот свободен)
+    private static final int MAX_INLINE = PageStore.PAGE_SIZE / 4; // Более длинные записи уходят в переполнение
+
+    private static final byte INLINE = 0; // Первый байт записи в слоте: запись лежит в слоте целиком
+    private static final byte OVERFLOW = 1; // Запись лежит в цепочке страниц переполнения
+    private static final int OVERFLOW_NEXT = 0; // Страница переполнения: следующая страница цепочки
+    private static final int OVERFLOW_LENGTH = 4; // Количество байт записи на странице
+    private static final int OVERFLOW_DATA = 8;
+    private static final int OVERFLOW_CAPACITY = PageStore.PAGE_SIZE - OVERFLOW_DATA;
+
+    private final PageStore store;
+    private final int insertPageOffset; // Поле заголовка со страницей, в которую сейчас добавляются записи
+    // Страницы, на которых после удалений освободилось много места. Список живёт только в памяти:
+    // после переоткрытия файла такие страницы заполняются снова, когда на них удаляют или меняют записи
+    private final ArrayDeque<Integer> pagesWithSpace = new ArrayDeque<>();
+    private final Set<Integer> pagesWithSpaceSet = new HashSet<>();
+
+    RecordHeap(PageStore store, int insertPageOffset) {
+        this.store = store;
+        this.insertPageOffset = insertPageOffset;
+    }
+
+    // Метод сохраняет запись и возвращает её адрес
+    long insert(byte[] record) {
+        return insertStored(toStored(record));
+    }
+
+    private long insertStored(byte[] stored) {
+        int pageId = store.getHeaderInt(insertPageOffset);
+        if (pageId == 0 || !fits(store.page(pageId), stored.length)) {
+            pageId = 0;
+            while (!pagesWithSpace.isEmpty()) {
+                int candidate = pagesWithSpace.poll();
+                pagesWithSpaceSet.remove(candidate);
+                if (fits(store.page(candidate), stored.length)) {
+                    pageId = candidate;
+                    break;
+                }
+            }
+            if (pageId == 0) {
+                pageId = store.allocate();
+                PageStore.Page page = store.page(pageId);
+                page.data.put(TYPE, HEAP_PAGE);
+                page.data.putInt(DATA_START, PageStore.PAGE_SIZE);
+            }
+            store.setHeaderInt(insertPageOffset, pageId);
+        }
+        return ((long) pageId << 16) | place(store.page(pageId), stored);
+    }
+
+    // Метод читает запись по адресу
+    byte[] read(long address) {
+        PageStore.Page page = store.page(pageOf(address));
+        int slot = SLOTS + slotOf(address) * SLOT_SIZE;
+        int offset = Short.toUnsignedInt(page.data.getShort(slot));
+        int length = Short.toUnsignedInt(page.data.getShort(slot + 2));
+        if (page.bytes[offset] == INLINE) {
+            byte[] record = new byte[length - 1];
+            System.arraycopy(page.bytes, offset + 1, record, 0, record.length);
+            return record;
+        }
+        int next = page.data.getInt(offset + 1);
+        byte[] record = new byte[page.data.getInt(offset + 5)];
+        int position = 0;
+        while (next != 0) {
+            PageStore.Page overflow = store.page(next);
+            int chunk = overflow.data.getInt(OVERFLOW_LENGTH);
+            System.arraycopy(overflow.bytes, OVERFLOW_DATA, record, position, chunk);
+            position += chunk;
+            next = overflow.data.getInt(OVERFLOW_NEXT);
+        }
+        return record;
+    }
+
+    // Метод заменяет запись и возвращает её адрес: прежний, если новая запись поместилась на ту же страницу
+    long update(long address, byte[] record) {
+        byte[] stored = toStored(record);
+        PageStore.Page page = store.page(pageOf(address));
+        int slot = SLOTS + slotOf(address) * SLOT_SIZE;
+        int offset = Short.toUnsignedInt(page.data.getShort(slot));
+        int length = Short.toUnsignedInt(page.data.getShort(slot + 2));
+        freeOverflow(page, offset);
+        store.markDirty(page);
+        if (stored.length <= length) { // Новая запись не длиннее старой — пишем на её место
+            System.arraycopy(stored, 0, page.bytes, offset, stored.length);
+            page.data.putShort(slot + 2, (short) stored.length);
+            page.data.putInt(GARBAGE, page.data.getInt(GARBAGE) + length - stored.length);
+            return address;
+        }
+        page.data.putShort(slot, (short) 0); // Освобождаем слот, чтобы запись могла занять место на этой же странице
+        page.data.putInt(GARBAGE, page.data.getInt(GARBAGE) + length);
+        if (fits(page, stored.length)) {
+            return ((long) page.id << 16) | place(page, stored);
+        }
+        rememberSpace(page);
+        return insertStored(stored);
+    }
+
+    // Метод удаляет запись
+    void delete(long address) {
+        PageStore.Page page = store.page(pageOf(address));
+        int slot = SLOTS + slotOf(address) * SLOT_SIZE;
+        int offset = Short.toUnsignedInt(page.data.getShort(slot));
+        int length = Short.toUnsignedInt(page.data.getShort(slot + 2));
+        freeOverflow(page, offset);
+        store.markDirty(page);
+        page.data.putShort(slot, (short) 0);
+        page.data.putInt(GARBAGE, page.data.getInt(GARBAGE) + length);
+        rememberSpace(page);
+    }
+
+    // Метод забывает страницы со свободным местом (например, после отката пакета, когда они могли измениться)
+    void resetHints() {
+        pagesWithSpace.clear();
+        pagesWithSpaceSet.clear();
+    }
+
+
+    // Запись в слоте: признак и сама запись, либо признак, первая страница переполнения и длина
+    private byte[] toStored(byte[] record) {
+        if (record.length + 1 <= MAX_INLINE) {
+            byte[] stored = new byte[record.length + 1];
+            stored[0] = INLINE;
+            System.arraycopy(record, 0, stored, 1, record.length);
+            return stored;
+        }
+        int chunks = (record.length + OVERFLOW_CAPACITY - 1) / OVERFLOW_CAPACITY;
+        int first = 0;
+        for (int chunk = chunks - 1; chunk >= 0; chunk--) { // Цепочку строим с конца, чтобы сразу знать следующую
+            int start = chunk * OVERFLOW_CAPACITY;
+            int length = Math.min(OVERFLOW_CAPACITY, record.length - start);
+            int pageId = store.allocate();
+            PageStore.Page page = store.page(pageId);
+            page.data.putInt(OVERFLOW_NEXT, first);
+            page.data.putInt(OVERFLOW_LENGTH, length);
+            System.arraycopy(record, start, page.bytes, OVERFLOW_DATA, length);
+            first = pageId;
+        }
+        byte[] stored = new byte[9];
+        stored[0] = OVERFLOW;
+        ByteBuffer.wrap(stored).putInt(1, first).putInt(5, record.length);
+        return stored;
+    }
+
+    private void freeOverflow(PageStore.Page page, int offset) {
+        if (page.bytes[offset] != OVERFLOW) {
+            return;
+        }
+        int next = page.data.getInt(offset + 1);
+        while (next != 0) {
+            int following = store.page(next).data.getInt(OVERFLOW_NEXT);
+            store.free(next);
+            next = following;
+        }
+    }
+
+    // Поместится ли запись на страницу (возможно, после уплотнения)
+    private static boolean fits(PageStore.Page page, int length) {
+        int free = page.data.getInt(DATA_START) - SLOTS - page.data.getInt(SLOT_COUNT) * SLOT_SIZE
+                + page.data.getInt(GARBAGE);
+        return free >= length + SLOT_SIZE; // С запасом на новый слот
+    }
+
+    // Метод кладёт запись на страницу и возвращает номер слота
+    private int place(PageStore.Page page, byte[] stored) {
+        store.markDirty(page);
+        int slotCount = page.data.getInt(SLOT_COUNT);
+        int slot = 0;
+        while (slot < slotCount && page.data.getShort(SLOTS + slot * SLOT_SIZE) != 0) {
+            slot++; // Ищем свободный слот
+        }
+        int directoryEnd = SLOTS + (slot == slotCount ? slotCount + 1 : slotCount) * SLOT_SIZE;
+        if (page.data.getInt(DATA_START) - directoryEnd < stored.length) {
+            compact(page);
+        }
+        int offset = page.data.getInt(DATA_START) - stored.length;
+        System.arraycopy(stored, 0, page.bytes, offset, stored.length);
+        page.data.putInt(DATA_START, offset);
+        page.data.putShort(SLOTS + slot * SLOT_SIZE, (short) offset);
+        page.data.putShort(SLOTS + slot * SLOT_SIZE + 2, (short) stored.length);
+        if (slot == slotCount) {
+            page.data.putInt(SLOT_COUNT, slotCount + 1);
+        }
+        return slot;
+    }
+
+    // Метод сдвигает живые записи к концу страницы, собирая свободное место в одну область
+    private static void compact(PageStore.Page page) {
+        int slotCount = page.data.getInt(SLOT_COUNT);
+        byte[] copy = page.bytes.clone();
+        int dataStart = PageStore.PAGE_SIZE;
+        for (int slot = 0; slot < slotCount; slot++) {
+            int offset = Short.toUnsignedInt(page.data.getShort(SLOTS + slot * SLOT_SIZE));
+            if (offset != 0) {
+                int length = Short.toUnsignedInt(page.data.getShort(SLOTS + slot * SLOT_SIZE + 2));
+                dataStart -= length;
+                System.arraycopy(copy, offset, page.bytes, dataStart, length);
+                page.data.putShort(SLOTS + slot * SLOT_SIZE, (short) dataStart);
+            }
+        }
+        page.data.putInt(DATA_START, dataStart);
+        page.data.putInt(GARBAGE, 0);
+    }
+
+    private void rememberSpace(PageStore.Page page) {
+        if (page.data.getInt(GARBAGE) >= PageStore.PAGE_SIZE / 4 && pagesWithSpaceSet.add(page.id)) {
+            pagesWithSpace.add(page.id);
+        }
+    }
+
+    private static int pageOf(long address) {
+        return (int) (address >>> 16);
+    }
+
+    private static int slotOf(long address) {
+        return (int) (address & 0xFFFF);
+    }
+}
@@ -0,0 +1,126 @@
+package manager;
+
+import entity.Task;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Это расписание задач и подзадач, упорядоченное по ключу (время начала, ID). Задачи с одинаковым
+// временем начала не схлопываются в одну запись, а ключ запоминается при добавлении, поэтому задачу можно
+// удалить по ID, даже если её время начала уже изменили снаружи. Добавление и удаление — O(log n),
+// первая и последняя задачи — O(1), выборки возвращают представления без копирования
+public class ScheduleIndex {
+    private final TreeMap<Slot, Task> slots = new TreeMap<>();
+    private final HashMap<Integer, Slot> slotById = new HashMap<>(); // Ключ, под которым лежит задача
+    private Map.Entry<Slot, Task> first; // Кэш первой и последней записи
+    private Map.Entry<Slot, Task> last;
+
+    // Ключ расписания: время начала и ID задачи
+    private static final class Slot implements Comparable<Slot> {
+        private final LocalDateTime start;
+        private final int id;
+
+        private Slot(LocalDateTime start, int id) {
+            this.start = start;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Slot other) {
+            int result = start.compareTo(other.start);
+            return result != 0 ? result : Integer.compare(id, other.id);
+        }
+    }
+
+    // Метод добавляет задачу в расписание или переносит её, если задача с таким ID уже есть.
+    // Задачи без времени начала в расписание не попадают
+    public void add(Task task) {
+        remove(task.getId());
+        if (task.getStartTime() == null) {
+            return;
+        }
+        Slot slot = new Slot(task.getStartTime(), task.getId());
+        slots.put(slot, task);
+        slotById.put(task.getId(), slot);
+        if (first == null || slot.compareTo(first.getKey()) < 0) {
+            first = Map.entry(slot, task);
+        }
+        if (last == null || slot.compareTo(last.getKey()) > 0) {
+            last = Map.entry(slot, task);
+        }
+    }
+
+    // Метод удаляет задачу по ID и возвращает true, если она была в расписании
+    public boolean remove(int id) {
+        Slot slot = slotById.remove(id);
+        if (slot == null) {
+            return false;
+        }
+        slots.remove(slot);
+        if (first.getKey() == slot) {
+            first = slots.firstEntry();
+        }
+        if (last.getKey() == slot) {
+            last = slots.lastEntry();
+        }
+        return true;
+    }
+
+    // Время начала, под которым задача лежит в расписании, или null, если задачи в расписании нет
+    public LocalDateTime startTimeOf(int id) {
+        Slot slot = slotById.get(id);
+        return slot == null ? null : slot.start;
+    }
+
+    // Самая ранняя задача или null, если расписание пустое
+    public Task first() {
+        return first == null ? null : first.getValue();
+    }
+
+    // Самая поздняя задача или null, если расписание пустое
+    public Task last() {
+        return last == null ? null : last.getValue();
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    public boolean isEmpty() {
+        return slots.isEmpty();
+    }
+
+    public void clear() {
+        slots.clear();
+        slotById.clear();
+        first = null;
+        last = null;
+    }
+
+    // Все задачи по возрастанию времени начала (при равном времени — по ID). Это представление:
+    // оно отражает последующие изменения расписания и не поддерживает изменение
+    public Collection<Task> all() {
+        return Collections.unmodifiableCollection(slots.values());
+    }
+
+    // Задачи, которые идут в расписании после ключа (start, id), в виде представления (start = null — все задачи)
+    public Collection<Task> after(LocalDateTime start, int id) {
+        if (start == null) {
+            return all();
+        }
+        return Collections.unmodifiableCollection(slots.tailMap(new Slot(start, id), false).values());
+    }
+
+    // Задачи, которые начинаются в промежутке [from, to), в виде представления
+    public Collection<Task> between(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableCollection(
+                slots.subMap(new Slot(from, Integer.MIN_VALUE), true, new Slot(to, Integer.MIN_VALUE), false).values());
+    }
+}
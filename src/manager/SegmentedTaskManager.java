@@ -0,0 +1,531 @@
+package manager;
+
+import entity.Epic;
+import entity.Subtask;
+import entity.Task;
+import exception.ManagerSaveException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Это менеджер задач, который хранит доску в каталоге по сегментам: каждый эпик вместе с подзадачами
+// лежит в своём файле, обычные задачи разложены по файлам-корзинам по диапазонам ID, а небольшой манифест
+// перечисляет сегменты. Изменение перезаписывает только затронутый сегмент, а эпики загружаются
+// с диска при первом обращении
+public class SegmentedTaskManager extends InMemoryTaskManager {
+    private static final String MANIFEST = "manifest"; // Имя файла манифеста
+    private static final int TASK_BUCKET_BITS = 10; // В одной корзине обычных задач — 1024 ID подряд
+    private static final int ID_LEASE = 1024; // На сколько ID вперёд резервируется счётчик в манифесте
+
+    private final File directory; // Каталог с сегментами
+    private final Set<Integer> taskBuckets = new TreeSet<>(); // Корзины обычных задач, у которых есть файл
+    private final NavigableSet<Integer> epicSegments = new TreeSet<>(); // Эпики, у которых есть файл сегмента
+    private final Set<Integer> unloadedEpics = new HashSet<>(); // Эпики, ещё не загруженные с диска
+    private final Set<Integer> dirtyTaskBuckets = new HashSet<>(); // Корзины, которые нужно перезаписать
+    private final Set<Integer> dirtyEpics = new HashSet<>(); // Эпики, сегменты которых нужно перезаписать
+    private boolean manifestDirty; // Нужно ли перезаписать манифест
+    private int idLimit; // Граница зарезервированных в манифесте ID
+
+    // Конструктор для создания пустой доски в каталоге. Старые сегменты в каталоге удаляются
+    public SegmentedTaskManager(File directory) {
+        this(directory, true);
+    }
+
+    private SegmentedTaskManager(File directory, boolean createEmpty) {
+        this.directory = directory;
+        if (!createEmpty) {
+            return; // Состояние будет прочитано из манифеста
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new ManagerSaveException("Не удалось создать каталог " + directory);
+        }
+        File[] oldSegments = directory.listFiles((dir, name) -> name.endsWith(".seg"));
+        if (oldSegments != null) {
+            for (File segment : oldSegments) {
+                segment.delete();
+            }
+        }
+        manifestDirty = true;
+        flush();
+    }
+
+    // Метод открывает доску из каталога: читает манифест и обычные задачи, а эпики оставляет на диске
+    // до первого обращения
+    public static SegmentedTaskManager loadFromDirectory(File directory) {
+        SegmentedTaskManager manager = new SegmentedTaskManager(directory, false);
+        manager.readManifest();
+        for (int bucket : manager.taskBuckets) {
+            manager.readSegment(manager.taskSegmentFile(bucket));
+        }
+        manager.idCounter = Math.max(manager.idCounter, manager.idLimit); // ID за границей резерва точно свободны
+        return manager;
+    }
+
+
+    // Методы для работы с задачами Task:
+    @Override
+    public Task addTask(Task task) {
+        if (task.getStartTime() != null) {
+            ensureAllLoaded(); // Для проверки пересечений нужны все подзадачи
+        }
+        super.addTask(task);
+        afterIdAllocated();
+        markTaskDirty(task.getId());
+        flush();
+        return task;
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        if (tasks.containsKey(id)) {
+            super.deleteTask(id);
+            markTaskDirty(id);
+            flush();
+        }
+    }
+
+    @Override
+    public void clearTasks() {
+        super.clearTasks();
+        dirtyTaskBuckets.addAll(taskBuckets); // Пустые корзины удаляются при записи
+        flush();
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        if (task.getStartTime() != null) {
+            ensureAllLoaded();
+        }
+        if (tasks.containsKey(task.getId())) {
+            super.updateTask(task);
+            markTaskDirty(task.getId());
+            flush();
+        }
+    }
+
+
+    // Методы для работы с эпиками Epic:
+    @Override
+    public void addEpic(Epic epic) {
+        super.addEpic(epic);
+        afterIdAllocated();
+        epicSegments.add(epic.getId());
+        manifestDirty = true;
+        dirtyEpics.add(epic.getId());
+        flush();
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        ensureEpicLoaded(id);
+        if (epics.containsKey(id)) {
+            super.deleteEpic(id);
+            dirtyEpics.add(id); // Сегмент удалённого эпика будет удалён при записи
+            flush();
+        }
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        ensureEpicLoaded(id);
+        return super.getEpic(id);
+    }
+
+    @Override
+    public ArrayList<Epic> getAllEpics() {
+        ensureAllLoaded();
+        return super.getAllEpics();
+    }
+
+    @Override
+    public void clearEpics() {
+        super.clearEpics(); // Незагруженные эпики читать не нужно — их сегменты просто удаляются
+        unloadedEpics.clear();
+        dirtyEpics.addAll(epicSegments);
+        flush();
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        ensureEpicLoaded(epic.getId());
+        if (epics.containsKey(epic.getId())) {
+            super.updateEpic(epic);
+            dirtyEpics.add(epic.getId());
+            flush();
+        }
+    }
+
+
+    // Методы для работы с подзадачами Subtask:
+    @Override
+    public void addSubtask(Subtask subtask) {
+        ensureEpicLoaded(subtask.getEpicId());
+        if (subtask.getStartTime() != null) {
+            ensureAllLoaded();
+        }
+        super.addSubtask(subtask);
+        afterIdAllocated();
+        if (epics.containsKey(subtask.getEpicId())) {
+            dirtyEpics.add(subtask.getEpicId());
+            flush();
+        } else {
+            subtasks.remove(subtask.getId()); // Подзадача без эпика не попадает ни в один сегмент
+        }
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        if (!subtasks.containsKey(id)) {
+            ensureAllLoaded(); // Неизвестно, в каком эпике лежит подзадача
+        }
+        Subtask subtask = subtasks.get(id);
+        if (subtask != null) {
+            super.deleteSubtask(id);
+            dirtyEpics.add(subtask.getEpicId());
+            flush();
+        }
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        if (!subtasks.containsKey(id)) {
+            ensureAllLoaded();
+        }
+        return super.getSubtask(id);
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtasksForEpic(int epicId) {
+        ensureEpicLoaded(epicId);
+        return super.getSubtasksForEpic(epicId);
+    }
+
+    @Override
+    public void updateEpicStatus(Epic epic) {
+        ensureEpicLoaded(epic.getId());
+        super.updateEpicStatus(epic);
+        if (epics.containsKey(epic.getId())) {
+            dirtyEpics.add(epic.getId());
+            flush();
+        }
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        ensureEpicLoaded(subtask.getEpicId());
+        if (subtask.getStartTime() != null || !subtasks.containsKey(subtask.getId())) {
+            ensureAllLoaded();
+        }
+        if (subtasks.containsKey(subtask.getId())) {
+            super.updateSubtask(subtask);
+            dirtyEpics.add(subtask.getEpicId());
+            flush();
+        }
+    }
+
+    @Override
+    public ArrayList<Subtask> getAllSubtask() {
+        ensureAllLoaded();
+        return super.getAllSubtask();
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        ensureAllLoaded();
+        return super.getPrioritizedTasks();
+    }
+
+    @Override
+    public Collection<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        ensureAllLoaded();
+        return super.getPrioritizedTasks(from, to);
+    }
+
+    @Override
+    public List<Task> findTasks(TaskQuery query) {
+        if (!query.hasEpicFilter()) { // Для подзадач эпиков хватит загрузки их сегментов в getSubtasksForEpic()
+            ensureAllLoaded(); // Незагруженные эпики и их подзадачи ещё не попали в индекс запросов
+        }
+        return super.findTasks(query);
+    }
+
+    @Override
+    public List<Task> searchTasks(String query, int limit) {
+        ensureAllLoaded();
+        return super.searchTasks(query, limit);
+    }
+
+    @Override // Загружаются только эпики, попавшие на страницу: их ID известны из манифеста
+    public List<Epic> pageEpicsAfter(int afterId, int limit) {
+        List<Epic> result = new ArrayList<>();
+        for (int epicId : epicSegments.tailSet(afterId, false)) {
+            if (result.size() == limit) {
+                break;
+            }
+            ensureEpicLoaded(epicId);
+            Epic epic = epics.get(epicId);
+            if (epic != null) {
+                result.add(epic);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Subtask> pageSubtasksAfter(int afterId, int limit) {
+        ensureAllLoaded(); // По ID подзадачи не видно, в каком сегменте она лежит
+        return super.pageSubtasksAfter(afterId, limit);
+    }
+
+    @Override
+    public List<Task> pagePrioritizedAfter(LocalDateTime afterStart, int afterId, int limit) {
+        ensureAllLoaded();
+        return super.pagePrioritizedAfter(afterStart, afterId, limit);
+    }
+
+    @Override // Версию подзадачи или эпика можно сравнить только после загрузки его сегмента
+    protected Task stored(Task task) {
+        if (task instanceof Epic) {
+            ensureEpicLoaded(task.getId());
+        } else if (task instanceof Subtask subtask) {
+            ensureEpicLoaded(subtask.getEpicId());
+            if (!subtasks.containsKey(subtask.getId())) {
+                ensureAllLoaded(); // Подзадачу могли перенести из другого эпика
+            }
+        }
+        return super.stored(task);
+    }
+
+    // Пакетные изменения: изменённые сегменты копятся и записываются один раз при закрытии пакета
+    @Override
+    public void beginBatch() {
+        ensureAllLoaded(); // Откат восстанавливает хранилища целиком, поэтому в них должна быть вся доска
+        super.beginBatch();
+    }
+
+    @Override
+    public void commitBatch() {
+        super.commitBatch();
+        flush();
+    }
+
+    @Override
+    public void rollbackBatch() {
+        super.rollbackBatch();
+        flush(); // Затронутые пакетом сегменты перезаписываются восстановленным состоянием
+    }
+
+    // Метод сообщает, загружен ли эпик с диска (для тестов и диагностики)
+    public boolean isEpicLoaded(int epicId) {
+        return !unloadedEpics.contains(epicId);
+    }
+
+
+    // Метод загружает эпик с подзадачами, если он ещё лежит только на диске
+    private void ensureEpicLoaded(int epicId) {
+        if (unloadedEpics.remove(epicId)) {
+            readSegment(epicSegmentFile(epicId));
+            Epic epic = epics.get(epicId);
+            if (epic != null) {
+                epic.updateTimeAndDuration(subtasks);
+                refreshEpicStatus(epic);
+            }
+        }
+    }
+
+    // Метод загружает все эпики — нужен для операций над всей доской
+    private void ensureAllLoaded() {
+        for (Integer epicId : new ArrayList<>(unloadedEpics)) {
+            ensureEpicLoaded(epicId);
+        }
+    }
+
+    // Метод продлевает резерв ID в манифесте, когда счётчик дошёл до его границы
+    private void afterIdAllocated() {
+        if (idCounter >= idLimit) {
+            idLimit = idCounter + ID_LEASE;
+            manifestDirty = true;
+        }
+    }
+
+    private void markTaskDirty(int taskId) {
+        dirtyTaskBuckets.add(taskId >> TASK_BUCKET_BITS);
+    }
+
+    // Метод перезаписывает только изменённые сегменты. Манифест пишется первым, чтобы резерв ID и список
+    // сегментов на диске всегда покрывали записанные сегменты
+    private void flush() {
+        if (isInBatch()) {
+            return; // Сегменты будут записаны при закрытии пакета
+        }
+        for (int bucket : dirtyTaskBuckets) {
+            manifestDirty |= taskBuckets.add(bucket);
+        }
+        for (int epicId : dirtyEpics) {
+            if (!epics.containsKey(epicId)) {
+                manifestDirty |= epicSegments.remove(epicId);
+            }
+        }
+        Map<Integer, List<Task>> tasksByBucket = new HashMap<>();
+        if (!dirtyTaskBuckets.isEmpty()) {
+            for (Task task : tasks.values()) {
+                int bucket = task.getId() >> TASK_BUCKET_BITS;
+                if (dirtyTaskBuckets.contains(bucket)) {
+                    tasksByBucket.computeIfAbsent(bucket, key -> new ArrayList<>()).add(task);
+                }
+            }
+        }
+        for (int bucket : dirtyTaskBuckets) {
+            if (!tasksByBucket.containsKey(bucket)) {
+                manifestDirty |= taskBuckets.remove(bucket);
+            }
+        }
+        if (manifestDirty) {
+            writeManifest();
+            manifestDirty = false;
+        }
+
+        for (int bucket : dirtyTaskBuckets) {
+            List<Task> segmentTasks = tasksByBucket.getOrDefault(bucket, List.of());
+            if (segmentTasks.isEmpty()) {
+                deleteSegment(taskSegmentFile(bucket));
+            } else {
+                writeSegment(taskSegmentFile(bucket), segmentTasks, List.of(), List.of());
+            }
+        }
+        for (int epicId : dirtyEpics) {
+            Epic epic = epics.get(epicId);
+            if (epic == null) {
+                deleteSegment(epicSegmentFile(epicId));
+            } else {
+                writeSegment(epicSegmentFile(epicId), List.of(), List.of(epic), getSubtasksOf(epic));
+            }
+        }
+        dirtyTaskBuckets.clear();
+        dirtyEpics.clear();
+    }
+
+    private List<Subtask> getSubtasksOf(Epic epic) {
+        List<Subtask> result = new ArrayList<>(epic.getSubtaskIdList().size());
+        for (int subtaskId : epic.getSubtaskIdList()) {
+            Subtask subtask = subtasks.get(subtaskId);
+            if (subtask != null) {
+                result.add(subtask);
+            }
+        }
+        return result;
+    }
+
+    private File taskSegmentFile(int bucket) {
+        return new File(directory, "tasks-" + bucket + ".seg");
+    }
+
+    private File epicSegmentFile(int epicId) {
+        return new File(directory, "epic-" + epicId + ".seg");
+    }
+
+    // Метод записывает сегмент во временный файл и атомарно подменяет им старый
+    private void writeSegment(File segment, List<Task> taskList, List<Epic> epicList, List<Subtask> subtaskList) {
+        File tempFile = new File(segment.getPath() + ".tmp");
+        BinaryTaskFormat.write(tempFile.toPath(), taskList, epicList, subtaskList);
+        replace(tempFile, segment);
+    }
+
+    private void deleteSegment(File segment) {
+        try {
+            Files.deleteIfExists(segment.toPath());
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка удаления сегмента " + segment, e);
+        }
+    }
+
+    // Метод читает сегмент и добавляет его задачи в хранилища
+    private void readSegment(File segment) {
+        if (!segment.exists()) {
+            return; // Сегмент указан в манифесте, но ещё не был записан — он пуст
+        }
+        BinaryTaskFormat.read(segment.toPath(), task -> {
+            switch (task.getType()) {
+                case TASK_TYPE:
+                    tasks.put(task.getId(), task);
+                    break;
+                case EPIC_TYPE:
+                    epics.put(task.getId(), (Epic) task);
+                    break;
+                case SUBTASK_TYPE:
+                    subtasks.put(task.getId(), (Subtask) task);
+                    Epic epic = epics.get(((Subtask) task).getEpicId());
+                    if (epic != null) {
+                        epic.addSubtask(task.getId());
+                    }
+                    break;
+            }
+            if (task.getType() != TaskType.EPIC_TYPE) {
+                schedule(task);
+            }
+            if (task.getId() > idCounter) {
+                idCounter = task.getId();
+            }
+        });
+    }
+
+    // Манифест: строка с резервом ID, затем по строке на каждый сегмент
+    private void writeManifest() {
+        StringBuilder content = new StringBuilder("idLimit,").append(idLimit).append('\n');
+        for (int bucket : taskBuckets) {
+            content.append("T,").append(bucket).append('\n');
+        }
+        for (int epicId : epicSegments) {
+            content.append("E,").append(epicId).append('\n');
+        }
+        File manifest = new File(directory, MANIFEST);
+        File tempFile = new File(directory, MANIFEST + ".tmp");
+        try {
+            Files.write(tempFile.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи манифеста", e);
+        }
+        replace(tempFile, manifest);
+    }
+
+    private void readManifest() {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(new File(directory, MANIFEST).toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения манифеста", e);
+        }
+        for (String line : lines) {
+            String[] parts = line.split(",");
+            switch (parts[0]) {
+                case "idLimit":
+                    idLimit = Integer.parseInt(parts[1]);
+                    break;
+                case "T":
+                    taskBuckets.add(Integer.parseInt(parts[1]));
+                    break;
+                case "E":
+                    int epicId = Integer.parseInt(parts[1]);
+                    epicSegments.add(epicId);
+                    unloadedEpics.add(epicId);
+                    break;
+                default:
+                    throw new ManagerSaveException("Неизвестная строка манифеста: " + line);
+            }
+        }
+    }
+
+    private static void replace(File source, File target) {
+        try {
+            Files.move(source.toPath(), target.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка замены файла " + target, e);
+        }
+    }
+}
@@ -0,0 +1,769 @@
+package manager;
+
+import entity.Epic;
+import entity.Subtask;
+import entity.Task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// Это менеджер задач в памяти, разделённый на сегменты. У каждого сегмента свои хранилища, расписание,
+// индексы запросов и поиска и своя блокировка, поэтому изменения в разных сегментах идут параллельно.
+// Новые задачи и эпики раскладываются по сегментам по кругу, подзадачи живут в сегменте своего эпика.
+// Сегмент зашит в ID: сегмент s выдаёт ID s + 1, s + 1 + N, s + 1 + 2N, ..., поэтому операция с одним ID
+// сразу находит свой сегмент, без общего справочника. Чтение всей доски (getAll*, расписание, запросы, поиск)
+// собирает упорядоченные части сегментов и сливает их.
+// Пересечения по времени проверяются по общему индексу отрезков: задачи разных сегментов тоже не должны
+// пересекаться. Его блокировка берётся только для задач с временем начала и продолжительностью.
+//
+// Порядок захвата блокировок: сегменты (по возрастанию номера) → индекс отрезков → история просмотров
+public class ShardedTaskManager implements TaskManager {
+    public static final int DEFAULT_SHARDS = 16;
+
+    private static final Comparator<Task> BY_ID = Comparator.comparingInt(Task::getId);
+    private static final Comparator<Task> BY_START = Comparator.comparing(Task::getStartTime).thenComparing(BY_ID);
+    // Порядок результатов поиска, как в TextIndex.search(): больше совпавших групп — выше, затем меньший ID
+    private static final Comparator<Hit> BY_RELEVANCE = Comparator.comparingInt(Hit::groups).reversed()
+            .thenComparingInt(hit -> hit.task().getId());
+
+    private final Shard[] shards;
+    private final AtomicInteger placement = new AtomicInteger(); // Номер следующей задачи или эпика для раскладки
+    private final ReentrantLock intervalLock = new ReentrantLock(); // Защищает общий индекс отрезков
+    private final IntervalIndex intervals = new IntervalIndex();
+    private final HistoryManager historyManager = Managers.getDefaultHistory(); // Доступ — под его монитором
+
+    private volatile BatchState batch; // Открытый пакет (null — пакет не открыт)
+
+    // Сегмент доски: все его поля меняются и читаются только под его блокировкой
+    private static final class Shard {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final OrderedIntObjectMap<Task> tasks = new OrderedIntObjectMap<>();
+        private final OrderedIntObjectMap<Epic> epics = new OrderedIntObjectMap<>();
+        private final OrderedIntObjectMap<Subtask> subtasks = new OrderedIntObjectMap<>();
+        private final ScheduleIndex prioritizedTasks = new ScheduleIndex();
+        private final QueryIndex queryIndex = new QueryIndex();
+        private final TextIndex textIndex = new TextIndex();
+        private int nextLocal; // Порядковый номер следующего ID сегмента
+
+        private void schedule(Task task) {
+            prioritizedTasks.add(task);
+            index(task);
+        }
+
+        private void unschedule(Task task) {
+            prioritizedTasks.remove(task.getId());
+            unindex(task.getId());
+        }
+
+        private void index(Task task) {
+            queryIndex.put(task);
+            textIndex.put(task);
+        }
+
+        private void unindex(int id) {
+            queryIndex.remove(id);
+            textIndex.remove(id);
+        }
+    }
+
+    // Найденная задача и число OR-групп запроса, под которые она подходит
+    private record Hit(Task task, int groups) {
+    }
+
+    public ShardedTaskManager() {
+        this(DEFAULT_SHARDS);
+    }
+
+    public ShardedTaskManager(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Количество сегментов должно быть положительным: " + shardCount);
+        }
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+
+    // Методы для работы с задачами Task
+    @Override
+    public Task addTask(Task task) {
+        int index = nextPlacement();
+        Shard shard = shards[index];
+        shard.lock.lock();
+        try {
+            if (timed(task)) {
+                withIntervals(() -> {
+                    if (intervals.overlaps(task)) {
+                        throw new IllegalArgumentException("Задачи пересекаются по времени");
+                    }
+                    task.setId(nextId(index));
+                    intervals.add(task);
+                });
+            } else {
+                task.setId(nextId(index));
+            }
+            shard.tasks.put(task.getId(), task);
+            shard.schedule(task);
+        } finally {
+            shard.lock.unlock();
+        }
+        return task;
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        Shard shard = shardOf(id);
+        shard.lock.lock();
+        try {
+            Task task = shard.tasks.remove(id);
+            if (task != null) {
+                removeInterval(shard, id);
+                shard.unschedule(task);
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Override
+    public Task getTask(int id) {
+        Shard shard = shardOf(id);
+        Task task;
+        shard.lock.lock();
+        try {
+            task = shard.tasks.get(id);
+        } finally {
+            shard.lock.unlock();
+        }
+        if (task != null) {
+            addToHistory(task);
+        }
+        return task;
+    }
+
+    @Override
+    public ArrayList<Task> getAllTasks() {
+        return fanOut(shard -> new ArrayList<>(shard.tasks.ascendingValues()), BY_ID, TaskQuery.NO_LIMIT);
+    }
+
+    @Override
+    public void clearTasks() {
+        lockAll();
+        try {
+            withIntervals(() -> {
+                for (Shard shard : shards) {
+                    shard.tasks.values().forEach(task -> intervals.remove(task.getId()));
+                }
+            });
+            for (Shard shard : shards) {
+                shard.tasks.values().forEach(shard::unschedule);
+                shard.tasks.clear();
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        Shard shard = shardOf(task.getId());
+        shard.lock.lock();
+        try {
+            Task previous = shard.tasks.get(task.getId());
+            if (previous == null) {
+                return;
+            }
+            replaceInterval(shard, task, "Обновленная задача пересекается по времени с другой задачей");
+            shard.unschedule(previous);
+            task.setVersion(previous.getVersion() + 1);
+            shard.tasks.put(task.getId(), task);
+            shard.schedule(task);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+
+    // Методы для работы с эпиками
+    @Override
+    public void addEpic(Epic epic) {
+        int index = nextPlacement();
+        Shard shard = shards[index];
+        shard.lock.lock();
+        try {
+            epic.setId(nextId(index));
+            shard.epics.put(epic.getId(), epic);
+            shard.index(epic);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        Shard shard = shardOf(id);
+        shard.lock.lock();
+        try {
+            Epic epic = shard.epics.remove(id);
+            if (epic == null) {
+                return;
+            }
+            int[] subtaskIds = epic.detachSubtasks();
+            shard.unindex(id);
+            withIntervals(() -> {
+                for (int subtaskId : subtaskIds) {
+                    intervals.remove(subtaskId);
+                }
+            });
+            for (int subtaskId : subtaskIds) {
+                Subtask subtask = shard.subtasks.remove(subtaskId);
+                if (subtask != null) {
+                    shard.unschedule(subtask);
+                }
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        Shard shard = shardOf(id);
+        Epic epic;
+        shard.lock.lock();
+        try {
+            epic = shard.epics.get(id);
+        } finally {
+            shard.lock.unlock();
+        }
+        if (epic != null) {
+            addToHistory(epic);
+        }
+        return epic;
+    }
+
+    @Override
+    public ArrayList<Epic> getAllEpics() {
+        return fanOut(shard -> new ArrayList<>(shard.epics.ascendingValues()), BY_ID, TaskQuery.NO_LIMIT);
+    }
+
+    @Override
+    public void clearEpics() {
+        lockAll();
+        try {
+            withIntervals(() -> {
+                for (Shard shard : shards) {
+                    shard.subtasks.values().forEach(subtask -> intervals.remove(subtask.getId()));
+                }
+            });
+            for (Shard shard : shards) {
+                shard.subtasks.values().forEach(shard::unschedule);
+                for (int id : shard.epics.keys()) {
+                    shard.unindex(id);
+                }
+                shard.epics.clear();
+                shard.subtasks.clear();
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        Shard shard = shardOf(epic.getId());
+        shard.lock.lock();
+        try {
+            Epic previous = shard.epics.get(epic.getId());
+            if (previous != null) {
+                epic.setVersion(previous.getVersion() + 1);
+                shard.epics.put(epic.getId(), epic);
+                shard.index(epic);
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+
+    // Методы для работы с подзадачами: подзадача получает ID из сегмента своего эпика
+    @Override
+    public void addSubtask(Subtask subtask) {
+        int index = shardIndex(subtask.getEpicId());
+        Shard shard = shards[index];
+        shard.lock.lock();
+        try {
+            Epic epic = shard.epics.get(subtask.getEpicId());
+            if (timed(subtask)) {
+                withIntervals(() -> {
+                    if (intervals.overlaps(subtask)) {
+                        throw new IllegalArgumentException("Подзадача пересекается по времени с другой задачей");
+                    }
+                    subtask.setId(nextId(index));
+                    if (epic != null) {
+                        intervals.add(subtask);
+                    }
+                });
+            } else {
+                subtask.setId(nextId(index));
+            }
+            shard.subtasks.put(subtask.getId(), subtask);
+            if (epic != null) {
+                shard.schedule(subtask);
+                epic.addSubtask(subtask.getId());
+                epic.countSubtask(subtask);
+                recalculateEpic(shard, epic);
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        Shard shard = shardOf(id);
+        shard.lock.lock();
+        try {
+            Subtask subtask = shard.subtasks.remove(id);
+            if (subtask == null) {
+                return;
+            }
+            Epic epic = shard.epics.get(subtask.getEpicId());
+            if (epic != null) {
+                epic.deleteSubtask(id);
+                recalculateEpic(shard, epic);
+            }
+            removeInterval(shard, id);
+            shard.unschedule(subtask);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        Shard shard = shardOf(id);
+        Subtask subtask;
+        shard.lock.lock();
+        try {
+            subtask = shard.subtasks.get(id);
+        } finally {
+            shard.lock.unlock();
+        }
+        if (subtask != null) {
+            addToHistory(subtask);
+        }
+        return subtask;
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtasksForEpic(int epicId) {
+        Shard shard = shardOf(epicId);
+        shard.lock.lock();
+        try {
+            Epic epic = shard.epics.get(epicId);
+            if (epic == null) {
+                return new ArrayList<>();
+            }
+            ArrayList<Subtask> result = new ArrayList<>(epic.getSubtaskIdList().size());
+            epic.getSubtaskIdList().forEachInt(subtaskId -> {
+                Subtask subtask = shard.subtasks.get(subtaskId);
+                if (subtask != null) {
+                    result.add(subtask);
+                }
+            });
+            return result;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Override // Статусы подзадач могли изменить снаружи, поэтому агрегаты эпика заполняются заново
+    public void updateEpicStatus(Epic epic) {
+        Shard shard = shardOf(epic.getId());
+        shard.lock.lock();
+        try {
+            recountEpic(shard, epic);
+            recalculateEpic(shard, epic);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Override // Подзадачу можно перенести только в эпик того же сегмента: сегмент подзадачи зашит в её ID
+    public void updateSubtask(Subtask subtask) {
+        int index = shardIndex(subtask.getId());
+        Shard shard = shards[index];
+        shard.lock.lock();
+        try {
+            Subtask previous = shard.subtasks.get(subtask.getId());
+            if (previous == null) {
+                return;
+            }
+            if (shardIndex(subtask.getEpicId()) != index) {
+                throw new IllegalArgumentException("Подзадачу нельзя перенести в эпик из другого сегмента");
+            }
+            replaceInterval(shard, subtask, "Обновленная подзадача пересекается по времени с другой задачей");
+            shard.unschedule(previous);
+            subtask.setVersion(previous.getVersion() + 1);
+            shard.subtasks.put(subtask.getId(), subtask);
+            shard.schedule(subtask);
+            Epic epic = shard.epics.get(subtask.getEpicId());
+            if (epic != null) {
+                epic.changeSubtask(subtask);
+                recalculateEpic(shard, epic);
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Override
+    public ArrayList<Subtask> getAllSubtask() {
+        return fanOut(shard -> new ArrayList<>(shard.subtasks.ascendingValues()), BY_ID, TaskQuery.NO_LIMIT);
+    }
+
+    // Постраничное чтение: каждый сегмент отдаёт не больше limit записей после курсора, из них берутся первые limit
+    @Override
+    public List<Task> pageTasksAfter(int afterId, int limit) {
+        return fanOut(shard -> shard.tasks.valuesAfter(afterId, limit), BY_ID, limit);
+    }
+
+    @Override
+    public List<Epic> pageEpicsAfter(int afterId, int limit) {
+        return fanOut(shard -> shard.epics.valuesAfter(afterId, limit), BY_ID, limit);
+    }
+
+    @Override
+    public List<Subtask> pageSubtasksAfter(int afterId, int limit) {
+        return fanOut(shard -> shard.subtasks.valuesAfter(afterId, limit), BY_ID, limit);
+    }
+
+    @Override
+    public List<Task> pagePrioritizedAfter(LocalDateTime afterStart, int afterId, int limit) {
+        return fanOut(shard -> Pages.first(shard.prioritizedTasks.after(afterStart, afterId), limit), BY_START, limit);
+    }
+
+    // Оптимистичное обновление: сравнение версии и запись идут под блокировкой сегмента задачи
+    @Override
+    public boolean compareAndUpdate(Task task, long expectedVersion) {
+        Shard shard = shardOf(task.getId());
+        shard.lock.lock();
+        try {
+            Task stored = switch (task.getType()) {
+                case EPIC_TYPE -> shard.epics.get(task.getId());
+                case SUBTASK_TYPE -> shard.subtasks.get(task.getId());
+                default -> shard.tasks.get(task.getId());
+            };
+            if (stored == null || stored.getVersion() != expectedVersion) {
+                return false;
+            }
+            switch (task.getType()) {
+                case EPIC_TYPE -> updateEpic((Epic) task);
+                case SUBTASK_TYPE -> updateSubtask((Subtask) task);
+                default -> updateTask(task);
+            }
+            return true;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+
+    // Чтение расписания: части сегментов уже упорядочены, поэтому они сливаются без сортировки
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return fanOut(shard -> new ArrayList<>(shard.prioritizedTasks.all()), BY_START, TaskQuery.NO_LIMIT);
+    }
+
+    @Override // Возвращается копия: представления сегментов нельзя читать без их блокировок
+    public Collection<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return fanOut(shard -> new ArrayList<>(shard.prioritizedTasks.between(from, to)), BY_START,
+                TaskQuery.NO_LIMIT);
+    }
+
+    @Override // Каждый сегмент выполняет запрос по своему индексу (с тем же limit), результаты сливаются
+    public List<Task> findTasks(TaskQuery query) {
+        if (query.hasEpicFilter()) { // Подзадачи эпиков читаются только из их сегментов
+            return QueryPipeline.select(query, QueryPipeline.fromEpics(query, this::getSubtasksForEpic));
+        }
+        return fanOut(shard -> shard.queryIndex.find(query), query.resultOrder(), query.getLimit());
+    }
+
+    @Override // Каждый сегмент отдаёт свои limit лучших задач; порядок между сегментами — по числу совпавших групп
+    public List<Task> searchTasks(String query, int limit) {
+        List<Hit> hits = fanOut(shard -> {
+            int[] ids = shard.textIndex.search(query, limit);
+            List<Hit> found = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                Task task = shard.tasks.get(id);
+                if (task == null) {
+                    task = shard.epics.get(id);
+                }
+                if (task == null) {
+                    task = shard.subtasks.get(id);
+                }
+                found.add(new Hit(task, shard.textIndex.matchedGroups(query, id)));
+            }
+            return found;
+        }, BY_RELEVANCE, limit);
+        List<Task> result = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            result.add(hit.task());
+        }
+        return result;
+    }
+
+
+    // Пакетные изменения: поток, открывший пакет, захватывает все сегменты, поэтому изменения других потоков
+    // ждут закрытия пакета. Откат восстанавливает хранилища и счётчики ID сегментов и пересобирает индексы
+    @Override
+    public void beginBatch() {
+        if (isInBatch()) {
+            throw new IllegalStateException("Пакет изменений уже открыт");
+        }
+        lockAll();
+        batch = new BatchState(this);
+    }
+
+    @Override
+    public void commitBatch() {
+        requireBatch();
+        batch = null;
+        unlockAll();
+    }
+
+    @Override
+    public void rollbackBatch() {
+        BatchState finished = requireBatch();
+        try {
+            for (int i = 0; i < shards.length; i++) {
+                Shard shard = shards[i];
+                ShardState saved = finished.shards[i];
+                shard.tasks.clear();
+                shard.tasks.putAll(saved.tasks);
+                shard.epics.clear();
+                shard.epics.putAll(saved.epics);
+                shard.subtasks.clear();
+                shard.subtasks.putAll(saved.subtasks);
+                shard.nextLocal = saved.nextLocal;
+                shard.prioritizedTasks.clear();
+                shard.queryIndex.clear();
+                shard.textIndex.clear();
+                for (Epic epic : shard.epics.values()) {
+                    epic.getSubtaskIdList().clear();
+                    epic.getSubtaskIdList().addAll(saved.epicSubtaskIds.get(epic.getId()));
+                    recountEpic(shard, epic);
+                    recalculateEpic(shard, epic);
+                }
+                shard.tasks.values().forEach(shard::schedule);
+                shard.subtasks.values().forEach(shard::schedule);
+            }
+            placement.set(finished.placement);
+            withIntervals(() -> {
+                intervals.clear();
+                for (Shard shard : shards) {
+                    shard.tasks.values().forEach(intervals::add);
+                    shard.subtasks.values().forEach(intervals::add);
+                }
+            });
+        } finally {
+            batch = null;
+            unlockAll();
+        }
+    }
+
+    @Override // Пакет открыт именно в этом потоке
+    public boolean isInBatch() {
+        BatchState current = batch;
+        return current != null && current.owner == Thread.currentThread();
+    }
+
+    private BatchState requireBatch() {
+        if (!isInBatch()) {
+            throw new IllegalStateException("Пакет изменений не открыт");
+        }
+        return batch;
+    }
+
+
+    // Метод пересчитывает статус, время и продолжительность эпика по агрегатам. Вызывается под блокировкой сегмента
+    private void recalculateEpic(Shard shard, Epic epic) {
+        if (!epic.hasCounts()) {
+            recountEpic(shard, epic);
+        }
+        epic.setStatus(epic.statusFromCounts());
+        epic.applyTimeFromCounts();
+        shard.index(epic);
+    }
+
+    // Метод заполняет агрегаты эпика заново по его подзадачам
+    private void recountEpic(Shard shard, Epic epic) {
+        epic.resetCounts();
+        epic.getSubtaskIdList().forEachInt(subtaskId -> {
+            Subtask subtask = shard.subtasks.get(subtaskId);
+            if (subtask != null) {
+                epic.countSubtask(subtask);
+            }
+        });
+    }
+
+    // Метод проверяет новый отрезок задачи и заменяет им старый. Блокировка индекса отрезков не нужна,
+    // если у задачи нет отрезка ни сейчас, ни в расписании сегмента
+    private void replaceInterval(Shard shard, Task task, String overlapMessage) {
+        if (!timed(task) && shard.prioritizedTasks.startTimeOf(task.getId()) == null) {
+            return;
+        }
+        withIntervals(() -> {
+            if (intervals.overlaps(task)) {
+                throw new IllegalArgumentException(overlapMessage);
+            }
+            intervals.add(task);
+        });
+    }
+
+    // Метод убирает отрезок задачи из общего индекса. Вызывается до удаления задачи из расписания сегмента
+    private void removeInterval(Shard shard, int id) {
+        if (shard.prioritizedTasks.startTimeOf(id) != null) {
+            withIntervals(() -> intervals.remove(id));
+        }
+    }
+
+    // Метод выполняет действие с индексом отрезков под его блокировкой
+    private void withIntervals(Runnable action) {
+        intervalLock.lock();
+        try {
+            action.run();
+        } finally {
+            intervalLock.unlock();
+        }
+    }
+
+    // Метод читает часть каждого сегмента под его блокировкой и сливает упорядоченные части
+    private <T> ArrayList<T> fanOut(Function<Shard, List<T>> read, Comparator<? super T> order, int limit) {
+        List<List<T>> parts = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                parts.add(read.apply(shard));
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return merge(parts, order, limit);
+    }
+
+    // Метод сливает упорядоченные списки в один упорядоченный список из не более limit элементов
+    private static <T> ArrayList<T> merge(List<List<T>> parts, Comparator<? super T> order, int limit) {
+        int total = 0;
+        for (List<T> part : parts) {
+            total += part.size();
+        }
+        ArrayList<T> result = new ArrayList<>(Math.min(total, limit));
+        // Вершина кучи — часть с наименьшим текущим элементом: {номер части, позиция в ней}
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(parts.size(), 1),
+                (a, b) -> order.compare(parts.get(a[0]).get(a[1]), parts.get(b[0]).get(b[1])));
+        for (int i = 0; i < parts.size(); i++) {
+            if (!parts.get(i).isEmpty()) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+        while (result.size() < limit && !heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<T> part = parts.get(head[0]);
+            result.add(part.get(head[1]++));
+            if (head[1] < part.size()) {
+                heads.add(head);
+            }
+        }
+        return result;
+    }
+
+    private static boolean timed(Task task) {
+        return task.getStartTime() != null && task.getDuration() != null;
+    }
+
+    // Метод выбирает сегмент для новой задачи или эпика: по кругу, чтобы сегменты заполнялись равномерно
+    private int nextPlacement() {
+        return Math.floorMod(placement.getAndIncrement(), shards.length);
+    }
+
+    // Метод выдаёт следующий ID сегмента. Вызывается под блокировкой сегмента
+    private int nextId(int index) {
+        return Math.addExact(Math.multiplyExact(shards[index].nextLocal++, shards.length), index + 1);
+    }
+
+    private int shardIndex(int id) {
+        return Math.floorMod(id - 1, shards.length);
+    }
+
+    private Shard shardOf(int id) {
+        return shards[shardIndex(id)];
+    }
+
+    private void addToHistory(Task task) {
+        synchronized (historyManager) {
+            historyManager.add(task);
+        }
+    }
+
+    private void lockAll() {
+        for (Shard shard : shards) {
+            shard.lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = shards.length - 1; i >= 0; i--) {
+            shards[i].lock.unlock();
+        }
+    }
+
+    // Состояние одного сегмента на момент начала пакета
+    private static class ShardState {
+        private final IntObjectMap<Task> tasks;
+        private final IntObjectMap<Epic> epics;
+        private final IntObjectMap<Subtask> subtasks;
+        private final int nextLocal;
+        private final Map<Integer, IntLinkedSet> epicSubtaskIds = new HashMap<>(); // Копии списков подзадач эпиков
+
+        private ShardState(Shard shard) {
+            tasks = new IntObjectMap<>(shard.tasks);
+            epics = new IntObjectMap<>(shard.epics);
+            subtasks = new IntObjectMap<>(shard.subtasks);
+            nextLocal = shard.nextLocal;
+            for (Epic epic : shard.epics.values()) {
+                epicSubtaskIds.put(epic.getId(), new IntLinkedSet(epic.getSubtaskIdList()));
+            }
+        }
+    }
+
+    // Состояние менеджера на момент начала пакета
+    private static class BatchState {
+        private final Thread owner = Thread.currentThread();
+        private final ShardState[] shards;
+        private final int placement;
+
+        private BatchState(ShardedTaskManager manager) {
+            shards = new ShardState[manager.shards.length];
+            for (int i = 0; i < shards.length; i++) {
+                shards[i] = new ShardState(manager.shards[i]);
+            }
+            placement = manager.placement.get();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package manager;
+
+// Форматы файла снимка FileBackedTaskManager
+public enum SnapshotFormat {
+    CSV, // Текстовый формат: строка CSV на задачу, используется также для экспорта
+    BINARY, // Двоичный формат BinaryTaskFormat: быстрее читается и не зависит от запятых в тексте
+    COMPRESSED // Сжатый по блокам двоичный формат CompressedTaskFormat: для резервных копий и больших досок
+}
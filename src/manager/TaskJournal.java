@@ -0,0 +1,189 @@
+package manager;
+
+import exception.ManagerSaveException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BiConsumer;
+
+// Это журнал изменений для FileBackedTaskManager: каждое изменение дописывается в конец файла одной записью,
+// поэтому стоимость записи не зависит от количества задач на доске
+public class TaskJournal implements Closeable {
+
+    // Виды записей журнала
+    public enum Operation {
+        PUT, // Добавление или обновление задачи, эпика или подзадачи (полезная нагрузка — строка CSV)
+        DELETE, // Удаление по ID (полезная нагрузка — ID)
+        CLEAR_TASKS, // Очистка всех обычных задач
+        CLEAR_EPICS // Очистка всех эпиков и подзадач
+    }
+
+    private final File file; // Файл журнала
+    private FileOutputStream output; // Открытый на дозапись файл, чтобы не открывать его на каждое изменение
+    private Writer writer; // Буферизованный поток поверх output
+    private long recordCount; // Количество записей в журнале
+    private long sizeInBytes; // Размер журнала в байтах
+
+    public TaskJournal(File file) {
+        this.file = file;
+        this.sizeInBytes = file.length(); // Если журнал уже существует, продолжаем его
+    }
+
+    // Имя файла журнала, который лежит рядом с файлом снимка
+    public static File journalFileFor(File snapshotFile) {
+        return new File(snapshotFile.getPath() + ".journal");
+    }
+
+    // Метод дописывает одну запись в буфер журнала. Чтобы запись попала в файл, нужно вызвать sync()
+    public synchronized void append(Operation operation, String payload) {
+        String record = payload == null ? operation.name() : operation.name() + "," + payload;
+        try {
+            if (writer == null) {
+                output = new FileOutputStream(file, true);
+                writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+            }
+            writer.write(record);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи в журнал", e);
+        }
+        recordCount++;
+        sizeInBytes += record.getBytes(StandardCharsets.UTF_8).length + 1;
+    }
+
+    // Метод записывает накопленные записи в файл; при force = true дожидается их сброса на диск
+    public synchronized void sync(boolean force) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+            if (force) {
+                output.getChannel().force(false);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сброса журнала на диск", e);
+        }
+    }
+
+    // Имя файла, в который откладывается журнал на время записи нового снимка
+    public static File rotatedFileFor(File journalFile) {
+        return new File(journalFile.getPath() + ".old");
+    }
+
+    // Метод проигрывает все записи журнала по порядку. Если запись снимка была прервана, сначала
+    // проигрывается отложенный журнал — записи в нём идемпотентны, поэтому повтор поверх нового снимка безопасен
+    public synchronized void replay(BiConsumer<Operation, String> consumer) {
+        recordCount = 0;
+        replayFile(rotatedFileFor(file), consumer);
+        replayFile(file, consumer);
+    }
+
+    private void replayFile(File source, BiConsumer<Operation, String> consumer) {
+        if (!source.exists()) {
+            return; // Журнала ещё нет — проигрывать нечего
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(source), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            while (line != null) {
+                String next = reader.readLine();
+                if (!line.isEmpty()) {
+                    try {
+                        int comma = line.indexOf(',');
+                        Operation operation = Operation.valueOf(comma < 0 ? line : line.substring(0, comma));
+                        consumer.accept(operation, comma < 0 ? null : line.substring(comma + 1));
+                        recordCount++;
+                    } catch (RuntimeException e) {
+                        if (next != null) {
+                            throw new ManagerSaveException("Повреждённая запись журнала: " + line, e);
+                        }
+                        // Последняя запись могла быть записана не полностью при аварийном завершении — пропускаем её
+                    }
+                }
+                line = next;
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения журнала", e);
+        }
+    }
+
+    // Метод откладывает текущий журнал и начинает новый пустой. Отложенный журнал нужен до тех пор,
+    // пока новый снимок не будет записан, после чего его удаляют методом discardRotated().
+    // Перед переносом журнал сбрасывается на диск: поток записи мог уже подтвердить его записи,
+    // а после ротации он сбрасывает только новый журнал
+    public synchronized File rotate() {
+        File rotated = rotatedFileFor(file);
+        try {
+            sync(true);
+            close();
+            if (file.exists()) {
+                if (rotated.exists()) { // Предыдущая запись снимка не завершилась — дописываем журнал к отложенному
+                    try (FileChannel channel = FileChannel.open(rotated.toPath(), StandardOpenOption.APPEND)) {
+                        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+                        while (content.hasRemaining()) {
+                            channel.write(content);
+                        }
+                        channel.force(false);
+                    }
+                    Files.delete(file.toPath());
+                } else {
+                    Files.move(file.toPath(), rotated.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка ротации журнала", e);
+        }
+        recordCount = 0;
+        sizeInBytes = 0;
+        return rotated;
+    }
+
+    // Метод удаляет отложенный журнал, когда его записи уже вошли в снимок
+    public synchronized void discardRotated() {
+        try {
+            Files.deleteIfExists(rotatedFileFor(file).toPath());
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка удаления отложенного журнала", e);
+        }
+    }
+
+    // Метод очищает журнал (например, после записи нового снимка)
+    public synchronized void truncate() {
+        try {
+            close();
+            new FileOutputStream(file).close(); // Открытие без дозаписи обрезает файл до нуля
+            Files.deleteIfExists(rotatedFileFor(file).toPath());
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка очистки журнала", e);
+        }
+        recordCount = 0;
+        sizeInBytes = 0;
+    }
+
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close(); // Закрытие записывает остаток буфера
+            writer = null;
+            output = null;
+        }
+    }
+}
@@ -4,8 +4,11 @@ import entity.Epic;
 import entity.Subtask;
 import entity.Task;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface TaskManager {
 
@@ -53,6 +56,77 @@ public interface TaskManager {
 
     ArrayList<Subtask> getAllSubtask();
 
+    // Оптимистичное обновление задачи, эпика или подзадачи (метод выбирается по типу): изменение применяется,
+    // только если версия в менеджере всё ещё равна expectedVersion, и тогда версия увеличивается на 1.
+    // Возвращает false, если задачу успели изменить или удалить — тогда её нужно перечитать и повторить
+    boolean compareAndUpdate(Task task, long expectedVersion);
+
     // Новый метод для получения отсортированного списка задач
     List<Task> getPrioritizedTasks();
+
+    // Задачи и подзадачи, которые начинаются в промежутке [from, to), по возрастанию времени начала
+    Collection<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to);
+
+    // Постраничное чтение по курсору: не более limit задач с ID больше afterId по возрастанию ID. Первая страница —
+    // afterId = 0, следующая — после ID последней задачи страницы. Стоимость зависит от размера страницы, а не доски
+    List<Task> pageTasksAfter(int afterId, int limit);
+
+    List<Epic> pageEpicsAfter(int afterId, int limit);
+
+    List<Subtask> pageSubtasksAfter(int afterId, int limit);
+
+    // Страница расписания: не более limit задач и подзадач, которые идут после задачи с временем начала afterStart
+    // и ID afterId (afterStart = null — с начала расписания)
+    List<Task> pagePrioritizedAfter(LocalDateTime afterStart, int afterId, int limit);
+
+    // Ленивые представления только для чтения: задачи читаются страницами по мере обхода, поэтому первые N
+    // элементов стоят O(N), а не копии всего списка. Изменения доски во время обхода видны частично
+    default Stream<Task> streamTasks() {
+        return Pages.stream(last -> pageTasksAfter(last == null ? 0 : last.getId(), Pages.STREAM_PAGE_SIZE));
+    }
+
+    default Stream<Epic> streamEpics() {
+        return Pages.stream(last -> pageEpicsAfter(last == null ? 0 : last.getId(), Pages.STREAM_PAGE_SIZE));
+    }
+
+    default Stream<Subtask> streamSubtasks() {
+        return Pages.stream(last -> pageSubtasksAfter(last == null ? 0 : last.getId(), Pages.STREAM_PAGE_SIZE));
+    }
+
+    default Stream<Task> streamPrioritizedTasks() {
+        return Pages.stream(last -> last == null
+                ? pagePrioritizedAfter(null, 0, Pages.STREAM_PAGE_SIZE)
+                : pagePrioritizedAfter(last.getStartTime(), last.getId(), Pages.STREAM_PAGE_SIZE));
+    }
+
+    // Задачи, эпики и подзадачи, подходящие под запрос (тип, статус, окно времени, эпики, условие where()).
+    // Порядок — TaskQuery.resultOrder(); выборка останавливается, как только набрано limit задач
+    List<Task> findTasks(TaskQuery query);
+
+    // Поиск по словам в названиях и описаниях: слова через пробел — все сразу, группы через OR — любая,
+    // «слово*» — по началу слова. Возвращает не более limit задач, эпиков и подзадач, лучшие — первыми
+    List<Task> searchTasks(String query, int limit);
+
+
+    // Методы для пакетных изменений. Внутри пакета каждое изменение проверяется как обычно (в том числе
+    // на пересечения с уже добавленными в пакете задачами), а расчёт эпиков и сохранение откладываются до commitBatch()
+    void beginBatch();
+
+    void commitBatch();
+
+    void rollbackBatch(); // Возвращает состояние, которое было до beginBatch()
+
+    boolean isInBatch();
+
+    // Метод выполняет изменения одним пакетом. Если изменения завершились исключением, пакет откатывается
+    default void inBatch(Runnable changes) {
+        beginBatch();
+        try {
+            changes.run();
+        } catch (RuntimeException | Error e) {
+            rollbackBatch();
+            throw e;
+        }
+        commitBatch();
+    }
 }
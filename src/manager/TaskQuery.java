@@ -0,0 +1,218 @@
+package manager;
+
+import entity.Status;
+import entity.Subtask;
+import entity.Task;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+// Это запрос к менеджеру задач: фильтры по типу, статусу, окну времени начала, эпикам и произвольному условию,
+// порядок результата и ограничение количества. Запрос неизменяемый — каждый метод возвращает новый запрос,
+// поэтому запросы можно собирать по частям и переиспользовать. Менеджер выполняет запрос лениво: читает индекс
+// в нужном порядке и останавливается, как только набрал limit задач.
+// Пример: TaskQuery.all().subtasksOf(x, y).withoutStatus(Status.DONE).orderByStartTime().limit(100)
+public final class TaskQuery {
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    private Set<TaskType> types;
+    private Set<Status> statuses;
+    private LocalDateTime startFrom; // Начало окна (включительно) или null, если окно не задано
+    private LocalDateTime startTo; // Конец окна (не включительно)
+    private int[] epicIds; // Отсортированные ID эпиков, подзадачи которых нужны, или null
+    private Predicate<? super Task> condition; // Дополнительное условие или null
+    private boolean byStartTime; // Порядок по времени начала, даже если окно не задано
+    private int limit = NO_LIMIT;
+    private ForkJoinPool pool; // Пул для параллельного перебора или null, если запрос выполняется в вызывающем потоке
+
+    private TaskQuery(Set<TaskType> types, Set<Status> statuses) {
+        this.types = types;
+        this.statuses = statuses;
+    }
+
+    // Запрос без фильтров: все задачи, эпики и подзадачи
+    public static TaskQuery all() {
+        return new TaskQuery(EnumSet.allOf(TaskType.class), EnumSet.allOf(Status.class));
+    }
+
+    // Только задачи перечисленных типов
+    public TaskQuery ofType(TaskType... types) {
+        EnumSet<TaskType> selected = EnumSet.noneOf(TaskType.class);
+        selected.addAll(Arrays.asList(types));
+        TaskQuery query = copy();
+        query.types = selected;
+        return query;
+    }
+
+    // Только задачи с перечисленными статусами
+    public TaskQuery withStatus(Status... statuses) {
+        EnumSet<Status> selected = EnumSet.noneOf(Status.class);
+        selected.addAll(Arrays.asList(statuses));
+        TaskQuery query = copy();
+        query.statuses = selected;
+        return query;
+    }
+
+    // Все статусы, кроме перечисленных
+    public TaskQuery withoutStatus(Status... statuses) {
+        EnumSet<Status> selected = EnumSet.allOf(Status.class);
+        selected.removeAll(Arrays.asList(statuses));
+        TaskQuery query = copy();
+        query.statuses = selected;
+        return query;
+    }
+
+    // Только задачи, которые начинаются в промежутке [from, to). Задачи без времени начала в окно не попадают
+    public TaskQuery startingBetween(LocalDateTime from, LocalDateTime to) {
+        TaskQuery query = copy();
+        query.startFrom = Objects.requireNonNull(from);
+        query.startTo = Objects.requireNonNull(to);
+        return query;
+    }
+
+    // Только подзадачи перечисленных эпиков. Менеджер читает их по спискам подзадач эпиков, а не перебором
+    public TaskQuery subtasksOf(int... epicIds) {
+        TaskQuery query = copy();
+        query.types = EnumSet.of(TaskType.SUBTASK_TYPE);
+        query.epicIds = Arrays.stream(epicIds).sorted().distinct().toArray();
+        return query;
+    }
+
+    // Дополнительное условие; несколько условий объединяются через И. При параллельном выполнении
+    // условие вызывается из нескольких потоков сразу, поэтому оно не должно менять общие данные
+    public TaskQuery where(Predicate<? super Task> condition) {
+        Objects.requireNonNull(condition);
+        TaskQuery query = copy();
+        Predicate<? super Task> previous = this.condition;
+        query.condition = previous == null ? condition : task -> previous.test(task) && condition.test(task);
+        return query;
+    }
+
+    // Результат по времени начала (при равном времени — по ID); задачи без времени начала — в конце по ID
+    public TaskQuery orderByStartTime() {
+        TaskQuery query = copy();
+        query.byStartTime = true;
+        return query;
+    }
+
+    // Не больше limit задач результата
+    public TaskQuery limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Ограничение не может быть отрицательным: " + limit);
+        }
+        TaskQuery query = copy();
+        query.limit = limit;
+        return query;
+    }
+
+    // Большой перебор выполняется параллельным потоком в общем ForkJoinPool
+    public TaskQuery parallel() {
+        return parallel(ForkJoinPool.commonPool());
+    }
+
+    // Большой перебор выполняется параллельным потоком в заданном пуле
+    public TaskQuery parallel(ForkJoinPool pool) {
+        TaskQuery query = copy();
+        query.pool = Objects.requireNonNull(pool);
+        return query;
+    }
+
+    public Set<TaskType> getTypes() {
+        return EnumSet.copyOf(types);
+    }
+
+    public Set<Status> getStatuses() {
+        return EnumSet.copyOf(statuses);
+    }
+
+    public boolean includes(TaskType type) {
+        return types.contains(type);
+    }
+
+    public boolean includes(Status status) {
+        return statuses.contains(status);
+    }
+
+    public boolean hasTimeWindow() {
+        return startFrom != null;
+    }
+
+    public LocalDateTime getStartFrom() {
+        return startFrom;
+    }
+
+    public LocalDateTime getStartTo() {
+        return startTo;
+    }
+
+    public boolean hasEpicFilter() {
+        return epicIds != null;
+    }
+
+    public int[] getEpicIds() {
+        return epicIds == null ? new int[0] : epicIds.clone();
+    }
+
+    // Порядок по времени начала: задан явно или следует из окна времени
+    public boolean isOrderedByStartTime() {
+        return byStartTime || startFrom != null;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean isParallel() {
+        return pool != null;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    // Метод проверяет задачу на соответствие всем фильтрам запроса
+    public boolean matches(Task task) {
+        if (!types.contains(task.getType()) || !statuses.contains(task.getStatus())) {
+            return false;
+        }
+        if (epicIds != null && (!(task instanceof Subtask subtask)
+                || Arrays.binarySearch(epicIds, subtask.getEpicId()) < 0)) {
+            return false;
+        }
+        if (startFrom != null) {
+            LocalDateTime start = task.getStartTime();
+            if (start == null || start.isBefore(startFrom) || !start.isBefore(startTo)) {
+                return false;
+            }
+        }
+        return condition == null || condition.test(task);
+    }
+
+    // Порядок результата: по времени начала (с окном или после orderByStartTime()), иначе — по ID
+    public Comparator<Task> resultOrder() {
+        Comparator<Task> byId = Comparator.comparingInt(Task::getId);
+        if (!isOrderedByStartTime()) {
+            return byId;
+        }
+        return Comparator.comparing(Task::getStartTime, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(byId);
+    }
+
+    private TaskQuery copy() {
+        TaskQuery query = new TaskQuery(types, statuses);
+        query.startFrom = startFrom;
+        query.startTo = startTo;
+        query.epicIds = epicIds;
+        query.condition = condition;
+        query.byStartTime = byStartTime;
+        query.limit = limit;
+        query.pool = pool;
+        return query;
+    }
+}
@@ -0,0 +1,310 @@
+package manager;
+
+import entity.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Это инвертированный индекс по названиям и описаниям задач: для каждого слова хранится отсортированный
+// список ID задач, в которых оно встречается. Слова хранятся в TreeMap, поэтому поиск по началу слова
+// читает только подходящий участок словаря. Для каждой задачи запоминается проиндексированный текст:
+// при обновлении из индекса убираются только исчезнувшие слова, а при неизменном тексте индекс не трогается.
+//
+// Запрос: слова через пробел должны встретиться все (AND), группы слов через OR — любая из групп,
+// слово со звёздочкой на конце ищется по началу («отчёт* OR квартал»). Регистр и буквы «ё»/«е» не различаются
+public class TextIndex {
+    private static final String OR = "OR";
+    private static final char PREFIX = '*';
+
+    private final TreeMap<String, Postings> postingsByTerm = new TreeMap<>();
+    private final IntObjectMap<String[]> indexedText = new IntObjectMap<>(); // ID → {название, описание}
+
+    // Отсортированный список ID задач, в которых встречается слово
+    private static final class Postings {
+        private int[] ids = new int[2];
+        private int size;
+
+        private void add(int id) {
+            if (size > 0 && ids[size - 1] >= id) { // Обычно ID растут и добавляются в конец
+                int position = Arrays.binarySearch(ids, 0, size, id);
+                if (position >= 0) {
+                    return;
+                }
+                insert(-position - 1, id);
+                return;
+            }
+            insert(size, id);
+        }
+
+        private void insert(int position, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        private void remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                size--;
+            }
+        }
+
+        private boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+
+    // Метод индексирует название и описание задачи (или обновляет их, если текст задачи изменился)
+    public void put(Task task) {
+        String[] previous = indexedText.get(task.getId());
+        if (previous != null && Objects.equals(previous[0], task.getName())
+                && Objects.equals(previous[1], task.getDescription())) {
+            return; // Текст не изменился
+        }
+        Set<String> terms = terms(task.getName(), task.getDescription());
+        if (previous != null) {
+            for (String term : terms(previous[0], previous[1])) {
+                if (!terms.remove(term)) { // Слова, которые остались в тексте, не трогаем
+                    removePosting(term, task.getId());
+                }
+            }
+        }
+        for (String term : terms) {
+            postingsByTerm.computeIfAbsent(term, key -> new Postings()).add(task.getId());
+        }
+        indexedText.put(task.getId(), new String[]{task.getName(), task.getDescription()});
+    }
+
+    // Метод удаляет задачу из индекса по ID и возвращает true, если она там была
+    public boolean remove(int id) {
+        String[] previous = indexedText.remove(id);
+        if (previous == null) {
+            return false;
+        }
+        for (String term : terms(previous[0], previous[1])) {
+            removePosting(term, id);
+        }
+        return true;
+    }
+
+    public int size() {
+        return indexedText.size();
+    }
+
+    public void clear() {
+        postingsByTerm.clear();
+        indexedText.clear();
+    }
+
+    // Метод возвращает ID не более чем limit задач, подходящих под запрос. Выше стоят задачи, которые подходят
+    // под большее число OR-групп, при равенстве — с меньшим ID
+    public int[] search(String query, int limit) {
+        List<List<String>> groups = parse(query);
+        if (groups.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+        if (groups.size() == 1) { // Один AND-запрос: все результаты равноценны, берём первые по ID
+            return matchGroup(groups.get(0), limit);
+        }
+        // Несколько групп: считаем, под сколько групп подходит каждая задача, и отбираем лучшие кучей размера limit
+        IntObjectMap<int[]> hits = new IntObjectMap<>();
+        for (List<String> group : groups) {
+            for (int id : matchGroup(group, Integer.MAX_VALUE)) {
+                int[] count = hits.get(id);
+                if (count == null) {
+                    hits.put(id, new int[]{1});
+                } else {
+                    count[0]++;
+                }
+            }
+        }
+        // В вершине кучи — худший из отобранных результатов
+        PriorityQueue<int[]> best = new PriorityQueue<>(limit + 1,
+                (a, b) -> a[1] != b[1] ? Integer.compare(a[1], b[1]) : Integer.compare(b[0], a[0]));
+        for (int id : hits.keys()) {
+            best.add(new int[]{id, hits.get(id)[0]});
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        int[] result = new int[best.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = best.poll()[0];
+        }
+        return result;
+    }
+
+    // Метод возвращает, под сколько OR-групп запроса подходит задача с этим ID (0 — не подходит или её нет
+    // в индексе). По этому числу результаты search() нескольких индексов сливаются в том же порядке
+    public int matchedGroups(String query, int id) {
+        String[] text = indexedText.get(id);
+        if (text == null) {
+            return 0;
+        }
+        Set<String> terms = terms(text[0], text[1]);
+        int matched = 0;
+        for (List<String> group : parse(query)) {
+            boolean all = true;
+            for (String term : group) {
+                if (term.charAt(term.length() - 1) != PREFIX) {
+                    all &= terms.contains(term);
+                    continue;
+                }
+                String prefix = term.substring(0, term.length() - 1);
+                all &= !prefix.isEmpty() && terms.stream().anyMatch(word -> word.startsWith(prefix));
+            }
+            if (all) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    // Метод находит первые (по ID) limit задач, в которых есть все слова группы. Пересечение начинается
+    // с самого короткого списка, а остальные слова проверяются двоичным поиском
+    private int[] matchGroup(List<String> group, int limit) {
+        List<int[]> lists = new ArrayList<>();
+        List<Postings> exact = new ArrayList<>();
+        for (String term : group) {
+            if (term.charAt(term.length() - 1) == PREFIX) {
+                int[] ids = prefixIds(term.substring(0, term.length() - 1));
+                if (ids.length == 0) {
+                    return ids;
+                }
+                lists.add(ids);
+            } else {
+                Postings postings = postingsByTerm.get(term);
+                if (postings == null || postings.size == 0) {
+                    return new int[0];
+                }
+                exact.add(postings);
+            }
+        }
+        int[] candidates = null;
+        for (Postings postings : exact) {
+            if (candidates == null || postings.size < candidates.length) {
+                candidates = Arrays.copyOf(postings.ids, postings.size);
+            }
+        }
+        for (int[] ids : lists) {
+            if (candidates == null || ids.length < candidates.length) {
+                candidates = ids;
+            }
+        }
+        int[] result = new int[Math.min(candidates.length, limit)];
+        int count = 0;
+        for (int i = 0; i < candidates.length && count < limit; i++) {
+            int id = candidates[i];
+            boolean all = true;
+            for (Postings postings : exact) {
+                all &= postings.contains(id);
+            }
+            for (int[] ids : lists) {
+                all &= Arrays.binarySearch(ids, id) >= 0;
+            }
+            if (all) {
+                result[count++] = id;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // Объединение списков всех слов с заданным началом, отсортированное и без повторов
+    private int[] prefixIds(String prefix) {
+        if (prefix.isEmpty()) {
+            return new int[0]; // Одна звёздочка не ограничивает поиск — такой запрос ничего не находит
+        }
+        int total = 0;
+        List<Postings> matched = new ArrayList<>(postingsByTerm.subMap(prefix, prefix + Character.MAX_VALUE).values());
+        for (Postings postings : matched) {
+            total += postings.size;
+        }
+        int[] ids = new int[total];
+        int offset = 0;
+        for (Postings postings : matched) {
+            System.arraycopy(postings.ids, 0, ids, offset, postings.size);
+            offset += postings.size;
+        }
+        Arrays.sort(ids);
+        int count = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                ids[count++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    private void removePosting(String term, int id) {
+        Postings postings = postingsByTerm.get(term);
+        if (postings != null) {
+            postings.remove(id);
+            if (postings.size == 0) {
+                postingsByTerm.remove(term);
+            }
+        }
+    }
+
+    // Метод разбирает запрос на OR-группы слов. Слова приводятся к тому же виду, что и при индексации
+    static List<List<String>> parse(String query) {
+        List<List<String>> groups = new ArrayList<>();
+        List<String> group = new ArrayList<>();
+        for (String word : query.trim().split("\\s+")) {
+            if (word.equals(OR)) {
+                if (!group.isEmpty()) {
+                    groups.add(group);
+                }
+                group = new ArrayList<>();
+                continue;
+            }
+            boolean prefix = word.endsWith(String.valueOf(PREFIX));
+            int before = group.size();
+            for (String term : terms(prefix ? word.substring(0, word.length() - 1) : word, null)) {
+                group.add(term);
+            }
+            // Звёздочка относится к последнему слову этого же токена; токен без слов («*») ничего не меняет
+            if (prefix && group.size() > before) {
+                group.set(group.size() - 1, group.get(group.size() - 1) + PREFIX);
+            }
+        }
+        if (!group.isEmpty()) {
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    // Метод разбивает текст на слова: последовательности букв и цифр в нижнем регистре, «ё» заменяется на «е»
+    static Set<String> terms(String name, String description) {
+        Set<String> terms = new LinkedHashSet<>();
+        addTerms(name, terms);
+        addTerms(description, terms);
+        return terms;
+    }
+
+    private static void addTerms(String text, Set<String> terms) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase(Locale.ROOT).replace('ё', 'е'));
+                start = -1;
+            }
+        }
+    }
+}
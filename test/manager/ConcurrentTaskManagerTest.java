@@ -0,0 +1,349 @@
+package manager;
+
+import entity.Epic;
+import entity.Status;
+import entity.Subtask;
+import entity.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+    private static final int THREADS = 8;
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @BeforeEach
+    public void setUp() {
+        taskManager = Managers.getConcurrentTaskManager();
+    }
+
+    @Test
+        // Тест для проверки, что при изменении разных эпиков из многих потоков ID не повторяются,
+        // а статус, время и список подзадач каждого эпика совпадают с пересчётом с нуля
+    void testParallelEpicsStayConsistent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<List<Epic>>> results = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int slotOffset = thread;
+            results.add(executor.submit(() -> {
+                Random random = new Random(slotOffset);
+                Status[] statuses = Status.values();
+                List<Epic> epics = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    Epic epic = new Epic("Epic" + i, "Desc");
+                    taskManager.addEpic(epic);
+                    epics.add(epic);
+                }
+                List<Subtask> subtasks = new ArrayList<>();
+                for (int step = 0; step < 3000; step++) {
+                    int action = random.nextInt(3);
+                    // У каждого потока свои слоты времени, поэтому подзадачи разных потоков не пересекаются
+                    LocalDateTime start = BASE.plusHours((long) step * THREADS + slotOffset);
+                    if (action == 0 || subtasks.isEmpty()) {
+                        Subtask subtask = new Subtask("Sub" + step, "Desc", statuses[random.nextInt(statuses.length)],
+                                epics.get(random.nextInt(epics.size())).getId(), Duration.ofMinutes(30), start);
+                        taskManager.addSubtask(subtask);
+                        subtasks.add(subtask);
+                    } else if (action == 1) {
+                        Subtask subtask = subtasks.get(random.nextInt(subtasks.size()));
+                        subtask.setStatus(statuses[random.nextInt(statuses.length)]);
+                        subtask.setStartTime(start);
+                        taskManager.updateSubtask(subtask);
+                    } else {
+                        taskManager.deleteSubtask(subtasks.remove(random.nextInt(subtasks.size())).getId());
+                    }
+                }
+                return epics;
+            }));
+        }
+        List<Epic> epics = new ArrayList<>();
+        for (Future<List<Epic>> result : results) {
+            epics.addAll(result.get(60, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        Set<Integer> ids = new HashSet<>();
+        for (Subtask subtask : taskManager.getAllSubtask()) {
+            assertTrue(ids.add(subtask.getId()), "ID подзадач не должны повторяться");
+        }
+        for (Epic epic : epics) {
+            assertTrue(ids.add(epic.getId()), "ID эпиков не должны повторяться");
+            assertEpicMatchesSubtasks(epic);
+        }
+        assertEquals(taskManager.getAllSubtask().size(), taskManager.getPrioritizedTasks().size());
+        assertNoOverlaps();
+    }
+
+    @Test
+        // Тест для проверки, что потоки, которые добавляют задачи в одни и те же слоты времени,
+        // не могут одновременно пройти проверку пересечений
+    void testConcurrentOverlapChecks() throws Exception {
+        Epic epic = new Epic("Epic", "Desc");
+        taskManager.addEpic(epic);
+        AtomicInteger added = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int seed = thread;
+            results.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 2000; i++) {
+                    LocalDateTime start = BASE.plusMinutes(random.nextInt(2000) * 10L);
+                    try {
+                        if (random.nextBoolean()) {
+                            taskManager.addTask(new Task("Task", "Desc", Status.NEW, Duration.ofMinutes(25), start));
+                        } else {
+                            taskManager.addSubtask(new Subtask("Sub", "Desc", Status.NEW, epic.getId(),
+                                    Duration.ofMinutes(25), start));
+                        }
+                        added.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        // Слот уже занят другим потоком
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(added.get(), taskManager.getPrioritizedTasks().size());
+        assertEquals(added.get(), taskManager.getAllTasks().size() + taskManager.getAllSubtask().size());
+        assertNoOverlaps();
+        assertEpicMatchesSubtasks(epic);
+    }
+
+    @Test
+        // Тест для проверки, что изменение из другого потока ждёт закрытия пакета, а откат пакета
+        // не теряет это изменение
+    void testBatchExcludesOtherThreads() throws Exception {
+        Epic epic = new Epic("Epic", "Desc");
+        taskManager.addEpic(epic);
+        taskManager.beginBatch();
+        taskManager.addSubtask(new Subtask("Sub1", "Desc", Status.DONE, epic.getId()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2); // Второй поток свободен, пока первый ждёт
+        Future<?> other = executor.submit(() -> taskManager.addSubtask(
+                new Subtask("Sub2", "Desc", Status.NEW, epic.getId())));
+        Thread.sleep(100);
+        assertFalse(other.isDone(), "Изменение эпика из другого потока должно ждать закрытия пакета");
+        assertFalse(executor.submit(taskManager::isInBatch).get(), "Пакет открыт только в своём потоке");
+
+        taskManager.rollbackBatch();
+        other.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+        assertEquals(List.of("Sub2"), taskManager.getSubtasksForEpic(epic.getId()).stream()
+                .map(Task::getName).toList());
+        assertEquals(Status.NEW, taskManager.getEpic(epic.getId()).getStatus());
+    }
+
+    @Test
+        // Тест для проверки, что потоки, которые увеличивают счётчик в описании задачи через compareAndUpdate
+        // с повтором при конфликте, не теряют ни одного обновления
+    void testCompareAndUpdateLosesNoUpdates() throws Exception {
+        Task counter = taskManager.addTask(new Task("Counter", "0", Status.NEW));
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            results.add(executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    while (true) {
+                        Task current = taskManager.getTask(counter.getId());
+                        long version = current.getVersion(); // Каждое обновление кладёт новый объект
+                        Task next = new Task("Counter", String.valueOf(Integer.parseInt(current.getDescription()) + 1),
+                                Status.NEW);
+                        next.setId(counter.getId());
+                        if (taskManager.compareAndUpdate(next, version)) {
+                            break; // Иначе задачу успел обновить другой поток — перечитываем и повторяем
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Task result = taskManager.getTask(counter.getId());
+        assertEquals(String.valueOf(THREADS * 1000), result.getDescription());
+        assertEquals(THREADS * 1000L, result.getVersion());
+    }
+
+    @Test
+        // Тест для проверки, что менеджеры с общим файлом аренды (как разные процессы) выдают непересекающиеся ID,
+        // а новый менеджер продолжает нумерацию с границы из файла
+    void testLeaseFileIdsDoNotOverlap() throws Exception {
+        File lease = File.createTempFile("idLease", ".lease");
+        lease.delete();
+        try {
+            List<ConcurrentTaskManager> nodes = List.of(Managers.getConcurrentTaskManager(lease),
+                    Managers.getConcurrentTaskManager(lease));
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                TaskManager node = nodes.get(thread % nodes.size());
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 3000; i++) {
+                        node.addTask(new Task("Task", "Desc", Status.NEW));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+
+            Set<Integer> ids = new HashSet<>();
+            int maxId = 0;
+            for (TaskManager node : nodes) {
+                for (Task task : node.getAllTasks()) {
+                    assertTrue(ids.add(task.getId()), "ID " + task.getId() + " выдан дважды");
+                    maxId = Math.max(maxId, task.getId());
+                }
+            }
+            assertEquals(THREADS * 3000, ids.size());
+            LeaseFileIdAllocator restarted = new LeaseFileIdAllocator(lease);
+            assertTrue(restarted.getHighWater() >= maxId);
+            assertTrue(restarted.nextId() > maxId, "После перезапуска ID продолжаются с границы из файла");
+        } finally {
+            lease.delete();
+        }
+    }
+
+    @Test
+        // Тест для проверки полос индексов: потоки меняют подзадачи своих эпиков, пока другой поток выполняет
+        // запросы и поиск, и в итоге индексы запросов и поиска совпадают с хранилищами
+    void testParallelWritersKeepIndexesConsistent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Future<?> reader = executor.submit(() -> {
+            while (writing.get()) {
+                taskManager.findTasks(TaskQuery.all().withoutStatus(Status.NEW).limit(50));
+                taskManager.searchTasks("поток1 OR поток2", 20);
+            }
+            return null;
+        });
+        List<Future<Epic>> results = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int number = thread;
+            results.add(executor.submit(() -> {
+                Epic epic = new Epic("Эпик поток" + number, "Desc");
+                taskManager.addEpic(epic);
+                List<Subtask> added = new ArrayList<>();
+                for (int i = 0; i < 300; i++) {
+                    Subtask subtask = new Subtask("Подзадача поток" + number, "Desc", Status.NEW, epic.getId());
+                    taskManager.addSubtask(subtask);
+                    added.add(subtask);
+                }
+                for (int i = 0; i < added.size(); i++) {
+                    Subtask subtask = added.get(i);
+                    if (i % 3 == 0) {
+                        taskManager.deleteSubtask(subtask.getId());
+                    } else if (i % 3 == 1) {
+                        Subtask done = new Subtask("Готово поток" + number, "Desc", Status.DONE, epic.getId());
+                        done.setId(subtask.getId());
+                        taskManager.updateSubtask(done);
+                    }
+                }
+                return epic;
+            }));
+        }
+        List<Epic> epics = new ArrayList<>();
+        for (Future<Epic> result : results) {
+            epics.add(result.get(60, TimeUnit.SECONDS));
+        }
+        writing.set(false);
+        reader.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        for (int number = 0; number < epics.size(); number++) {
+            Epic epic = epics.get(number);
+            List<Integer> expected = new ArrayList<>(List.of(epic.getId()));
+            taskManager.getSubtasksForEpic(epic.getId()).forEach(subtask -> expected.add(subtask.getId()));
+            expected.sort(null);
+            assertEquals(expected, taskManager.searchTasks("поток" + number, Integer.MAX_VALUE).stream()
+                    .map(Task::getId).sorted().toList());
+            assertEquals(Status.NEW, epic.getStatus()); // Подзадачи NEW и DONE без IN_PROGRESS
+        }
+        List<Integer> done = taskManager.getAllSubtask().stream()
+                .filter(subtask -> subtask.getStatus() == Status.DONE).map(Task::getId).toList();
+        assertEquals(THREADS * 100, done.size());
+        List<Integer> found = taskManager.findTasks(TaskQuery.all().withoutStatus(Status.NEW, Status.IN_PROGRESS))
+                .stream().map(Task::getId).toList();
+        assertEquals(done, found);
+    }
+
+    @Test
+        // Тест для проверки, что обновление подзадачи захватывает полосу эпика хранимой подзадачи,
+        // а перенос в другой эпик (через новый объект или изменённый хранимый) отклоняется
+    void testUpdateSubtaskUsesStoredEpic() {
+        Epic first = new Epic("Epic1", "Desc");
+        Epic second = new Epic("Epic2", "Desc");
+        taskManager.addEpic(first);
+        taskManager.addEpic(second);
+        Subtask subtask = new Subtask("Sub", "Desc", Status.NEW, first.getId());
+        taskManager.addSubtask(subtask);
+
+        Subtask stale = new Subtask("Sub", "Desc", Status.DONE, second.getId());
+        stale.setId(subtask.getId());
+        assertThrows(IllegalArgumentException.class, () -> taskManager.updateSubtask(stale));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.compareAndUpdate(stale, 0));
+        subtask.setEpicId(second.getId());
+        assertThrows(IllegalArgumentException.class, () -> taskManager.updateSubtask(subtask));
+        subtask.setEpicId(first.getId());
+
+        Subtask done = new Subtask("Sub", "Desc", Status.DONE, first.getId());
+        done.setId(subtask.getId());
+        assertTrue(taskManager.compareAndUpdate(done, 0));
+        assertEquals(Status.DONE, taskManager.getEpic(first.getId()).getStatus());
+        assertTrue(taskManager.getSubtasksForEpic(second.getId()).isEmpty());
+        assertEquals(Status.NEW, taskManager.getEpic(second.getId()).getStatus());
+    }
+
+    // Метод сравнивает эпик с эпиком, агрегаты которого заполнены заново по его подзадачам
+    private void assertEpicMatchesSubtasks(Epic epic) {
+        Epic recounted = new Epic(epic.getName(), epic.getDescription());
+        for (Subtask subtask : taskManager.getSubtasksForEpic(epic.getId())) {
+            assertEquals(epic.getId(), subtask.getEpicId());
+            recounted.addSubtask(subtask.getId());
+            recounted.countSubtask(subtask);
+        }
+        recounted.applyTimeFromCounts();
+        long members = taskManager.getAllSubtask().stream().filter(s -> s.getEpicId() == epic.getId()).count();
+        assertEquals(members, epic.getSubtaskIdList().size());
+        assertEquals(recounted.statusFromCounts(), epic.getStatus());
+        assertEquals(recounted.getStartTime(), epic.getStartTime());
+        assertEquals(recounted.getEndTime(), epic.getEndTime());
+        assertEquals(recounted.getDuration(), epic.getDuration());
+    }
+
+    // Метод проверяет, что соседние задачи расписания не пересекаются по времени
+    private void assertNoOverlaps() {
+        List<Task> prioritized = taskManager.getPrioritizedTasks();
+        for (int i = 1; i < prioritized.size(); i++) {
+            assertFalse(prioritized.get(i).getStartTime().isBefore(prioritized.get(i - 1).getEndTime()),
+                    "Задачи " + prioritized.get(i - 1) + " и " + prioritized.get(i) + " пересекаются");
+        }
+    }
+}
@@ -4,14 +4,24 @@ import entity.Epic;
 import entity.Status;
 import entity.Subtask;
 import entity.Task;
+import exception.ManagerSaveException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -27,7 +37,9 @@ class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
     @AfterEach
         // Метод выполняется после каждого теста. Удаляет временный файл, чтобы не засорять файловую систему.
     void tearDown() {
+        taskManager.close();
         tempFile.delete();
+        TaskJournal.journalFileFor(tempFile).delete(); // Удаляем журнал, если тест работал в режиме журнала
     }
 
     @Test
@@ -81,5 +93,466 @@ class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
         assertEquals(Duration.ofMinutes(30), loadedEpic.getDuration());
         assertEquals(LocalDateTime.of(2025, 3, 1, 11, 0), loadedEpic.getStartTime());
     }
-}
 
+    @Test
+        // Тест для проверки режима журнала: изменения дописываются в журнал, а снимок не перезаписывается
+    void testJournalAppendsWithoutRewritingSnapshot() {
+        taskManager = new FileBackedTaskManager(tempFile, true);
+        long snapshotLength = tempFile.length(); // Размер пустого снимка
+
+        Task task = new Task("Task1", "DescriptionT1", Status.NEW,
+                Duration.ofMinutes(60), LocalDateTime.of(2025, 3, 1, 10, 0));
+        taskManager.addTask(task);
+        Epic epic = new Epic("Epic1", "DescriptionE1");
+        taskManager.addEpic(epic);
+        Subtask subtask = new Subtask("Sub1", "DescriptionS1", Status.DONE, epic.getId(),
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 3, 1, 11, 0));
+        taskManager.addSubtask(subtask);
+
+        assertEquals(snapshotLength, tempFile.length(), "Снимок не должен перезаписываться");
+        assertTrue(TaskJournal.journalFileFor(tempFile).length() > 0, "Изменения должны попасть в журнал");
+    }
+
+    @Test
+        // Тест для проверки, что новый менеджер в режиме журнала не затирает уже записанные снимок и журнал
+    void testJournaledConstructorRefusesExistingData() {
+        taskManager = new FileBackedTaskManager(tempFile, true);
+        Task task = taskManager.addTask(new Task("Task1", "Desc", Status.NEW));
+        taskManager.close();
+
+        assertThrows(IllegalStateException.class, () -> new FileBackedTaskManager(tempFile, true));
+        assertThrows(IllegalStateException.class, () -> Managers.getJournaledTaskManager(tempFile,
+                Durability.GROUP_COMMIT));
+        taskManager = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(List.of(task), taskManager.getAllTasks());
+    }
+
+    @Test
+        // Тест для проверки загрузки снимка и журнала с обновлениями и удалениями
+    void testJournalReplayAfterUpdatesAndDeletes() {
+        taskManager = new FileBackedTaskManager(tempFile, true);
+        Task task1 = new Task("Task1", "Desc", Status.NEW,
+                Duration.ofMinutes(60), LocalDateTime.of(2025, 3, 1, 10, 0));
+        Task task2 = new Task("Task2", "Desc", Status.NEW);
+        taskManager.addTask(task1);
+        taskManager.addTask(task2);
+        Epic epic = new Epic("Epic1", "Desc");
+        taskManager.addEpic(epic);
+        Subtask subtask1 = new Subtask("Sub1", "Desc", Status.DONE, epic.getId(),
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 3, 1, 12, 0));
+        Subtask subtask2 = new Subtask("Sub2", "Desc", Status.NEW, epic.getId());
+        taskManager.addSubtask(subtask1);
+        taskManager.addSubtask(subtask2);
+
+        task1.setName("Updated");
+        taskManager.updateTask(task1);
+        taskManager.deleteTask(task2.getId());
+        taskManager.deleteSubtask(subtask2.getId());
+        taskManager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+        assertTrue(loadedManager.isJournaled(), "Менеджер должен продолжить работу в режиме журнала");
+        assertEquals(1, loadedManager.getAllTasks().size());
+        assertEquals("Updated", loadedManager.getTask(task1.getId()).getName());
+        assertEquals(1, loadedManager.getSubtasksForEpic(epic.getId()).size());
+        Epic loadedEpic = loadedManager.getEpic(epic.getId());
+        assertEquals(Status.DONE, loadedEpic.getStatus()); // Статус эпика пересчитан из подзадач
+        assertEquals(LocalDateTime.of(2025, 3, 1, 12, 0), loadedEpic.getStartTime());
+
+        // Новый ID не должен совпасть с уже выданными
+        Task task3 = loadedManager.addTask(new Task("Task3", "Desc", Status.NEW));
+        assertTrue(task3.getId() > subtask2.getId());
+        loadedManager.close();
+    }
+
+    @Test
+        // Тест для проверки свёртки журнала: после неё снимок содержит все данные, а журнал пуст
+    void testCompactWritesSnapshotAndTruncatesJournal() {
+        taskManager = new FileBackedTaskManager(tempFile, true);
+        Task task = new Task("Task1", "Desc", Status.NEW,
+                Duration.ofMinutes(60), LocalDateTime.of(2025, 3, 1, 10, 0));
+        taskManager.addTask(task);
+        Epic epic = new Epic("Epic1", "Desc");
+        taskManager.addEpic(epic);
+        taskManager.addSubtask(new Subtask("Sub1", "Desc", Status.IN_PROGRESS, epic.getId()));
+
+        taskManager.compact();
+        assertEquals(0, taskManager.getJournalRecordCount());
+        assertEquals(0, TaskJournal.journalFileFor(tempFile).length(), "Журнал должен быть обрезан");
+
+        taskManager.deleteTask(task.getId()); // Изменение после снимка попадает в новый журнал
+        taskManager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+        assertTrue(loadedManager.getAllTasks().isEmpty());
+        assertEquals(1, loadedManager.getAllSubtask().size());
+        assertEquals(Status.IN_PROGRESS, loadedManager.getEpic(epic.getId()).getStatus());
+        loadedManager.close();
+    }
+
+    @Test
+        // Тест для проверки фоновой свёртки журнала по порогу количества записей
+    void testBackgroundCompactionByRecordCount() throws InterruptedException {
+        taskManager = new FileBackedTaskManager(tempFile, true);
+        taskManager.startCompaction(new CompactionPolicy(Long.MAX_VALUE, 2,
+                Duration.ofDays(1), Duration.ofMillis(10)));
+        taskManager.addTask(new Task("Task1", "Desc", Status.NEW));
+        taskManager.addTask(new Task("Task2", "Desc", Status.NEW));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (taskManager.getJournalRecordCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10); // Ждём, пока фоновый поток запишет снимок
+        }
+        assertEquals(0, taskManager.getJournalRecordCount(), "Журнал должен быть свёрнут в фоне");
+        taskManager.close();
+        assertEquals(2, FileBackedTaskManager.loadFromFile(tempFile, false).getAllTasks().size(),
+                "Снимок без журнала должен содержать обе задачи");
+    }
+
+    @Test
+        // Тест для проверки, что ошибка фоновой свёртки доступна через getLastCompactionFailure()
+    void testBackgroundCompactionFailureIsExposed() throws IOException, InterruptedException {
+        taskManager = new FileBackedTaskManager(tempFile, true);
+        taskManager.addTask(new Task("Task1", "Desc", Status.NEW));
+        // Непустой каталог на месте снимка: новый снимок не удастся переместить на его место
+        assertTrue(tempFile.delete());
+        assertTrue(tempFile.mkdir());
+        File blocker = new File(tempFile, "blocker");
+        assertTrue(blocker.createNewFile());
+        try {
+            taskManager.startCompaction(new CompactionPolicy(Long.MAX_VALUE, 1,
+                    Duration.ofDays(1), Duration.ofMillis(10)));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (taskManager.getLastCompactionFailure() == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10); // Ждём, пока фоновый поток попробует записать снимок
+            }
+            assertNotNull(taskManager.getLastCompactionFailure(), "Ошибка свёртки должна быть доступна");
+            taskManager.close();
+        } finally {
+            blocker.delete();
+            new File(tempFile.getPath() + ".tmp").delete();
+            TaskJournal.rotatedFileFor(TaskJournal.journalFileFor(tempFile)).delete(); // Свёртка не завершилась
+        }
+    }
+
+    @Test
+        // Тест для проверки групповой записи: изменения из нескольких потоков сохраняются пачками
+    void testGroupCommitFromSeveralThreads() throws InterruptedException {
+        taskManager = Managers.getJournaledTaskManager(tempFile, Durability.GROUP_COMMIT);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 50; j++) {
+                    taskManager.addTask(new Task("Task", "Desc", Status.NEW));
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // После возврата из addTask изменения уже записаны, поэтому загрузка видит все задачи без close()
+        assertEquals(200, FileBackedTaskManager.loadFromFile(tempFile).getAllTasks().size());
+    }
+
+    @Test
+        // Тест для проверки групповой записи во время свёртки журнала: подтверждённые изменения из отложенного
+        // и из нового журнала, а также записанные в снимок, видны при загрузке
+    void testGroupCommitWithConcurrentCompaction() throws InterruptedException {
+        taskManager = Managers.getJournaledTaskManager(tempFile, Durability.GROUP_COMMIT);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 100; j++) {
+                    taskManager.addTask(new Task("Task", "Desc", Status.NEW));
+                }
+            });
+            threads[i].start();
+        }
+        Thread compaction = new Thread(() -> {
+            while (Arrays.stream(threads).anyMatch(Thread::isAlive)) {
+                taskManager.compact();
+            }
+        });
+        compaction.start();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        compaction.join();
+        assertEquals(400, FileBackedTaskManager.loadFromFile(tempFile).getAllTasks().size());
+    }
+
+    @Test
+        // Тест для проверки, что непредвиденная ошибка записи будит ожидающих, а не оставляет их ждать вечно
+    void testGroupCommitWriterFailureWakesWaiters() {
+        GroupCommitWriter writer = new GroupCommitWriter(Durability.GROUP_COMMIT, () -> {
+            throw new IllegalStateException("Сбой кодирования");
+        });
+        long ticket = writer.markDirty();
+        ManagerSaveException e = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> assertThrows(ManagerSaveException.class, () -> writer.awaitDurable(ticket)));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        writer.close();
+        assertThrows(ManagerSaveException.class, () -> writer.awaitDurable(writer.markDirty()));
+    }
+
+    @Test
+        // Тест для проверки, что ошибка асинхронной записи доступна через getLastFailure(), хотя её никто не ждёт
+    void testAsyncWriteFailureIsExposed() throws InterruptedException {
+        GroupCommitWriter writer = new GroupCommitWriter(Durability.ASYNC, () -> {
+            throw new ManagerSaveException("Диск заполнен");
+        });
+        assertNull(writer.getLastFailure(), "До первой записи ошибок быть не должно");
+        writer.markDirty();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (writer.getLastFailure() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10); // Ждём, пока фоновый поток попробует записать изменение
+        }
+        assertEquals("Диск заполнен", writer.getLastFailure().getMessage());
+        writer.close();
+    }
+
+    @Test
+        // Тест для проверки асинхронной записи полного снимка: после close() все изменения на диске
+    void testAsyncSnapshotWrittenOnClose() {
+        taskManager = Managers.getFileBackedTaskManager(tempFile, Durability.ASYNC);
+        Epic epic = new Epic("Epic1", "Desc");
+        taskManager.addEpic(epic);
+        for (int i = 0; i < 100; i++) {
+            taskManager.addSubtask(new Subtask("Sub" + i, "Desc", Status.DONE, epic.getId()));
+        }
+        taskManager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(100, loadedManager.getSubtasksForEpic(epic.getId()).size());
+        assertEquals(Status.DONE, loadedManager.getEpic(epic.getId()).getStatus());
+    }
+
+    @Test
+        // Тест для проверки пакета без журнала: снимок перезаписывается один раз при закрытии пакета
+    void testBatchSavesSnapshotOnceOnCommit() throws IOException {
+        Epic epic = new Epic("Epic1", "Desc");
+        taskManager.addEpic(epic);
+        List<String> before = Files.readAllLines(tempFile.toPath(), StandardCharsets.UTF_8);
+
+        taskManager.beginBatch();
+        for (int i = 0; i < 100; i++) {
+            taskManager.addSubtask(new Subtask("Sub" + i, "Desc", Status.DONE, epic.getId()));
+        }
+        assertEquals(before, Files.readAllLines(tempFile.toPath(), StandardCharsets.UTF_8),
+                "До закрытия пакета снимок не должен меняться");
+        taskManager.commitBatch();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(100, loaded.getAllSubtask().size());
+        assertEquals(Status.DONE, loaded.getEpic(epic.getId()).getStatus());
+    }
+
+    @Test
+        // Тест для проверки пакета в режиме журнала: записи пакета попадают в журнал только при закрытии
+    void testBatchJournalRecordsWrittenOnCommitOnly() {
+        taskManager = new FileBackedTaskManager(tempFile, true);
+        Epic epic = new Epic("Epic1", "Desc");
+        taskManager.addEpic(epic);
+        long recordsBefore = taskManager.getJournalRecordCount();
+
+        taskManager.beginBatch();
+        taskManager.addSubtask(new Subtask("Sub1", "Desc", Status.IN_PROGRESS, epic.getId()));
+        taskManager.deleteEpic(epic.getId());
+        taskManager.rollbackBatch();
+        assertEquals(recordsBefore, taskManager.getJournalRecordCount(), "Откатанный пакет не пишется в журнал");
+
+        taskManager.inBatch(() -> {
+            taskManager.addSubtask(new Subtask("Sub1", "Desc", Status.IN_PROGRESS, epic.getId()));
+            taskManager.addSubtask(new Subtask("Sub2", "Desc", Status.NEW, epic.getId()));
+        });
+        assertEquals(recordsBefore + 2, taskManager.getJournalRecordCount());
+        taskManager.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(2, loaded.getAllSubtask().size());
+        assertEquals(Status.IN_PROGRESS, loaded.getEpic(epic.getId()).getStatus());
+    }
+
+    @Test
+        // Тест для проверки двоичного снимка: формат определяется при загрузке по заголовку
+    void testBinarySnapshotRoundTrip() {
+        taskManager = new FileBackedTaskManager(tempFile, false, Durability.SYNC, SnapshotFormat.BINARY);
+        Task task = new Task("Задача, с запятой", "Описание \"в кавычках\"\nи переносом", Status.IN_PROGRESS,
+                Duration.ofMinutes(45), LocalDateTime.of(2025, 3, 1, 10, 0, 30));
+        taskManager.addTask(task);
+        Epic epic = new Epic("Epic1", "Desc");
+        taskManager.addEpic(epic);
+        Subtask subtask = new Subtask("Sub1", "Desc", Status.DONE, epic.getId(),
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 3, 1, 11, 0));
+        taskManager.addSubtask(subtask);
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(SnapshotFormat.BINARY, loadedManager.getSnapshotFormat());
+        Task loadedTask = loadedManager.getTask(task.getId());
+        assertEquals(task.getName(), loadedTask.getName());
+        assertEquals(task.getDescription(), loadedTask.getDescription());
+        assertEquals(task.getStatus(), loadedTask.getStatus());
+        assertEquals(task.getDuration(), loadedTask.getDuration());
+        assertEquals(task.getStartTime(), loadedTask.getStartTime());
+        assertEquals(epic.getId(), loadedManager.getSubtask(subtask.getId()).getEpicId());
+        assertEquals(Status.DONE, loadedManager.getEpic(epic.getId()).getStatus());
+    }
+
+    @Test
+        // Тест для проверки двоичных снимков с пустым описанием и названием длиннее буфера записи
+    void testBinarySnapshotWithNullAndLongStrings() {
+        for (SnapshotFormat format : new SnapshotFormat[]{SnapshotFormat.BINARY, SnapshotFormat.COMPRESSED}) {
+            taskManager = new FileBackedTaskManager(tempFile, false, Durability.SYNC, format);
+            Task empty = taskManager.addTask(new Task("Без описания", null, Status.NEW));
+            Task huge = taskManager.addTask(new Task("я".repeat(32_760), null, Status.DONE,
+                    Duration.ofDays(365 * 1000L), LocalDateTime.of(2025, 3, 1, 10, 0, 59, 999_999_999)));
+
+            FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+            assertNull(loadedManager.getTask(empty.getId()).getDescription(), format.name());
+            Task loadedHuge = loadedManager.getTask(huge.getId());
+            assertEquals(huge.getName(), loadedHuge.getName(), format.name());
+            assertEquals(huge.getDuration(), loadedHuge.getDuration(), format.name());
+            assertEquals(huge.getStartTime(), loadedHuge.getStartTime(), format.name());
+            tempFile.delete();
+        }
+    }
+
+    @Test
+        // Тест для проверки разбора CSV-снимка окнами (так читаются файлы больше 2 ГБ): строки на границах окон
+        // и строки длиннее окна разбираются целиком
+    void testCsvSnapshotParsedByWindows() throws IOException {
+        Epic epic = new Epic("Epic1", "Desc");
+        taskManager.addEpic(epic);
+        List<Integer> expected = new ArrayList<>(List.of(epic.getId()));
+        for (int i = 0; i < 200; i++) {
+            if (i % 2 == 0) {
+                expected.add(taskManager.addTask(new Task("Задача " + "x".repeat(i), "Описание", Status.NEW)).getId());
+            } else {
+                Subtask subtask = new Subtask("Подзадача " + i, "Описание", Status.DONE, epic.getId());
+                taskManager.addSubtask(subtask);
+                expected.add(subtask.getId());
+            }
+        }
+
+        List<Task> parsed = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.READ)) {
+            CsvTaskParser.parseWindows(channel, 64, ForkJoinPool.commonPool(), parsed::add);
+        }
+        assertEquals(expected, parsed.stream().map(Task::getId).sorted().toList());
+        for (Task task : parsed) {
+            Task stored = task instanceof Subtask ? taskManager.getSubtask(task.getId())
+                    : task instanceof Epic ? taskManager.getEpic(task.getId()) : taskManager.getTask(task.getId());
+            assertEquals(stored.getName(), task.getName());
+        }
+    }
+
+    @Test
+        // Тест для проверки сжатого снимка: формат определяется при загрузке, а эпики пересчитываются
+    void testCompressedSnapshotRoundTrip() {
+        taskManager = new FileBackedTaskManager(tempFile, false, Durability.SYNC, SnapshotFormat.COMPRESSED);
+        Epic epic = new Epic("Epic1", "Desc");
+        taskManager.addEpic(epic);
+        taskManager.inBatch(() -> {
+            for (int i = 0; i < 1000; i++) {
+                taskManager.addSubtask(new Subtask("Подзадача " + i, "Описание подзадачи", Status.DONE,
+                        epic.getId(), Duration.ofMinutes(10), LocalDateTime.of(2025, 3, 1, 0, 0).plusMinutes(i * 10L)));
+            }
+        });
+        assertTrue(tempFile.length() < 1000 * 20, "Повторяющиеся записи должны хорошо сжиматься");
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(SnapshotFormat.COMPRESSED, loadedManager.getSnapshotFormat());
+        assertEquals(1000, loadedManager.getAllSubtask().size());
+        assertEquals(Status.DONE, loadedManager.getEpic(epic.getId()).getStatus());
+        assertEquals(taskManager.getEpic(epic.getId()).getEndTime(), loadedManager.getEpic(epic.getId()).getEndTime());
+    }
+
+    @Test
+        // Тест для проверки сжатого снимка из многих блоков: блоки распаковываются параллельно, порядок сохраняется
+    void testCompressedSnapshotWithSeveralBlocks() {
+        List<Task> taskList = new ArrayList<>();
+        for (int i = 1; i <= 5000; i++) {
+            Task task = new Task("Задача " + i, "Описание " + i, Status.NEW);
+            task.setId(i);
+            taskList.add(task);
+        }
+        CompressedTaskFormat.write(tempFile.toPath(), taskList, List.of(), List.of(), 4096);
+
+        List<Task> loaded = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        CompressedTaskFormat.read(tempFile.toPath(), pool, loaded::add);
+        pool.shutdown();
+        assertEquals(taskList.size(), loaded.size());
+        for (int i = 0; i < taskList.size(); i++) {
+            assertEquals(taskList.get(i).getId(), loaded.get(i).getId());
+            assertEquals(taskList.get(i).getName(), loaded.get(i).getName());
+        }
+    }
+
+    @Test
+        // Тест для проверки экспорта в CSV: запятые и кавычки в тексте не ломают разбор строки
+    void testCsvExportWithCommas() throws IOException {
+        taskManager.addTask(new Task("Купить молоко, хлеб", "Сказать \"спасибо\"", Status.NEW));
+        File exportFile = File.createTempFile("taskManagerExport", ".csv");
+        try {
+            taskManager.exportCsv(exportFile);
+            FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(exportFile);
+            Task loadedTask = loadedManager.getAllTasks().get(0);
+            assertEquals("Купить молоко, хлеб", loadedTask.getName());
+            assertEquals("Сказать \"спасибо\"", loadedTask.getDescription());
+        } finally {
+            exportFile.delete();
+        }
+    }
+
+    @Test
+        // Тест для проверки разбора CSV из отображённого в память файла: переводы строк \r\n и время с секундами
+    void testLoadCsvWithWindowsLineEndings() throws IOException {
+        String content = "id,type,name,description,status,duration,startTime,epicId\r\n"
+                + "1,TASK_TYPE,Задача,NEW,Описание,15,2025-03-01T10:00:30.5,\r\n"
+                + "2,EPIC_TYPE,Эпик,NEW,Описание эпика,,,\r\n"
+                + "3,SUBTASK_TYPE,Подзадача,IN_PROGRESS,Описание,,,2\r\n";
+        Files.write(tempFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+        Task task = loadedManager.getTask(1);
+        assertEquals("Задача", task.getName());
+        assertEquals(Duration.ofMinutes(15), task.getDuration());
+        assertEquals(LocalDateTime.of(2025, 3, 1, 10, 0, 30, 500_000_000), task.getStartTime());
+        assertEquals(Status.IN_PROGRESS, loadedManager.getEpic(2).getStatus());
+        assertEquals(2, loadedManager.getSubtask(3).getEpicId());
+    }
+
+    @Test
+        // Тест для проверки параллельного разбора: порядок задач совпадает с разбором в одном потоке
+    void testParallelCsvParseKeepsFileOrder() throws IOException {
+        StringBuilder content = new StringBuilder("id,type,name,description,status,duration,startTime,epicId\n");
+        content.append("1,EPIC_TYPE,Эпик,NEW,Описание,,,\n");
+        for (int id = 2; id <= 60_000; id++) {
+            content.append(id).append(",SUBTASK_TYPE,Подзадача ").append(id).append(",DONE,Описание,30,")
+                    .append(LocalDateTime.of(2025, 1, 1, 0, 0).plusHours(id)).append(",1\n");
+        }
+        Files.write(tempFile.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(tempFile.toPath()));
+        int firstLine = CsvTaskParser.nextLineStart(buffer, 0, buffer.limit());
+        List<Task> sequential = new ArrayList<>();
+        new CsvTaskParser(buffer).parse(firstLine, buffer.limit(), sequential::add);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<Task> parallel = CsvTaskParser.parseParallel(buffer, firstLine, buffer.limit(), pool);
+            assertEquals(sequential, parallel, "Порядок задач должен совпадать");
+        } finally {
+            pool.shutdown();
+        }
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+        Epic epic = loadedManager.getEpic(1);
+        assertEquals(59_999, epic.getSubtaskIdList().size());
+        assertEquals(Status.DONE, epic.getStatus());
+        assertEquals(Duration.ofMinutes(30L * 59_999), epic.getDuration());
+        assertEquals(LocalDateTime.of(2025, 1, 1, 2, 0), epic.getStartTime());
+    }
+}
@@ -9,6 +9,13 @@ import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -205,4 +212,228 @@ public class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager
         assertEquals(task.getDuration(), retrievedFromHistory.getDuration());
         assertEquals(task.getStartTime(), retrievedFromHistory.getStartTime());
     }
-}
\ No newline at end of file
+
+    @Test
+        // Тест для проверки, что массовое добавление подзадач со временем не замедляется с ростом доски
+    void testBulkScheduledImport() {
+        Epic epic = new Epic("Epic1", "Desc");
+        taskManager.addEpic(epic);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        taskManager.inBatch(() -> {
+            for (int i = 0; i < 100_000; i++) {
+                taskManager.addSubtask(new Subtask("Sub" + i, "Desc", Status.NEW, epic.getId(),
+                        Duration.ofMinutes(10), start.plusMinutes(10L * i)));
+            }
+        });
+        assertEquals(100_000, taskManager.getPrioritizedTasks().size());
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addTask(new Task("Task", "Desc",
+                Status.NEW, Duration.ofMinutes(1), start.plusMinutes(10L * 50_000 + 5))));
+    }
+
+    @Test
+        // Тест для проверки, что агрегаты эпиков (статус, время, продолжительность) совпадают с пересчётом с нуля
+        // после случайных изменений подзадач
+    void testEpicCountsStayConsistent() {
+        Random random = new Random(42);
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Epic epic = new Epic("Epic" + i, "Desc");
+            taskManager.addEpic(epic);
+            epics.add(epic);
+        }
+        List<Subtask> subtasks = new ArrayList<>();
+        Status[] statuses = Status.values();
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int step = 0; step < 2000; step++) {
+            int action = random.nextInt(3);
+            if (action == 0 || subtasks.isEmpty()) {
+                // Каждой подзадаче — свой слот, чтобы подзадачи не пересекались по времени
+                boolean timed = random.nextBoolean();
+                Subtask subtask = new Subtask("Sub" + step, "Desc", statuses[random.nextInt(statuses.length)],
+                        epics.get(random.nextInt(epics.size())).getId(),
+                        timed ? Duration.ofMinutes(1 + random.nextInt(30)) : null,
+                        timed ? base.plusHours(step) : null);
+                taskManager.addSubtask(subtask);
+                subtasks.add(subtask);
+            } else if (action == 1) { // Статус и время меняются прямо в объекте, как это делает интерфейс
+                Subtask subtask = subtasks.get(random.nextInt(subtasks.size()));
+                subtask.setStatus(statuses[random.nextInt(statuses.length)]);
+                subtask.setDuration(random.nextBoolean() ? Duration.ofMinutes(1 + random.nextInt(30)) : null);
+                taskManager.updateSubtask(subtask);
+            } else {
+                Subtask subtask = subtasks.remove(random.nextInt(subtasks.size()));
+                taskManager.deleteSubtask(subtask.getId());
+            }
+            taskManager.checkEpicCounts();
+        }
+    }
+
+    @Test
+        // Тест для проверки, что индекс запросов совпадает с полным перебором после случайных изменений,
+        // в том числе изменений объектов снаружи и отката пакета
+    void testQueryIndexMatchesScan() {
+        Random random = new Random(17);
+        Status[] statuses = Status.values();
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Epic epic = new Epic("Epic" + i, "Desc");
+            taskManager.addEpic(epic);
+            epics.add(epic);
+        }
+        List<Task> items = new ArrayList<>();
+        for (int step = 0; step < 1500; step++) {
+            int action = random.nextInt(4);
+            Status status = statuses[random.nextInt(statuses.length)];
+            // Каждой новой задаче — свой слот, чтобы задачи не пересекались по времени
+            LocalDateTime start = random.nextBoolean() ? base.plusHours(step) : null;
+            Duration duration = start == null ? null : Duration.ofMinutes(30);
+            if (action == 0 || items.isEmpty()) {
+                if (random.nextBoolean()) {
+                    items.add(taskManager.addTask(new Task("Task" + step, "Desc", status, duration, start)));
+                } else {
+                    Subtask subtask = new Subtask("Sub" + step, "Desc", status,
+                            epics.get(random.nextInt(epics.size())).getId(), duration, start);
+                    taskManager.addSubtask(subtask);
+                    items.add(subtask);
+                }
+            } else if (action == 1) { // Статус и время меняются прямо в объекте
+                Task item = items.get(random.nextInt(items.size()));
+                item.setStatus(status);
+                item.setStartTime(start);
+                item.setDuration(duration);
+                if (item instanceof Subtask) {
+                    taskManager.updateSubtask((Subtask) item);
+                } else {
+                    taskManager.updateTask(item);
+                }
+            } else if (action == 2) {
+                Task item = items.remove(random.nextInt(items.size()));
+                if (item instanceof Subtask) {
+                    taskManager.deleteSubtask(item.getId());
+                } else {
+                    taskManager.deleteTask(item.getId());
+                }
+            } else { // Пакет с удалением, который откатывается
+                Task item = items.get(random.nextInt(items.size()));
+                taskManager.beginBatch();
+                taskManager.deleteTask(item.getId());
+                taskManager.deleteSubtask(item.getId());
+                taskManager.rollbackBatch();
+            }
+            if (step % 50 == 0) {
+                LocalDateTime from = base.plusHours(random.nextInt(1500));
+                TaskQuery window = TaskQuery.all().withStatus(status, statuses[random.nextInt(statuses.length)])
+                        .startingBetween(from, from.plusHours(random.nextInt(200)));
+                assertEquals(scan(window), taskManager.findTasks(window));
+                TaskQuery byType = TaskQuery.all().withStatus(status)
+                        .ofType(TaskType.values()[random.nextInt(TaskType.values().length)]);
+                assertEquals(scan(byType), taskManager.findTasks(byType));
+                TaskQuery firstOpen = TaskQuery.all().withoutStatus(Status.DONE)
+                        .where(task -> task.getId() % 3 != 0).limit(random.nextInt(20));
+                assertEquals(scan(firstOpen), taskManager.findTasks(firstOpen));
+                assertEquals(scan(firstOpen.orderByStartTime()), taskManager.findTasks(firstOpen.orderByStartTime()));
+                TaskQuery firstInWindow = window.limit(random.nextInt(5));
+                assertEquals(scan(firstInWindow), taskManager.findTasks(firstInWindow));
+            }
+        }
+    }
+
+    // Полный перебор всех задач, эпиков и подзадач — эталон для индекса запросов
+    private List<Task> scan(TaskQuery query) {
+        List<Task> all = new ArrayList<>(taskManager.getAllTasks());
+        all.addAll(taskManager.getAllEpics());
+        all.addAll(taskManager.getAllSubtask());
+        List<Task> result = new ArrayList<>();
+        for (Task task : all) {
+            if (query.matches(task)) {
+                result.add(task);
+            }
+        }
+        result.sort(query.resultOrder());
+        return result.size() > query.getLimit() ? result.subList(0, query.getLimit()) : result;
+    }
+
+    @Test
+        // Тест для проверки, что параллельный перебор большой доски даёт тот же результат, что и последовательный
+    void findTasks_parallelMatchesSequential() {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        Status[] statuses = Status.values();
+        for (int i = 0; i < 20_000; i++) {
+            taskManager.addTask(new Task("Task" + i, "Desc", statuses[i % statuses.length],
+                    Duration.ofMinutes(1), base.plusMinutes(2L * ((i * 7919L) % 20_000))));
+        }
+        TaskQuery query = TaskQuery.all().withoutStatus(Status.DONE).where(task -> task.getId() % 7 != 0)
+                .orderByStartTime();
+        List<Task> sequential = taskManager.findTasks(query);
+        assertEquals(scan(query), sequential);
+        assertEquals(sequential, taskManager.findTasks(query.parallel()));
+        assertEquals(sequential.subList(0, 100), taskManager.findTasks(query.parallel().limit(100)));
+        assertEquals(scan(TaskQuery.all()), taskManager.findTasks(TaskQuery.all().parallel()));
+    }
+
+    @Test
+        // Тест для проверки, что поиск по индексу совпадает с перебором всех задач после случайных переименований
+        // и удалений, а поиск редкого слова на большой доске не перебирает все задачи
+    void testTextIndexMatchesScan() {
+        String[] words = {"отчёт", "отчетность", "квартал", "магазин", "молоко", "переезд", "офис", "почта"};
+        Random random = new Random(23);
+        List<Task> items = new ArrayList<>();
+        for (int step = 0; step < 3000; step++) {
+            String name = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+            String description = random.nextBoolean() ? null : words[random.nextInt(words.length)];
+            int action = random.nextInt(3);
+            if (action == 0 || items.isEmpty()) {
+                items.add(taskManager.addTask(new Task(name, description, Status.NEW)));
+            } else if (action == 1) { // Название меняется прямо в объекте
+                Task item = items.get(random.nextInt(items.size()));
+                item.setName(name);
+                item.setDescription(description);
+                taskManager.updateTask(item);
+            } else {
+                taskManager.deleteTask(items.remove(random.nextInt(items.size())).getId());
+            }
+            if (step % 100 == 0) {
+                String query = words[random.nextInt(words.length)] + " OR " + words[random.nextInt(words.length)]
+                        + " " + words[random.nextInt(words.length)].substring(0, 3) + "*";
+                int limit = 1 + random.nextInt(50);
+                assertEquals(scanSearch(query, limit), taskManager.searchTasks(query, limit), query);
+            }
+        }
+
+        taskManager.inBatch(() -> {
+            for (int i = 0; i < 200_000; i++) {
+                taskManager.addTask(new Task("Задача " + i, "Обычное описание", Status.NEW));
+            }
+        });
+        Task rare = taskManager.addTask(new Task("Редкая задача", "Найти иголку в стоге сена", Status.NEW));
+        assertEquals(List.of(rare), taskManager.searchTasks("иголку задача", 10));
+        assertEquals(10, taskManager.searchTasks("задача описание", 10).size());
+    }
+
+    // Перебор всех задач с тем же разбором запроса — эталон для инвертированного индекса
+    private List<Task> scanSearch(String query, int limit) {
+        List<List<String>> groups = TextIndex.parse(query);
+        List<Task> matched = new ArrayList<>();
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (Task task : taskManager.getAllTasks()) {
+            Set<String> terms = TextIndex.terms(task.getName(), task.getDescription());
+            int score = 0;
+            for (List<String> group : groups) {
+                boolean all = true;
+                for (String term : group) {
+                    all &= term.endsWith("*")
+                            ? terms.stream().anyMatch(t -> t.startsWith(term.substring(0, term.length() - 1)))
+                            : terms.contains(term);
+                }
+                score += all ? 1 : 0;
+            }
+            if (score > 0) {
+                matched.add(task);
+                scores.put(task.getId(), score);
+            }
+        }
+        matched.sort(Comparator.comparing((Task task) -> -scores.get(task.getId())).thenComparingInt(Task::getId));
+        return matched.subList(0, Math.min(limit, matched.size()));
+    }
+}
@@ -0,0 +1,95 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntObjectMapTest {
+
+    @Test
+        // Тест для проверки, что таблица ведёт себя как HashMap на случайной последовательности операций,
+        // в том числе с ключами, которые попадают в одну ячейку, и с удалениями посреди цепочек
+    void testMatchesHashMap() {
+        Random random = new Random(7);
+        IntObjectMap<String> map = new IntObjectMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        for (int step = 0; step < 200_000; step++) {
+            int key = random.nextBoolean() ? random.nextInt(1000) : random.nextInt(64) << 16; // Совпадающие хеши
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + step;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (Map.Entry<Integer, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        assertEquals(expected.size(), map.keys().length);
+        assertEquals(new ArrayList<>(expected.values()).stream().sorted().toList(),
+                new ArrayList<>(map.values()).stream().sorted().toList());
+
+        IntObjectMap<String> copy = new IntObjectMap<>(map);
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(expected.size(), copy.size());
+    }
+
+    @Test
+        // Тест для проверки примитивного списка: операции с int и совместимость с List<Integer>
+    void testIntList() {
+        IntList list = new IntList(1);
+        for (int i = 0; i < 10; i++) {
+            list.addInt(i * 10);
+        }
+        assertTrue(list.removeInt(30));
+        assertFalse(list.removeInt(31));
+        assertEquals(List.of(0, 10, 20, 40, 50, 60, 70, 80, 90), list);
+        assertTrue(list.contains(40));
+        assertEquals(3, list.indexOf(40));
+        IntList copy = new IntList(list);
+        copy.addAll(list);
+        assertEquals(18, copy.size());
+    }
+
+    @Test
+        // Тест для проверки, что множество с порядком добавления ведёт себя как LinkedHashSet
+        // на случайной последовательности добавлений и удалений, в том числе при уплотнении массива
+    void testIntLinkedSetMatchesLinkedHashSet() {
+        Random random = new Random(11);
+        IntLinkedSet set = new IntLinkedSet();
+        LinkedHashSet<Integer> expected = new LinkedHashSet<>();
+        for (int step = 0; step < 100_000; step++) {
+            int value = random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.removeInt(value));
+            } else {
+                assertEquals(expected.add(value), set.addInt(value));
+            }
+            assertEquals(expected.size(), set.size());
+            if (step % 1000 == 0) {
+                assertEquals(new ArrayList<>(expected), set); // Доступ по индексу и порядок обхода
+                assertEquals(new ArrayList<>(expected), List.of(set.toArray()));
+            }
+        }
+        List<Integer> iterated = new ArrayList<>();
+        set.forEachInt(iterated::add);
+        assertEquals(new ArrayList<>(expected), iterated);
+        for (int value = 0; value < 500; value++) {
+            assertEquals(expected.contains(value), set.containsInt(value));
+        }
+
+        IntLinkedSet copy = new IntLinkedSet(set);
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertEquals(new ArrayList<>(expected), copy);
+    }
+}
@@ -0,0 +1,149 @@
+package manager;
+
+import entity.Epic;
+import entity.Status;
+import entity.Subtask;
+import entity.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MvccTaskManagerTest extends TaskManagerTest<MvccTaskManager> {
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @BeforeEach
+    public void setUp() {
+        taskManager = Managers.getMvccTaskManager();
+    }
+
+    @Test
+        // Тест для проверки, что снимок не меняется после изменений менеджера
+    void testSnapshotIsIsolatedFromLaterChanges() {
+        Epic epic = new Epic("Epic", "Desc");
+        taskManager.addEpic(epic);
+        Subtask subtask = new Subtask("Sub", "Desc", Status.NEW, epic.getId(), Duration.ofMinutes(30), BASE);
+        taskManager.addSubtask(subtask);
+        BoardSnapshot before = taskManager.snapshot();
+
+        subtask.setStatus(Status.DONE);
+        subtask.setStartTime(BASE.plusDays(1));
+        taskManager.updateSubtask(subtask);
+        taskManager.addTask(new Task("Task", "Desc", Status.NEW, Duration.ofMinutes(10), BASE));
+        taskManager.deleteEpic(epic.getId());
+
+        assertTrue(taskManager.snapshot().getVersion() > before.getVersion());
+        assertEquals(Status.NEW, before.getEpic(epic.getId()).getStatus());
+        assertEquals(BASE, before.getEpic(epic.getId()).getStartTime());
+        assertEquals(List.of(subtask.getId()), before.getEpic(epic.getId()).getSubtaskIdList());
+        assertEquals(BASE, before.getSubtask(subtask.getId()).getStartTime());
+        assertEquals(List.of(subtask), before.getSubtasksForEpic(epic.getId()));
+        assertEquals(List.of(subtask), before.getPrioritizedTasks());
+        before.getPrioritizedTasks().get(0).setStartTime(BASE.plusDays(2)); // Снимок отдаёт копии
+        before.getSubtask(subtask.getId()).setStatus(Status.DONE);
+        assertEquals(BASE, before.getPrioritizedTasks().get(0).getStartTime());
+        assertEquals(Status.NEW, before.getSubtask(subtask.getId()).getStatus());
+        assertTrue(before.getAllTasks().isEmpty());
+        assertNull(taskManager.snapshot().getEpic(epic.getId()));
+    }
+
+    @Test
+        // Тест для проверки, что изменения пакета не видны другим потокам до commitBatch()
+    void testBatchIsPublishedOnCommit() throws Exception {
+        Epic epic = new Epic("Epic", "Desc");
+        taskManager.addEpic(epic);
+        taskManager.beginBatch();
+        taskManager.addSubtask(new Subtask("Sub", "Desc", Status.DONE, epic.getId()));
+        assertEquals(Status.DONE, taskManager.getEpic(epic.getId()).getStatus(), "Поток пакета видит свои изменения");
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        assertEquals(Status.NEW, executor.submit(() -> taskManager.getEpic(epic.getId()).getStatus())
+                .get(10, TimeUnit.SECONDS), "Другие потоки читают без ожидания и видят доску до пакета");
+        taskManager.commitBatch();
+        assertEquals(Status.DONE, executor.submit(() -> taskManager.getEpic(epic.getId()).getStatus())
+                .get(10, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+        // Тест для проверки, что читатели во время изменений всегда видят эпики, согласованные с их подзадачами
+    void testReadersSeeConsistentEpics() throws Exception {
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Epic epic = new Epic("Epic" + i, "Desc");
+            taskManager.addEpic(epic);
+            epics.add(epic);
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> readers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            readers.add(executor.submit(() -> {
+                int checked = 0;
+                while (writing.get() || checked == 0) {
+                    BoardSnapshot snapshot = taskManager.snapshot();
+                    for (Epic epic : snapshot.getAllEpics()) {
+                        assertEpicMatchesSubtasks(snapshot, epic);
+                        checked++;
+                    }
+                }
+                return checked;
+            }));
+        }
+
+        Random random = new Random(7);
+        Status[] statuses = Status.values();
+        List<Subtask> subtasks = new ArrayList<>();
+        for (int step = 0; step < 5000; step++) {
+            LocalDateTime start = BASE.plusHours(step);
+            int action = random.nextInt(3);
+            if (action == 0 || subtasks.isEmpty()) {
+                Subtask subtask = new Subtask("Sub" + step, "Desc", statuses[random.nextInt(statuses.length)],
+                        epics.get(random.nextInt(epics.size())).getId(), Duration.ofMinutes(30), start);
+                taskManager.addSubtask(subtask);
+                subtasks.add(subtask);
+            } else if (action == 1) {
+                Subtask subtask = subtasks.get(random.nextInt(subtasks.size()));
+                subtask.setStatus(statuses[random.nextInt(statuses.length)]);
+                subtask.setStartTime(start);
+                taskManager.updateSubtask(subtask);
+            } else {
+                taskManager.deleteSubtask(subtasks.remove(random.nextInt(subtasks.size())).getId());
+            }
+        }
+        writing.set(false);
+        for (Future<Integer> reader : readers) {
+            assertTrue(reader.get(60, TimeUnit.SECONDS) > 0);
+        }
+        executor.shutdown();
+        for (Epic epic : epics) {
+            assertEpicMatchesSubtasks(taskManager.snapshot(), taskManager.getEpic(epic.getId()));
+        }
+    }
+
+    // Метод сравнивает эпик снимка с эпиком, агрегаты которого заполнены заново по подзадачам того же снимка
+    private static void assertEpicMatchesSubtasks(BoardSnapshot snapshot, Epic epic) {
+        Epic recounted = new Epic(epic.getName(), epic.getDescription());
+        for (Subtask subtask : snapshot.getSubtasksForEpic(epic.getId())) {
+            recounted.addSubtask(subtask.getId());
+            recounted.countSubtask(subtask);
+        }
+        recounted.applyTimeFromCounts();
+        assertEquals(recounted.getSubtaskIdList(), epic.getSubtaskIdList());
+        assertEquals(recounted.statusFromCounts(), epic.getStatus());
+        assertEquals(recounted.getStartTime(), epic.getStartTime());
+        assertEquals(recounted.getEndTime(), epic.getEndTime());
+        assertEquals(recounted.getDuration(), epic.getDuration());
+    }
+}
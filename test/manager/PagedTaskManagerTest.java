@@ -0,0 +1,90 @@
+package manager;
+
+import entity.Epic;
+import entity.Status;
+import entity.Subtask;
+import entity.Task;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PagedTaskManagerTest extends TaskManagerTest<PagedTaskManager> {
+    private File file; // Временный файл страниц
+
+    @BeforeEach // Метод выполняется перед каждым тестом. Создаёт временный файл и менеджер
+    public void setUp() throws IOException {
+        file = File.createTempFile("pagedTest", ".pages");
+        taskManager = new PagedTaskManager(file);
+    }
+
+    @AfterEach
+        // Метод выполняется после каждого теста. Закрывает менеджер и удаляет файл
+    void tearDown() {
+        taskManager.close();
+        file.delete();
+    }
+
+    @Test
+        // Тест для проверки, что доска сохраняется в файле и открывается заново
+    void testReopenRestoresBoard() {
+        Task task = new Task("Task1", "Desc", Status.NEW, Duration.ofMinutes(30), LocalDateTime.of(2025, 3, 1, 9, 0));
+        taskManager.addTask(task);
+        Epic epic = new Epic("Epic1", "Desc");
+        taskManager.addEpic(epic);
+        Subtask subtask = new Subtask("Sub1", "Desc", Status.DONE, epic.getId(),
+                Duration.ofMinutes(45), LocalDateTime.of(2025, 3, 1, 10, 0));
+        taskManager.addSubtask(subtask);
+        taskManager.close();
+
+        taskManager = PagedTaskManager.loadFromFile(file);
+        assertEquals("Task1", taskManager.getTask(task.getId()).getName());
+        Epic loadedEpic = taskManager.getEpic(epic.getId());
+        assertEquals(Status.DONE, loadedEpic.getStatus());
+        assertEquals(List.of(subtask.getId()), loadedEpic.getSubtaskIdList());
+        assertEquals(LocalDateTime.of(2025, 3, 1, 10, 45), loadedEpic.getEndTime());
+        assertEquals(List.of(task.getId(), subtask.getId()),
+                taskManager.getPrioritizedTasks().stream().map(Task::getId).toList());
+
+        Task next = new Task("Task2", "Desc", Status.NEW);
+        taskManager.addTask(next);
+        assertEquals(subtask.getId() + 1, next.getId(), "Счётчик ID должен сохраняться в файле");
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addTask(new Task("Task3", "Desc",
+                Status.NEW, Duration.ofMinutes(10), LocalDateTime.of(2025, 3, 1, 10, 30))));
+    }
+
+    @Test
+        // Тест для проверки, что доска больше пула страниц работает и пул не растёт вместе с доской
+    void testBoardLargerThanPagePool() {
+        taskManager.close();
+        taskManager = new PagedTaskManager(file, 16);
+        Epic epic = new Epic("Epic1", "Desc");
+        taskManager.addEpic(epic);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < 3000; i++) {
+            taskManager.addSubtask(new Subtask("Sub" + i, "Описание подзадачи " + i, Status.NEW, epic.getId(),
+                    Duration.ofMinutes(10), start.plusMinutes(15L * i)));
+        }
+        assertTrue(taskManager.getPageCount() > 16);
+        assertTrue(taskManager.getCachedPageCount() <= 16, "Пул страниц не должен расти вместе с доской");
+        taskManager.close();
+
+        taskManager = PagedTaskManager.loadFromFile(file, 16);
+        assertEquals(3000, taskManager.getSubtasksForEpic(epic.getId()).size());
+        assertEquals(start.plusMinutes(15L * 2999 + 10), taskManager.getEpic(epic.getId()).getEndTime());
+        assertEquals("Sub1234", taskManager.getAllSubtask().get(1234).getName());
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addTask(new Task("Task", "Desc",
+                Status.NEW, Duration.ofMinutes(5), start.plusMinutes(15L * 1500 + 5))));
+
+        taskManager.clearEpics();
+        assertTrue(taskManager.getAllSubtask().isEmpty());
+        assertTrue(taskManager.getPrioritizedTasks().isEmpty());
+    }
+}
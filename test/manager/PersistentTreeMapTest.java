@@ -0,0 +1,38 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentTreeMapTest {
+
+    @Test
+        // Тест для проверки промежутков between() с одной открытой границей (ими читаются страницы):
+        // размер и содержимое совпадают с TreeMap, а старая версия дерева не меняется
+    void testHalfOpenViews() {
+        Random random = new Random(11);
+        PersistentTreeMap<Integer, String> map = PersistentTreeMap.empty();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        for (int i = 0; i < 2000; i++) {
+            int key = random.nextInt(5000);
+            map = map.put(key, "v" + key);
+            expected.put(key, "v" + key);
+        }
+        PersistentTreeMap<Integer, String> before = map;
+        for (int bound = -1; bound <= 5001; bound += 37) {
+            assertEquals(expected.tailMap(bound).size(), map.between(bound, null).size());
+            assertEquals(new ArrayList<>(expected.tailMap(bound).values()), new ArrayList<>(map.between(bound, null)));
+            assertEquals(expected.headMap(bound).size(), map.between(null, bound).size());
+            assertEquals(new ArrayList<>(expected.headMap(bound).values()), new ArrayList<>(map.between(null, bound)));
+        }
+        assertEquals(expected.size(), map.between(null, null).size());
+
+        map = map.remove(expected.firstKey()).remove(expected.lastKey());
+        assertEquals(expected.size() - 2, map.between(expected.firstKey(), null).size());
+        assertEquals(expected.size(), before.between(expected.firstKey(), null).size());
+    }
+}
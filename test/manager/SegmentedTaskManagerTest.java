@@ -0,0 +1,120 @@
+package manager;
+
+import entity.Epic;
+import entity.Status;
+import entity.Subtask;
+import entity.Task;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedTaskManagerTest extends TaskManagerTest<SegmentedTaskManager> {
+    private File directory; // Временный каталог для сегментов
+
+    @BeforeEach // Метод выполняется перед каждым тестом. Создаёт временный каталог и менеджер
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("segmentedTest").toFile();
+        taskManager = new SegmentedTaskManager(directory);
+    }
+
+    @AfterEach
+        // Метод выполняется после каждого теста. Удаляет каталог с сегментами
+    void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+        // Тест для проверки, что изменение подзадачи перезаписывает только сегмент её эпика
+    void testOnlyDirtySegmentIsRewritten() {
+        Epic epic1 = new Epic("Epic1", "Desc");
+        Epic epic2 = new Epic("Epic2", "Desc");
+        taskManager.addEpic(epic1);
+        taskManager.addEpic(epic2);
+        Subtask subtask = new Subtask("Sub1", "Desc", Status.NEW, epic1.getId());
+        taskManager.addSubtask(subtask);
+
+        File otherSegment = new File(directory, "epic-" + epic2.getId() + ".seg");
+        assertTrue(otherSegment.exists());
+        assertTrue(otherSegment.setLastModified(0)); // Отметка, по которой видно, что файл не перезаписывали
+
+        subtask.setStatus(Status.DONE);
+        taskManager.updateSubtask(subtask);
+
+        assertEquals(0, otherSegment.lastModified(), "Сегмент другого эпика не должен перезаписываться");
+    }
+
+    @Test
+        // Тест для проверки ленивой загрузки эпиков при открытии каталога
+    void testEpicsAreLoadedLazily() {
+        Task task = new Task("Task1", "Desc", Status.NEW);
+        taskManager.addTask(task);
+        Epic epic = new Epic("Epic1", "Desc");
+        taskManager.addEpic(epic);
+        Subtask subtask = new Subtask("Sub1", "Desc", Status.IN_PROGRESS, epic.getId(),
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 3, 1, 10, 0));
+        taskManager.addSubtask(subtask);
+
+        SegmentedTaskManager loadedManager = SegmentedTaskManager.loadFromDirectory(directory);
+        assertFalse(loadedManager.isEpicLoaded(epic.getId()), "Эпик не должен читаться до обращения");
+        assertEquals(task.getName(), loadedManager.getTask(task.getId()).getName());
+
+        Epic loadedEpic = loadedManager.getEpic(epic.getId());
+        assertTrue(loadedManager.isEpicLoaded(epic.getId()));
+        assertEquals(Status.IN_PROGRESS, loadedEpic.getStatus());
+        assertEquals(LocalDateTime.of(2025, 3, 1, 10, 0), loadedEpic.getStartTime());
+        assertEquals(1, loadedManager.getSubtasksForEpic(epic.getId()).size());
+
+        // Новые ID не пересекаются с уже выданными, хотя не все сегменты прочитаны
+        Task newTask = loadedManager.addTask(new Task("Task2", "Desc", Status.NEW));
+        assertTrue(newTask.getId() > subtask.getId());
+    }
+
+    @Test
+        // Тест для проверки удаления эпика: его сегмент удаляется с диска
+    void testDeleteEpicRemovesSegment() {
+        Epic epic = new Epic("Epic1", "Desc");
+        taskManager.addEpic(epic);
+        File segment = new File(directory, "epic-" + epic.getId() + ".seg");
+        assertTrue(segment.exists());
+
+        taskManager.deleteEpic(epic.getId());
+        assertFalse(segment.exists());
+        assertTrue(SegmentedTaskManager.loadFromDirectory(directory).getAllEpics().isEmpty());
+    }
+
+    @Test
+        // Тест для проверки отката пакета: сегменты, созданные в пакете, не остаются на диске
+    void testRolledBackBatchLeavesNoSegments() {
+        Epic epic = new Epic("Epic1", "Desc");
+        taskManager.addEpic(epic);
+
+        taskManager.beginBatch();
+        Epic batchEpic = new Epic("Epic2", "Desc");
+        taskManager.addEpic(batchEpic);
+        taskManager.addSubtask(new Subtask("Sub1", "Desc", Status.NEW, epic.getId()));
+        taskManager.addTask(new Task("Task1", "Desc", Status.NEW));
+        assertFalse(new File(directory, "epic-" + batchEpic.getId() + ".seg").exists(),
+                "До закрытия пакета сегменты не пишутся");
+        taskManager.rollbackBatch();
+
+        assertFalse(new File(directory, "epic-" + batchEpic.getId() + ".seg").exists());
+        SegmentedTaskManager loaded = SegmentedTaskManager.loadFromDirectory(directory);
+        assertEquals(1, loaded.getAllEpics().size());
+        assertTrue(loaded.getAllSubtask().isEmpty());
+        assertTrue(loaded.getAllTasks().isEmpty());
+    }
+}
@@ -0,0 +1,115 @@
+package manager;
+
+import entity.Epic;
+import entity.Status;
+import entity.Subtask;
+import entity.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedTaskManagerTest extends TaskManagerTest<ShardedTaskManager> {
+    private static final int THREADS = 8;
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @BeforeEach
+    public void setUp() {
+        taskManager = Managers.getShardedTaskManager();
+    }
+
+    @Test
+        // Тест для проверки, что подзадачи живут в сегменте эпика, а чтение всей доски сливает сегменты по порядку
+    void testSubtasksFollowEpicShard() {
+        int shards = taskManager.getShardCount();
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Epic epic = new Epic("Epic" + i, "Desc");
+            taskManager.addEpic(epic);
+            epics.add(epic);
+        }
+        for (int i = 0; i < 10; i++) {
+            Epic epic = epics.get(i % epics.size());
+            Subtask subtask = new Subtask("Sub" + i, "Desc", Status.NEW, epic.getId(),
+                    Duration.ofMinutes(30), BASE.plusHours(10 - i));
+            taskManager.addSubtask(subtask);
+            assertEquals(Math.floorMod(epic.getId() - 1, shards), Math.floorMod(subtask.getId() - 1, shards));
+            assertEquals(subtask, taskManager.getSubtask(subtask.getId()));
+        }
+
+        List<Subtask> all = taskManager.getAllSubtask();
+        assertEquals(10, all.size());
+        assertEquals(all.stream().sorted(Comparator.comparingInt(Task::getId)).toList(), all);
+        List<Task> prioritized = taskManager.getPrioritizedTasks();
+        assertEquals(all.stream().sorted(Comparator.comparing(Task::getStartTime)).toList(), prioritized);
+
+        Subtask moved = taskManager.getSubtasksForEpic(epics.get(0).getId()).get(0);
+        moved.setEpicId(epics.get(1).getId());
+        assertThrows(IllegalArgumentException.class, () -> taskManager.updateSubtask(moved));
+    }
+
+    @Test
+        // Тест для проверки, что пересечения по времени находятся и между задачами разных сегментов,
+        // даже когда их добавляют из многих потоков
+    void testOverlapChecksSpanShards() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger added = new AtomicInteger();
+        List<Future<?>> results = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int seed = thread;
+            results.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                Epic epic = new Epic("Epic" + seed, "Desc");
+                taskManager.addEpic(epic);
+                for (int i = 0; i < 2000; i++) {
+                    LocalDateTime start = BASE.plusMinutes(random.nextInt(2000) * 10L);
+                    try {
+                        if (random.nextBoolean()) {
+                            taskManager.addTask(new Task("Task", "Desc", Status.NEW, Duration.ofMinutes(25), start));
+                        } else {
+                            taskManager.addSubtask(new Subtask("Sub", "Desc", Status.NEW, epic.getId(),
+                                    Duration.ofMinutes(25), start));
+                        }
+                        added.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        // Слот уже занят задачей из этого или другого сегмента
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        List<Task> prioritized = taskManager.getPrioritizedTasks();
+        assertEquals(added.get(), prioritized.size());
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < prioritized.size(); i++) {
+            assertTrue(ids.add(prioritized.get(i).getId()), "ID не должны повторяться");
+            if (i > 0) {
+                assertFalse(prioritized.get(i).getStartTime().isBefore(prioritized.get(i - 1).getEndTime()),
+                        "Задачи " + prioritized.get(i - 1) + " и " + prioritized.get(i) + " пересекаются");
+            }
+        }
+        for (Epic epic : taskManager.getAllEpics()) {
+            assertEquals(taskManager.getSubtasksForEpic(epic.getId()).size(), epic.getSubtaskIdList().size());
+            assertTrue(ids.add(epic.getId()), "ID эпиков не должны совпадать с ID задач");
+        }
+    }
+}
@@ -243,6 +243,28 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertTrue(subtasks.contains(subtask1));
     }
 
+    @Test
+        // Тест для проверки, что списки всех задач, эпиков и подзадач идут по возрастанию ID
+    void getAll_returnsIdOrder() {
+        for (int i = 0; i < 200; i++) {
+            taskManager.addTask(new Task("Task" + i, "Desc", Status.NEW));
+            Epic epic = new Epic("Epic" + i, "Desc");
+            taskManager.addEpic(epic);
+            taskManager.addSubtask(new Subtask("Sub" + i, "Desc", Status.NEW, epic.getId()));
+        }
+        taskManager.deleteTask(taskManager.getAllTasks().get(50).getId());
+        taskManager.addTask(new Task("Task", "Desc", Status.NEW));
+
+        List<List<? extends Task>> lists = List.of(taskManager.getAllTasks(), taskManager.getAllEpics(),
+                taskManager.getAllSubtask());
+        for (List<? extends Task> list : lists) {
+            assertEquals(200, list.size());
+            for (int i = 1; i < list.size(); i++) {
+                assertTrue(list.get(i - 1).getId() < list.get(i).getId(), "Список должен идти по возрастанию ID");
+            }
+        }
+    }
+
     @Test
         // Тест для проверки получения отсортированного списка задач
     void getPrioritizedTasks_standardCase() {
@@ -344,4 +366,383 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertDoesNotThrow(() -> taskManager.addTask(task3),
                 "Непересекающаяся задача должна добавляться без исключений");
     }
-}
\ No newline at end of file
+
+
+    @Test
+        // Тест для проверки, что задачи с одинаковым временем начала не теряются в отсортированном списке
+    void getPrioritizedTasks_sameStartTime() {
+        LocalDateTime start = LocalDateTime.of(2025, 3, 1, 10, 0);
+        Task task1 = taskManager.addTask(new Task("Task1", "Desc", Status.NEW, Duration.ZERO, start));
+        Task task2 = taskManager.addTask(new Task("Task2", "Desc", Status.NEW, null, start));
+        Task task3 = taskManager.addTask(new Task("Task3", "Desc", Status.NEW,
+                Duration.ofMinutes(30), start.plusHours(1)));
+
+        assertEquals(List.of(task1, task2, task3), taskManager.getPrioritizedTasks());
+        assertEquals(List.of(task1, task2), new ArrayList<>(taskManager.getPrioritizedTasks(start, start.plusHours(1))));
+        assertTrue(taskManager.getPrioritizedTasks(start.plusHours(2), start.plusHours(3)).isEmpty());
+
+        taskManager.deleteTask(task1.getId());
+        assertEquals(List.of(task2, task3), taskManager.getPrioritizedTasks());
+    }
+
+    @Test
+        // Тест для проверки, что задача, время которой изменили до вызова updateTask, не остаётся в списке дважды
+    void getPrioritizedTasks_afterInPlaceUpdate() {
+        Task task = taskManager.addTask(new Task("Task1", "Desc", Status.NEW,
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 3, 1, 10, 0)));
+        task.setStartTime(LocalDateTime.of(2025, 3, 1, 12, 0));
+        taskManager.updateTask(task);
+        assertEquals(1, taskManager.getPrioritizedTasks().size());
+        assertEquals(LocalDateTime.of(2025, 3, 1, 12, 0), taskManager.getPrioritizedTasks().get(0).getStartTime());
+
+        Task read = taskManager.getTask(task.getId()); // То же самое через задачу, прочитанную из менеджера
+        read.setStartTime(LocalDateTime.of(2025, 3, 1, 14, 0));
+        taskManager.updateTask(read);
+        assertEquals(List.of(read), taskManager.getPrioritizedTasks());
+        assertEquals(LocalDateTime.of(2025, 3, 1, 14, 0), taskManager.getPrioritizedTasks().get(0).getStartTime());
+
+        taskManager.deleteTask(task.getId());
+        assertTrue(taskManager.getPrioritizedTasks().isEmpty());
+    }
+
+
+    @Test
+        // Тест для проверки пересечений при обновлении: задача может сдвинуться внутри своего отрезка,
+        // а вложенная в чужой отрезок подзадача отклоняется
+    void testOverlapOnUpdate() {
+        Task task = taskManager.addTask(new Task("Task1", "Desc", Status.NEW,
+                Duration.ofMinutes(60), LocalDateTime.of(2025, 3, 1, 10, 0)));
+        Epic epic = new Epic("Epic1", "Desc");
+        taskManager.addEpic(epic);
+        Subtask subtask = new Subtask("Sub1", "Desc", Status.NEW, epic.getId(),
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 3, 1, 11, 0));
+        taskManager.addSubtask(subtask);
+
+        Task shifted = new Task("Task1", "Desc", Status.NEW, Duration.ofMinutes(60), LocalDateTime.of(2025, 3, 1, 9, 30));
+        shifted.setId(task.getId());
+        assertDoesNotThrow(() -> taskManager.updateTask(shifted), "Пересечение с собственным отрезком допустимо");
+
+        Subtask inside = new Subtask("Sub1", "Desc", Status.NEW, epic.getId(),
+                Duration.ofMinutes(10), LocalDateTime.of(2025, 3, 1, 10, 0));
+        inside.setId(subtask.getId());
+        assertThrows(IllegalArgumentException.class, () -> taskManager.updateSubtask(inside));
+        assertDoesNotThrow(() -> taskManager.addTask(new Task("Task2", "Desc", Status.NEW,
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 3, 1, 11, 30))), "Смежные отрезки не пересекаются");
+    }
+
+
+    @Test
+        // Тест для проверки запросов: фильтры по типу, статусу и окну времени, в том числе для эпика,
+        // статус которого выводится из подзадач
+    void findTasks_byStatusTypeAndWindow() {
+        LocalDateTime start = LocalDateTime.of(2025, 3, 3, 9, 0);
+        Task task = taskManager.addTask(new Task("Task1", "Desc", Status.IN_PROGRESS,
+                Duration.ofMinutes(30), start.plusDays(1)));
+        Task untimed = taskManager.addTask(new Task("Task2", "Desc", Status.NEW));
+        Epic epic = new Epic("Epic1", "Desc");
+        taskManager.addEpic(epic);
+        Subtask early = new Subtask("Sub1", "Desc", Status.IN_PROGRESS, epic.getId(),
+                Duration.ofMinutes(30), start);
+        taskManager.addSubtask(early);
+        Subtask late = new Subtask("Sub2", "Desc", Status.DONE, epic.getId(),
+                Duration.ofMinutes(30), start.plusDays(10));
+        taskManager.addSubtask(late);
+
+        assertEquals(List.of(task, early), taskManager.findTasks(TaskQuery.all()
+                .ofType(TaskType.TASK_TYPE, TaskType.SUBTASK_TYPE).withStatus(Status.IN_PROGRESS)));
+        assertEquals(List.of(untimed), taskManager.findTasks(TaskQuery.all().withStatus(Status.NEW)));
+        // Окно «эта неделя»: эпик начинается вместе с ранней подзадачей, порядок — по времени начала
+        List<Task> week = taskManager.findTasks(TaskQuery.all().startingBetween(start, start.plusDays(7)));
+        assertEquals(List.of(epic.getId(), early.getId(), task.getId()), week.stream().map(Task::getId).toList());
+        assertEquals(List.of(early.getId()), taskManager.findTasks(TaskQuery.all().ofType(TaskType.SUBTASK_TYPE)
+                .withStatus(Status.IN_PROGRESS).startingBetween(start, start.plusDays(7)))
+                .stream().map(Task::getId).toList());
+
+        // Статус подзадачи меняется прямо в объекте — запрос видит новый статус, и эпик становится DONE
+        early.setStatus(Status.DONE);
+        taskManager.updateSubtask(early);
+        assertEquals(List.of(epic.getId(), early.getId(), late.getId()), taskManager.findTasks(
+                TaskQuery.all().withStatus(Status.DONE)).stream().map(Task::getId).toList());
+
+        taskManager.deleteEpic(epic.getId());
+        assertEquals(List.of(task, untimed), taskManager.findTasks(TaskQuery.all()));
+    }
+
+
+    @Test
+        // Тест для проверки запроса «подзадачи эпиков X и Y не в статусе DONE по времени начала, первые N»
+    void findTasks_subtasksOfEpicsOrderedWithLimit() {
+        LocalDateTime start = LocalDateTime.of(2025, 4, 1, 9, 0);
+        Epic first = new Epic("Epic1", "Desc");
+        taskManager.addEpic(first);
+        Epic second = new Epic("Epic2", "Desc");
+        taskManager.addEpic(second);
+        Epic other = new Epic("Epic3", "Desc");
+        taskManager.addEpic(other);
+        Subtask late = new Subtask("Sub1", "Desc", Status.NEW, first.getId(), Duration.ofMinutes(30),
+                start.plusHours(3));
+        taskManager.addSubtask(late);
+        Subtask done = new Subtask("Sub2", "Desc", Status.DONE, first.getId(), Duration.ofMinutes(30), start);
+        taskManager.addSubtask(done);
+        Subtask early = new Subtask("Sub3", "Desc", Status.IN_PROGRESS, second.getId(), Duration.ofMinutes(30),
+                start.plusHours(1));
+        taskManager.addSubtask(early);
+        Subtask untimed = new Subtask("Sub4", "Desc", Status.NEW, second.getId());
+        taskManager.addSubtask(untimed);
+        taskManager.addSubtask(new Subtask("Sub5", "Desc", Status.NEW, other.getId(), Duration.ofMinutes(30),
+                start.plusHours(2)));
+
+        TaskQuery open = TaskQuery.all().subtasksOf(first.getId(), second.getId()).withoutStatus(Status.DONE)
+                .orderByStartTime();
+        assertEquals(List.of(early.getId(), late.getId(), untimed.getId()),
+                taskManager.findTasks(open).stream().map(Task::getId).toList());
+        assertEquals(List.of(early.getId(), late.getId()),
+                taskManager.findTasks(open.limit(2)).stream().map(Task::getId).toList());
+        assertEquals(List.of(late.getId()), taskManager.findTasks(open.where(task -> task.getName().equals("Sub1")))
+                .stream().map(Task::getId).toList());
+        assertTrue(taskManager.findTasks(open.limit(0)).isEmpty());
+        assertEquals(List.of(first.getId(), second.getId()), taskManager.findTasks(TaskQuery.all()
+                .ofType(TaskType.EPIC_TYPE).limit(2)).stream().map(Task::getId).toList());
+    }
+
+
+    @Test
+        // Тест для проверки поиска по словам: AND, OR, поиск по началу слова, лимит и переименование задачи
+    void searchTasks_andOrPrefix() {
+        Task report = taskManager.addTask(new Task("Квартальный отчёт", "Собрать цифры за квартал", Status.NEW));
+        Task shop = taskManager.addTask(new Task("Сходить в магазин", "Купить молоко и хлеб", Status.NEW));
+        Epic epic = new Epic("Переезд", "Отчет о переезде офиса");
+        taskManager.addEpic(epic);
+        Subtask subtask = new Subtask("Купить коробки", "Для переезда", Status.NEW, epic.getId());
+        taskManager.addSubtask(subtask);
+
+        assertEquals(List.of(report, epic), taskManager.searchTasks("отчет", 10)); // «ё» и «е» не различаются
+        assertEquals(List.of(report), taskManager.searchTasks("отчёт КВАРТАЛ", 10));
+        assertEquals(List.of(shop.getId(), subtask.getId()),
+                taskManager.searchTasks("купить", 10).stream().map(Task::getId).toList());
+        // Отчёт и эпик подходят под две группы и стоят выше подзадачи, которая подходит под одну
+        assertEquals(List.of(report.getId(), epic.getId(), subtask.getId()), taskManager.searchTasks(
+                "отчет OR переезд* OR квартал", 10).stream().map(Task::getId).toList());
+        assertEquals(1, taskManager.searchTasks("купить", 1).size());
+        assertTrue(taskManager.searchTasks("самолёт", 10).isEmpty());
+
+        shop.setName("Сходить на почту");
+        shop.setDescription("Отправить посылку");
+        taskManager.updateTask(shop);
+        assertEquals(List.of(subtask.getId()),
+                taskManager.searchTasks("купить", 10).stream().map(Task::getId).toList());
+        assertEquals(List.of(shop), taskManager.searchTasks("почт*", 10));
+        assertTrue(taskManager.searchTasks("почт *", 10).isEmpty()); // Отдельная звёздочка не делает слово началом
+
+        taskManager.deleteEpic(epic.getId());
+        assertTrue(taskManager.searchTasks("переезд* OR коробки", 10).isEmpty());
+    }
+
+
+    @Test
+        // Тест для проверки оптимистичных обновлений: изменение по устаревшей версии отклоняется, а любое
+        // успешное обновление увеличивает версию
+    void compareAndUpdate_rejectsStaleVersion() {
+        Task task = taskManager.addTask(new Task("Task", "Desc", Status.NEW));
+        long version = taskManager.getTask(task.getId()).getVersion();
+
+        Task first = new Task("Первый редактор", "Desc", Status.IN_PROGRESS);
+        first.setId(task.getId());
+        Task second = new Task("Второй редактор", "Desc", Status.DONE);
+        second.setId(task.getId());
+        assertTrue(taskManager.compareAndUpdate(first, version));
+        assertFalse(taskManager.compareAndUpdate(second, version), "Второй редактор читал устаревшую версию");
+        assertEquals("Первый редактор", taskManager.getTask(task.getId()).getName());
+        assertEquals(version + 1, taskManager.getTask(task.getId()).getVersion());
+
+        assertTrue(taskManager.compareAndUpdate(second, taskManager.getTask(task.getId()).getVersion()));
+        assertEquals(Status.DONE, taskManager.getTask(task.getId()).getStatus());
+        Task blind = new Task("Без проверки", "Desc", Status.NEW);
+        blind.setId(task.getId());
+        taskManager.updateTask(blind); // Обычное обновление тоже увеличивает версию
+        assertFalse(taskManager.compareAndUpdate(second, version + 2));
+        assertEquals(version + 3, taskManager.getTask(task.getId()).getVersion());
+
+        Epic epic = new Epic("Epic", "Desc");
+        taskManager.addEpic(epic);
+        Subtask subtask = new Subtask("Sub", "Desc", Status.NEW, epic.getId());
+        taskManager.addSubtask(subtask);
+        long subtaskVersion = taskManager.getSubtask(subtask.getId()).getVersion();
+        Subtask done = new Subtask("Sub", "Desc", Status.DONE, epic.getId());
+        done.setId(subtask.getId());
+        assertTrue(taskManager.compareAndUpdate(done, subtaskVersion));
+        assertFalse(taskManager.compareAndUpdate(done, subtaskVersion));
+        assertEquals(Status.DONE, taskManager.getEpic(epic.getId()).getStatus());
+
+        Epic renamed = taskManager.getEpic(epic.getId());
+        long epicVersion = renamed.getVersion();
+        renamed.setName("Новое название");
+        assertTrue(taskManager.compareAndUpdate(renamed, epicVersion));
+        assertFalse(taskManager.compareAndUpdate(renamed, epicVersion));
+        assertEquals("Новое название", taskManager.getEpic(epic.getId()).getName());
+
+        taskManager.deleteTask(task.getId());
+        assertFalse(taskManager.compareAndUpdate(second, version + 3), "Удалённую задачу обновить нельзя");
+    }
+
+
+    @Test
+        // Тест для проверки постраничного чтения: страницы по курсору идут без пропусков и повторов
+    void pageAfter_walksAllInOrder() {
+        LocalDateTime start = LocalDateTime.of(2025, 3, 1, 10, 0);
+        Task task1 = taskManager.addTask(new Task("Task1", "Desc", Status.NEW, Duration.ZERO, start));
+        Task task2 = taskManager.addTask(new Task("Task2", "Desc", Status.NEW, null, start));
+        Task task3 = taskManager.addTask(new Task("Task3", "Desc", Status.NEW));
+        Task task4 = taskManager.addTask(new Task("Task4", "Desc", Status.NEW,
+                Duration.ofMinutes(30), start.plusHours(1)));
+        Epic epic = new Epic("Epic", "Desc");
+        taskManager.addEpic(epic);
+        Subtask subtask = new Subtask("Sub", "Desc", Status.NEW, epic.getId(), Duration.ZERO, start);
+        taskManager.addSubtask(subtask);
+
+        assertEquals(List.of(task1, task2), taskManager.pageTasksAfter(0, 2));
+        assertEquals(List.of(task3, task4), taskManager.pageTasksAfter(task2.getId(), 2));
+        assertTrue(taskManager.pageTasksAfter(task4.getId(), 2).isEmpty());
+        assertTrue(taskManager.pageTasksAfter(0, 0).isEmpty());
+        assertEquals(List.of(epic), taskManager.pageEpicsAfter(0, 10));
+        assertEquals(List.of(subtask), taskManager.pageSubtasksAfter(epic.getId(), 10));
+        assertEquals(List.of(task1, task2, task3), taskManager.streamTasks().limit(3).toList());
+
+        List<Task> prioritized = taskManager.getPrioritizedTasks();
+        List<Task> walked = new ArrayList<>();
+        List<Task> page = taskManager.pagePrioritizedAfter(null, 0, 2);
+        while (!page.isEmpty()) {
+            walked.addAll(page);
+            Task last = page.get(page.size() - 1);
+            page = taskManager.pagePrioritizedAfter(last.getStartTime(), last.getId(), 2);
+        }
+        assertEquals(prioritized, walked);
+        assertEquals(prioritized, taskManager.streamPrioritizedTasks().toList());
+
+        taskManager.deleteTask(task2.getId());
+        assertEquals(List.of(task1, task3), taskManager.pageTasksAfter(0, 2));
+    }
+
+    @Test
+        // Тест для проверки пакета: статус и время эпика пересчитываются при закрытии пакета
+    void inBatch_recalculatesEpicOnCommit() {
+        Epic epic = new Epic("Epic1", "Desc");
+        taskManager.addEpic(epic);
+
+        taskManager.inBatch(() -> {
+            taskManager.addSubtask(new Subtask("Sub1", "Desc", Status.DONE, epic.getId(),
+                    Duration.ofMinutes(30), LocalDateTime.of(2025, 3, 1, 10, 0)));
+            taskManager.addSubtask(new Subtask("Sub2", "Desc", Status.DONE, epic.getId(),
+                    Duration.ofMinutes(30), LocalDateTime.of(2025, 3, 1, 12, 0)));
+        });
+
+        Epic storedEpic = taskManager.getEpic(epic.getId());
+        assertEquals(2, storedEpic.getSubtaskIdList().size()); // Обе подзадачи попали в эпик
+        assertEquals(Status.DONE, storedEpic.getStatus()); // Статус пересчитан
+        assertEquals(LocalDateTime.of(2025, 3, 1, 10, 0), storedEpic.getStartTime()); // Время пересчитано
+        assertEquals(LocalDateTime.of(2025, 3, 1, 12, 30), storedEpic.getEndTime());
+        assertFalse(taskManager.isInBatch());
+    }
+
+    @Test
+        // Тест для проверки отката пакета: пересечение посреди пакета возвращает состояние до его начала
+    void inBatch_rollsBackOnOverlap() {
+        Task task = taskManager.addTask(new Task("Task1", "Desc", Status.NEW,
+                Duration.ofMinutes(60), LocalDateTime.of(2025, 3, 1, 10, 0)));
+        Epic epic = new Epic("Epic1", "Desc");
+        taskManager.addEpic(epic);
+
+        assertThrows(IllegalArgumentException.class, () -> taskManager.inBatch(() -> {
+            taskManager.deleteTask(task.getId());
+            taskManager.addSubtask(new Subtask("Sub1", "Desc", Status.DONE, epic.getId(),
+                    Duration.ofMinutes(30), LocalDateTime.of(2025, 3, 2, 10, 0)));
+            // Пересекается с подзадачей, добавленной в этом же пакете
+            taskManager.addTask(new Task("Task2", "Desc", Status.NEW,
+                    Duration.ofMinutes(60), LocalDateTime.of(2025, 3, 2, 10, 15)));
+        }));
+
+        assertFalse(taskManager.isInBatch());
+        assertEquals(List.of(task), taskManager.getAllTasks()); // Удалённая в пакете задача вернулась
+        assertTrue(taskManager.getAllSubtask().isEmpty()); // Добавленная в пакете подзадача исчезла
+        assertTrue(taskManager.getEpic(epic.getId()).getSubtaskIdList().isEmpty());
+        assertEquals(Status.NEW, taskManager.getEpic(epic.getId()).getStatus());
+        assertEquals(List.of(task), taskManager.getPrioritizedTasks());
+
+        Task next = taskManager.addTask(new Task("Task3", "Desc", Status.NEW));
+        assertEquals(epic.getId() + 1, next.getId()); // Счётчик ID тоже откатился
+    }
+
+    @Test
+        // Тест для проверки, что после отката чтение возвращает задачу и подзадачу в состоянии до пакета
+    void rollbackBatch_restoresReplacedObjects() {
+        Task task = taskManager.addTask(new Task("Task1", "Desc", Status.NEW));
+        Epic epic = new Epic("Epic1", "Desc");
+        taskManager.addEpic(epic);
+        Subtask subtask = new Subtask("Sub1", "Desc", Status.NEW, epic.getId());
+        taskManager.addSubtask(subtask);
+
+        taskManager.beginBatch();
+        Task changed = new Task("Изменённая", "Desc", Status.DONE);
+        changed.setId(task.getId());
+        taskManager.updateTask(changed);
+        Subtask changedSubtask = new Subtask("Изменённая", "Desc", Status.DONE, epic.getId());
+        changedSubtask.setId(subtask.getId());
+        taskManager.updateSubtask(changedSubtask);
+        taskManager.rollbackBatch();
+
+        Task restored = taskManager.getTask(task.getId());
+        assertEquals("Task1", restored.getName());
+        assertEquals(Status.NEW, restored.getStatus());
+        assertEquals(0, restored.getVersion());
+        Subtask restoredSubtask = taskManager.getSubtask(subtask.getId());
+        assertEquals("Sub1", restoredSubtask.getName());
+        assertEquals(0, restoredSubtask.getVersion());
+        assertEquals(Status.NEW, taskManager.getEpic(epic.getId()).getStatus());
+
+        Epic liveEpic = taskManager.getEpic(epic.getId()); // Версия эпика после отката совпадает с сохранённой
+        assertTrue(taskManager.compareAndUpdate(liveEpic, liveEpic.getVersion()));
+    }
+
+    @Test
+        // Тест для проверки, что откат пакета возвращает удалённый эпик вместе с подзадачами, статусом и временем
+    void rollbackBatch_restoresDeletedEpic() {
+        Epic epic = new Epic("Epic1", "Desc");
+        taskManager.addEpic(epic);
+        LocalDateTime start = LocalDateTime.of(2025, 3, 1, 10, 0);
+        taskManager.addSubtask(new Subtask("Sub1", "Desc", Status.DONE, epic.getId(), Duration.ofMinutes(30), start));
+        taskManager.addSubtask(new Subtask("Sub2", "Desc", Status.DONE, epic.getId(), Duration.ofMinutes(30),
+                start.plusHours(1)));
+
+        taskManager.beginBatch();
+        taskManager.deleteEpic(epic.getId());
+        taskManager.rollbackBatch();
+
+        Epic restored = taskManager.getEpic(epic.getId());
+        assertEquals(2, taskManager.getSubtasksForEpic(epic.getId()).size());
+        assertEquals(2, restored.getSubtaskIdList().size());
+        assertEquals(Status.DONE, restored.getStatus());
+        assertEquals(start, restored.getStartTime());
+        assertEquals(start.plusHours(1).plusMinutes(30), restored.getEndTime());
+        assertEquals(Duration.ofMinutes(60), restored.getDuration());
+        if (taskManager instanceof InMemoryTaskManager inMemory) {
+            assertDoesNotThrow(inMemory::checkEpicCounts); // Счётчики эпика совпадают с пересчитанными
+        }
+
+        taskManager.beginBatch();
+        taskManager.clearEpics();
+        taskManager.rollbackBatch();
+        assertEquals(Status.DONE, taskManager.getEpic(epic.getId()).getStatus());
+        if (taskManager instanceof InMemoryTaskManager inMemory) {
+            assertDoesNotThrow(inMemory::checkEpicCounts);
+        }
+    }
+
+    @Test
+        // Тест для проверки, что пакет нельзя открыть дважды и закрыть без открытия
+    void beginBatch_twiceThrows() {
+        assertThrows(IllegalStateException.class, () -> taskManager.commitBatch());
+        taskManager.beginBatch();
+        assertThrows(IllegalStateException.class, () -> taskManager.beginBatch());
+        taskManager.rollbackBatch();
+    }
+}